@@ -0,0 +1,90 @@
+/*
+ * Copyright © 2018 Mark Raynsford <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.saturn.benchmarks;
+
+import com.io7m.saturn.tests.synthetic.SaturnSyntheticBundleParameters;
+import com.io7m.saturn.tests.synthetic.SaturnSyntheticBundles;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Functions shared by the benchmarks.
+ */
+
+final class SaturnBenchmarkSupport
+{
+  private SaturnBenchmarkSupport()
+  {
+
+  }
+
+  /**
+   * Generate synthetic application bundles with the default shape: each bundle exports one
+   * package and imports packages from two earlier bundles.
+   *
+   * @param directory The output directory
+   * @param count     The number of bundles
+   *
+   * @return The generated bundles
+   *
+   * @throws IOException On I/O errors
+   */
+
+  static List<Path> generateBundles(
+    final Path directory,
+    final int count)
+    throws IOException
+  {
+    return SaturnSyntheticBundles.generate(
+      directory,
+      SaturnSyntheticBundleParameters.builder()
+        .setBundleCount(count)
+        .build());
+  }
+
+  /**
+   * Delete a directory and everything in it, if it exists.
+   *
+   * @param directory The directory
+   *
+   * @throws IOException On I/O errors
+   */
+
+  static void deleteRecursively(
+    final Path directory)
+    throws IOException
+  {
+    if (!Files.exists(directory)) {
+      return;
+    }
+
+    final List<Path> paths;
+    try (Stream<Path> stream = Files.walk(directory)) {
+      paths = stream.sorted(Comparator.reverseOrder()).collect(Collectors.toList());
+    }
+    for (final Path path : paths) {
+      Files.delete(path);
+    }
+  }
+}
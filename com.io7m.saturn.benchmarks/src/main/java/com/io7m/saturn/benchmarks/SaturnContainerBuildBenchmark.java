@@ -0,0 +1,140 @@
+/*
+ * Copyright © 2018 Mark Raynsford <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.saturn.benchmarks;
+
+import com.io7m.saturn.container.api.SaturnContainerBuilderType;
+import com.io7m.saturn.container.api.SaturnContainerDescription;
+import com.io7m.saturn.container.builder.felix.SaturnContainerBuilderFelix;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The time taken to build a container. A clean build writes the container into an empty
+ * directory, and a warm build rebuilds an existing, unchanged container.
+ */
+
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 20)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SaturnContainerBuildBenchmark
+{
+  @Param({"0", "10", "100", "1000"})
+  private int bundles;
+
+  @Param({"CLEAN", "WARM"})
+  private SaturnBenchmarkCache cache;
+
+  private Path directory;
+  private SaturnContainerBuilderType builder;
+  private SaturnContainerDescription description;
+
+  /**
+   * Construct a benchmark.
+   */
+
+  public SaturnContainerBuildBenchmark()
+  {
+
+  }
+
+  /**
+   * Generate the application bundles, and build the container once if builds are warm.
+   *
+   * @throws IOException On I/O errors
+   */
+
+  @Setup(Level.Trial)
+  public void setupTrial()
+    throws IOException
+  {
+    this.directory = Files.createTempDirectory("saturn-benchmark-build-");
+    this.builder = SaturnContainerBuilderFelix.createBuilder();
+    this.description =
+      SaturnContainerDescription.builder()
+        .setPath(this.directory.resolve("container"))
+        .setRemoteShellAddress(InetSocketAddress.createUnresolved("127.0.0.1", 0))
+        .addAllBundles(
+          SaturnBenchmarkSupport.generateBundles(this.directory.resolve("input"), this.bundles))
+        .build();
+
+    if (this.cache == SaturnBenchmarkCache.WARM) {
+      this.builder.createContainer(this.description);
+    }
+  }
+
+  /**
+   * Delete the container before each clean build.
+   *
+   * @throws IOException On I/O errors
+   */
+
+  @Setup(Level.Iteration)
+  public void setupIteration()
+    throws IOException
+  {
+    if (this.cache == SaturnBenchmarkCache.CLEAN) {
+      SaturnBenchmarkSupport.deleteRecursively(this.description.path());
+    }
+  }
+
+  /**
+   * Delete everything created by the benchmark.
+   *
+   * @throws IOException On I/O errors
+   */
+
+  @TearDown(Level.Trial)
+  public void tearDownTrial()
+    throws IOException
+  {
+    SaturnBenchmarkSupport.deleteRecursively(this.directory);
+  }
+
+  /**
+   * Build the container.
+   *
+   * @throws IOException On I/O errors
+   */
+
+  @Benchmark
+  public void createContainer()
+    throws IOException
+  {
+    this.builder.createContainer(this.description);
+  }
+}
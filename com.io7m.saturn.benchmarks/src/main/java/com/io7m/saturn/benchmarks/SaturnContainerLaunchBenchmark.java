@@ -0,0 +1,160 @@
+/*
+ * Copyright © 2018 Mark Raynsford <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.saturn.benchmarks;
+
+import com.io7m.saturn.container.api.SaturnContainerDescription;
+import com.io7m.saturn.container.api.SaturnContainerLauncherType;
+import com.io7m.saturn.container.builder.felix.SaturnContainerBuilderFelix;
+import com.io7m.saturn.container.launcher.felix.SaturnContainerLauncherFelix;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.osgi.framework.launch.Framework;
+
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The time taken to launch a container and wait for it to become ready. A clean launch discards
+ * the bundle cache on startup, and a warm launch reuses the bundle cache of the previous launch.
+ */
+
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 20)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SaturnContainerLaunchBenchmark
+{
+  private static final Duration TIMEOUT = Duration.ofSeconds(60L);
+
+  @Param({"0", "10", "100", "1000"})
+  private int bundles;
+
+  @Param({"CLEAN", "WARM"})
+  private SaturnBenchmarkCache cache;
+
+  private Path directory;
+  private SaturnContainerLauncherType launcher;
+  private SaturnContainerDescription description;
+  private Framework framework;
+
+  /**
+   * Construct a benchmark.
+   */
+
+  public SaturnContainerLaunchBenchmark()
+  {
+
+  }
+
+  /**
+   * Generate the application bundles and build the container. If launches are warm, launch the
+   * container once to populate the bundle cache.
+   *
+   * @throws Exception On errors
+   */
+
+  @Setup(Level.Trial)
+  public void setupTrial()
+    throws Exception
+  {
+    this.directory = Files.createTempDirectory("saturn-benchmark-launch-");
+    this.launcher = SaturnContainerLauncherFelix.createLauncher();
+    this.description =
+      SaturnContainerDescription.builder()
+        .setPath(this.directory.resolve("container"))
+        .setRemoteShellAddress(InetSocketAddress.createUnresolved("127.0.0.1", 0))
+        .setWarmBoot(this.cache == SaturnBenchmarkCache.WARM)
+        .addAllBundles(
+          SaturnBenchmarkSupport.generateBundles(this.directory.resolve("input"), this.bundles))
+        .build();
+
+    SaturnContainerBuilderFelix.createBuilder().createContainer(this.description);
+
+    if (this.cache == SaturnBenchmarkCache.WARM) {
+      this.launchContainer();
+      this.tearDownIteration();
+    }
+  }
+
+  /**
+   * Stop the container launched by the iteration.
+   *
+   * @throws Exception On errors
+   */
+
+  @TearDown(Level.Iteration)
+  public void tearDownIteration()
+    throws Exception
+  {
+    final Framework current = this.framework;
+    this.framework = null;
+    if (current != null) {
+      current.stop();
+      current.waitForStop(TIMEOUT.toMillis());
+    }
+  }
+
+  /**
+   * Delete everything created by the benchmark.
+   *
+   * @throws Exception On errors
+   */
+
+  @TearDown(Level.Trial)
+  public void tearDownTrial()
+    throws Exception
+  {
+    SaturnBenchmarkSupport.deleteRecursively(this.directory);
+  }
+
+  /**
+   * Launch the container and wait for it to become ready.
+   *
+   * @return The running framework
+   *
+   * @throws Exception On errors
+   */
+
+  @Benchmark
+  public Framework launchContainer()
+    throws Exception
+  {
+    this.framework =
+      this.launcher.launchAsync(this.description, TIMEOUT)
+        .toCompletableFuture()
+        .get()
+        .framework();
+    return this.framework;
+  }
+}
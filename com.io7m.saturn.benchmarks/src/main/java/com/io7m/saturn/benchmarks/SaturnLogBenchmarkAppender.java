@@ -0,0 +1,62 @@
+/*
+ * Copyright © 2018 Mark Raynsford <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.saturn.benchmarks;
+
+/**
+ * The logback appender configuration that receives benchmarked log entries.
+ */
+
+public enum SaturnLogBenchmarkAppender
+{
+  /**
+   * Loggers have no appenders, so the cost measured is that of the bridge and of logback's
+   * event construction.
+   */
+
+  NONE("logback-none.xml"),
+
+  /**
+   * Entries are written to a file on the logging thread.
+   */
+
+  FILE("logback-file.xml"),
+
+  /**
+   * Entries are written to a file through an asynchronous appender, as in the default
+   * configuration of a built container.
+   */
+
+  ASYNC_FILE("logback-async-file.xml");
+
+  private final String resource;
+
+  SaturnLogBenchmarkAppender(
+    final String in_resource)
+  {
+    this.resource = in_resource;
+  }
+
+  /**
+   * @return The name of the logback configuration resource
+   */
+
+  String resource()
+  {
+    return this.resource;
+  }
+}
@@ -0,0 +1,288 @@
+/*
+ * Copyright © 2018 Mark Raynsford <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.saturn.benchmarks;
+
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.joran.JoranConfigurator;
+import org.apache.felix.framework.FrameworkFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.osgi.framework.Bundle;
+import org.osgi.framework.BundleContext;
+import org.osgi.framework.Constants;
+import org.osgi.framework.launch.Framework;
+import org.osgi.service.log.LogLevel;
+import org.osgi.service.log.LogListener;
+import org.slf4j.LoggerFactory;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The cost of delivering log entries to SLF4J through the log bridge. Entries are logged by
+ * a set of synthetic bundles installed into a framework that is initialized but not started,
+ * so that the bridge sees real bundles. The bridge classes are private to the log service
+ * bundle and are constructed reflectively, but entries are delivered through the public
+ * {@link LogListener} interface, so nothing reflective is measured. Each benchmark method is
+ * run by a fixed number of threads; other thread counts can be measured with JMH's {@code -t}
+ * option.
+ *
+ * Throughput and sampled latency percentiles are reported for every configuration. Run the
+ * benchmarks with JMH's {@code -prof gc} option to also report the allocation rate per entry.
+ */
+
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SaturnLogBridgeBenchmark
+{
+  private static final int BUNDLES = 8;
+  private static final int ENTRIES = 1024;
+  private static final String PACKAGE = "com.io7m.saturn.container.logservice.";
+  private static final String READER = PACKAGE + "SaturnSLF4JLogReader";
+  private static final String BRIDGE_ASYNC = PACKAGE + "SaturnLogBridgeAsync";
+  private static final String OVERFLOW = PACKAGE + "SaturnLogBridgeOverflow";
+
+  @Param({"SYNCHRONOUS", "ASYNCHRONOUS"})
+  private SaturnLogBenchmarkBridge bridge;
+
+  @Param({"NONE", "FILE", "ASYNC_FILE"})
+  private SaturnLogBenchmarkAppender appender;
+
+  @Param({"DEBUG", "INFO", "ERROR"})
+  private LogLevel level;
+
+  @Param({"0.0", "0.01", "1.0"})
+  private double exceptionRate;
+
+  private Path directory;
+  private Framework framework;
+  private LoggerContext logging;
+  private Object bridge_async;
+  private LogListener listener;
+  private SaturnLogBenchmarkEntry[] entries;
+
+  /**
+   * Construct a benchmark.
+   */
+
+  public SaturnLogBridgeBenchmark()
+  {
+
+  }
+
+  /**
+   * Install the bundles that log, configure logback, and create the bridge and the entries.
+   *
+   * @throws Exception On errors
+   */
+
+  @Setup(Level.Trial)
+  public void setupTrial()
+    throws Exception
+  {
+    this.directory = Files.createTempDirectory("saturn-benchmark-log-");
+    this.configureLogging();
+
+    final Map<String, String> config = new HashMap<>();
+    config.put(Constants.FRAMEWORK_STORAGE, this.directory.resolve("cache").toString());
+    config.put(Constants.FRAMEWORK_STORAGE_CLEAN, Constants.FRAMEWORK_STORAGE_CLEAN_ONFIRSTINIT);
+    this.framework = new FrameworkFactory().newFramework(config);
+    this.framework.init();
+
+    final BundleContext context = this.framework.getBundleContext();
+    final List<Path> paths =
+      SaturnBenchmarkSupport.generateBundles(this.directory.resolve("input"), BUNDLES);
+    final Bundle[] bundles = new Bundle[paths.size()];
+    for (int index = 0; index < bundles.length; ++index) {
+      bundles[index] = context.installBundle(paths.get(index).toUri().toString());
+    }
+
+    final Throwable exception = new IllegalStateException("Benchmark exception");
+    this.entries = new SaturnLogBenchmarkEntry[ENTRIES];
+    for (int index = 0; index < ENTRIES; ++index) {
+      final boolean failed =
+        Math.floor((index + 1) * this.exceptionRate) > Math.floor(index * this.exceptionRate);
+      this.entries[index] =
+        new SaturnLogBenchmarkEntry(
+          bundles[index % bundles.length],
+          this.level,
+          "Entry " + index,
+          failed ? exception : null,
+          (long) index);
+    }
+
+    final LogListener reader = (LogListener) construct(READER, new Class<?>[0]);
+    if (this.bridge == SaturnLogBenchmarkBridge.ASYNCHRONOUS) {
+      final Class<?> overflow = Class.forName(OVERFLOW);
+      this.bridge_async =
+        construct(
+          BRIDGE_ASYNC,
+          new Class<?>[]{Class.forName(READER), int.class, overflow},
+          reader,
+          Integer.valueOf(8192),
+          constant(overflow, "BLOCK"));
+      invoke(this.bridge_async, "start");
+      this.listener = (LogListener) this.bridge_async;
+    } else {
+      this.listener = reader;
+    }
+  }
+
+  private static Object construct(
+    final String name,
+    final Class<?>[] types,
+    final Object... arguments)
+    throws ReflectiveOperationException
+  {
+    final Constructor<?> constructor = Class.forName(name).getDeclaredConstructor(types);
+    constructor.setAccessible(true);
+    return constructor.newInstance(arguments);
+  }
+
+  private static Object constant(
+    final Class<?> type,
+    final String name)
+  {
+    for (final Object constant : type.getEnumConstants()) {
+      if (((Enum<?>) constant).name().equals(name)) {
+        return constant;
+      }
+    }
+    throw new IllegalArgumentException("No such constant: " + name);
+  }
+
+  private static void invoke(
+    final Object target,
+    final String name)
+    throws ReflectiveOperationException
+  {
+    final Method method = target.getClass().getDeclaredMethod(name);
+    method.setAccessible(true);
+    method.invoke(target);
+  }
+
+  private void configureLogging()
+    throws Exception
+  {
+    this.logging = (LoggerContext) LoggerFactory.getILoggerFactory();
+    this.logging.reset();
+    this.logging.putProperty(
+      "saturn.benchmark.log", this.directory.resolve("log.txt").toString());
+
+    final JoranConfigurator configurator = new JoranConfigurator();
+    configurator.setContext(this.logging);
+    configurator.doConfigure(
+      SaturnLogBridgeBenchmark.class.getResource(this.appender.resource()));
+  }
+
+  /**
+   * Stop the bridge, flush and close the appenders, and delete everything created by the
+   * benchmark.
+   *
+   * @throws Exception On errors
+   */
+
+  @TearDown(Level.Trial)
+  public void tearDownTrial()
+    throws Exception
+  {
+    if (this.bridge_async != null) {
+      invoke(this.bridge_async, "stop");
+    }
+    this.logging.reset();
+    this.framework.stop();
+    this.framework.waitForStop(TimeUnit.SECONDS.toMillis(60L));
+    SaturnBenchmarkSupport.deleteRecursively(this.directory);
+  }
+
+  /**
+   * Log entries from a single thread.
+   *
+   * @param cursor The position of the thread in the entries
+   */
+
+  @Benchmark
+  @Threads(1)
+  public void logUncontended(
+    final Cursor cursor)
+  {
+    this.listener.logged(this.entries[cursor.next()]);
+  }
+
+  /**
+   * Log entries from eight threads at once.
+   *
+   * @param cursor The position of the thread in the entries
+   */
+
+  @Benchmark
+  @Threads(8)
+  public void logContended(
+    final Cursor cursor)
+  {
+    this.listener.logged(this.entries[cursor.next()]);
+  }
+
+  /**
+   * The position of a logging thread in the preallocated entries.
+   */
+
+  @State(Scope.Thread)
+  public static class Cursor
+  {
+    private int index;
+
+    /**
+     * Construct a cursor.
+     */
+
+    public Cursor()
+    {
+
+    }
+
+    final int next()
+    {
+      final int current = this.index;
+      this.index = (current + 1) & (ENTRIES - 1);
+      return current;
+    }
+  }
+}
@@ -46,12 +46,25 @@ public final class Main implements Runnable
 
     final SaturnCommandRoot r = new SaturnCommandRoot();
 
+    final SaturnCommandArchive cmd_archive = new SaturnCommandArchive();
+    final SaturnCommandBench cmd_bench = new SaturnCommandBench();
     final SaturnCommandBuild cmd_build = new SaturnCommandBuild();
-    this.commands = new HashMap<>(8);
+    final SaturnCommandRun cmd_run = new SaturnCommandRun();
+    final SaturnCommandStoreGC cmd_store_gc = new SaturnCommandStoreGC();
+
+    this.commands = new HashMap<>(16);
+    this.commands.put("archive", cmd_archive);
+    this.commands.put("bench", cmd_bench);
     this.commands.put("build", cmd_build);
+    this.commands.put("run", cmd_run);
+    this.commands.put("store-gc", cmd_store_gc);
 
     this.commander = new JCommander(r);
+    this.commander.addCommand("archive", cmd_archive);
+    this.commander.addCommand("bench", cmd_bench);
     this.commander.addCommand("build", cmd_build);
+    this.commander.addCommand("run", cmd_run);
+    this.commander.addCommand("store-gc", cmd_store_gc);
     this.commander.setProgramName("saturn");
   }
 
@@ -0,0 +1,194 @@
+/*
+ * Copyright © 2018 Mark Raynsford <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.saturn.cmdline;
+
+import com.io7m.saturn.container.api.SaturnStartupPhase;
+import com.io7m.saturn.container.api.SaturnStartupReport;
+import com.io7m.saturn.container.builder.felix.SaturnContainerBoot;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * The results of a series of boots, grouped by boot mode. The metrics of each boot are the time
+ * taken by the process from being spawned until the container was ready, the total boot time
+ * recorded by the launcher, and the time of each startup phase. The CPU time of the process is
+ * not known, and is reported as zero.
+ */
+
+final class SaturnBenchResults
+{
+  private static final double[] PERCENTILES = {0.50, 0.90, 0.99};
+  private static final String PROCESS = "process";
+  private static final String TOTAL = "total";
+
+  private final Map<String, List<SaturnContainerBoot>> boots;
+
+  SaturnBenchResults(
+    final Map<String, List<SaturnContainerBoot>> in_boots)
+  {
+    this.boots = new LinkedHashMap<>(Objects.requireNonNull(in_boots, "boots"));
+  }
+
+  /**
+   * @return A table of the wall-clock time percentiles of each metric, in milliseconds
+   */
+
+  String table()
+  {
+    final StringBuilder text = new StringBuilder(1024);
+    text.append(String.format(
+      "%-6s %-24s %10s %10s %10s%n", "mode", "metric", "p50(ms)", "p90(ms)", "p99(ms)"));
+
+    for (final Map.Entry<String, List<SaturnContainerBoot>> mode : this.boots.entrySet()) {
+      final Map<String, List<SaturnStartupPhase>> metrics = metrics(mode.getValue());
+      for (final Map.Entry<String, List<SaturnStartupPhase>> metric : metrics.entrySet()) {
+        final long[] wall = sortedWallNanos(metric.getValue());
+        text.append(String.format("%-6s %-24s", mode.getKey(), metric.getKey()));
+        for (final double p : PERCENTILES) {
+          text.append(String.format(" %10.1f", Double.valueOf(percentile(wall, p) / 1_000_000.0)));
+        }
+        text.append(System.lineSeparator());
+      }
+    }
+    return text.toString();
+  }
+
+  /**
+   * @return Every measurement of every boot as CSV, one row per metric per boot
+   */
+
+  String toCSV()
+  {
+    final StringBuilder text = new StringBuilder(4096);
+    text.append("mode,boot,metric,wallNanos,cpuNanos\n");
+
+    for (final Map.Entry<String, List<SaturnContainerBoot>> mode : this.boots.entrySet()) {
+      final List<SaturnContainerBoot> mode_boots = mode.getValue();
+      for (int index = 0; index < mode_boots.size(); ++index) {
+        for (final SaturnStartupPhase metric : metricsOf(mode_boots.get(index))) {
+          text.append(mode.getKey()).append(',');
+          text.append(index).append(',');
+          text.append(metric.name()).append(',');
+          text.append(metric.wallTime().toNanos()).append(',');
+          text.append(metric.cpuTime().toNanos()).append('\n');
+        }
+      }
+    }
+    return text.toString();
+  }
+
+  /**
+   * @return The percentiles and the wall-clock times of each metric as JSON, in nanoseconds
+   */
+
+  String toJSON()
+  {
+    final StringBuilder text = new StringBuilder(4096);
+    text.append('{');
+    boolean first_mode = true;
+    for (final Map.Entry<String, List<SaturnContainerBoot>> mode : this.boots.entrySet()) {
+      text.append(first_mode ? "\n" : ",\n");
+      first_mode = false;
+      text.append("  \"").append(mode.getKey()).append("\": {");
+
+      boolean first_metric = true;
+      final Map<String, List<SaturnStartupPhase>> metrics = metrics(mode.getValue());
+      for (final Map.Entry<String, List<SaturnStartupPhase>> metric : metrics.entrySet()) {
+        text.append(first_metric ? "\n" : ",\n");
+        first_metric = false;
+        metricJSON(text, metric.getKey(), metric.getValue());
+      }
+      text.append("\n  }");
+    }
+    text.append("\n}\n");
+    return text.toString();
+  }
+
+  private static void metricJSON(
+    final StringBuilder text,
+    final String name,
+    final List<SaturnStartupPhase> samples)
+  {
+    final long[] wall = sortedWallNanos(samples);
+    text.append("    \"").append(name).append("\": { ");
+    for (final double p : PERCENTILES) {
+      text.append("\"p").append(Math.round(p * 100.0)).append("Nanos\": ");
+      text.append(percentile(wall, p)).append(", ");
+    }
+    text.append("\"wallNanos\": [");
+    for (int index = 0; index < samples.size(); ++index) {
+      if (index > 0) {
+        text.append(", ");
+      }
+      text.append(samples.get(index).wallTime().toNanos());
+    }
+    text.append("] }");
+  }
+
+  private static Map<String, List<SaturnStartupPhase>> metrics(
+    final List<SaturnContainerBoot> boots)
+  {
+    final Map<String, List<SaturnStartupPhase>> metrics = new LinkedHashMap<>();
+    for (final SaturnContainerBoot boot : boots) {
+      for (final SaturnStartupPhase metric : metricsOf(boot)) {
+        metrics.computeIfAbsent(metric.name(), name -> new ArrayList<>()).add(metric);
+      }
+    }
+    return metrics;
+  }
+
+  private static List<SaturnStartupPhase> metricsOf(
+    final SaturnContainerBoot boot)
+  {
+    final SaturnStartupReport report = boot.startupReport();
+    final List<SaturnStartupPhase> metrics = new ArrayList<>(report.phases().size() + 2);
+    metrics.add(SaturnStartupPhase.of(PROCESS, boot.processWallTime(), Duration.ZERO));
+    metrics.add(SaturnStartupPhase.of(TOTAL, report.wallTime(), report.cpuTime()));
+    metrics.addAll(report.phases());
+    return metrics;
+  }
+
+  private static long[] sortedWallNanos(
+    final List<SaturnStartupPhase> samples)
+  {
+    final long[] wall =
+      samples.stream()
+        .mapToLong(sample -> sample.wallTime().toNanos())
+        .toArray();
+    Arrays.sort(wall);
+    return wall;
+  }
+
+  /**
+   * @return The nearest-rank percentile {@code p} of the given sorted values
+   */
+
+  private static long percentile(
+    final long[] sorted,
+    final double p)
+  {
+    final int rank = (int) Math.ceil(p * (double) sorted.length);
+    return sorted[Math.max(0, Math.min(sorted.length - 1, rank - 1))];
+  }
+}
@@ -0,0 +1,73 @@
+/*
+ * Copyright © 2018 Mark Raynsford <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.saturn.cmdline;
+
+import com.beust.jcommander.Parameter;
+import com.beust.jcommander.Parameters;
+import com.io7m.saturn.container.builder.felix.SaturnContainerArchives;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+/**
+ * A command for creating class data sharing archives for built containers.
+ */
+
+@Parameters(
+  commandNames = "archive",
+  commandDescription = "Perform a training boot of a container and create a class data sharing archive for it")
+public final class SaturnCommandArchive extends SaturnCommandRoot
+{
+  private static final Logger LOG = LoggerFactory.getLogger(SaturnCommandArchive.class);
+
+  @Parameter(
+    names = "--container",
+    required = true,
+    description = "The container directory")
+  private Path path_container;
+
+  @Parameter(
+    names = "--timeout-seconds",
+    description = "The maximum time in seconds allowed for the training boot")
+  private long timeout_seconds = 300L;
+
+  /**
+   * Construct a command.
+   */
+
+  public SaturnCommandArchive()
+  {
+
+  }
+
+  @Override
+  public Status execute()
+    throws Exception
+  {
+    super.execute();
+
+    final Path archive =
+      SaturnContainerArchives.createArchive(
+        this.path_container.toAbsolutePath(),
+        Duration.ofSeconds(this.timeout_seconds));
+
+    LOG.info("created archive {}", archive);
+    return Status.SUCCESS;
+  }
+}
@@ -0,0 +1,154 @@
+/*
+ * Copyright © 2018 Mark Raynsford <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.saturn.cmdline;
+
+import com.beust.jcommander.Parameter;
+import com.beust.jcommander.Parameters;
+import com.io7m.saturn.container.builder.felix.SaturnContainerBoot;
+import com.io7m.saturn.container.builder.felix.SaturnContainerBoots;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A command for measuring the boot time of built containers. The container is booted repeatedly
+ * in fresh JVMs, first cold (discarding the bundle cache) and then warm (reusing it), and
+ * percentiles of the process boot time, the total boot time, and each startup phase are
+ * printed.
+ */
+
+@Parameters(
+  commandNames = "bench",
+  commandDescription = "Boot a built container repeatedly in fresh JVMs and report boot time percentiles")
+public final class SaturnCommandBench extends SaturnCommandRoot
+{
+  private static final Logger LOG = LoggerFactory.getLogger(SaturnCommandBench.class);
+
+  @Parameter(
+    names = "--container",
+    required = true,
+    description = "The container directory")
+  private Path path_container;
+
+  @Parameter(
+    names = "--iterations",
+    description = "The number of measured boots in each mode")
+  private int iterations = 10;
+
+  @Parameter(
+    names = "--warmup-iterations",
+    description = "The number of unmeasured boots performed before the measured boots in each mode")
+  private int warmup_iterations = 1;
+
+  @Parameter(
+    names = "--timeout-seconds",
+    description = "The maximum time in seconds allowed for each boot")
+  private long timeout_seconds = 300L;
+
+  @Parameter(
+    names = "--java-option",
+    description = "Extra options passed to each JVM")
+  private List<String> java_options = List.of();
+
+  @Parameter(
+    names = "--output-csv",
+    description = "Write every measurement to the given file as CSV")
+  private Path output_csv;
+
+  @Parameter(
+    names = "--output-json",
+    description = "Write the percentiles and measurements to the given file as JSON")
+  private Path output_json;
+
+  /**
+   * Construct a command.
+   */
+
+  public SaturnCommandBench()
+  {
+
+  }
+
+  @Override
+  public Status execute()
+    throws Exception
+  {
+    super.execute();
+
+    if (this.iterations < 1) {
+      LOG.error("at least one iteration is required");
+      return Status.FAILURE;
+    }
+
+    final Map<String, List<SaturnContainerBoot>> boots = new LinkedHashMap<>();
+    boots.put("cold", this.boots(false));
+    boots.put("warm", this.boots(true));
+
+    final SaturnBenchResults results = new SaturnBenchResults(boots);
+    System.out.print(results.table());
+    System.out.flush();
+
+    if (this.output_csv != null) {
+      Files.writeString(this.output_csv, results.toCSV(), StandardCharsets.UTF_8);
+      LOG.info("wrote {}", this.output_csv);
+    }
+    if (this.output_json != null) {
+      Files.writeString(this.output_json, results.toJSON(), StandardCharsets.UTF_8);
+      LOG.info("wrote {}", this.output_json);
+    }
+    return Status.SUCCESS;
+  }
+
+  private List<SaturnContainerBoot> boots(
+    final boolean warm_boot)
+    throws IOException
+  {
+    final String mode = warm_boot ? "warm" : "cold";
+    final Duration timeout = Duration.ofSeconds(this.timeout_seconds);
+
+    for (int index = 0; index < this.warmup_iterations; ++index) {
+      LOG.info("{} warmup boot {}/{}", mode, Integer.valueOf(index + 1),
+               Integer.valueOf(this.warmup_iterations));
+      SaturnContainerBoots.boot(this.path_container, warm_boot, this.java_options, timeout);
+    }
+
+    final List<SaturnContainerBoot> boots = new ArrayList<>(this.iterations);
+    for (int index = 0; index < this.iterations; ++index) {
+      final SaturnContainerBoot boot =
+        SaturnContainerBoots.boot(this.path_container, warm_boot, this.java_options, timeout);
+      LOG.info(
+        "{} boot {}/{}: {}ms (process {}ms)",
+        mode,
+        Integer.valueOf(index + 1),
+        Integer.valueOf(this.iterations),
+        Long.valueOf(boot.startupReport().wallTime().toMillis()),
+        Long.valueOf(boot.processWallTime().toMillis()));
+      boots.add(boot);
+    }
+    return boots;
+  }
+}
@@ -20,12 +20,16 @@ import com.beust.jcommander.Parameter;
 import com.beust.jcommander.Parameters;
 import com.io7m.saturn.container.api.SaturnContainerBuilderType;
 import com.io7m.saturn.container.api.SaturnContainerDescription;
+import com.io7m.saturn.container.api.SaturnLogBridgeOverflow;
 import com.io7m.saturn.container.builder.felix.SaturnContainerBuilderFelix;
+import com.io7m.saturn.container.builder.felix.SaturnContainerBundleStore;
+import com.io7m.saturn.container.builder.felix.SaturnContainerRuntimes;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.net.InetSocketAddress;
 import java.nio.file.Path;
+import java.time.Duration;
 import java.util.List;
 
 /**
@@ -60,6 +64,117 @@ public final class SaturnCommandBuild extends SaturnCommandRoot
     description = "Bundles to be installed")
   private List<Path> bundles = List.of();
 
+  @Parameter(
+    names = "--bundle-install-threads",
+    description = "The number of threads used to install bundles (1 installs bundles serially)")
+  private int bundle_install_threads = 1;
+
+  @Parameter(
+    names = "--bundle-start-threads",
+    description = "The number of threads used to start bundles (1 starts bundles serially)")
+  private int bundle_start_threads = 1;
+
+  @Parameter(
+    names = "--warm-boot",
+    description = "Preserve the bundle cache across restarts, reinstalling only changed bundles")
+  private boolean warm_boot;
+
+  @Parameter(
+    names = "--log-bridge-asynchronous",
+    description = "Pass log entries to SLF4J asynchronously on a dedicated thread")
+  private boolean log_bridge_asynchronous;
+
+  @Parameter(
+    names = "--log-bridge-queue-capacity",
+    description = "The maximum number of entries queued by the asynchronous log bridge")
+  private int log_bridge_queue_capacity = 8192;
+
+  @Parameter(
+    names = "--log-bridge-overflow",
+    description = "The policy applied when the asynchronous log bridge queue is full")
+  private SaturnLogBridgeOverflow log_bridge_overflow = SaturnLogBridgeOverflow.BLOCK;
+
+  @Parameter(
+    names = "--log-bridge-rate-limit",
+    description = "The maximum number of log entries per second passed to SLF4J for each bundle (0 is unlimited)")
+  private int log_bridge_rate_limit;
+
+  @Parameter(
+    names = "--log-bridge-rate-burst",
+    description = "The number of log entries each bundle may log in a burst above the rate limit")
+  private int log_bridge_rate_burst = 100;
+
+  @Parameter(
+    names = "--log-bridge-deduplication-window-ms",
+    description = "The window in milliseconds within which repeated log entries are suppressed (0 disables)")
+  private long log_bridge_deduplication_window_ms;
+
+  @Parameter(
+    names = "--bundle-store",
+    description = "Link the host and system bundles from a shared content-addressed store in this directory")
+  private Path bundle_store;
+
+  @Parameter(
+    names = "--runtime",
+    description = "Create a jlink runtime image in the container containing only the required JDK modules")
+  private boolean runtime;
+
+  @Parameter(
+    names = "--runtime-add-module",
+    description = "Additional JDK modules to include in the runtime image")
+  private List<String> runtime_modules = List.of();
+
+  @Parameter(
+    names = "--resolver-parallelism",
+    description = "The number of threads used by the framework resolver (0 uses the framework default)")
+  private int resolver_parallelism;
+
+  @Parameter(
+    names = "--boot-delegation",
+    description = "Packages loaded from the boot class path by every bundle (org.osgi.framework.bootdelegation)")
+  private List<String> boot_delegation = List.of();
+
+  @Parameter(
+    names = "--cache-buffer-size",
+    description = "The size in bytes of the buffer used by the framework when copying into the bundle cache")
+  private int cache_buffer_size = 4096;
+
+  @Parameter(
+    names = "--cache-locking",
+    arity = 1,
+    description = "Lock the bundle cache so that it cannot be used by two frameworks at once")
+  private boolean cache_locking = true;
+
+  @Parameter(
+    names = "--framework-start-level",
+    description = "The start level that the framework is raised to")
+  private int framework_start_level = 1000;
+
+  @Parameter(
+    names = "--system-bundle-start-level",
+    description = "The start level assigned to system bundles")
+  private int system_bundle_start_level = 10;
+
+  @Parameter(
+    names = "--application-bundle-start-level",
+    description = "The start level assigned to application bundles")
+  private int application_bundle_start_level = 20;
+
+  @Parameter(
+    names = "--critical-start-level",
+    description = "Report the container as launched at this start level, starting the rest in the background")
+  private int critical_start_level;
+
+  @Parameter(
+    names = "--lazy-activation",
+    description = "Start application bundles that declare a lazy activation policy lazily")
+  private boolean lazy_activation;
+
+  @Parameter(
+    names = "--add-lazy-bundle",
+    description = "Bundles to be installed and started with their activation policy")
+  private List<Path> lazy_bundles = List.of();
+
   /**
    * Construct a command.
    */
@@ -75,13 +190,39 @@ public final class SaturnCommandBuild extends SaturnCommandRoot
   {
     super.execute();
 
-    final SaturnContainerBuilderType builder =
-      SaturnContainerBuilderFelix.createBuilder();
+    final SaturnContainerBuilderType builder;
+    if (this.bundle_store != null) {
+      builder =
+        SaturnContainerBuilderFelix.createBuilderWithStore(
+          SaturnContainerBundleStore.open(this.bundle_store));
+    } else {
+      builder = SaturnContainerBuilderFelix.createBuilder();
+    }
 
     final SaturnContainerDescription description =
       SaturnContainerDescription.builder()
         .setPath(this.path_output.toAbsolutePath())
         .addAllBundles(this.bundles)
+        .setBundleInstallThreads(this.bundle_install_threads)
+        .setBundleStartThreads(this.bundle_start_threads)
+        .setWarmBoot(this.warm_boot)
+        .setLogBridgeAsynchronous(this.log_bridge_asynchronous)
+        .setLogBridgeQueueCapacity(this.log_bridge_queue_capacity)
+        .setLogBridgeOverflow(this.log_bridge_overflow)
+        .setLogBridgeRateLimit(this.log_bridge_rate_limit)
+        .setLogBridgeRateBurst(this.log_bridge_rate_burst)
+        .setLogBridgeDeduplicationWindow(Duration.ofMillis(this.log_bridge_deduplication_window_ms))
+        .setResolverParallelism(this.resolver_parallelism)
+        .addAllBootDelegation(this.boot_delegation)
+        .setCacheBufferSize(this.cache_buffer_size)
+        .setCacheLocking(this.cache_locking)
+        .setFrameworkStartLevel(this.framework_start_level)
+        .setSystemBundleStartLevel(this.system_bundle_start_level)
+        .setApplicationBundleStartLevel(this.application_bundle_start_level)
+        .setCriticalStartLevel(this.critical_start_level)
+        .setLazyActivation(this.lazy_activation)
+        .addAllBundles(this.lazy_bundles)
+        .addAllLazyBundles(this.lazy_bundles)
         .setRemoteShellAddress(
           InetSocketAddress.createUnresolved(
             this.remote_shell_address,
@@ -89,6 +230,13 @@ public final class SaturnCommandBuild extends SaturnCommandRoot
         .build();
 
     builder.createContainer(description);
+
+    if (this.runtime) {
+      final Path runtime_path =
+        SaturnContainerRuntimes.createRuntime(
+          description.path(), description.bundles(), this.runtime_modules);
+      LOG.info("runtime image {}", runtime_path);
+    }
     return Status.SUCCESS;
   }
 }
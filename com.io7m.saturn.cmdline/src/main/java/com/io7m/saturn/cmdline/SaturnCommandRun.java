@@ -0,0 +1,257 @@
+/*
+ * Copyright © 2018 Mark Raynsford <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.saturn.cmdline;
+
+import com.beust.jcommander.Parameter;
+import com.beust.jcommander.Parameters;
+import com.io7m.saturn.container.api.SaturnBundleDiagnosis;
+import com.io7m.saturn.container.api.SaturnContainerDescription;
+import com.io7m.saturn.container.api.SaturnContainerDescriptions;
+import com.io7m.saturn.container.api.SaturnContainerInstance;
+import com.io7m.saturn.container.api.SaturnContainerLauncherType;
+import com.io7m.saturn.container.api.SaturnContainerNotReadyException;
+import com.io7m.saturn.container.api.SaturnStartupReports;
+import com.io7m.saturn.container.launcher.felix.SaturnContainerLauncherFelix;
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+import org.osgi.framework.BundleException;
+import org.osgi.framework.FrameworkEvent;
+import org.osgi.framework.launch.Framework;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * A command for launching built containers in-process.
+ *
+ * The command exits with status 2 if the container fails to start, and with status 3 if the
+ * container starts but does not become ready within the timeout. Otherwise, the command runs
+ * until the container stops. If the process is terminated, the container is stopped first.
+ */
+
+@Parameters(
+  commandNames = "run",
+  commandDescription = "Launch a built container in this process and run until it stops")
+public final class SaturnCommandRun extends SaturnCommandRoot
+{
+  private static final Logger LOG = LoggerFactory.getLogger(SaturnCommandRun.class);
+
+  private static final Duration SHUTDOWN_TIMEOUT = Duration.ofMinutes(1L);
+
+  @Parameter(
+    names = "--container",
+    required = true,
+    description = "The container directory")
+  private Path path_container;
+
+  @Parameter(
+    names = "--wait-ready",
+    description = "Wait for every bundle and component to become ready before reporting startup")
+  private boolean wait_ready;
+
+  @Parameter(
+    names = "--ready-timeout-seconds",
+    description = "The maximum time in seconds allowed for the container to become ready")
+  private long ready_timeout_seconds = 300L;
+
+  @Parameter(
+    names = "--print-startup-report",
+    description = "Print the startup timing report as JSON on the standard output")
+  private boolean print_report;
+
+  @Parameter(
+    names = "--jfr-output",
+    description = "Record a flight recording of the boot phase to the given file")
+  private Path jfr_output;
+
+  @Parameter(
+    names = "--jfr-configuration",
+    description = "The name of the flight recorder configuration used for the boot phase")
+  private String jfr_configuration = "profile";
+
+  /**
+   * Construct a command.
+   */
+
+  public SaturnCommandRun()
+  {
+
+  }
+
+  @Override
+  public Status execute()
+    throws Exception
+  {
+    super.execute();
+
+    final SaturnContainerDescription description = this.loadDescription();
+    final SaturnContainerInstance instance;
+
+    /*
+     * Register the shutdown hook before launching, so that a container that is terminated
+     * whilst it is still booting (or waiting to become ready) is stopped too. The hook waits
+     * for the launch to produce a framework, if any.
+     */
+
+    final CompletableFuture<Framework> launched = new CompletableFuture<>();
+    Runtime.getRuntime().addShutdownHook(
+      new Thread(() -> stopOnShutdown(launched), "com.io7m.saturn.cmdline.shutdown"));
+
+    final Recording recording = this.startRecording();
+    try {
+      instance = this.launch(description);
+      launched.complete(instance.framework());
+    } catch (final SaturnContainerNotReadyException e) {
+      LOG.error("{}", e.getMessage());
+      for (final SaturnBundleDiagnosis diagnosis : e.diagnoses()) {
+        LOG.error(
+          "bundle {} {} ({}): {}",
+          Long.valueOf(diagnosis.id()),
+          diagnosis.symbolicName(),
+          diagnosis.state(),
+          String.join("; ", diagnosis.problems()));
+      }
+      final Framework framework = e.instance().framework();
+      launched.complete(framework);
+      framework.stop();
+      framework.waitForStop(0L);
+      return Status.NOT_READY;
+    } catch (final Exception e) {
+      LOG.error("container failed to start: ", e);
+      return Status.START_FAILED;
+    } finally {
+      launched.complete(null);
+      this.stopRecording(recording);
+    }
+
+    if (this.print_report) {
+      System.out.print(SaturnStartupReports.toJSON(instance.startupReport()));
+      System.out.flush();
+    }
+
+    LOG.info("container {}", this.wait_ready ? "ready" : "started");
+
+    final Framework framework = instance.framework();
+    final FrameworkEvent result = framework.waitForStop(0L);
+    final Throwable failure = result.getThrowable();
+    if (failure != null) {
+      LOG.error("container failed: ", failure);
+      return Status.FAILURE;
+    }
+    return Status.SUCCESS;
+  }
+
+  private static void stopOnShutdown(
+    final CompletableFuture<Framework> launched)
+  {
+    try {
+      final Framework framework =
+        launched.get(SHUTDOWN_TIMEOUT.toMillis(), TimeUnit.MILLISECONDS);
+      if (framework != null) {
+        framework.stop();
+        framework.waitForStop(SHUTDOWN_TIMEOUT.toMillis());
+      }
+    } catch (final TimeoutException e) {
+      LOG.error("container did not finish launching before shutdown");
+    } catch (final BundleException | ExecutionException e) {
+      LOG.error("error stopping container: ", e);
+    } catch (final InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private SaturnContainerDescription loadDescription()
+    throws IOException
+  {
+    final Path file = this.path_container.toAbsolutePath().resolve("container.conf");
+    final Properties props = new Properties();
+    try (InputStream stream = Files.newInputStream(file)) {
+      props.load(stream);
+    }
+    return SaturnContainerDescriptions.parse(file.getFileSystem(), props);
+  }
+
+  private SaturnContainerInstance launch(
+    final SaturnContainerDescription description)
+    throws Exception
+  {
+    final SaturnContainerLauncherType launcher = SaturnContainerLauncherFelix.createLauncher();
+    if (!this.wait_ready) {
+      return launcher.launchInstance(description);
+    }
+
+    try {
+      return launcher.launchAsync(description, Duration.ofSeconds(this.ready_timeout_seconds))
+        .toCompletableFuture()
+        .get();
+    } catch (final ExecutionException e) {
+      final Throwable cause = e.getCause();
+      if (cause instanceof Exception) {
+        throw (Exception) cause;
+      }
+      throw e;
+    }
+  }
+
+  private Recording startRecording()
+    throws Exception
+  {
+    if (this.jfr_output == null) {
+      return null;
+    }
+
+    final Recording recording =
+      new Recording(Configuration.getConfiguration(this.jfr_configuration));
+    recording.setName("saturn-boot");
+    recording.start();
+    return recording;
+  }
+
+  /**
+   * Stop and write the boot recording. Failures are logged rather than raised, as the recording
+   * is stopped in a {@code finally} block and must not replace the launch result.
+   */
+
+  private void stopRecording(
+    final Recording recording)
+  {
+    if (recording == null) {
+      return;
+    }
+
+    try {
+      recording.stop();
+      recording.dump(this.jfr_output.toAbsolutePath());
+      LOG.info("wrote boot flight recording {}", this.jfr_output);
+    } catch (final IOException e) {
+      LOG.error("could not write boot flight recording {}: ", this.jfr_output, e);
+    } finally {
+      recording.close();
+    }
+  }
+}
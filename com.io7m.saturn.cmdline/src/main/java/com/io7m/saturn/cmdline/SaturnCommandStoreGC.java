@@ -0,0 +1,63 @@
+/*
+ * Copyright © 2018 Mark Raynsford <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.saturn.cmdline;
+
+import com.beust.jcommander.Parameter;
+import com.beust.jcommander.Parameters;
+import com.io7m.saturn.container.builder.felix.SaturnContainerBundleStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.file.Path;
+
+/**
+ * A command for deleting unreferenced bundles from a shared bundle store.
+ */
+
+@Parameters(
+  commandNames = "store-gc",
+  commandDescription = "Delete bundles that are no longer linked into any container from a bundle store")
+public final class SaturnCommandStoreGC extends SaturnCommandRoot
+{
+  private static final Logger LOG = LoggerFactory.getLogger(SaturnCommandStoreGC.class);
+
+  @Parameter(
+    names = "--bundle-store",
+    description = "The bundle store directory")
+  private Path bundle_store = SaturnContainerBundleStore.defaultDirectory();
+
+  /**
+   * Construct a command.
+   */
+
+  public SaturnCommandStoreGC()
+  {
+
+  }
+
+  @Override
+  public Status execute()
+    throws Exception
+  {
+    super.execute();
+
+    final SaturnContainerBundleStore store = SaturnContainerBundleStore.open(this.bundle_store);
+    final long deleted = store.collectGarbage();
+    LOG.info("deleted {} unreferenced bundles from {}", Long.valueOf(deleted), store.directory());
+    return Status.SUCCESS;
+  }
+}
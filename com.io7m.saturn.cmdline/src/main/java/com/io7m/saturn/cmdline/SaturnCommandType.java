@@ -24,7 +24,9 @@ interface SaturnCommandType
   enum Status
   {
     SUCCESS,
-    FAILURE;
+    FAILURE,
+    START_FAILED,
+    NOT_READY;
 
     int exitCode()
     {
@@ -33,6 +35,10 @@ interface SaturnCommandType
           return 0;
         case FAILURE:
           return 1;
+        case START_FAILED:
+          return 2;
+        case NOT_READY:
+          return 3;
       }
       throw new IllegalStateException();
     }
@@ -0,0 +1,146 @@
+/*
+ * Copyright © 2018 Mark Raynsford <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.saturn.cmdline;
+
+import com.io7m.saturn.container.api.SaturnStartupPhase;
+import com.io7m.saturn.container.api.SaturnStartupReport;
+import com.io7m.saturn.container.builder.felix.SaturnContainerBoot;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+public final class SaturnBenchResultsTest
+{
+  private static SaturnContainerBoot boot(
+    final long process_ms,
+    final long total_ms,
+    final long phase_ms)
+  {
+    return SaturnContainerBoot.of(
+      SaturnStartupReport.builder()
+        .setTimeStarted(Instant.EPOCH)
+        .setWallTime(Duration.ofMillis(total_ms))
+        .setCpuTime(Duration.ofMillis(total_ms / 2L))
+        .addPhases(
+          SaturnStartupPhase.of("framework-init", Duration.ofMillis(phase_ms), Duration.ofMillis(1L)))
+        .build(),
+      Duration.ofMillis(process_ms));
+  }
+
+  private static SaturnBenchResults single()
+  {
+    final Map<String, List<SaturnContainerBoot>> boots = new LinkedHashMap<>();
+    boots.put("cold", List.of(boot(150L, 100L, 40L)));
+    return new SaturnBenchResults(boots);
+  }
+
+  /**
+   * @return Ten cold boots with total times of 1ms to 10ms, and ten warm boots with total times
+   * of 11ms to 20ms, in a scrambled order
+   */
+
+  private static SaturnBenchResults series()
+  {
+    final List<SaturnContainerBoot> cold = new ArrayList<>();
+    final List<SaturnContainerBoot> warm = new ArrayList<>();
+    for (final long index : new long[]{7L, 3L, 10L, 1L, 5L, 9L, 2L, 8L, 4L, 6L}) {
+      cold.add(boot(index + 100L, index, 1L));
+      warm.add(boot(index + 110L, index + 10L, 1L));
+    }
+
+    final Map<String, List<SaturnContainerBoot>> boots = new LinkedHashMap<>();
+    boots.put("cold", cold);
+    boots.put("warm", warm);
+    return new SaturnBenchResults(boots);
+  }
+
+  @Test
+  public void testCSV()
+  {
+    Assertions.assertEquals(
+      "mode,boot,metric,wallNanos,cpuNanos\n"
+        + "cold,0,process,150000000,0\n"
+        + "cold,0,total,100000000,50000000\n"
+        + "cold,0,framework-init,40000000,1000000\n",
+      single().toCSV());
+  }
+
+  @Test
+  public void testJSON()
+  {
+    Assertions.assertEquals(
+      "{\n"
+        + "  \"cold\": {\n"
+        + "    \"process\": { \"p50Nanos\": 150000000, \"p90Nanos\": 150000000, "
+        + "\"p99Nanos\": 150000000, \"wallNanos\": [150000000] },\n"
+        + "    \"total\": { \"p50Nanos\": 100000000, \"p90Nanos\": 100000000, "
+        + "\"p99Nanos\": 100000000, \"wallNanos\": [100000000] },\n"
+        + "    \"framework-init\": { \"p50Nanos\": 40000000, \"p90Nanos\": 40000000, "
+        + "\"p99Nanos\": 40000000, \"wallNanos\": [40000000] }\n"
+        + "  }\n"
+        + "}\n",
+      single().toJSON());
+  }
+
+  @Test
+  public void testPercentiles()
+  {
+    final String json = series().toJSON();
+
+    /*
+     * Nearest-rank percentiles of ten samples: p50 is the fifth, p90 the ninth, and p99 the
+     * tenth. The samples themselves are listed in the order in which the boots were run.
+     */
+
+    Assertions.assertTrue(
+      json.contains(
+        "\"total\": { \"p50Nanos\": 5000000, \"p90Nanos\": 9000000, \"p99Nanos\": 10000000, "
+          + "\"wallNanos\": [7000000, 3000000, 10000000, 1000000, 5000000, 9000000, 2000000, "
+          + "8000000, 4000000, 6000000] }"),
+      json);
+    Assertions.assertTrue(
+      json.contains(
+        "\"process\": { \"p50Nanos\": 115000000, \"p90Nanos\": 119000000, \"p99Nanos\": 120000000"),
+      json);
+  }
+
+  @Test
+  public void testTable()
+  {
+    final String[] lines = series().table().split(System.lineSeparator());
+
+    Assertions.assertEquals(7, lines.length);
+    Assertions.assertEquals(
+      String.format("%-6s %-24s %10s %10s %10s", "mode", "metric", "p50(ms)", "p90(ms)", "p99(ms)"),
+      lines[0]);
+    Assertions.assertEquals(
+      String.format("%-6s %-24s %10.1f %10.1f %10.1f", "cold", "process", 105.0, 109.0, 110.0),
+      lines[1]);
+    Assertions.assertEquals(
+      String.format("%-6s %-24s %10.1f %10.1f %10.1f", "cold", "total", 5.0, 9.0, 10.0),
+      lines[2]);
+    Assertions.assertEquals(
+      String.format("%-6s %-24s %10.1f %10.1f %10.1f", "warm", "total", 15.0, 19.0, 20.0),
+      lines[5]);
+  }
+}
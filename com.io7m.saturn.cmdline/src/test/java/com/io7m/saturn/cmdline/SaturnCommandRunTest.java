@@ -0,0 +1,149 @@
+/*
+ * Copyright © 2018 Mark Raynsford <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.saturn.cmdline;
+
+import com.beust.jcommander.JCommander;
+import com.io7m.saturn.container.api.SaturnContainerDescription;
+import com.io7m.saturn.container.api.SaturnContainerDescriptions;
+import com.io7m.saturn.container.builder.felix.SaturnContainerBuilderFelix;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.osgi.framework.Constants;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.jar.Attributes;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+
+public final class SaturnCommandRunTest
+{
+  private static SaturnCommandType.Status run(
+    final String... args)
+    throws Exception
+  {
+    final SaturnCommandRun command = new SaturnCommandRun();
+    JCommander.newBuilder()
+      .addObject(command)
+      .build()
+      .parse(args);
+    return command.execute();
+  }
+
+  /**
+   * Write a bundle declaring a component that requires a service that nothing provides, so that
+   * the component can never be satisfied.
+   */
+
+  private static Path writeUnsatisfiedBundle(
+    final Path file)
+    throws IOException
+  {
+    final Manifest manifest = new Manifest();
+    final Attributes attributes = manifest.getMainAttributes();
+    attributes.put(Attributes.Name.MANIFEST_VERSION, "1.0");
+    attributes.putValue(Constants.BUNDLE_MANIFESTVERSION, "2");
+    attributes.putValue(Constants.BUNDLE_SYMBOLICNAME, "com.io7m.saturn.cmdline.unsatisfied");
+    attributes.putValue(Constants.BUNDLE_VERSION, "1.0.0");
+    attributes.putValue("Service-Component", "OSGI-INF/unsatisfied.xml");
+
+    final String component =
+      "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+        + "<scr:component xmlns:scr=\"http://www.osgi.org/xmlns/scr/v1.3.0\" "
+        + "name=\"com.io7m.saturn.cmdline.unsatisfied\">\n"
+        + "  <implementation class=\"java.lang.Object\"/>\n"
+        + "  <reference name=\"missing\" interface=\"com.io7m.saturn.cmdline.Missing\" "
+        + "cardinality=\"1..1\"/>\n"
+        + "</scr:component>\n";
+
+    try (JarOutputStream output = new JarOutputStream(Files.newOutputStream(file), manifest)) {
+      output.putNextEntry(new JarEntry("OSGI-INF/unsatisfied.xml"));
+      output.write(component.getBytes(StandardCharsets.UTF_8));
+      output.closeEntry();
+    }
+    return file;
+  }
+
+  @Test
+  public void testStartFailed()
+  {
+    Assertions.assertTimeout(Duration.ofSeconds(30L), () -> {
+      final Path path =
+        Files.createTempDirectory("saturn-cmdline-run-");
+
+      final SaturnContainerDescription description =
+        SaturnContainerDescription.builder()
+          .setPath(path)
+          .setRemoteShellAddress(InetSocketAddress.createUnresolved("127.0.0.1", 6013))
+          .build();
+
+      SaturnContainerBuilderFelix.createBuilder().createContainer(description);
+
+      /*
+       * The builder would reject a nonexistent bundle, so add it to the configuration of the
+       * built container.
+       */
+
+      try (OutputStream output = Files.newOutputStream(path.resolve("container.conf"))) {
+        SaturnContainerDescriptions.serialize(
+          SaturnContainerDescription.builder()
+            .from(description)
+            .addBundles(path.resolve("nonexistent.jar"))
+            .build())
+          .store(output, "");
+      }
+
+      final SaturnCommandType.Status status = run("--container", path.toString());
+      Assertions.assertEquals(SaturnCommandType.Status.START_FAILED, status);
+      Assertions.assertEquals(2, status.exitCode());
+    });
+  }
+
+  @Test
+  public void testNotReady()
+  {
+    Assertions.assertTimeout(Duration.ofSeconds(30L), () -> {
+      final Path path =
+        Files.createTempDirectory("saturn-cmdline-run-");
+      final Path bundle =
+        writeUnsatisfiedBundle(Files.createTempFile("saturn-cmdline-unsatisfied-", ".jar"));
+
+      final SaturnContainerDescription description =
+        SaturnContainerDescription.builder()
+          .setPath(path)
+          .setRemoteShellAddress(InetSocketAddress.createUnresolved("127.0.0.1", 6014))
+          .addBundles(bundle)
+          .build();
+
+      SaturnContainerBuilderFelix.createBuilder().createContainer(description);
+
+      final SaturnCommandType.Status status =
+        run(
+          "--container", path.toString(),
+          "--wait-ready",
+          "--ready-timeout-seconds", "5");
+      Assertions.assertEquals(SaturnCommandType.Status.NOT_READY, status);
+      Assertions.assertEquals(3, status.exitCode());
+    });
+  }
+}
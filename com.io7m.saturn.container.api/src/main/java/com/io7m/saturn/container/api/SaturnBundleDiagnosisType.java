@@ -0,0 +1,60 @@
+/*
+ * Copyright © 2018 Mark Raynsford <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.saturn.container.api;
+
+import com.io7m.immutables.styles.ImmutablesStyleType;
+import org.immutables.value.Value;
+
+import java.util.List;
+
+/**
+ * A diagnosis of a bundle that prevented a container from becoming ready.
+ */
+
+@ImmutablesStyleType
+@Value.Immutable
+public interface SaturnBundleDiagnosisType
+{
+  /**
+   * @return The bundle ID
+   */
+
+  @Value.Parameter
+  long id();
+
+  /**
+   * @return The bundle symbolic name
+   */
+
+  @Value.Parameter
+  String symbolicName();
+
+  /**
+   * @return The name of the state of the bundle at the time of diagnosis
+   */
+
+  @Value.Parameter
+  String state();
+
+  /**
+   * @return The problems that prevented the bundle from becoming ready
+   */
+
+  @Value.Parameter
+  List<String> problems();
+}
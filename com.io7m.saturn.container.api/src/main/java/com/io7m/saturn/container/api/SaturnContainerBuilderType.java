@@ -29,7 +29,8 @@ public interface SaturnContainerBuilderType
    *
    * @param description The description of the container
    *
-   * @throws IOException On errors
+   * @throws IOException On errors, including {@link SaturnContainerUnresolvedException} if the
+   *                     bundles of the container cannot be resolved
    */
 
   void createContainer(SaturnContainerDescription description)
@@ -21,6 +21,10 @@ import org.immutables.value.Value;
 
 import java.net.InetSocketAddress;
 import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
 
 /**
@@ -37,6 +41,26 @@ public interface SaturnContainerDescriptionType
 
   Path path();
 
+  /**
+   * The directory that holds the framework's bundle cache. If no directory is
+   * specified, the cache is held in the {@code cache} directory of
+   * {@link #path()}.
+   *
+   * @return The bundle cache directory
+   */
+
+  Optional<Path> cacheDirectory();
+
+  /**
+   * The file to which the launcher writes the startup report. If no file is
+   * specified, the report is written to {@code startup.json} in
+   * {@link #path()}.
+   *
+   * @return The startup report file
+   */
+
+  Optional<Path> startupReportFile();
+
   /**
    * @return The set of bundles that will be installed into the container
    */
@@ -48,4 +72,369 @@ public interface SaturnContainerDescriptionType
    */
 
   InetSocketAddress remoteShellAddress();
+
+  /**
+   * The number of threads that will be used to install bundles. A value of
+   * {@code 1} indicates that bundles will be installed serially, one at a time.
+   *
+   * @return The number of threads used to install bundles
+   */
+
+  @Value.Default
+  default int bundleInstallThreads()
+  {
+    return 1;
+  }
+
+  /**
+   * The number of threads that will be used to start bundles. Bundles are
+   * started in dependency order: a bundle is only started once all of the
+   * bundles to which it is wired have been started. A value of {@code 1}
+   * indicates that bundles will be started serially, one at a time.
+   *
+   * @return The number of threads used to start bundles
+   */
+
+  @Value.Default
+  default int bundleStartThreads()
+  {
+    return 1;
+  }
+
+  /**
+   * Whether or not the container should be warm-booted. When a container is
+   * warm-booted, the framework's bundle cache is preserved across restarts.
+   * Bundles that have not changed since the previous boot are not reinstalled,
+   * and only bundles that have been added, changed, or removed are installed,
+   * updated, or uninstalled, respectively.
+   *
+   * @return {@code true} if the container should be warm-booted
+   */
+
+  @Value.Default
+  default boolean warmBoot()
+  {
+    return false;
+  }
+
+  /**
+   * Whether or not log entries are passed from the OSGi log service to SLF4J
+   * asynchronously. When enabled, entries are placed into a bounded queue and
+   * forwarded in batches by a dedicated thread, so that the threads on which
+   * the log service delivers entries are not held up by SLF4J.
+   *
+   * @return {@code true} if the log bridge is asynchronous
+   */
+
+  @Value.Default
+  default boolean logBridgeAsynchronous()
+  {
+    return false;
+  }
+
+  /**
+   * @return The maximum number of entries held in the asynchronous log bridge queue
+   */
+
+  @Value.Default
+  default int logBridgeQueueCapacity()
+  {
+    return 8192;
+  }
+
+  /**
+   * @return The policy applied when the asynchronous log bridge queue is full
+   */
+
+  @Value.Default
+  default SaturnLogBridgeOverflow logBridgeOverflow()
+  {
+    return SaturnLogBridgeOverflow.BLOCK;
+  }
+
+  /**
+   * The maximum sustained rate, in entries per second, at which each bundle's
+   * log entries are passed to SLF4J. Entries beyond the rate are suppressed,
+   * and a summary of the number of suppressed entries is logged periodically.
+   * A value of {@code 0} disables rate limiting.
+   *
+   * @return The per-bundle log rate limit
+   */
+
+  @Value.Default
+  default int logBridgeRateLimit()
+  {
+    return 0;
+  }
+
+  /**
+   * @return The number of entries each bundle may log in a burst above the rate limit
+   */
+
+  @Value.Default
+  default int logBridgeRateBurst()
+  {
+    return 100;
+  }
+
+  /**
+   * The window within which repeated entries from a bundle, with an identical
+   * message and exception fingerprint, are suppressed after the first. A
+   * summary of the number of suppressed entries is logged when the window
+   * ends. A zero duration disables deduplication.
+   *
+   * @return The log deduplication window
+   */
+
+  @Value.Default
+  default Duration logBridgeDeduplicationWindow()
+  {
+    return Duration.ZERO;
+  }
+
+  /**
+   * The number of threads used by the framework's resolver. A value of
+   * {@code 0} leaves the choice to the framework, which uses one thread per
+   * available processor.
+   *
+   * @return The resolver parallelism
+   */
+
+  @Value.Default
+  default int resolverParallelism()
+  {
+    return 0;
+  }
+
+  /**
+   * The packages that are always loaded from the parent class loader, as
+   * specified by {@code org.osgi.framework.bootdelegation}. Each entry is a
+   * package name, optionally ending in {@code .*}, or a single {@code *}.
+   *
+   * @return The boot delegation packages
+   */
+
+  List<String> bootDelegation();
+
+  /**
+   * @return The size in bytes of the buffers used when writing to the framework's bundle cache
+   */
+
+  @Value.Default
+  default int cacheBufferSize()
+  {
+    return 4096;
+  }
+
+  /**
+   * Whether or not the framework locks its bundle cache. Locking prevents two
+   * frameworks from using the same cache, but costs a file lock on every boot.
+   *
+   * @return {@code true} if the bundle cache is locked
+   */
+
+  @Value.Default
+  default boolean cacheLocking()
+  {
+    return true;
+  }
+
+  /**
+   * @return The start level to which the framework is raised once it has started
+   */
+
+  @Value.Default
+  default int frameworkStartLevel()
+  {
+    return 1000;
+  }
+
+  /**
+   * @return The start level assigned to system bundles
+   */
+
+  @Value.Default
+  default int systemBundleStartLevel()
+  {
+    return 10;
+  }
+
+  /**
+   * @return The start level assigned to application bundles that have no specific start level
+   */
+
+  @Value.Default
+  default int applicationBundleStartLevel()
+  {
+    return 20;
+  }
+
+  /**
+   * The critical start level for a staged boot. If this is non-zero, the launcher raises the
+   * framework to this level, starts the bundles at or below it, and reports the container as
+   * launched. The remaining start levels are then raised one at a time in the background. If this
+   * is zero, every bundle is started before the container is reported as launched.
+   *
+   * @return The critical start level, or {@code 0} to disable staged booting
+   */
+
+  @Value.Default
+  default int criticalStartLevel()
+  {
+    return 0;
+  }
+
+  /**
+   * Specific start levels for individual application bundles. Every key must
+   * be one of {@link #bundles()}.
+   *
+   * @return The start levels of individual application bundles
+   */
+
+  Map<Path, Integer> bundleStartLevels();
+
+  /**
+   * If this is {@code true}, every application bundle that declares a lazy
+   * {@code Bundle-ActivationPolicy} is started with its activation policy, so
+   * that its activator runs on the first class load from the bundle rather
+   * than at boot.
+   *
+   * @return {@code true} if the activation policy of all application bundles is honoured
+   */
+
+  @Value.Default
+  default boolean lazyActivation()
+  {
+    return false;
+  }
+
+  /**
+   * Application bundles that are started with their activation policy even if
+   * {@link #lazyActivation()} is {@code false}. Every element must be one of
+   * {@link #bundles()}. The framework can only activate a bundle lazily if the
+   * bundle declares a lazy {@code Bundle-ActivationPolicy}; other bundles are
+   * started eagerly.
+   *
+   * @return The application bundles that are started lazily
+   */
+
+  Set<Path> lazyBundles();
+
+  /**
+   * Check preconditions for the type.
+   */
+
+  @Value.Check
+  default void checkPreconditions()
+  {
+    if (this.bundleInstallThreads() < 1) {
+      throw new IllegalArgumentException(
+        "Bundle install threads must be >= 1 (received " + this.bundleInstallThreads() + ")");
+    }
+    if (this.bundleStartThreads() < 1) {
+      throw new IllegalArgumentException(
+        "Bundle start threads must be >= 1 (received " + this.bundleStartThreads() + ")");
+    }
+    if (this.logBridgeQueueCapacity() < 1) {
+      throw new IllegalArgumentException(
+        "Log bridge queue capacity must be >= 1 (received " + this.logBridgeQueueCapacity() + ")");
+    }
+    if (this.logBridgeRateLimit() < 0) {
+      throw new IllegalArgumentException(
+        "Log bridge rate limit must be >= 0 (received " + this.logBridgeRateLimit() + ")");
+    }
+    if (this.logBridgeRateBurst() < 1) {
+      throw new IllegalArgumentException(
+        "Log bridge rate burst must be >= 1 (received " + this.logBridgeRateBurst() + ")");
+    }
+    if (this.logBridgeDeduplicationWindow().isNegative()) {
+      throw new IllegalArgumentException(
+        "Log bridge deduplication window must be non-negative (received "
+          + this.logBridgeDeduplicationWindow() + ")");
+    }
+    this.checkFrameworkPreconditions();
+
+    for (final Path lazy : this.lazyBundles()) {
+      if (!this.bundles().contains(lazy)) {
+        throw new IllegalArgumentException(
+          "Only bundles in the container may be started lazily (received " + lazy + ")");
+      }
+    }
+  }
+
+  private void checkFrameworkPreconditions()
+  {
+    if (this.resolverParallelism() < 0) {
+      throw new IllegalArgumentException(
+        "Resolver parallelism must be >= 0 (received " + this.resolverParallelism() + ")");
+    }
+    for (final String delegated : this.bootDelegation()) {
+      if (!isBootDelegationEntry(delegated)) {
+        throw new IllegalArgumentException(
+          "Boot delegation entries must be package names or wildcards (received "
+            + delegated + ")");
+      }
+    }
+    if (this.cacheBufferSize() < 1) {
+      throw new IllegalArgumentException(
+        "Cache buffer size must be >= 1 (received " + this.cacheBufferSize() + ")");
+    }
+    if (this.frameworkStartLevel() < 1) {
+      throw new IllegalArgumentException(
+        "Framework start level must be >= 1 (received " + this.frameworkStartLevel() + ")");
+    }
+    final int maximum = this.frameworkStartLevel();
+    checkStartLevel("System bundle start level", this.systemBundleStartLevel(), maximum);
+    checkStartLevel("Application bundle start level", this.applicationBundleStartLevel(), maximum);
+    if (this.criticalStartLevel() != 0) {
+      checkStartLevel("Critical start level", this.criticalStartLevel(), maximum);
+    }
+    for (final Map.Entry<Path, Integer> entry : this.bundleStartLevels().entrySet()) {
+      if (!this.bundles().contains(entry.getKey())) {
+        throw new IllegalArgumentException(
+          "Start levels may only be specified for bundles in the container (received "
+            + entry.getKey() + ")");
+      }
+      checkStartLevel("Start level of " + entry.getKey(), entry.getValue().intValue(), maximum);
+    }
+  }
+
+  private static boolean isBootDelegationEntry(
+    final String text)
+  {
+    if ("*".equals(text)) {
+      return true;
+    }
+
+    final String name = text.endsWith(".*") ? text.substring(0, text.length() - 2) : text;
+    for (final String segment : name.split("\\.", -1)) {
+      if (segment.isEmpty() || !Character.isJavaIdentifierStart(segment.charAt(0))) {
+        return false;
+      }
+      for (int index = 1; index < segment.length(); ++index) {
+        if (!Character.isJavaIdentifierPart(segment.charAt(index))) {
+          return false;
+        }
+      }
+    }
+    return true;
+  }
+
+  private static void checkStartLevel(
+    final String name,
+    final int level,
+    final int maximum)
+  {
+    if (level < 1 || level > maximum) {
+      throw new IllegalArgumentException(
+        new StringBuilder(128)
+          .append(name)
+          .append(" must be in the range [1, ")
+          .append(maximum)
+          .append("] (received ")
+          .append(level)
+          .append(")")
+          .toString());
+    }
+  }
 }
@@ -20,8 +20,11 @@ import java.io.IOException;
 import java.net.InetSocketAddress;
 import java.nio.file.FileSystem;
 import java.nio.file.Path;
+import java.time.Duration;
 import java.util.Objects;
 import java.util.Properties;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
 
 /**
  * Functions to serialize and parse container descriptions.
@@ -57,14 +60,27 @@ public final class SaturnContainerDescriptions
 
     IOException exception = null;
     exception = parsePath(filesystem, properties, builder, exception);
+    exception = parseOptionalPaths(filesystem, properties, builder, exception);
     exception = parseRemoteShellAddress(properties, builder, exception);
     exception = parseBundles(filesystem, properties, builder, exception);
+    exception = parsePositiveInteger(
+      properties, "saturn.bundle_install_threads", builder::setBundleInstallThreads, exception);
+    exception = parsePositiveInteger(
+      properties, "saturn.bundle_start_threads", builder::setBundleStartThreads, exception);
+    exception = parseWarmBoot(properties, builder, exception);
+    exception = parseLogBridge(properties, builder, exception);
+    exception = parseLogBridgeLimits(properties, builder, exception);
+    exception = parseFramework(properties, builder, exception);
 
     if (exception != null) {
       throw exception;
     }
 
-    return builder.build();
+    try {
+      return builder.build();
+    } catch (final IllegalArgumentException e) {
+      throw new IOException(e.getMessage(), e);
+    }
   }
 
   private static IOException parseRemoteShellAddress(
@@ -93,6 +109,7 @@ public final class SaturnContainerDescriptions
     final SaturnContainerDescription.Builder builder,
     final IOException exception)
   {
+    IOException result = exception;
     int index = 0;
     while (true) {
       final String bundle_path = properties.getProperty("saturn.bundle." + Integer.toUnsignedString(
@@ -101,10 +118,236 @@ public final class SaturnContainerDescriptions
         break;
       }
 
-      builder.addBundles(filesystem.getPath(bundle_path).toAbsolutePath());
+      final Path path = filesystem.getPath(bundle_path).toAbsolutePath();
+      builder.addBundles(path);
+      result = parsePositiveInteger(
+        properties,
+        "saturn.bundle_start_level." + Integer.toUnsignedString(index),
+        level -> builder.putBundleStartLevels(path, Integer.valueOf(level)),
+        result);
+      result = parseBoolean(
+        properties,
+        "saturn.bundle_lazy." + Integer.toUnsignedString(index),
+        lazy -> {
+          if (lazy.booleanValue()) {
+            builder.addLazyBundles(path);
+          }
+        },
+        result);
       ++index;
     }
-    return exception;
+    return result;
+  }
+
+  private static IOException parsePositiveInteger(
+    final Properties properties,
+    final String key,
+    final IntConsumer receiver,
+    final IOException exception)
+  {
+    final String text = properties.getProperty(key);
+    if (text == null) {
+      return exception;
+    }
+
+    try {
+      final int value = Integer.parseInt(text);
+      if (value < 1) {
+        return addException(
+          exception,
+          "Value of " + key + " must be >= 1 (received " + text + ")");
+      }
+      receiver.accept(value);
+      return exception;
+    } catch (final NumberFormatException e) {
+      return addException(
+        exception,
+        "Unparseable value for " + key + ": " + e.getMessage());
+    }
+  }
+
+  private static IOException parseWarmBoot(
+    final Properties properties,
+    final SaturnContainerDescription.Builder builder,
+    final IOException exception)
+  {
+    final String warm = properties.getProperty("saturn.warm_boot");
+    if (warm == null) {
+      return exception;
+    }
+
+    switch (warm) {
+      case "true": {
+        builder.setWarmBoot(true);
+        return exception;
+      }
+      case "false": {
+        builder.setWarmBoot(false);
+        return exception;
+      }
+      default: {
+        return addException(
+          exception,
+          "Value of saturn.warm_boot must be true or false (received " + warm + ")");
+      }
+    }
+  }
+
+  private static IOException parseLogBridge(
+    final Properties properties,
+    final SaturnContainerDescription.Builder builder,
+    final IOException exception)
+  {
+    IOException result = exception;
+
+    final String async = properties.getProperty("saturn.log_bridge_asynchronous");
+    if (async != null) {
+      switch (async) {
+        case "true": {
+          builder.setLogBridgeAsynchronous(true);
+          break;
+        }
+        case "false": {
+          builder.setLogBridgeAsynchronous(false);
+          break;
+        }
+        default: {
+          result = addException(
+            result,
+            "Value of saturn.log_bridge_asynchronous must be true or false (received "
+              + async + ")");
+          break;
+        }
+      }
+    }
+
+    result = parsePositiveInteger(
+      properties, "saturn.log_bridge_queue_capacity", builder::setLogBridgeQueueCapacity, result);
+
+    final String overflow = properties.getProperty("saturn.log_bridge_overflow");
+    if (overflow != null) {
+      try {
+        builder.setLogBridgeOverflow(SaturnLogBridgeOverflow.valueOf(overflow));
+      } catch (final IllegalArgumentException e) {
+        result = addException(
+          result,
+          "Value of saturn.log_bridge_overflow must be one of BLOCK, DROP_OLDEST, DROP_NEWEST (received "
+            + overflow + ")");
+      }
+    }
+    return result;
+  }
+
+  private static IOException parseLogBridgeLimits(
+    final Properties properties,
+    final SaturnContainerDescription.Builder builder,
+    final IOException exception)
+  {
+    IOException result = exception;
+    result = parseNonNegativeInteger(
+      properties, "saturn.log_bridge_rate_limit", builder::setLogBridgeRateLimit, result);
+    result = parsePositiveInteger(
+      properties, "saturn.log_bridge_rate_burst", builder::setLogBridgeRateBurst, result);
+    result = parseNonNegativeInteger(
+      properties,
+      "saturn.log_bridge_deduplication_window_ms",
+      value -> builder.setLogBridgeDeduplicationWindow(Duration.ofMillis(value)),
+      result);
+    return result;
+  }
+
+  private static IOException parseFramework(
+    final Properties properties,
+    final SaturnContainerDescription.Builder builder,
+    final IOException exception)
+  {
+    IOException result = exception;
+    result = parseNonNegativeInteger(
+      properties, "saturn.resolver_parallelism", builder::setResolverParallelism, result);
+
+    final String delegation = properties.getProperty("saturn.boot_delegation");
+    if (delegation != null) {
+      for (final String entry : delegation.split(",")) {
+        final String trimmed = entry.trim();
+        if (!trimmed.isEmpty()) {
+          builder.addBootDelegation(trimmed);
+        }
+      }
+    }
+
+    result = parsePositiveInteger(
+      properties, "saturn.cache_buffer_size", builder::setCacheBufferSize, result);
+    result = parseBoolean(
+      properties, "saturn.cache_locking", builder::setCacheLocking, result);
+    result = parsePositiveInteger(
+      properties, "saturn.framework_start_level", builder::setFrameworkStartLevel, result);
+    result = parsePositiveInteger(
+      properties, "saturn.system_bundle_start_level", builder::setSystemBundleStartLevel, result);
+    result = parsePositiveInteger(
+      properties,
+      "saturn.application_bundle_start_level",
+      builder::setApplicationBundleStartLevel,
+      result);
+    result = parseNonNegativeInteger(
+      properties, "saturn.critical_start_level", builder::setCriticalStartLevel, result);
+    result = parseBoolean(
+      properties, "saturn.lazy_activation", builder::setLazyActivation, result);
+    return result;
+  }
+
+  private static IOException parseBoolean(
+    final Properties properties,
+    final String key,
+    final Consumer<Boolean> receiver,
+    final IOException exception)
+  {
+    final String text = properties.getProperty(key);
+    if (text == null) {
+      return exception;
+    }
+
+    switch (text) {
+      case "true": {
+        receiver.accept(Boolean.TRUE);
+        return exception;
+      }
+      case "false": {
+        receiver.accept(Boolean.FALSE);
+        return exception;
+      }
+      default: {
+        return addException(
+          exception,
+          "Value of " + key + " must be true or false (received " + text + ")");
+      }
+    }
+  }
+
+  private static IOException parseNonNegativeInteger(
+    final Properties properties,
+    final String key,
+    final IntConsumer receiver,
+    final IOException exception)
+  {
+    final String text = properties.getProperty(key);
+    if (text == null) {
+      return exception;
+    }
+
+    try {
+      final int value = Integer.parseInt(text);
+      if (value < 0) {
+        return addException(
+          exception,
+          "Value of " + key + " must be >= 0 (received " + text + ")");
+      }
+      receiver.accept(value);
+      return exception;
+    } catch (final NumberFormatException e) {
+      return addException(
+        exception,
+        "Unparseable value for " + key + ": " + e.getMessage());
+    }
   }
 
   private static IOException parsePath(
@@ -122,6 +365,24 @@ public final class SaturnContainerDescriptions
     return exception;
   }
 
+  private static IOException parseOptionalPaths(
+    final FileSystem filesystem,
+    final Properties properties,
+    final SaturnContainerDescription.Builder builder,
+    final IOException exception)
+  {
+    final String cache = properties.getProperty("saturn.cache_directory");
+    if (cache != null) {
+      builder.setCacheDirectory(filesystem.getPath(cache).toAbsolutePath());
+    }
+
+    final String report = properties.getProperty("saturn.startup_report_file");
+    if (report != null) {
+      builder.setStartupReportFile(filesystem.getPath(report).toAbsolutePath());
+    }
+    return exception;
+  }
+
   private static IOException addException(
     final IOException exception,
     final String message)
@@ -129,7 +390,7 @@ public final class SaturnContainerDescriptions
     if (exception == null) {
       return new IOException(message);
     }
-    exception.addSuppressed(exception);
+    exception.addSuppressed(new IOException(message));
     return exception;
   }
 
@@ -148,6 +409,10 @@ public final class SaturnContainerDescriptions
 
     final Properties props = new Properties();
     props.setProperty("saturn.path", description.path().toAbsolutePath().toString());
+    description.cacheDirectory().ifPresent(
+      path -> props.setProperty("saturn.cache_directory", path.toAbsolutePath().toString()));
+    description.startupReportFile().ifPresent(
+      path -> props.setProperty("saturn.startup_report_file", path.toAbsolutePath().toString()));
 
     props.setProperty(
       "saturn.remote_shell_address",
@@ -161,9 +426,74 @@ public final class SaturnContainerDescriptions
       props.setProperty(
         "saturn.bundle." + Integer.toUnsignedString(index),
         bundle.toAbsolutePath().toString());
+      final Integer level = description.bundleStartLevels().get(bundle);
+      if (level != null) {
+        props.setProperty(
+          "saturn.bundle_start_level." + Integer.toUnsignedString(index),
+          level.toString());
+      }
+      if (description.lazyBundles().contains(bundle)) {
+        props.setProperty(
+          "saturn.bundle_lazy." + Integer.toUnsignedString(index),
+          "true");
+      }
       ++index;
     }
 
+    props.setProperty(
+      "saturn.bundle_install_threads",
+      Integer.toString(description.bundleInstallThreads()));
+    props.setProperty(
+      "saturn.bundle_start_threads",
+      Integer.toString(description.bundleStartThreads()));
+    props.setProperty(
+      "saturn.warm_boot",
+      Boolean.toString(description.warmBoot()));
+    props.setProperty(
+      "saturn.log_bridge_asynchronous",
+      Boolean.toString(description.logBridgeAsynchronous()));
+    props.setProperty(
+      "saturn.log_bridge_queue_capacity",
+      Integer.toString(description.logBridgeQueueCapacity()));
+    props.setProperty(
+      "saturn.log_bridge_overflow",
+      description.logBridgeOverflow().name());
+    props.setProperty(
+      "saturn.log_bridge_rate_limit",
+      Integer.toString(description.logBridgeRateLimit()));
+    props.setProperty(
+      "saturn.log_bridge_rate_burst",
+      Integer.toString(description.logBridgeRateBurst()));
+    props.setProperty(
+      "saturn.log_bridge_deduplication_window_ms",
+      Long.toString(description.logBridgeDeduplicationWindow().toMillis()));
+    props.setProperty(
+      "saturn.resolver_parallelism",
+      Integer.toString(description.resolverParallelism()));
+    props.setProperty(
+      "saturn.boot_delegation",
+      String.join(",", description.bootDelegation()));
+    props.setProperty(
+      "saturn.cache_buffer_size",
+      Integer.toString(description.cacheBufferSize()));
+    props.setProperty(
+      "saturn.cache_locking",
+      Boolean.toString(description.cacheLocking()));
+    props.setProperty(
+      "saturn.framework_start_level",
+      Integer.toString(description.frameworkStartLevel()));
+    props.setProperty(
+      "saturn.system_bundle_start_level",
+      Integer.toString(description.systemBundleStartLevel()));
+    props.setProperty(
+      "saturn.application_bundle_start_level",
+      Integer.toString(description.applicationBundleStartLevel()));
+    props.setProperty(
+      "saturn.critical_start_level",
+      Integer.toString(description.criticalStartLevel()));
+    props.setProperty(
+      "saturn.lazy_activation",
+      Boolean.toString(description.lazyActivation()));
     return props;
   }
 
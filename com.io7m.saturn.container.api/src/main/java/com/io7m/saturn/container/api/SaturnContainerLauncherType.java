@@ -18,6 +18,9 @@ package com.io7m.saturn.container.api;
 
 import org.osgi.framework.launch.Framework;
 
+import java.time.Duration;
+import java.util.concurrent.CompletionStage;
+
 /**
  * An interface for launching containers.
  */
@@ -34,7 +37,46 @@ public interface SaturnContainerLauncherType
    * @throws Exception On errors
    */
 
-  Framework launch(
+  default Framework launch(
+    final SaturnContainerDescription description)
+    throws Exception
+  {
+    return this.launchInstance(description).framework();
+  }
+
+  /**
+   * Launch a container from the given description.
+   *
+   * @param description The description
+   *
+   * @return A running container, along with a report of the time taken to start it
+   *
+   * @throws Exception On errors
+   */
+
+  SaturnContainerInstance launchInstance(
     SaturnContainerDescription description)
     throws Exception;
+
+  /**
+   * Launch a container from the given description, asynchronously. The
+   * returned stage completes when every bundle is active, every declarative
+   * services component is satisfied, and the framework has reached its target
+   * start level. If the container is not ready within {@code timeout}, the
+   * stage completes exceptionally with a {@link SaturnContainerNotReadyException}
+   * that describes each bundle that was not ready. The timeout also covers
+   * installing and starting the bundles: if the container has not launched
+   * within {@code timeout}, the stage completes exceptionally with a
+   * {@link java.util.concurrent.TimeoutException}, and the container is
+   * stopped as soon as its launch finishes.
+   *
+   * @param description The description
+   * @param timeout     The maximum time to wait for the container to launch and become ready
+   *
+   * @return A container that is ready
+   */
+
+  CompletionStage<SaturnContainerInstance> launchAsync(
+    SaturnContainerDescription description,
+    Duration timeout);
 }
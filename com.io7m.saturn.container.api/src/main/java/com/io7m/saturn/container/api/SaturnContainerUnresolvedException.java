@@ -0,0 +1,59 @@
+/*
+ * Copyright © 2018 Mark Raynsford <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.saturn.container.api;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * The bundles of a container could not be installed or resolved when the container was built.
+ */
+
+public final class SaturnContainerUnresolvedException extends IOException
+{
+  private static final long serialVersionUID = 1L;
+
+  private final transient List<SaturnBundleDiagnosis> diagnoses;
+
+  /**
+   * Construct an exception.
+   *
+   * @param in_message   The exception message
+   * @param in_diagnoses The diagnoses of the bundles that could not be installed or resolved
+   */
+
+  public SaturnContainerUnresolvedException(
+    final String in_message,
+    final List<SaturnBundleDiagnosis> in_diagnoses)
+  {
+    super(Objects.requireNonNull(in_message, "message"));
+    this.diagnoses = List.copyOf(Objects.requireNonNull(in_diagnoses, "diagnoses"));
+  }
+
+  /**
+   * The diagnoses are not serialized; each one is also described in the exception message.
+   *
+   * @return The diagnoses of the bundles that could not be installed or resolved, or an empty
+   * list if the exception was deserialized
+   */
+
+  public List<SaturnBundleDiagnosis> diagnoses()
+  {
+    return Objects.requireNonNullElse(this.diagnoses, List.of());
+  }
+}
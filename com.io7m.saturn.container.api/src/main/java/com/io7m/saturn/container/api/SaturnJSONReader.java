@@ -0,0 +1,253 @@
+/*
+ * Copyright © 2018 Mark Raynsford <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.saturn.container.api;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * A minimal reader for the JSON documents written by this package. Objects are read as maps,
+ * arrays as lists, and numbers as longs; fractional numbers are not supported.
+ */
+
+final class SaturnJSONReader
+{
+  private final String text;
+  private int position;
+
+  private SaturnJSONReader(
+    final String in_text)
+  {
+    this.text = Objects.requireNonNull(in_text, "text");
+  }
+
+  /**
+   * Read a JSON document.
+   *
+   * @param text The document text
+   *
+   * @return The value of the document
+   *
+   * @throws IllegalArgumentException If the document cannot be read
+   */
+
+  static Object read(
+    final String text)
+  {
+    final SaturnJSONReader reader = new SaturnJSONReader(text);
+    final Object value = reader.value();
+    reader.skipSpace();
+    if (reader.position != reader.text.length()) {
+      throw reader.error("Trailing data");
+    }
+    return value;
+  }
+
+  private IllegalArgumentException error(
+    final String message)
+  {
+    return new IllegalArgumentException(
+      new StringBuilder(64)
+        .append(message)
+        .append(" at offset ")
+        .append(this.position)
+        .toString());
+  }
+
+  private void skipSpace()
+  {
+    while (this.position < this.text.length()
+      && Character.isWhitespace(this.text.charAt(this.position))) {
+      ++this.position;
+    }
+  }
+
+  private char peek()
+  {
+    this.skipSpace();
+    if (this.position >= this.text.length()) {
+      throw this.error("Unexpected end of document");
+    }
+    return this.text.charAt(this.position);
+  }
+
+  private void expect(
+    final char c)
+  {
+    if (this.peek() != c) {
+      throw this.error("Expected '" + c + "'");
+    }
+    ++this.position;
+  }
+
+  private boolean consumeIf(
+    final char c)
+  {
+    if (this.peek() == c) {
+      ++this.position;
+      return true;
+    }
+    return false;
+  }
+
+  private Object value()
+  {
+    final char c = this.peek();
+    switch (c) {
+      case '{':
+        return this.object();
+      case '[':
+        return this.array();
+      case '"':
+        return this.string();
+      case 't':
+        this.keyword("true");
+        return Boolean.TRUE;
+      case 'f':
+        this.keyword("false");
+        return Boolean.FALSE;
+      case 'n':
+        this.keyword("null");
+        return null;
+      default:
+        return this.number();
+    }
+  }
+
+  private void keyword(
+    final String word)
+  {
+    if (!this.text.startsWith(word, this.position)) {
+      throw this.error("Expected " + word);
+    }
+    this.position += word.length();
+  }
+
+  private Map<String, Object> object()
+  {
+    this.expect('{');
+    final Map<String, Object> values = new HashMap<>();
+    if (this.consumeIf('}')) {
+      return values;
+    }
+    do {
+      this.peek();
+      final String key = this.string();
+      this.expect(':');
+      values.put(key, this.value());
+    } while (this.consumeIf(','));
+    this.expect('}');
+    return values;
+  }
+
+  private List<Object> array()
+  {
+    this.expect('[');
+    final List<Object> values = new ArrayList<>();
+    if (this.consumeIf(']')) {
+      return values;
+    }
+    do {
+      values.add(this.value());
+    } while (this.consumeIf(','));
+    this.expect(']');
+    return values;
+  }
+
+  private Long number()
+  {
+    final int start = this.position;
+    if (this.text.charAt(this.position) == '-') {
+      ++this.position;
+    }
+    while (this.position < this.text.length()
+      && Character.isDigit(this.text.charAt(this.position))) {
+      ++this.position;
+    }
+
+    try {
+      return Long.valueOf(this.text.substring(start, this.position));
+    } catch (final NumberFormatException e) {
+      this.position = start;
+      throw this.error("Expected a value");
+    }
+  }
+
+  private String string()
+  {
+    this.expect('"');
+    final StringBuilder value = new StringBuilder(32);
+    while (true) {
+      if (this.position >= this.text.length()) {
+        throw this.error("Unterminated string");
+      }
+      final char c = this.text.charAt(this.position);
+      ++this.position;
+      if (c == '"') {
+        return value.toString();
+      }
+      if (c == '\\') {
+        value.append(this.escape());
+      } else {
+        value.append(c);
+      }
+    }
+  }
+
+  private char escape()
+  {
+    if (this.position >= this.text.length()) {
+      throw this.error("Unterminated escape");
+    }
+    final char c = this.text.charAt(this.position);
+    ++this.position;
+    switch (c) {
+      case 'n':
+        return '\n';
+      case 'r':
+        return '\r';
+      case 't':
+        return '\t';
+      case 'b':
+        return '\b';
+      case 'f':
+        return '\f';
+      case 'u':
+        return this.unicode();
+      default:
+        return c;
+    }
+  }
+
+  private char unicode()
+  {
+    if (this.position + 4 > this.text.length()) {
+      throw this.error("Truncated unicode escape");
+    }
+    try {
+      final int code = Integer.parseInt(this.text.substring(this.position, this.position + 4), 16);
+      this.position += 4;
+      return (char) code;
+    } catch (final NumberFormatException e) {
+      throw this.error("Malformed unicode escape");
+    }
+  }
+}
@@ -0,0 +1,43 @@
+/*
+ * Copyright © 2018 Mark Raynsford <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.saturn.container.api;
+
+/**
+ * The policy applied when the queue of the asynchronous log bridge is full.
+ */
+
+public enum SaturnLogBridgeOverflow
+{
+  /**
+   * The thread delivering the log entry waits until there is space in the queue.
+   */
+
+  BLOCK,
+
+  /**
+   * The oldest entry in the queue is discarded to make space for the new entry.
+   */
+
+  DROP_OLDEST,
+
+  /**
+   * The new entry is discarded.
+   */
+
+  DROP_NEWEST
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright © 2018 Mark Raynsford <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.saturn.container.api;
+
+import com.io7m.immutables.styles.ImmutablesStyleType;
+import org.immutables.value.Value;
+
+import java.time.Duration;
+
+/**
+ * The time taken to install and start a single bundle during container startup.
+ */
+
+@ImmutablesStyleType
+@Value.Immutable
+public interface SaturnStartupBundleType
+{
+  /**
+   * @return The bundle ID
+   */
+
+  long id();
+
+  /**
+   * @return The bundle symbolic name
+   */
+
+  String symbolicName();
+
+  /**
+   * @return The bundle location
+   */
+
+  String location();
+
+  /**
+   * @return The group to which the bundle belongs (such as "system" or "application")
+   */
+
+  String group();
+
+  /**
+   * @return The wall-clock time taken to install the bundle (zero if the bundle was reused)
+   */
+
+  @Value.Default
+  default Duration installWallTime()
+  {
+    return Duration.ZERO;
+  }
+
+  /**
+   * @return The CPU time consumed by the installing thread (zero if the bundle was reused)
+   */
+
+  @Value.Default
+  default Duration installCpuTime()
+  {
+    return Duration.ZERO;
+  }
+
+  /**
+   * @return The wall-clock time taken to start the bundle
+   */
+
+  @Value.Default
+  default Duration startWallTime()
+  {
+    return Duration.ZERO;
+  }
+
+  /**
+   * @return The CPU time consumed by the starting thread
+   */
+
+  @Value.Default
+  default Duration startCpuTime()
+  {
+    return Duration.ZERO;
+  }
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright © 2018 Mark Raynsford <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.saturn.container.api;
+
+import com.io7m.immutables.styles.ImmutablesStyleType;
+import org.immutables.value.Value;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * A report of the time taken to start a container.
+ */
+
+@ImmutablesStyleType
+@Value.Immutable
+public interface SaturnStartupReportType
+{
+  /**
+   * @return The time at which the container began starting
+   */
+
+  Instant timeStarted();
+
+  /**
+   * @return The total wall-clock time taken to start the container
+   */
+
+  Duration wallTime();
+
+  /**
+   * @return The CPU time consumed by the entire process whilst starting the container
+   */
+
+  Duration cpuTime();
+
+  /**
+   * @return {@code true} if the bundles were started using the resolution plan produced when the
+   * container was built, rather than a start order computed from the framework wiring
+   */
+
+  @Value.Default
+  default boolean resolutionPlanUsed()
+  {
+    return false;
+  }
+
+  /**
+   * @return The startup phases, in the order in which they were executed
+   */
+
+  List<SaturnStartupPhase> phases();
+
+  /**
+   * @return The bundles, in the order in which they were installed
+   */
+
+  List<SaturnStartupBundle> bundles();
+}
@@ -0,0 +1,285 @@
+/*
+ * Copyright © 2018 Mark Raynsford <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.saturn.container.api;
+
+import java.io.IOException;
+import java.time.DateTimeException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Functions to serialize startup reports.
+ */
+
+public final class SaturnStartupReports
+{
+  private SaturnStartupReports()
+  {
+
+  }
+
+  /**
+   * Serialize a report as JSON. All times are expressed in nanoseconds.
+   *
+   * @param report The report
+   *
+   * @return A JSON object
+   */
+
+  public static String toJSON(
+    final SaturnStartupReport report)
+  {
+    Objects.requireNonNull(report, "report");
+
+    final StringBuilder text = new StringBuilder(4096);
+    text.append("{\n");
+    text.append("  \"timeStarted\": ");
+    string(text, report.timeStarted().toString());
+    text.append(",\n");
+    text.append("  \"wallNanos\": ").append(report.wallTime().toNanos()).append(",\n");
+    text.append("  \"cpuNanos\": ").append(report.cpuTime().toNanos()).append(",\n");
+    text.append("  \"resolutionPlanUsed\": ").append(report.resolutionPlanUsed()).append(",\n");
+
+    text.append("  \"phases\": [");
+    final List<SaturnStartupPhase> phases = report.phases();
+    for (int index = 0; index < phases.size(); ++index) {
+      final SaturnStartupPhase phase = phases.get(index);
+      text.append(index == 0 ? "\n" : ",\n");
+      text.append("    { \"name\": ");
+      string(text, phase.name());
+      text.append(", \"wallNanos\": ").append(phase.wallTime().toNanos());
+      text.append(", \"cpuNanos\": ").append(phase.cpuTime().toNanos());
+      text.append(" }");
+    }
+    text.append("\n  ],\n");
+
+    text.append("  \"bundles\": [");
+    final List<SaturnStartupBundle> bundles = report.bundles();
+    for (int index = 0; index < bundles.size(); ++index) {
+      final SaturnStartupBundle bundle = bundles.get(index);
+      text.append(index == 0 ? "\n" : ",\n");
+      text.append("    { \"id\": ").append(bundle.id());
+      text.append(", \"symbolicName\": ");
+      string(text, bundle.symbolicName());
+      text.append(", \"location\": ");
+      string(text, bundle.location());
+      text.append(", \"group\": ");
+      string(text, bundle.group());
+      text.append(", \"installWallNanos\": ").append(bundle.installWallTime().toNanos());
+      text.append(", \"installCpuNanos\": ").append(bundle.installCpuTime().toNanos());
+      text.append(", \"startWallNanos\": ").append(bundle.startWallTime().toNanos());
+      text.append(", \"startCpuNanos\": ").append(bundle.startCpuTime().toNanos());
+      text.append(" }");
+    }
+    text.append("\n  ]\n");
+    text.append("}\n");
+    return text.toString();
+  }
+
+  /**
+   * Parse a report serialized with {@link #toJSON(SaturnStartupReport)}.
+   *
+   * @param text The JSON text
+   *
+   * @return A report
+   *
+   * @throws IOException If the text is not a serialized report
+   */
+
+  public static SaturnStartupReport parseJSON(
+    final String text)
+    throws IOException
+  {
+    Objects.requireNonNull(text, "text");
+
+    try {
+      final Map<String, Object> root = object(SaturnJSONReader.read(text));
+      final SaturnStartupReport.Builder builder =
+        SaturnStartupReport.builder()
+          .setTimeStarted(Instant.parse(fieldString(root, "timeStarted")))
+          .setWallTime(fieldNanos(root, "wallNanos"))
+          .setCpuTime(fieldNanos(root, "cpuNanos"))
+          .setResolutionPlanUsed(Boolean.TRUE.equals(root.get("resolutionPlanUsed")));
+
+      for (final Object element : fieldList(root, "phases")) {
+        final Map<String, Object> phase = object(element);
+        builder.addPhases(
+          SaturnStartupPhase.of(
+            fieldString(phase, "name"),
+            fieldNanos(phase, "wallNanos"),
+            fieldNanos(phase, "cpuNanos")));
+      }
+
+      for (final Object element : fieldList(root, "bundles")) {
+        final Map<String, Object> bundle = object(element);
+        builder.addBundles(
+          SaturnStartupBundle.builder()
+            .setId(fieldLong(bundle, "id"))
+            .setSymbolicName(fieldString(bundle, "symbolicName"))
+            .setLocation(fieldString(bundle, "location"))
+            .setGroup(fieldString(bundle, "group"))
+            .setInstallWallTime(fieldNanos(bundle, "installWallNanos"))
+            .setInstallCpuTime(fieldNanos(bundle, "installCpuNanos"))
+            .setStartWallTime(fieldNanos(bundle, "startWallNanos"))
+            .setStartCpuTime(fieldNanos(bundle, "startCpuNanos"))
+            .build());
+      }
+      return builder.build();
+    } catch (final IllegalArgumentException | DateTimeException e) {
+      throw new IOException("Malformed startup report: " + e.getMessage(), e);
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private static Map<String, Object> object(
+    final Object value)
+  {
+    if (value instanceof Map) {
+      return (Map<String, Object>) value;
+    }
+    throw new IllegalArgumentException("Expected an object");
+  }
+
+  private static Object field(
+    final Map<String, Object> object,
+    final String name)
+  {
+    final Object value = object.get(name);
+    if (value == null) {
+      throw new IllegalArgumentException("Missing field: " + name);
+    }
+    return value;
+  }
+
+  private static String fieldString(
+    final Map<String, Object> object,
+    final String name)
+  {
+    final Object value = field(object, name);
+    if (value instanceof String) {
+      return (String) value;
+    }
+    throw new IllegalArgumentException("Expected a string: " + name);
+  }
+
+  private static long fieldLong(
+    final Map<String, Object> object,
+    final String name)
+  {
+    final Object value = field(object, name);
+    if (value instanceof Long) {
+      return ((Long) value).longValue();
+    }
+    throw new IllegalArgumentException("Expected an integer: " + name);
+  }
+
+  private static Duration fieldNanos(
+    final Map<String, Object> object,
+    final String name)
+  {
+    return Duration.ofNanos(fieldLong(object, name));
+  }
+
+  private static List<?> fieldList(
+    final Map<String, Object> object,
+    final String name)
+  {
+    final Object value = field(object, name);
+    if (value instanceof List) {
+      return (List<?>) value;
+    }
+    throw new IllegalArgumentException("Expected an array: " + name);
+  }
+
+  /**
+   * Produce a one-line summary of the given report.
+   *
+   * @param report The report
+   *
+   * @return A summary of the report
+   */
+
+  public static String summary(
+    final SaturnStartupReport report)
+  {
+    Objects.requireNonNull(report, "report");
+
+    final StringBuilder text = new StringBuilder(256);
+    text.append("startup ");
+    text.append(millis(report.wallTime()));
+    text.append("ms (cpu ");
+    text.append(millis(report.cpuTime()));
+    text.append("ms, ");
+    text.append(report.bundles().size());
+    text.append(" bundles)");
+
+    for (final SaturnStartupPhase phase : report.phases()) {
+      text.append(' ');
+      text.append(phase.name());
+      text.append('=');
+      text.append(millis(phase.wallTime()));
+      text.append("ms");
+    }
+    return text.toString();
+  }
+
+  private static long millis(
+    final Duration time)
+  {
+    return TimeUnit.NANOSECONDS.toMillis(time.toNanos());
+  }
+
+  private static void string(
+    final StringBuilder text,
+    final String value)
+  {
+    text.append('"');
+    for (int index = 0; index < value.length(); ++index) {
+      final char c = value.charAt(index);
+      switch (c) {
+        case '"':
+          text.append("\\\"");
+          break;
+        case '\\':
+          text.append("\\\\");
+          break;
+        case '\n':
+          text.append("\\n");
+          break;
+        case '\r':
+          text.append("\\r");
+          break;
+        case '\t':
+          text.append("\\t");
+          break;
+        default:
+          if (c < 0x20) {
+            text.append(String.format("\\u%04x", Integer.valueOf(c)));
+          } else {
+            text.append(c);
+          }
+          break;
+      }
+    }
+    text.append('"');
+  }
+}
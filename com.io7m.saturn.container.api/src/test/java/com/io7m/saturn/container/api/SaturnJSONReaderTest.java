@@ -0,0 +1,90 @@
+/*
+ * Copyright © 2018 Mark Raynsford <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.saturn.container.api;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+public final class SaturnJSONReaderTest
+{
+  @Test
+  public void testScalars()
+  {
+    Assertions.assertEquals(Long.valueOf(123L), SaturnJSONReader.read("123"));
+    Assertions.assertEquals(Long.valueOf(-5L), SaturnJSONReader.read(" -5 "));
+    Assertions.assertEquals(
+      Long.valueOf(Long.MAX_VALUE), SaturnJSONReader.read(Long.toString(Long.MAX_VALUE)));
+    Assertions.assertEquals(Boolean.TRUE, SaturnJSONReader.read("true"));
+    Assertions.assertEquals(Boolean.FALSE, SaturnJSONReader.read("false"));
+    Assertions.assertNull(SaturnJSONReader.read("null"));
+    Assertions.assertEquals("abc", SaturnJSONReader.read("\"abc\""));
+  }
+
+  @Test
+  public void testEscapes()
+  {
+    Assertions.assertEquals(
+      "a\nb\rc\td\be\ff\"g\\h/iA",
+      SaturnJSONReader.read("\"a\\nb\\rc\\td\\be\\ff\\\"g\\\\h\\/i\\u0041\""));
+  }
+
+  @Test
+  public void testStructures()
+  {
+    Assertions.assertEquals(Map.of(), SaturnJSONReader.read("{}"));
+    Assertions.assertEquals(List.of(), SaturnJSONReader.read("[ ]"));
+
+    final Object value =
+      SaturnJSONReader.read(
+        "{\n  \"a\": [1, {\"b\": \"c\"}, []],\n  \"d\": { \"e\": false },\n  \"f\": -1\n}\n");
+
+    Assertions.assertEquals(
+      Map.of(
+        "a", List.of(Long.valueOf(1L), Map.of("b", "c"), List.of()),
+        "d", Map.of("e", Boolean.FALSE),
+        "f", Long.valueOf(-1L)),
+      value);
+  }
+
+  @Test
+  public void testErrors()
+  {
+    for (final String text : List.of(
+      "",
+      "{",
+      "[1,]",
+      "[1 2]",
+      "{\"a\" 1}",
+      "{a: 1}",
+      "1 2",
+      "1.5",
+      "-",
+      "tru",
+      "\"abc",
+      "\"\\",
+      "\"\\u12\"",
+      "\"\\uzzzz\"")) {
+      Assertions.assertThrows(
+        IllegalArgumentException.class,
+        () -> SaturnJSONReader.read(text),
+        text);
+    }
+  }
+}
@@ -0,0 +1,226 @@
+/*
+ * Copyright © 2018 Mark Raynsford <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.saturn.container.builder.felix;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Functions to generate class data sharing (CDS) archives for built containers. A training boot
+ * of the container is performed in a separate JVM, and the classes loaded from the host
+ * classpath and the JDK are written to an archive in the container directory. The launch script
+ * written by the builder uses the archive if it exists.
+ *
+ * On JDK 13 and later, a dynamic archive is written when the training JVM exits. On earlier
+ * JDKs, the training JVM writes a class list, and a static archive is dumped from it.
+ *
+ * If the container has a runtime image created with {@link SaturnContainerRuntimes}, the archive
+ * is created with, and can only be used by, that runtime.
+ *
+ * Classes loaded by bundle class loaders are not archived; only the framework, logging, and
+ * launcher classes on the host classpath benefit.
+ */
+
+public final class SaturnContainerArchives
+{
+  private static final Logger LOG = LoggerFactory.getLogger(SaturnContainerArchives.class);
+
+  static final String MAIN_CLASS =
+    "com.io7m.saturn.container.launcher.felix.SaturnContainerLauncherFelixMain";
+
+  private static final String ARCHIVE_NAME = "saturn.jsa";
+
+  private SaturnContainerArchives()
+  {
+
+  }
+
+  /**
+   * @param root The container directory
+   *
+   * @return The archive file for the given container
+   */
+
+  public static Path archiveFile(
+    final Path root)
+  {
+    return Objects.requireNonNull(root, "root").resolve(ARCHIVE_NAME);
+  }
+
+  /**
+   * The host classpath of a container. The classpath must be identical when an archive is
+   * created and when it is used, so the jars are listed explicitly in a fixed order.
+   *
+   * @param root The container directory
+   *
+   * @return The host classpath
+   *
+   * @throws IOException On I/O errors
+   */
+
+  static List<Path> hostClasspath(
+    final Path root)
+    throws IOException
+  {
+    final Path host_dir = root.resolve("host");
+    return SaturnFelixSystemBundles.hostBundles()
+      .stream()
+      .map(bundle -> host_dir.resolve(bundle.jarName()))
+      .collect(Collectors.toList());
+  }
+
+  /**
+   * Perform a training boot of the given container and write a CDS archive for it. The container
+   * must already have been built.
+   *
+   * @param root    The container directory
+   * @param timeout The maximum time allowed for each JVM invocation
+   *
+   * @return The archive file
+   *
+   * @throws IOException On I/O errors, or if the training boot fails
+   */
+
+  public static Path createArchive(
+    final Path root,
+    final Duration timeout)
+    throws IOException
+  {
+    Objects.requireNonNull(root, "root");
+    Objects.requireNonNull(timeout, "timeout");
+
+    final Path real_root = root.toRealPath();
+    final String classpath =
+      hostClasspath(real_root)
+        .stream()
+        .map(Path::toString)
+        .collect(Collectors.joining(System.getProperty("path.separator")));
+
+    final Path archive = archiveFile(real_root);
+    final Path archive_tmp = real_root.resolve(ARCHIVE_NAME + ".tmp");
+    final Path log = real_root.resolve("log").resolve("cds-training.log");
+    Files.createDirectories(log.getParent());
+    Files.deleteIfExists(archive_tmp);
+
+    final long time_then = System.nanoTime();
+    if (Runtime.version().feature() >= 13) {
+      run(real_root, log, timeout, List.of(
+        "-XX:ArchiveClassesAtExit=" + archive_tmp,
+        "-Dcom.io7m.saturn.launcher.training=true",
+        "-cp",
+        classpath,
+        MAIN_CLASS,
+        real_root.resolve("container.conf").toString()));
+    } else {
+      final Path class_list = real_root.resolve("saturn.classlist");
+      run(real_root, log, timeout, List.of(
+        "-XX:DumpLoadedClassList=" + class_list,
+        "-Dcom.io7m.saturn.launcher.training=true",
+        "-cp",
+        classpath,
+        MAIN_CLASS,
+        real_root.resolve("container.conf").toString()));
+      run(real_root, log, timeout, List.of(
+        "-Xshare:dump",
+        "-XX:SharedClassListFile=" + class_list,
+        "-XX:SharedArchiveFile=" + archive_tmp,
+        "-cp",
+        classpath));
+      Files.deleteIfExists(class_list);
+    }
+
+    if (!Files.isRegularFile(archive_tmp)) {
+      throw new IOException("The training JVM did not write an archive; see " + log);
+    }
+
+    Files.move(
+      archive_tmp,
+      archive,
+      StandardCopyOption.REPLACE_EXISTING,
+      StandardCopyOption.ATOMIC_MOVE);
+
+    LOG.debug(
+      "archive {}: {} bytes in {}ms",
+      archive,
+      Long.valueOf(Files.size(archive)),
+      Long.valueOf(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - time_then)));
+    return archive;
+  }
+
+  /**
+   * Run the container's Java executable in a separate JVM, appending its output to a log file.
+   *
+   * @param root      The container directory
+   * @param log       The log file
+   * @param timeout   The maximum time allowed for the JVM
+   * @param arguments The JVM arguments
+   *
+   * @throws IOException On I/O errors, or if the JVM fails or does not finish in time
+   */
+
+  static void run(
+    final Path root,
+    final Path log,
+    final Duration timeout,
+    final List<String> arguments)
+    throws IOException
+  {
+    final List<String> command = new ArrayList<>(arguments.size() + 1);
+    command.add(SaturnContainerRuntimes.javaExecutable(root).toString());
+    command.addAll(arguments);
+    LOG.debug("run: {}", command);
+
+    final Process process =
+      new ProcessBuilder(command)
+        .redirectErrorStream(true)
+        .redirectOutput(ProcessBuilder.Redirect.appendTo(log.toFile()))
+        .start();
+
+    try {
+      if (!process.waitFor(timeout.toMillis(), TimeUnit.MILLISECONDS)) {
+        process.destroyForcibly();
+        throw new IOException("The training JVM did not finish in time; see " + log);
+      }
+    } catch (final InterruptedException e) {
+      process.destroyForcibly();
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted whilst waiting for the training JVM");
+    }
+
+    if (process.exitValue() != 0) {
+      throw new IOException(
+        new StringBuilder(128)
+          .append("The training JVM exited with status ")
+          .append(process.exitValue())
+          .append("; see ")
+          .append(log)
+          .toString());
+    }
+  }
+}
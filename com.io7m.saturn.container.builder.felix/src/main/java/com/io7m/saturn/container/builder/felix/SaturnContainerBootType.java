@@ -0,0 +1,50 @@
+/*
+ * Copyright © 2018 Mark Raynsford <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.saturn.container.builder.felix;
+
+import com.io7m.immutables.styles.ImmutablesStyleType;
+import com.io7m.saturn.container.api.SaturnStartupReport;
+import org.immutables.value.Value;
+
+import java.time.Duration;
+
+/**
+ * A measured boot of a container in a separate JVM.
+ */
+
+@Value.Immutable
+@ImmutablesStyleType
+public interface SaturnContainerBootType
+{
+  /**
+   * @return The startup report written by the launcher
+   */
+
+  @Value.Parameter
+  SaturnStartupReport startupReport();
+
+  /**
+   * The wall-clock time from spawning the JVM until the container was ready. Unlike the wall
+   * time of the startup report, this includes starting the JVM, loading the launcher's classes,
+   * and mapping any class data sharing archive.
+   *
+   * @return The wall-clock time taken by the process to boot the container
+   */
+
+  @Value.Parameter
+  Duration processWallTime();
+}
@@ -0,0 +1,163 @@
+/*
+ * Copyright © 2018 Mark Raynsford <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.saturn.container.builder.felix;
+
+import com.io7m.saturn.container.api.SaturnContainerDescription;
+import com.io7m.saturn.container.api.SaturnContainerDescriptions;
+import com.io7m.saturn.container.api.SaturnStartupReport;
+import com.io7m.saturn.container.api.SaturnStartupReports;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Properties;
+import java.util.stream.Collectors;
+
+/**
+ * Functions to boot built containers in separate JVMs in order to measure their startup time.
+ * Each boot is a training boot: the container is booted until it becomes ready and is then
+ * stopped, and the startup report written by the launcher is returned along with the time taken
+ * by the whole process. The report is written to a temporary file rather than to the
+ * container's own startup report. As with the launch
+ * script, the container's runtime image and class data sharing archive are used if they exist.
+ *
+ * A cold boot discards the bundle cache on startup, and a warm boot reuses the bundle cache of
+ * the previous boot, regardless of how the container was built.
+ */
+
+public final class SaturnContainerBoots
+{
+  private static final Logger LOG = LoggerFactory.getLogger(SaturnContainerBoots.class);
+
+  private SaturnContainerBoots()
+  {
+
+  }
+
+  /**
+   * Boot the given container once in a separate JVM. The container must already have been
+   * built.
+   *
+   * @param root        The container directory
+   * @param warm_boot   {@code true} if the bundle cache of the previous boot should be reused
+   * @param jvm_options Extra options passed to the JVM
+   * @param timeout     The maximum time allowed for the boot
+   *
+   * @return The startup report of the boot, and the time taken by the process
+   *
+   * @throws IOException On I/O errors, or if the boot fails
+   */
+
+  public static SaturnContainerBoot boot(
+    final Path root,
+    final boolean warm_boot,
+    final List<String> jvm_options,
+    final Duration timeout)
+    throws IOException
+  {
+    Objects.requireNonNull(root, "root");
+    Objects.requireNonNull(jvm_options, "jvm_options");
+    Objects.requireNonNull(timeout, "timeout");
+
+    final Path real_root = root.toRealPath();
+    final Path log = real_root.resolve("log").resolve("boots.log");
+    Files.createDirectories(log.getParent());
+
+    final Path directory = Files.createTempDirectory("saturn-boot-");
+    final Path config = directory.resolve("container.conf");
+    final Path report = directory.resolve("startup.json");
+    try {
+      writeConfig(real_root, config, report, warm_boot);
+
+      final List<String> arguments = new ArrayList<>(jvm_options.size() + 8);
+      final Path archive = SaturnContainerArchives.archiveFile(real_root);
+      if (Files.isRegularFile(archive)) {
+        arguments.add("-XX:SharedArchiveFile=" + archive);
+        arguments.add("-Xshare:auto");
+      }
+      arguments.addAll(jvm_options);
+      arguments.add("-Dcom.io7m.saturn.launcher.training=true");
+      arguments.add("-cp");
+      arguments.add(
+        SaturnContainerArchives.hostClasspath(real_root)
+          .stream()
+          .map(Path::toString)
+          .collect(Collectors.joining(System.getProperty("path.separator"))));
+      arguments.add(SaturnContainerArchives.MAIN_CLASS);
+      arguments.add(config.toString());
+
+      LOG.debug("boot {} ({})", real_root, warm_boot ? "warm" : "cold");
+      final Instant spawned = Instant.now();
+      SaturnContainerArchives.run(real_root, log, timeout, arguments);
+
+      if (!Files.isRegularFile(report)) {
+        throw new IOException("The boot did not write a startup report; see " + log);
+      }
+
+      /*
+       * The launcher records the wall-clock time at which it began starting the container, so
+       * the time at which the container was ready can be compared with the time at which the
+       * JVM was spawned.
+       */
+
+      final SaturnStartupReport startup =
+        SaturnStartupReports.parseJSON(Files.readString(report, StandardCharsets.UTF_8));
+      final Instant ready = startup.timeStarted().plus(startup.wallTime());
+      return SaturnContainerBoot.of(startup, Duration.between(spawned, ready));
+    } finally {
+      Files.deleteIfExists(config);
+      Files.deleteIfExists(report);
+      Files.deleteIfExists(directory);
+    }
+  }
+
+  private static void writeConfig(
+    final Path root,
+    final Path config,
+    final Path report,
+    final boolean warm_boot)
+    throws IOException
+  {
+    final Properties props = new Properties();
+    try (InputStream stream = Files.newInputStream(root.resolve("container.conf"))) {
+      props.load(stream);
+    }
+
+    final SaturnContainerDescription description =
+      SaturnContainerDescription.builder()
+        .from(SaturnContainerDescriptions.parse(root.getFileSystem(), props))
+        .setWarmBoot(warm_boot)
+        .setCacheDirectory(root.resolve("cache"))
+        .setStartupReportFile(report)
+        .build();
+
+    try (OutputStream output = Files.newOutputStream(config)) {
+      SaturnContainerDescriptions.serialize(description).store(output, null);
+    }
+  }
+}
@@ -19,20 +19,43 @@ package com.io7m.saturn.container.builder.felix;
 import com.io7m.saturn.container.api.SaturnContainerBuilderType;
 import com.io7m.saturn.container.api.SaturnContainerDescription;
 import com.io7m.saturn.container.api.SaturnContainerDescriptions;
+import com.io7m.saturn.container.launcher.felix.SaturnContainerResolverFelix;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.OutputStream;
+import java.io.InterruptedIOException;
+import java.net.URISyntaxException;
+import java.net.URL;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.PosixFilePermission;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
+import java.util.Optional;
 import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static java.nio.charset.StandardCharsets.ISO_8859_1;
+import static java.nio.charset.StandardCharsets.UTF_8;
 
 /**
- * A builder for creating Felix containers.
+ * A builder for creating Felix containers. Builds are incremental: a manifest of content hashes
+ * is kept in the container directory, and only files whose content has changed are rewritten.
+ * Host and system bundles are copied concurrently, and may optionally be linked from a shared
+ * {@link SaturnContainerBundleStore}. Once the files are written, the bundles of the container
+ * are resolved offline, and a resolution plan is written for the launcher. A {@code launch.sh}
+ * script is written that starts the container.
  */
 
 public final class SaturnContainerBuilderFelix implements SaturnContainerBuilderType
@@ -40,9 +63,15 @@ public final class SaturnContainerBuilderFelix implements SaturnContainerBuilder
   private static final Logger LOG =
     LoggerFactory.getLogger(SaturnContainerBuilderFelix.class);
 
-  private SaturnContainerBuilderFelix()
-  {
+  private static final int COPY_THREADS =
+    Math.max(2, Math.min(8, Runtime.getRuntime().availableProcessors()));
+
+  private final Optional<SaturnContainerBundleStore> store;
 
+  private SaturnContainerBuilderFelix(
+    final Optional<SaturnContainerBundleStore> in_store)
+  {
+    this.store = Objects.requireNonNull(in_store, "store");
   }
 
   /**
@@ -53,25 +82,238 @@ public final class SaturnContainerBuilderFelix implements SaturnContainerBuilder
 
   public static SaturnContainerBuilderType createBuilder()
   {
-    return new SaturnContainerBuilderFelix();
+    return new SaturnContainerBuilderFelix(Optional.empty());
   }
 
-  private static void copyBundles(
+  /**
+   * Create a new builder that links the host and system bundles of every container it builds
+   * from the given shared store.
+   *
+   * @param store The bundle store
+   *
+   * @return A container builder
+   */
+
+  public static SaturnContainerBuilderType createBuilderWithStore(
+    final SaturnContainerBundleStore store)
+  {
+    return new SaturnContainerBuilderFelix(Optional.of(store));
+  }
+
+  private static void submitBundles(
+    final ExecutorService executor,
+    final SaturnContainerManifest manifest,
     final List<SaturnFelixSystemBundle> jars,
     final String type,
-    final Path system_dir)
-    throws IOException
+    final Path output_dir,
+    final List<Future<?>> futures)
   {
     for (final SaturnFelixSystemBundle jar : jars) {
-      final Path output_path = system_dir.resolve(jar.jarName());
-      try (OutputStream output = Files.newOutputStream(output_path)) {
-        final String rpath = jar.resourcePath();
-        try (InputStream input = SaturnContainerBuilderFelix.class.getResourceAsStream(rpath)) {
-          LOG.trace("copy {} {} {}", type, rpath, output_path);
-          input.transferTo(output);
-          output.flush();
+      final Path output_path = output_dir.resolve(jar.jarName());
+      futures.add(executor.submit(() -> {
+        copyOne(manifest, type, jar.resourcePath(), output_path);
+        return null;
+      }));
+    }
+  }
+
+  private static void awaitCopies(
+    final List<Future<?>> futures)
+    throws IOException
+  {
+    final List<IOException> failures = new ArrayList<>();
+    try {
+      for (final Future<?> future : futures) {
+        try {
+          future.get();
+        } catch (final ExecutionException e) {
+          failures.add(asIOException(e.getCause()));
         }
       }
+    } catch (final InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted whilst copying bundles");
+    }
+
+    if (!failures.isEmpty()) {
+      final IOException ex =
+        new IOException(
+          new StringBuilder(64)
+            .append("Failed to copy ")
+            .append(failures.size())
+            .append(" bundles")
+            .toString());
+      failures.forEach(ex::addSuppressed);
+      throw ex;
+    }
+  }
+
+  private static Thread copyThread(
+    final Runnable runnable)
+  {
+    final Thread thread = new Thread(runnable);
+    thread.setName("com.io7m.saturn.builder.copy[" + thread.getId() + "]");
+    thread.setDaemon(true);
+    return thread;
+  }
+
+  private static IOException asIOException(
+    final Throwable cause)
+  {
+    if (cause instanceof IOException) {
+      return (IOException) cause;
+    }
+    return new IOException(cause.getMessage(), cause);
+  }
+
+  private static void copyOne(
+    final SaturnContainerManifest manifest,
+    final String type,
+    final String rpath,
+    final Path output_path)
+    throws IOException
+  {
+    LOG.trace("copy {} {} {}", type, rpath, output_path);
+
+    final URL url = SaturnContainerBuilderFelix.class.getResource(rpath);
+    if (url == null) {
+      throw new IOException("Missing resource: " + rpath);
+    }
+    copyResource(manifest, url, output_path);
+  }
+
+  /**
+   * Copy a single resource. If the resource is backed by a regular file (such as when the
+   * builder is run from an unpacked classpath), the file is copied directly so that the platform
+   * can offload the copy. Otherwise, the resource (typically an entry in the builder's own jar)
+   * is streamed to the output file.
+   *
+   * @param manifest    The container manifest
+   * @param url         The resource
+   * @param output_path The output file
+   *
+   * @throws IOException On I/O errors
+   */
+
+  static void copyResource(
+    final SaturnContainerManifest manifest,
+    final URL url,
+    final Path output_path)
+    throws IOException
+  {
+    if ("file".equals(url.getProtocol())) {
+      try {
+        manifest.copy(output_path, Paths.get(url.toURI()), true);
+        return;
+      } catch (final URISyntaxException e) {
+        LOG.trace("unusable resource URI {}: ", url, e);
+      }
+    }
+    manifest.copy(output_path, url, true);
+  }
+
+  private static byte[] resource(
+    final String rpath)
+    throws IOException
+  {
+    try (InputStream input = SaturnContainerBuilderFelix.class.getResourceAsStream(rpath)) {
+      if (input == null) {
+        throw new IOException("Missing resource: " + rpath);
+      }
+      return input.readAllBytes();
+    }
+  }
+
+  /**
+   * Serialize the given properties. The timestamp that {@link Properties#store} would normally
+   * include is omitted, and entries are sorted, so that unchanged properties always produce
+   * identical content.
+   */
+
+  private static byte[] serialize(
+    final Properties props,
+    final String comment)
+    throws IOException
+  {
+    final ByteArrayOutputStream output = new ByteArrayOutputStream(1024);
+    props.store(output, null);
+
+    final List<String> lines =
+      output.toString(ISO_8859_1)
+        .lines()
+        .filter(line -> !line.startsWith("#"))
+        .sorted()
+        .collect(Collectors.toList());
+
+    final StringBuilder text = new StringBuilder(1024);
+    text.append("# ");
+    text.append(comment);
+    text.append(System.lineSeparator());
+    for (final String line : lines) {
+      text.append(line);
+      text.append(System.lineSeparator());
+    }
+    return text.toString().getBytes(ISO_8859_1);
+  }
+
+  /**
+   * Produce a launch script for the container. The script uses the container's runtime image and
+   * class data sharing archive, if they have been created with {@link SaturnContainerRuntimes}
+   * and {@link SaturnContainerArchives}. The host
+   * classpath is listed explicitly, because an archive can only be used with the exact classpath
+   * that created it.
+   */
+
+  private static byte[] launchScript(
+    final Path root)
+    throws IOException
+  {
+    final String classpath =
+      SaturnContainerArchives.hostClasspath(root)
+        .stream()
+        .map(path -> "${CONTAINER}/" + root.relativize(path).toString().replace('\\', '/'))
+        .collect(Collectors.joining(":"));
+
+    final String separator = System.lineSeparator();
+    return new StringBuilder(1024)
+      .append("#!/bin/sh").append(separator)
+      .append("# Automatically generated - DO NOT EDIT").append(separator)
+      .append(separator)
+      .append("CONTAINER=$(cd \"$(dirname \"$0\")\" && pwd -P)").append(separator)
+      .append("JAVA=\"${JAVA_HOME:+${JAVA_HOME}/bin/}java\"").append(separator)
+      .append("if [ -x \"${CONTAINER}/runtime/bin/java\" ]").append(separator)
+      .append("then").append(separator)
+      .append("  JAVA=\"${CONTAINER}/runtime/bin/java\"").append(separator)
+      .append("fi").append(separator)
+      .append(separator)
+      .append("set -- -cp \"").append(classpath).append("\" \\").append(separator)
+      .append("  com.io7m.saturn.container.launcher.felix.SaturnContainerLauncherFelixMain \\")
+      .append(separator)
+      .append("  \"${CONTAINER}/container.conf\"").append(separator)
+      .append(separator)
+      .append("if [ -f \"${CONTAINER}/saturn.jsa\" ]").append(separator)
+      .append("then").append(separator)
+      .append("  set -- \"-XX:SharedArchiveFile=${CONTAINER}/saturn.jsa\" -Xshare:auto \"$@\"")
+      .append(separator)
+      .append("fi").append(separator)
+      .append(separator)
+      .append("exec \"${JAVA}\" ${SATURN_JAVA_OPTS} \"$@\"").append(separator)
+      .toString()
+      .getBytes(UTF_8);
+  }
+
+  private static void setExecutable(
+    final Path file)
+    throws IOException
+  {
+    try {
+      final Set<PosixFilePermission> permissions = Files.getPosixFilePermissions(file);
+      permissions.add(PosixFilePermission.OWNER_EXECUTE);
+      permissions.add(PosixFilePermission.GROUP_EXECUTE);
+      permissions.add(PosixFilePermission.OTHERS_EXECUTE);
+      Files.setPosixFilePermissions(file, permissions);
+    } catch (final UnsupportedOperationException e) {
+      LOG.debug("cannot make {} executable: {}", file, e.getMessage());
     }
   }
 
@@ -96,23 +338,67 @@ public final class SaturnContainerBuilderFelix implements SaturnContainerBuilder
     final Path log_dir = root.resolve("log");
     Files.createDirectories(log_dir);
 
-    copyBundles(SaturnFelixSystemBundles.hostBundles(), "host", host_dir);
-    copyBundles(SaturnFelixSystemBundles.systemBundles(), "system", system_dir);
+    final long time_then = System.nanoTime();
+    final SaturnContainerManifest manifest = SaturnContainerManifest.open(root, this.store);
+    final List<SaturnFelixSystemBundle> host = SaturnFelixSystemBundles.hostBundles();
+    final List<SaturnFelixSystemBundle> system = SaturnFelixSystemBundles.systemBundles();
+
+    final int pool_size = Math.max(1, Math.min(COPY_THREADS, host.size() + system.size()));
+    final ExecutorService executor =
+      Executors.newFixedThreadPool(pool_size, SaturnContainerBuilderFelix::copyThread);
+
+    final long copy_time;
+    try {
+      final List<Future<?>> futures = new ArrayList<>(host.size() + system.size());
+      submitBundles(executor, manifest, host, "host", host_dir, futures);
+      submitBundles(executor, manifest, system, "system", system_dir, futures);
 
-    final Path config = root.resolve("container.conf");
-    try (OutputStream output = Files.newOutputStream(config)) {
-      final Properties props = SaturnContainerDescriptions.serialize(description);
-      props.store(output, "# Automatically generated - DO NOT EDIT");
+      manifest.write(
+        root.resolve("container.conf"),
+        serialize(
+          SaturnContainerDescriptions.serialize(description),
+          "Automatically generated - DO NOT EDIT"),
+        false);
+      manifest.write(
+        root.resolve("logback.xml"),
+        resource("/com/io7m/saturn/container/builder/felix/logback-configuration.xml"),
+        false);
+
+      final Path launch = root.resolve("launch.sh");
+      manifest.write(launch, launchScript(root), false);
+      setExecutable(launch);
+
+      awaitCopies(futures);
+      copy_time = System.nanoTime() - time_then;
+    } finally {
+      executor.shutdownNow();
     }
 
-    final Path logging = root.resolve("logback.xml");
-    try (OutputStream output = Files.newOutputStream(logging)) {
-      try (InputStream input = SaturnContainerBuilderFelix.class.getResourceAsStream(
-        "/com/io7m/saturn/container/builder/felix/logback-configuration.xml")) {
-        input.transferTo(output);
-        output.flush();
-      }
+    /*
+     * Resolve the bundles offline, so that wiring problems are reported now rather than when
+     * the container is launched. If resolution fails, no plan is written, and the manifest
+     * removes any plan left by a previous build.
+     */
+
+    try {
+      final Properties plan = SaturnContainerResolverFelix.resolve(description);
+      manifest.write(
+        root.resolve(SaturnContainerResolverFelix.planFileName()),
+        serialize(plan, "Saturn resolution plan - DO NOT EDIT"),
+        false);
+    } finally {
+      manifest.save();
     }
+
+    LOG.info(
+      "container {}: {} files written ({} bytes), {} unchanged, copied in {}ms with {} threads, {}ms total",
+      root,
+      Long.valueOf(manifest.filesWritten()),
+      Long.valueOf(manifest.bytesWritten()),
+      Long.valueOf(manifest.filesUnchanged()),
+      Long.valueOf(TimeUnit.NANOSECONDS.toMillis(copy_time)),
+      Integer.valueOf(pool_size),
+      Long.valueOf(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - time_then)));
   }
 }
 
@@ -0,0 +1,193 @@
+/*
+ * Copyright © 2018 Mark Raynsford <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.saturn.container.builder.felix;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Objects;
+
+/**
+ * A content-addressed store of bundles shared between containers. Each bundle is stored once,
+ * named by the SHA-256 hash of its content, and containers built with the store hard-link their
+ * bundles to the stored files. Containers on the same machine therefore share both disk space
+ * and page cache for identical bundles.
+ *
+ * Stored files must never be modified in place. The builder only ever replaces container files
+ * by moving new files over them, so linked containers cannot corrupt the store.
+ */
+
+public final class SaturnContainerBundleStore
+{
+  private static final Logger LOG = LoggerFactory.getLogger(SaturnContainerBundleStore.class);
+
+  private final Path directory;
+
+  private SaturnContainerBundleStore(
+    final Path in_directory)
+  {
+    this.directory = Objects.requireNonNull(in_directory, "directory");
+  }
+
+  /**
+   * @return The default store directory, {@code ~/.saturn/store}
+   */
+
+  public static Path defaultDirectory()
+  {
+    return Paths.get(System.getProperty("user.home"), ".saturn", "store");
+  }
+
+  /**
+   * Open a store, creating the directory if necessary.
+   *
+   * @param directory The store directory
+   *
+   * @return A store
+   *
+   * @throws IOException On I/O errors
+   */
+
+  public static SaturnContainerBundleStore open(
+    final Path directory)
+    throws IOException
+  {
+    Objects.requireNonNull(directory, "directory");
+    final Path absolute = directory.toAbsolutePath();
+    Files.createDirectories(absolute);
+    return new SaturnContainerBundleStore(absolute);
+  }
+
+  /**
+   * @return The store directory
+   */
+
+  public Path directory()
+  {
+    return this.directory;
+  }
+
+  /**
+   * Delete every stored bundle that is no longer linked into any container. A stored bundle is
+   * unreferenced when its link count has fallen to one. This method should not be called
+   * concurrently with builds that use the same store.
+   *
+   * @return The number of stored bundles deleted
+   *
+   * @throws IOException On I/O errors
+   */
+
+  public long collectGarbage()
+    throws IOException
+  {
+    long deleted = 0L;
+    long kept = 0L;
+    try (DirectoryStream<Path> stream = Files.newDirectoryStream(this.directory, "*.jar")) {
+      for (final Path path : stream) {
+        final int links = linkCount(path);
+        if (links == 1) {
+          LOG.debug("delete: {}", path);
+          Files.deleteIfExists(path);
+          ++deleted;
+        } else {
+          ++kept;
+        }
+      }
+    }
+
+    LOG.debug(
+      "store {}: {} deleted, {} kept",
+      this.directory,
+      Long.valueOf(deleted),
+      Long.valueOf(kept));
+    return deleted;
+  }
+
+  private static int linkCount(
+    final Path path)
+    throws IOException
+  {
+    try {
+      return ((Number) Files.getAttribute(path, "unix:nlink")).intValue();
+    } catch (final UnsupportedOperationException e) {
+      throw new IOException("The store filesystem does not report link counts", e);
+    }
+  }
+
+  /**
+   * @param hash The SHA-256 hash of a bundle
+   *
+   * @return The stored file for the given hash, which may not yet exist
+   */
+
+  Path entryFor(
+    final String hash)
+  {
+    return this.directory.resolve(hash + ".jar");
+  }
+
+  /**
+   * Add a bundle to the store, if it is not already present.
+   *
+   * @param hash   The SHA-256 hash of the bundle
+   * @param writer A function that writes the bundle to a given file
+   *
+   * @return The stored file
+   *
+   * @throws IOException On I/O errors
+   */
+
+  Path store(
+    final String hash,
+    final SaturnContainerFileWriterType writer)
+    throws IOException
+  {
+    final Path entry = this.entryFor(hash);
+    if (Files.isRegularFile(entry)) {
+      return entry;
+    }
+
+    final Path temporary =
+      this.directory.resolve(
+        new StringBuilder(128)
+          .append(hash)
+          .append('.')
+          .append(ProcessHandle.current().pid())
+          .append('.')
+          .append(Thread.currentThread().getId())
+          .append(".tmp")
+          .toString());
+
+    try {
+      writer.write(temporary);
+      Files.move(
+        temporary,
+        entry,
+        StandardCopyOption.REPLACE_EXISTING,
+        StandardCopyOption.ATOMIC_MOVE);
+    } finally {
+      Files.deleteIfExists(temporary);
+    }
+    return entry;
+  }
+}
@@ -0,0 +1,393 @@
+/*
+ * Copyright © 2018 Mark Raynsford <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.saturn.container.builder.felix;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URL;
+import java.nio.file.CopyOption;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Properties;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A manifest of the files written into a container directory by the builder. Each entry records
+ * the size, modification time, and SHA-256 hash of a file, keyed by the path of the file relative
+ * to the container directory. A file is only rewritten if the hash of its new content differs
+ * from the recorded hash, or if the file on disk no longer matches the recorded size and
+ * modification time. The methods that write files may be called concurrently.
+ *
+ * If a bundle store is used, shared files are written to the store and hard-linked into the
+ * container directory.
+ */
+
+final class SaturnContainerManifest
+{
+  private static final Logger LOG = LoggerFactory.getLogger(SaturnContainerManifest.class);
+
+  private static final String MANIFEST_NAME = "saturn-container.properties";
+
+  private final Path root;
+  private final Optional<SaturnContainerBundleStore> store;
+  private final Path manifest_file;
+  private final Properties previous;
+  private final Properties current;
+  private final LongAdder written;
+  private final LongAdder skipped;
+  private final LongAdder bytes;
+
+  private SaturnContainerManifest(
+    final Path in_root,
+    final Optional<SaturnContainerBundleStore> in_store,
+    final Path in_manifest_file,
+    final Properties in_previous)
+  {
+    this.root = Objects.requireNonNull(in_root, "root");
+    this.store = Objects.requireNonNull(in_store, "store");
+    this.manifest_file = Objects.requireNonNull(in_manifest_file, "manifest_file");
+    this.previous = Objects.requireNonNull(in_previous, "previous");
+    this.current = new Properties();
+    this.written = new LongAdder();
+    this.skipped = new LongAdder();
+    this.bytes = new LongAdder();
+  }
+
+  /**
+   * Open the manifest for the given container directory. If no manifest exists, every file will
+   * be written.
+   *
+   * @param root  The container directory
+   * @param store The store that shared files are linked from, if any
+   *
+   * @return A manifest
+   *
+   * @throws IOException On I/O errors
+   */
+
+  static SaturnContainerManifest open(
+    final Path root,
+    final Optional<SaturnContainerBundleStore> store)
+    throws IOException
+  {
+    Objects.requireNonNull(root, "root");
+    Objects.requireNonNull(store, "store");
+
+    final Path manifest_file = root.resolve(MANIFEST_NAME);
+    final Properties previous = new Properties();
+    if (Files.isRegularFile(manifest_file)) {
+      try (InputStream stream = Files.newInputStream(manifest_file)) {
+        previous.load(stream);
+      }
+    }
+    return new SaturnContainerManifest(root, store, manifest_file, previous);
+  }
+
+  /**
+   * Write the given content to the given file, if the content differs from that recorded in the
+   * manifest.
+   *
+   * @param output  The output file
+   * @param content The content
+   * @param shared  {@code true} if the file should be linked from the store, if any
+   *
+   * @throws IOException On I/O errors
+   */
+
+  void write(
+    final Path output,
+    final byte[] content,
+    final boolean shared)
+    throws IOException
+  {
+    Objects.requireNonNull(output, "output");
+    Objects.requireNonNull(content, "content");
+
+    this.update(output, hashOf(content), shared, temporary -> Files.write(temporary, content));
+  }
+
+  /**
+   * Copy the given file to the given output file, if the content differs from that recorded in
+   * the manifest. The copy is performed with {@link Files#copy(Path, Path, CopyOption...)},
+   * allowing the platform to offload the copy where possible.
+   *
+   * @param output The output file
+   * @param source The source file
+   * @param shared {@code true} if the file should be linked from the store, if any
+   *
+   * @throws IOException On I/O errors
+   */
+
+  void copy(
+    final Path output,
+    final Path source,
+    final boolean shared)
+    throws IOException
+  {
+    Objects.requireNonNull(output, "output");
+    Objects.requireNonNull(source, "source");
+
+    this.update(
+      output,
+      hashOf(source),
+      shared,
+      temporary -> Files.copy(source, temporary, StandardCopyOption.REPLACE_EXISTING));
+  }
+
+  /**
+   * Copy the given resource to the given output file, if the content differs from that recorded
+   * in the manifest. The resource is streamed, and is never held in memory in its entirety.
+   *
+   * @param output The output file
+   * @param source The source resource
+   * @param shared {@code true} if the file should be linked from the store, if any
+   *
+   * @throws IOException On I/O errors
+   */
+
+  void copy(
+    final Path output,
+    final URL source,
+    final boolean shared)
+    throws IOException
+  {
+    Objects.requireNonNull(output, "output");
+    Objects.requireNonNull(source, "source");
+
+    final String hash;
+    try (InputStream stream = source.openStream()) {
+      hash = hashOf(stream);
+    }
+
+    this.update(output, hash, shared, temporary -> {
+      try (InputStream stream = source.openStream()) {
+        Files.copy(stream, temporary, StandardCopyOption.REPLACE_EXISTING);
+      }
+    });
+  }
+
+  private void update(
+    final Path output,
+    final String hash,
+    final boolean shared,
+    final SaturnContainerFileWriterType writer)
+    throws IOException
+  {
+    final String key = this.keyOf(output);
+    final String entry = this.previous.getProperty(key);
+
+    if (entry != null && Objects.equals(hash, digestOf(entry)) && isUnmodified(output, entry)) {
+      LOG.trace("unchanged: {}", output);
+      this.current.setProperty(key, entry);
+      this.skipped.increment();
+      return;
+    }
+
+    LOG.trace("write: {}", output);
+    final Path temporary = output.resolveSibling(output.getFileName() + ".tmp");
+    if (shared && this.store.isPresent()) {
+      link(temporary, this.store.get().store(hash, writer));
+    } else {
+      writer.write(temporary);
+      this.bytes.add(Files.size(temporary));
+    }
+    Files.move(
+      temporary,
+      output,
+      StandardCopyOption.REPLACE_EXISTING,
+      StandardCopyOption.ATOMIC_MOVE);
+
+    this.current.setProperty(key, entryFor(output, hash));
+    this.written.increment();
+  }
+
+  /**
+   * Hard-link the given file to the given stored file. If the filesystem cannot link the files
+   * (for example, because the store is on a different filesystem), the stored file is copied.
+   */
+
+  private static void link(
+    final Path temporary,
+    final Path stored)
+    throws IOException
+  {
+    Files.deleteIfExists(temporary);
+    try {
+      Files.createLink(temporary, stored);
+    } catch (final IOException | UnsupportedOperationException e) {
+      LOG.debug("unable to link {}, copying: {}", stored, e.getMessage());
+      Files.copy(stored, temporary);
+    }
+  }
+
+  /**
+   * @return The number of files written so far
+   */
+
+  long filesWritten()
+  {
+    return this.written.sum();
+  }
+
+  /**
+   * @return The number of files left unchanged so far
+   */
+
+  long filesUnchanged()
+  {
+    return this.skipped.sum();
+  }
+
+  /**
+   * @return The number of bytes written so far, excluding files linked from the store
+   */
+
+  long bytesWritten()
+  {
+    return this.bytes.sum();
+  }
+
+  /**
+   * Delete any files that were recorded in the previous manifest but were not written by this
+   * build, and then save the manifest.
+   *
+   * @throws IOException On I/O errors
+   */
+
+  void save()
+    throws IOException
+  {
+    for (final String key : this.previous.stringPropertyNames()) {
+      if (!this.current.containsKey(key)) {
+        LOG.debug("delete: {}", key);
+        Files.deleteIfExists(this.root.resolve(key));
+      }
+    }
+
+    final Path temporary = this.manifest_file.resolveSibling(MANIFEST_NAME + ".tmp");
+    try (OutputStream output = Files.newOutputStream(temporary)) {
+      this.current.store(output, "Saturn container manifest - DO NOT EDIT");
+    }
+    Files.move(
+      temporary,
+      this.manifest_file,
+      StandardCopyOption.REPLACE_EXISTING,
+      StandardCopyOption.ATOMIC_MOVE);
+  }
+
+  private String keyOf(
+    final Path output)
+  {
+    return this.root.relativize(output).toString().replace('\\', '/');
+  }
+
+  private static boolean isUnmodified(
+    final Path output,
+    final String entry)
+    throws IOException
+  {
+    if (!Files.isRegularFile(output)) {
+      return false;
+    }
+    return entry.startsWith(prefixOf(output));
+  }
+
+  private static String prefixOf(
+    final Path path)
+    throws IOException
+  {
+    return new StringBuilder(64)
+      .append(Files.size(path))
+      .append(' ')
+      .append(Files.getLastModifiedTime(path).toMillis())
+      .append(' ')
+      .toString();
+  }
+
+  private static String entryFor(
+    final Path path,
+    final String hash)
+    throws IOException
+  {
+    return prefixOf(path) + hash;
+  }
+
+  private static String digestOf(
+    final String entry)
+  {
+    return entry.substring(entry.lastIndexOf(' ') + 1);
+  }
+
+  private static MessageDigest sha256()
+  {
+    try {
+      return MessageDigest.getInstance("SHA-256");
+    } catch (final NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private static String hashOf(
+    final byte[] content)
+  {
+    return hexOf(sha256().digest(content));
+  }
+
+  private static String hashOf(
+    final Path path)
+    throws IOException
+  {
+    try (InputStream stream = Files.newInputStream(path)) {
+      return hashOf(stream);
+    }
+  }
+
+  private static String hashOf(
+    final InputStream stream)
+    throws IOException
+  {
+    final MessageDigest digest = sha256();
+    final byte[] buffer = new byte[65536];
+    while (true) {
+      final int r = stream.read(buffer);
+      if (r == -1) {
+        break;
+      }
+      digest.update(buffer, 0, r);
+    }
+    return hexOf(digest.digest());
+  }
+
+  private static String hexOf(
+    final byte[] result)
+  {
+    final StringBuilder text = new StringBuilder(result.length * 2);
+    for (final byte b : result) {
+      text.append(String.format("%02x", Integer.valueOf(b & 0xff)));
+    }
+    return text.toString();
+  }
+}
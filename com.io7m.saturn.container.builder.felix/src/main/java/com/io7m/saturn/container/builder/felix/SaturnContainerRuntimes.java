@@ -0,0 +1,288 @@
+/*
+ * Copyright © 2018 Mark Raynsford <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.saturn.container.builder.felix;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+import java.util.spi.ToolProvider;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Functions to create trimmed Java runtime images for built containers. The JDK modules required
+ * by the host and system bundles, and by any application bundles, are computed with
+ * {@code jdeps}, and {@code jlink} is used to produce a runtime image containing only those
+ * modules in the {@code runtime} directory of the container. The launch script written by the
+ * builder uses the runtime image if it exists.
+ *
+ * The image is only recreated if the set of modules or the version of the JDK has changed.
+ */
+
+public final class SaturnContainerRuntimes
+{
+  private static final Logger LOG = LoggerFactory.getLogger(SaturnContainerRuntimes.class);
+
+  private static final String RUNTIME_NAME = "runtime";
+
+  private static final String MODULES_NAME = "saturn-modules.txt";
+
+  /**
+   * Modules that are required by the launcher but that cannot be found by static analysis:
+   * the launcher exports {@code sun.misc} to bundles.
+   */
+
+  private static final List<String> REQUIRED_MODULES = List.of("jdk.unsupported");
+
+  private SaturnContainerRuntimes()
+  {
+
+  }
+
+  /**
+   * @param root The container directory
+   *
+   * @return The runtime image directory for the given container
+   */
+
+  public static Path runtimeDirectory(
+    final Path root)
+  {
+    return Objects.requireNonNull(root, "root").resolve(RUNTIME_NAME);
+  }
+
+  /**
+   * Compute the set of JDK modules required by the given jar files.
+   *
+   * @param jars          The jar files
+   * @param extra_modules Additional modules that must be included
+   *
+   * @return The required modules
+   *
+   * @throws IOException On I/O errors, or if {@code jdeps} fails
+   */
+
+  public static SortedSet<String> requiredModules(
+    final Collection<Path> jars,
+    final Collection<String> extra_modules)
+    throws IOException
+  {
+    Objects.requireNonNull(jars, "jars");
+    Objects.requireNonNull(extra_modules, "extra_modules");
+
+    final List<String> arguments = new ArrayList<>(jars.size() + 4);
+    arguments.add("--ignore-missing-deps");
+    arguments.add("--print-module-deps");
+    arguments.add("--multi-release");
+    arguments.add(Integer.toString(Runtime.version().feature()));
+    for (final Path jar : jars) {
+      arguments.add(jar.toAbsolutePath().toString());
+    }
+
+    final String output = runTool("jdeps", arguments);
+    final SortedSet<String> modules = new TreeSet<>(REQUIRED_MODULES);
+    modules.addAll(extra_modules);
+    for (final String module : output.trim().split(",")) {
+      if (!module.isBlank()) {
+        modules.add(module.trim());
+      }
+    }
+    return modules;
+  }
+
+  /**
+   * Create a runtime image for the given container. The container must already have been built.
+   *
+   * @param root          The container directory
+   * @param bundles       The application bundles that will be installed into the container
+   * @param extra_modules Additional modules that must be included
+   *
+   * @return The runtime image directory
+   *
+   * @throws IOException On I/O errors, or if {@code jdeps} or {@code jlink} fail
+   */
+
+  public static Path createRuntime(
+    final Path root,
+    final Collection<Path> bundles,
+    final Collection<String> extra_modules)
+    throws IOException
+  {
+    Objects.requireNonNull(root, "root");
+    Objects.requireNonNull(bundles, "bundles");
+    Objects.requireNonNull(extra_modules, "extra_modules");
+
+    final List<Path> jars = new ArrayList<>(SaturnContainerArchives.hostClasspath(root));
+    try (Stream<Path> stream = Files.list(root.resolve("system"))) {
+      jars.addAll(stream.sorted().collect(Collectors.toList()));
+    }
+    jars.addAll(bundles);
+
+    final SortedSet<String> modules = requiredModules(jars, extra_modules);
+    final String stamp =
+      new StringBuilder(256)
+        .append(System.getProperty("java.vm.version"))
+        .append(' ')
+        .append(String.join(",", modules))
+        .toString();
+
+    final Path runtime = runtimeDirectory(root);
+    final Path stamp_file = root.resolve(MODULES_NAME);
+    if (Files.isRegularFile(stamp_file)
+      && Files.isDirectory(runtime)
+      && Objects.equals(Files.readString(stamp_file, UTF_8), stamp)) {
+      LOG.debug("runtime {} is up to date: {}", runtime, modules);
+      return runtime;
+    }
+
+    LOG.debug("creating runtime {}: {}", runtime, modules);
+    final long time_then = System.nanoTime();
+
+    Files.deleteIfExists(stamp_file);
+    deleteRecursively(runtime);
+
+    final List<String> arguments = new ArrayList<>(16);
+    arguments.add("--add-modules");
+    arguments.add(String.join(",", modules));
+    arguments.add("--output");
+    arguments.add(runtime.toAbsolutePath().toString());
+    arguments.add("--strip-debug");
+    arguments.add("--no-header-files");
+    arguments.add("--no-man-pages");
+
+    runTool("jlink", arguments);
+
+    /*
+     * A trimmed image does not include the default CDS archive of the JDK, so one is dumped
+     * using the image itself. Without it, every JDK class would be loaded from the module image.
+     */
+
+    dumpDefaultArchive(runtime);
+    Files.writeString(stamp_file, stamp, UTF_8);
+
+    LOG.debug(
+      "created runtime {} in {}ms",
+      runtime,
+      Long.valueOf(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - time_then)));
+    return runtime;
+  }
+
+  /**
+   * @param root The container directory
+   *
+   * @return The {@code java} executable to use for the given container
+   */
+
+  static Path javaExecutable(
+    final Path root)
+  {
+    final Path runtime_java = runtimeDirectory(root).resolve("bin").resolve("java");
+    if (Files.isExecutable(runtime_java)) {
+      return runtime_java;
+    }
+    return Paths.get(System.getProperty("java.home"), "bin", "java");
+  }
+
+  private static void dumpDefaultArchive(
+    final Path runtime)
+    throws IOException
+  {
+    final Process process =
+      new ProcessBuilder(runtime.resolve("bin").resolve("java").toString(), "-Xshare:dump")
+        .redirectErrorStream(true)
+        .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+        .start();
+
+    try {
+      final int status = process.waitFor();
+      if (status != 0) {
+        throw new IOException("Dumping the default CDS archive failed with status " + status);
+      }
+    } catch (final InterruptedException e) {
+      process.destroyForcibly();
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted whilst dumping the default CDS archive");
+    }
+  }
+
+  private static String runTool(
+    final String name,
+    final List<String> arguments)
+    throws IOException
+  {
+    final ToolProvider tool =
+      ToolProvider.findFirst(name)
+        .orElseThrow(() -> new IOException("The " + name + " tool is not available"));
+
+    LOG.debug("{}: {}", name, arguments);
+
+    final StringWriter output = new StringWriter(1024);
+    final StringWriter errors = new StringWriter(1024);
+    final int status;
+    try (PrintWriter out = new PrintWriter(output);
+         PrintWriter err = new PrintWriter(errors)) {
+      status = tool.run(out, err, arguments.toArray(new String[0]));
+    }
+
+    if (status != 0) {
+      throw new IOException(
+        new StringBuilder(256)
+          .append(name)
+          .append(" failed with status ")
+          .append(status)
+          .append(System.lineSeparator())
+          .append(output)
+          .append(errors)
+          .toString());
+    }
+    return output.toString();
+  }
+
+  private static void deleteRecursively(
+    final Path path)
+    throws IOException
+  {
+    if (!Files.exists(path)) {
+      return;
+    }
+
+    try (Stream<Path> stream = Files.walk(path)) {
+      final List<Path> paths =
+        stream.sorted(Comparator.reverseOrder()).collect(Collectors.toList());
+      for (final Path file : paths) {
+        Files.delete(file);
+      }
+    }
+  }
+}
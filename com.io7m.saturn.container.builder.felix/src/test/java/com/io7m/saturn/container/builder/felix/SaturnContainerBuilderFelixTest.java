@@ -0,0 +1,120 @@
+/*
+ * Copyright © 2018 Mark Raynsford <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.saturn.container.builder.felix;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Optional;
+import java.util.Random;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+
+public final class SaturnContainerBuilderFelixTest
+{
+  private Path directory;
+  private Path root;
+  private byte[] content;
+
+  @BeforeEach
+  public void setup()
+    throws IOException
+  {
+    this.directory = Files.createTempDirectory("saturn-builder-");
+    this.root = Files.createDirectories(this.directory.resolve("container"));
+
+    /*
+     * Larger than the buffers used for hashing, so that the content is streamed in pieces.
+     */
+
+    this.content = new byte[300_000];
+    new Random(0L).nextBytes(this.content);
+  }
+
+  private URL fileResource()
+    throws IOException
+  {
+    final Path file = this.directory.resolve("bundle.jar");
+    Files.write(file, this.content);
+    return file.toUri().toURL();
+  }
+
+  private URL jarResource()
+    throws IOException
+  {
+    final Path file = this.directory.resolve("builder.jar");
+    try (JarOutputStream output = new JarOutputStream(Files.newOutputStream(file))) {
+      output.putNextEntry(new JarEntry("system/bundle.jar"));
+      output.write(this.content);
+      output.closeEntry();
+    }
+    return new URL("jar:" + file.toUri() + "!/system/bundle.jar");
+  }
+
+  private void checkCopy(
+    final URL resource)
+    throws IOException
+  {
+    final Path output = this.root.resolve("bundle.jar");
+
+    final SaturnContainerManifest manifest0 =
+      SaturnContainerManifest.open(this.root, Optional.empty());
+    SaturnContainerBuilderFelix.copyResource(manifest0, resource, output);
+    manifest0.save();
+
+    Assertions.assertArrayEquals(this.content, Files.readAllBytes(output));
+    Assertions.assertEquals(1L, manifest0.filesWritten());
+    Assertions.assertEquals((long) this.content.length, manifest0.bytesWritten());
+
+    /*
+     * Copying the same content again leaves the file alone.
+     */
+
+    final SaturnContainerManifest manifest1 =
+      SaturnContainerManifest.open(this.root, Optional.empty());
+    SaturnContainerBuilderFelix.copyResource(manifest1, resource, output);
+    manifest1.save();
+
+    Assertions.assertArrayEquals(this.content, Files.readAllBytes(output));
+    Assertions.assertEquals(0L, manifest1.filesWritten());
+    Assertions.assertEquals(1L, manifest1.filesUnchanged());
+    Assertions.assertEquals(0L, manifest1.bytesWritten());
+  }
+
+  @Test
+  public void testCopyFile()
+    throws IOException
+  {
+    final URL resource = this.fileResource();
+    Assertions.assertEquals("file", resource.getProtocol());
+    this.checkCopy(resource);
+  }
+
+  @Test
+  public void testCopyJar()
+    throws IOException
+  {
+    final URL resource = this.jarResource();
+    Assertions.assertEquals("jar", resource.getProtocol());
+    this.checkCopy(resource);
+  }
+}
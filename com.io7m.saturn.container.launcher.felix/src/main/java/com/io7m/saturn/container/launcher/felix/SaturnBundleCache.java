@@ -0,0 +1,332 @@
+/*
+ * Copyright © 2018 Mark Raynsford <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.saturn.container.launcher.felix;
+
+import org.osgi.framework.Bundle;
+import org.osgi.framework.BundleContext;
+import org.osgi.framework.BundleException;
+import org.osgi.framework.FrameworkEvent;
+import org.osgi.framework.startlevel.BundleStartLevel;
+import org.osgi.framework.wiring.FrameworkWiring;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Properties;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * <p>A persistent index of the bundles installed into the framework's bundle cache.</p>
+ *
+ * <p>The index records the size, modification time, and SHA-256 hash of every bundle that was
+ * installed on the previous boot. On a warm boot, bundles already present in the cache are
+ * compared against the index: bundles that are unchanged are reused as-is, bundles whose content
+ * has changed are updated, and bundles that are no longer part of the container are uninstalled.
+ * Only bundles that are not present in the cache at all are installed.</p>
+ */
+
+final class SaturnBundleCache
+{
+  private static final Logger LOG = LoggerFactory.getLogger(SaturnBundleCache.class);
+
+  private static final String INDEX_NAME = "saturn-bundles.properties";
+
+  private final BundleContext context;
+  private final Path index_file;
+  private final Properties index;
+  private final Map<String, Bundle> reusable;
+
+  private SaturnBundleCache(
+    final BundleContext in_context,
+    final Path in_index_file,
+    final Properties in_index,
+    final Map<String, Bundle> in_reusable)
+  {
+    this.context = Objects.requireNonNull(in_context, "context");
+    this.index_file = Objects.requireNonNull(in_index_file, "index_file");
+    this.index = Objects.requireNonNull(in_index, "index");
+    this.reusable = Objects.requireNonNull(in_reusable, "reusable");
+  }
+
+  /**
+   * Reconcile the bundles present in the framework's bundle cache with the given set of bundle
+   * files. Bundles that are no longer required are uninstalled, and bundles whose content has
+   * changed are updated. This method should be called before the framework's start level is
+   * raised, so that no stale bundle is ever started.
+   *
+   * @param context   The bundle context
+   * @param cache_dir The framework's cache directory
+   * @param paths     The bundle files that should be present in the container
+   *
+   * @return A bundle cache
+   *
+   * @throws IOException          On I/O errors
+   * @throws BundleException      On errors updating or uninstalling bundles
+   * @throws InterruptedException If the current thread is interrupted whilst waiting
+   */
+
+  static SaturnBundleCache reconcile(
+    final BundleContext context,
+    final Path cache_dir,
+    final List<Path> paths)
+    throws IOException, BundleException, InterruptedException
+  {
+    Objects.requireNonNull(context, "context");
+    Objects.requireNonNull(cache_dir, "cache_dir");
+    Objects.requireNonNull(paths, "paths");
+
+    final Path index_file = cache_dir.resolve(INDEX_NAME);
+    final Properties previous = loadIndex(index_file);
+    final Properties current = new Properties();
+
+    final Map<String, Bundle> installed = new HashMap<>();
+    for (final Bundle bundle : context.getBundles()) {
+      if (bundle.getBundleId() != 0L) {
+        installed.put(bundle.getLocation(), bundle);
+      }
+    }
+
+    final Map<String, Bundle> reusable = new HashMap<>(installed.size());
+    final List<Bundle> refresh = new ArrayList<>();
+    for (final Path path : paths) {
+      final String location = SaturnBundleInstaller.location(path);
+      final String entry = entryFor(previous.getProperty(location), path);
+      current.setProperty(location, entry);
+
+      final Bundle bundle = installed.remove(location);
+      if (bundle == null) {
+        continue;
+      }
+
+      if (Objects.equals(digestOf(entry), digestOf(previous.getProperty(location)))) {
+        LOG.debug("unchanged: {}", location);
+      } else {
+        LOG.debug("updating: {}", location);
+        bundle.update();
+        refresh.add(bundle);
+      }
+
+      /*
+       * Clear the persistent autostart setting so that the bundle is not started by the
+       * framework when the start level is raised; it will be started by the launcher along
+       * with every other bundle.
+       */
+
+      bundle.stop();
+      reusable.put(location, bundle);
+    }
+
+    for (final Bundle bundle : installed.values()) {
+      LOG.debug("uninstalling: {}", bundle.getLocation());
+      bundle.uninstall();
+      refresh.add(bundle);
+    }
+
+    if (!refresh.isEmpty()) {
+      refreshBundles(context, refresh);
+    }
+
+    LOG.debug(
+      "bundle cache: {} reused, {} updated, {} uninstalled",
+      Integer.valueOf(reusable.size()),
+      Integer.valueOf(refresh.size() - installed.size()),
+      Integer.valueOf(installed.size()));
+
+    return new SaturnBundleCache(context, index_file, current, reusable);
+  }
+
+  private static void refreshBundles(
+    final BundleContext context,
+    final List<Bundle> bundles)
+    throws InterruptedException
+  {
+    final CountDownLatch latch = new CountDownLatch(1);
+    context.getBundle(0L)
+      .adapt(FrameworkWiring.class)
+      .refreshBundles(bundles, event -> {
+        if (event.getType() == FrameworkEvent.PACKAGES_REFRESHED) {
+          latch.countDown();
+        }
+      });
+    latch.await();
+  }
+
+  private static Properties loadIndex(
+    final Path index_file)
+    throws IOException
+  {
+    final Properties properties = new Properties();
+    if (Files.isRegularFile(index_file)) {
+      try (InputStream stream = Files.newInputStream(index_file)) {
+        properties.load(stream);
+      }
+    }
+    return properties;
+  }
+
+  /**
+   * Produce an index entry for the given file. If the size and modification time of the file
+   * match those in the previous entry, the previous entry is reused without hashing the file.
+   */
+
+  private static String entryFor(
+    final String previous,
+    final Path path)
+    throws IOException
+  {
+    final String prefix =
+      new StringBuilder(64)
+        .append(Files.size(path))
+        .append(' ')
+        .append(Files.getLastModifiedTime(path).toMillis())
+        .append(' ')
+        .toString();
+
+    if (previous != null && previous.startsWith(prefix)) {
+      return previous;
+    }
+    return prefix + hashOf(path);
+  }
+
+  private static String digestOf(
+    final String entry)
+  {
+    if (entry == null) {
+      return null;
+    }
+    return entry.substring(entry.lastIndexOf(' ') + 1);
+  }
+
+  private static String hashOf(
+    final Path path)
+    throws IOException
+  {
+    final MessageDigest digest;
+    try {
+      digest = MessageDigest.getInstance("SHA-256");
+    } catch (final NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+
+    final byte[] buffer = new byte[65536];
+    try (InputStream stream = Files.newInputStream(path)) {
+      while (true) {
+        final int r = stream.read(buffer);
+        if (r == -1) {
+          break;
+        }
+        digest.update(buffer, 0, r);
+      }
+    }
+
+    final byte[] result = digest.digest();
+    final StringBuilder text = new StringBuilder(result.length * 2);
+    for (final byte b : result) {
+      text.append(String.format("%02x", Integer.valueOf(b & 0xff)));
+    }
+    return text.toString();
+  }
+
+  /**
+   * Install the given bundles, reusing any bundles that were already present in the cache.
+   *
+   * @param recorder    The startup recorder
+   * @param type        The type of bundles being installed
+   * @param paths       The bundle files
+   * @param threads     The maximum number of threads used to install bundles
+   * @param start_level The start level that will be assigned to the bundles
+   *
+   * @return The bundles, in path order
+   *
+   * @throws BundleException      If any bundle fails to install
+   * @throws InterruptedException If the current thread is interrupted whilst waiting
+   */
+
+  List<Bundle> install(
+    final SaturnStartupRecorder recorder,
+    final String type,
+    final List<Path> paths,
+    final int threads,
+    final int start_level)
+    throws BundleException, InterruptedException
+  {
+    final List<String> missing = new ArrayList<>(paths.size());
+    for (final Path path : paths) {
+      final String location = SaturnBundleInstaller.location(path);
+      if (!this.reusable.containsKey(location)) {
+        missing.add(location);
+      }
+    }
+
+    LOG.debug(
+      "reusing {} {} bundles, installing {}",
+      Integer.valueOf(paths.size() - missing.size()),
+      type,
+      Integer.valueOf(missing.size()));
+
+    final List<Bundle> installed =
+      SaturnBundleInstaller.install(this.context, recorder, type, missing, threads, start_level);
+
+    final List<Bundle> bundles = new ArrayList<>(paths.size());
+    int installed_index = 0;
+    for (final Path path : paths) {
+      final Bundle reused = this.reusable.get(SaturnBundleInstaller.location(path));
+      if (reused != null) {
+        reused.adapt(BundleStartLevel.class).setStartLevel(start_level);
+        recorder.bundleReused(type, reused);
+        bundles.add(reused);
+      } else {
+        bundles.add(installed.get(installed_index));
+        ++installed_index;
+      }
+    }
+    return bundles;
+  }
+
+  /**
+   * Write the index to the cache directory.
+   *
+   * @throws IOException On I/O errors
+   */
+
+  void save()
+    throws IOException
+  {
+    final Path temporary = this.index_file.resolveSibling(INDEX_NAME + ".tmp");
+    try (OutputStream output = Files.newOutputStream(temporary)) {
+      this.index.store(output, "Saturn bundle cache index - DO NOT EDIT");
+    }
+    Files.move(
+      temporary,
+      this.index_file,
+      StandardCopyOption.REPLACE_EXISTING,
+      StandardCopyOption.ATOMIC_MOVE);
+  }
+}
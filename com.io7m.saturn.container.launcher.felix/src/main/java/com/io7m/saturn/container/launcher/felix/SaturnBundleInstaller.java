@@ -0,0 +1,260 @@
+/*
+ * Copyright © 2018 Mark Raynsford <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.saturn.container.launcher.felix;
+
+import org.osgi.framework.Bundle;
+import org.osgi.framework.BundleContext;
+import org.osgi.framework.BundleException;
+import org.osgi.framework.startlevel.BundleStartLevel;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Functions to install bundles, either serially or concurrently.
+ */
+
+final class SaturnBundleInstaller
+{
+  private static final Logger LOG = LoggerFactory.getLogger(SaturnBundleInstaller.class);
+
+  private SaturnBundleInstaller()
+  {
+
+  }
+
+  /**
+   * @param path The path of a bundle file
+   *
+   * @return The location used to install the bundle file
+   */
+
+  static String location(
+    final Path path)
+  {
+    return new StringBuilder(128)
+      .append("reference:file:")
+      .append(path.toAbsolutePath())
+      .toString();
+  }
+
+  /**
+   * Install all of the bundles at the given locations. If {@code threads} is greater than
+   * {@code 1}, bundles are installed concurrently using a pool of at most {@code threads} threads.
+   * Regardless of the number of threads, the returned bundles appear in the same order as the
+   * given locations, and start levels are assigned in that same order once all bundles have
+   * been installed. If any bundle fails to install, all of the failures are collected and
+   * raised together as suppressed exceptions of a single exception, and the bundles that did
+   * install are uninstalled again, so that a failed install leaves the framework as it was.
+   *
+   * @param context     The bundle context
+   * @param recorder    The startup recorder
+   * @param type        The type of bundles being installed
+   * @param locations   The bundle locations
+   * @param threads     The maximum number of threads used to install bundles
+   * @param start_level The start level that will be assigned to the bundles
+   *
+   * @return The installed bundles, in location order
+   *
+   * @throws BundleException      If any bundle fails to install
+   * @throws InterruptedException If the current thread is interrupted whilst waiting
+   */
+
+  static List<Bundle> install(
+    final BundleContext context,
+    final SaturnStartupRecorder recorder,
+    final String type,
+    final List<String> locations,
+    final int threads,
+    final int start_level)
+    throws BundleException, InterruptedException
+  {
+    Objects.requireNonNull(context, "context");
+    Objects.requireNonNull(recorder, "recorder");
+    Objects.requireNonNull(type, "type");
+    Objects.requireNonNull(locations, "locations");
+
+    if (locations.isEmpty()) {
+      return List.of();
+    }
+
+    final List<Bundle> bundles;
+    final int pool_size = Math.min(threads, locations.size());
+    if (pool_size <= 1) {
+      bundles = installSerial(context, recorder, type, locations);
+    } else {
+      bundles = installConcurrent(context, recorder, type, locations, pool_size);
+    }
+
+    for (final Bundle bundle : bundles) {
+      bundle.adapt(BundleStartLevel.class).setStartLevel(start_level);
+    }
+    return bundles;
+  }
+
+  private static List<Bundle> installSerial(
+    final BundleContext context,
+    final SaturnStartupRecorder recorder,
+    final String type,
+    final List<String> locations)
+    throws BundleException
+  {
+    LOG.debug("installing {} {} bundles serially", Integer.valueOf(locations.size()), type);
+
+    final List<Bundle> bundles = new ArrayList<>(locations.size());
+    final List<BundleException> failures = new ArrayList<>();
+    for (final String location : locations) {
+      try {
+        bundles.add(installOne(context, recorder, type, location));
+      } catch (final BundleException e) {
+        failures.add(e);
+      }
+    }
+
+    checkFailures(type, failures, bundles);
+    return bundles;
+  }
+
+  private static List<Bundle> installConcurrent(
+    final BundleContext context,
+    final SaturnStartupRecorder recorder,
+    final String type,
+    final List<String> locations,
+    final int pool_size)
+    throws BundleException, InterruptedException
+  {
+    LOG.debug(
+      "installing {} {} bundles with {} threads",
+      Integer.valueOf(locations.size()),
+      type,
+      Integer.valueOf(pool_size));
+
+    final ExecutorService executor =
+      Executors.newFixedThreadPool(pool_size, SaturnLauncherThreads.factory("install"));
+
+    try {
+      final List<Future<Bundle>> futures = new ArrayList<>(locations.size());
+      for (final String location : locations) {
+        futures.add(executor.submit(() -> installOne(context, recorder, type, location)));
+      }
+
+      final List<Bundle> bundles = new ArrayList<>(locations.size());
+      final List<BundleException> failures = new ArrayList<>();
+      for (final Future<Bundle> future : futures) {
+        try {
+          bundles.add(future.get());
+        } catch (final ExecutionException e) {
+          failures.add(asBundleException(e.getCause()));
+        }
+      }
+
+      checkFailures(type, failures, bundles);
+      return bundles;
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  private static BundleException asBundleException(
+    final Throwable cause)
+  {
+    if (cause instanceof BundleException) {
+      return (BundleException) cause;
+    }
+    return new BundleException(cause.getMessage(), cause);
+  }
+
+  private static Bundle installOne(
+    final BundleContext context,
+    final SaturnStartupRecorder recorder,
+    final String type,
+    final String location)
+    throws BundleException
+  {
+    LOG.debug("installing {}", location);
+
+    final SaturnJFRBundleInstall jfr = new SaturnJFRBundleInstall();
+    jfr.setGroup(type);
+    jfr.setLocation(location);
+    jfr.begin();
+
+    try {
+      final long wall_started = System.nanoTime();
+      final long cpu_started = SaturnStartupRecorder.threadCpuTime();
+      final Bundle bundle = context.installBundle(location);
+      recorder.bundleInstalled(
+        type,
+        bundle,
+        System.nanoTime() - wall_started,
+        SaturnStartupRecorder.threadCpuTime() - cpu_started);
+
+      jfr.setBundleId(bundle.getBundleId());
+      jfr.setSymbolicName(bundle.getSymbolicName());
+      jfr.setSucceeded(true);
+      return bundle;
+    } finally {
+      jfr.end();
+      jfr.commit();
+    }
+  }
+
+  private static void checkFailures(
+    final String type,
+    final List<BundleException> failures,
+    final List<Bundle> installed)
+    throws BundleException
+  {
+    if (failures.isEmpty()) {
+      return;
+    }
+
+    final BundleException exception =
+      new BundleException(
+        new StringBuilder(64)
+          .append("Failed to install ")
+          .append(failures.size())
+          .append(' ')
+          .append(type)
+          .append(" bundle(s)")
+          .toString());
+
+    for (final BundleException failure : failures) {
+      LOG.error("install failed: ", failure);
+      exception.addSuppressed(failure);
+    }
+
+    for (final Bundle bundle : installed) {
+      try {
+        LOG.debug("uninstalling {}", bundle);
+        bundle.uninstall();
+      } catch (final BundleException e) {
+        LOG.error("uninstall failed: ", e);
+        exception.addSuppressed(e);
+      }
+    }
+    throw exception;
+  }
+}
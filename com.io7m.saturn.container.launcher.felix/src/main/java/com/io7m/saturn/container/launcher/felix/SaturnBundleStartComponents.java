@@ -0,0 +1,121 @@
+/*
+ * Copyright © 2018 Mark Raynsford <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.saturn.container.launcher.felix;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Tarjan's algorithm for finding the strongly connected components of a bundle dependency
+ * graph. Only edges between nodes of the graph are considered; edges to nodes that are not keys
+ * of the graph are ignored.
+ */
+
+final class SaturnBundleStartComponents
+{
+  private final Map<SaturnBundleStartNode, Set<SaturnBundleStartNode>> graph;
+  private final Map<SaturnBundleStartNode, Integer> indices;
+  private final Map<SaturnBundleStartNode, Integer> lowlinks;
+  private final Deque<SaturnBundleStartNode> stack;
+  private final Set<SaturnBundleStartNode> on_stack;
+  private final List<Set<SaturnBundleStartNode>> components;
+  private int index;
+
+  private SaturnBundleStartComponents(
+    final Map<SaturnBundleStartNode, Set<SaturnBundleStartNode>> in_graph)
+  {
+    this.graph = in_graph;
+    this.indices = new HashMap<>(in_graph.size());
+    this.lowlinks = new HashMap<>(in_graph.size());
+    this.stack = new ArrayDeque<>(in_graph.size());
+    this.on_stack = new HashSet<>(in_graph.size());
+    this.components = new ArrayList<>();
+  }
+
+  /**
+   * Find the strongly connected components of the given graph.
+   *
+   * @param graph The graph, as a map from each node to the nodes that it depends on
+   *
+   * @return The components, each of which is a set of nodes
+   */
+
+  static List<Set<SaturnBundleStartNode>> find(
+    final Map<SaturnBundleStartNode, Set<SaturnBundleStartNode>> graph)
+  {
+    final SaturnBundleStartComponents search = new SaturnBundleStartComponents(graph);
+    for (final SaturnBundleStartNode node : graph.keySet()) {
+      if (!search.indices.containsKey(node)) {
+        search.visit(node);
+      }
+    }
+    return search.components;
+  }
+
+  private void visit(
+    final SaturnBundleStartNode node)
+  {
+    final Integer node_index = Integer.valueOf(this.index);
+    this.index = this.index + 1;
+    this.indices.put(node, node_index);
+    this.lowlinks.put(node, node_index);
+    this.stack.push(node);
+    this.on_stack.add(node);
+
+    for (final SaturnBundleStartNode target : this.graph.get(node)) {
+      if (!this.graph.containsKey(target)) {
+        continue;
+      }
+
+      if (!this.indices.containsKey(target)) {
+        this.visit(target);
+        this.lowlinks.put(node, minimum(this.lowlinks.get(node), this.lowlinks.get(target)));
+      } else if (this.on_stack.contains(target)) {
+        this.lowlinks.put(node, minimum(this.lowlinks.get(node), this.indices.get(target)));
+      }
+    }
+
+    if (this.lowlinks.get(node).equals(node_index)) {
+      final Set<SaturnBundleStartNode> component = new HashSet<>();
+      while (true) {
+        final SaturnBundleStartNode member = this.stack.pop();
+        this.on_stack.remove(member);
+        component.add(member);
+        if (member.equals(node)) {
+          break;
+        }
+      }
+      this.components.add(component);
+    }
+  }
+
+  private static Integer minimum(
+    final Integer x,
+    final Integer y)
+  {
+    if (x.intValue() <= y.intValue()) {
+      return x;
+    }
+    return y;
+  }
+}
@@ -0,0 +1,193 @@
+/*
+ * Copyright © 2018 Mark Raynsford <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.saturn.container.launcher.felix;
+
+import org.osgi.framework.Bundle;
+import org.osgi.framework.BundleException;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * A node in the bundle start graph.
+ */
+
+final class SaturnBundleStartNode
+{
+  private final Bundle bundle;
+  private final List<SaturnBundleStartNode> dependencies;
+  private final List<SaturnBundleStartNode> dependencies_view;
+  private volatile long time_started;
+  private volatile long time_finished;
+  private volatile long cpu_time;
+  private volatile BundleException failure;
+  private volatile boolean attempted;
+  private int wave;
+
+  SaturnBundleStartNode(
+    final Bundle in_bundle)
+  {
+    this.bundle = Objects.requireNonNull(in_bundle, "bundle");
+    this.dependencies = new ArrayList<>();
+    this.dependencies_view = Collections.unmodifiableList(this.dependencies);
+  }
+
+  /**
+   * @return The bundle
+   */
+
+  Bundle bundle()
+  {
+    return this.bundle;
+  }
+
+  /**
+   * @return The nodes that must be started before this node
+   */
+
+  List<SaturnBundleStartNode> dependencies()
+  {
+    return this.dependencies_view;
+  }
+
+  void addDependency(
+    final SaturnBundleStartNode node)
+  {
+    this.dependencies.add(Objects.requireNonNull(node, "node"));
+  }
+
+  /**
+   * @return The wave in which the bundle was started (the length of the longest dependency chain
+   * leading to this bundle)
+   */
+
+  int wave()
+  {
+    return this.wave;
+  }
+
+  void setWave(
+    final int in_wave)
+  {
+    this.wave = in_wave;
+  }
+
+  /**
+   * @return The time, in nanoseconds relative to the start of scheduling, that the bundle began
+   * starting
+   */
+
+  long timeStarted()
+  {
+    return this.time_started;
+  }
+
+  /**
+   * @return The time, in nanoseconds relative to the start of scheduling, that the bundle
+   * finished starting
+   */
+
+  long timeFinished()
+  {
+    return this.time_finished;
+  }
+
+  /**
+   * @return The time in nanoseconds that the bundle took to start
+   */
+
+  long duration()
+  {
+    return this.time_finished - this.time_started;
+  }
+
+  /**
+   * @return The CPU time in nanoseconds consumed by the thread that started the bundle
+   */
+
+  long cpuTime()
+  {
+    return this.cpu_time;
+  }
+
+  /**
+   * @return {@code true} if an attempt was made to start the bundle
+   */
+
+  boolean attempted()
+  {
+    return this.attempted;
+  }
+
+  /**
+   * @return {@code true} if any dependency of this node was not started successfully
+   */
+
+  boolean dependencyFailed()
+  {
+    for (final SaturnBundleStartNode dependency : this.dependencies) {
+      if (!dependency.attempted() || dependency.failure() != null) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * @return The failure raised when starting the bundle, if any
+   */
+
+  BundleException failure()
+  {
+    return this.failure;
+  }
+
+  /**
+   * Start the bundle, recording timing information and any failure.
+   *
+   * @param epoch The time in nanoseconds at which scheduling began
+   *
+   * @throws BundleException If the bundle fails to start
+   */
+
+  void start(
+    final long epoch)
+    throws BundleException
+  {
+    this.time_started = System.nanoTime() - epoch;
+    final long cpu_started = SaturnStartupRecorder.threadCpuTime();
+    try {
+      this.bundle.start();
+    } catch (final BundleException e) {
+      this.failure = e;
+      throw e;
+    } finally {
+      this.time_finished = System.nanoTime() - epoch;
+      this.cpu_time = SaturnStartupRecorder.threadCpuTime() - cpu_started;
+      this.attempted = true;
+    }
+  }
+
+  @Override
+  public String toString()
+  {
+    return this.bundle.getSymbolicName();
+  }
+}
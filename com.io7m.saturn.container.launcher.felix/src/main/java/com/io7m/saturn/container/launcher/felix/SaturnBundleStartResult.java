@@ -0,0 +1,102 @@
+/*
+ * Copyright © 2018 Mark Raynsford <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.saturn.container.launcher.felix;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * The result of starting a set of bundles.
+ */
+
+final class SaturnBundleStartResult
+{
+  private final List<SaturnBundleStartNode> nodes;
+  private final List<SaturnBundleStartNode> critical_path;
+
+  SaturnBundleStartResult(
+    final List<SaturnBundleStartNode> in_nodes)
+  {
+    this.nodes = List.copyOf(Objects.requireNonNull(in_nodes, "nodes"));
+    this.critical_path = criticalPathOf(this.nodes);
+  }
+
+  /**
+   * The critical path is the chain of bundles that determined the time at which the last bundle
+   * finished starting: Starting from the bundle that finished last, each step follows the
+   * dependency that finished last, as that is the dependency that the bundle was waiting for.
+   */
+
+  private static List<SaturnBundleStartNode> criticalPathOf(
+    final List<SaturnBundleStartNode> nodes)
+  {
+    SaturnBundleStartNode current = latestOf(nodes);
+    final List<SaturnBundleStartNode> path = new ArrayList<>();
+    while (current != null) {
+      path.add(current);
+      current = latestOf(current.dependencies());
+    }
+    Collections.reverse(path);
+    return List.copyOf(path);
+  }
+
+  private static SaturnBundleStartNode latestOf(
+    final List<SaturnBundleStartNode> nodes)
+  {
+    SaturnBundleStartNode latest = null;
+    for (final SaturnBundleStartNode node : nodes) {
+      if (latest == null || node.timeFinished() > latest.timeFinished()) {
+        latest = node;
+      }
+    }
+    return latest;
+  }
+
+  /**
+   * @return The started bundles, in the order in which they were scheduled
+   */
+
+  List<SaturnBundleStartNode> nodes()
+  {
+    return this.nodes;
+  }
+
+  /**
+   * @return The chain of bundles that determined the total start time
+   */
+
+  List<SaturnBundleStartNode> criticalPath()
+  {
+    return this.critical_path;
+  }
+
+  /**
+   * @return The total wall-clock time in nanoseconds taken to start all bundles
+   */
+
+  long totalTime()
+  {
+    long max = 0L;
+    for (final SaturnBundleStartNode node : this.nodes) {
+      max = Math.max(max, node.timeFinished());
+    }
+    return max;
+  }
+}
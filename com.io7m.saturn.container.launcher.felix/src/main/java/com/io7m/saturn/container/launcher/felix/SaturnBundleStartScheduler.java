@@ -0,0 +1,400 @@
+/*
+ * Copyright © 2018 Mark Raynsford <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.saturn.container.launcher.felix;
+
+import org.osgi.framework.Bundle;
+import org.osgi.framework.BundleContext;
+import org.osgi.framework.BundleException;
+import org.osgi.framework.wiring.BundleRevision;
+import org.osgi.framework.wiring.BundleWire;
+import org.osgi.framework.wiring.BundleWiring;
+import org.osgi.framework.wiring.FrameworkWiring;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * A scheduler that starts bundles in dependency order. The bundles are resolved, and a graph is
+ * constructed from the resulting wiring. A bundle is started only once all of the bundles that
+ * provide capabilities to it have been started. Bundles that do not depend on each other may be
+ * started concurrently. If a resolution plan was produced when the container was built, the graph
+ * is taken from the plan instead of being recomputed from the wiring.
+ */
+
+final class SaturnBundleStartScheduler
+{
+  private static final Logger LOG = LoggerFactory.getLogger(SaturnBundleStartScheduler.class);
+
+  private SaturnBundleStartScheduler()
+  {
+
+  }
+
+  /**
+   * Start the given bundles.
+   *
+   * @param context  The bundle context
+   * @param recorder The startup recorder
+   * @param type     The type of bundles being started
+   * @param bundles  The bundles
+   * @param threads  The maximum number of threads used to start bundles
+   * @param plan     The resolution plan, if any
+   *
+   * @return The result of starting the bundles
+   *
+   * @throws BundleException      If any bundle fails to start
+   * @throws InterruptedException If the current thread is interrupted whilst waiting
+   */
+
+  static SaturnBundleStartResult start(
+    final BundleContext context,
+    final SaturnStartupRecorder recorder,
+    final String type,
+    final List<Bundle> bundles,
+    final int threads,
+    final Optional<SaturnResolutionPlan> plan)
+    throws BundleException, InterruptedException
+  {
+    Objects.requireNonNull(context, "context");
+    Objects.requireNonNull(recorder, "recorder");
+    Objects.requireNonNull(type, "type");
+    Objects.requireNonNull(bundles, "bundles");
+    Objects.requireNonNull(plan, "plan");
+
+    final List<Bundle> startable = new ArrayList<>(bundles.size());
+    for (final Bundle bundle : bundles) {
+      if (isFragment(bundle)) {
+        LOG.debug("not starting fragment {}", bundle);
+      } else {
+        startable.add(bundle);
+      }
+    }
+
+    LOG.debug("resolving {} {} bundles", Integer.valueOf(startable.size()), type);
+    final SaturnJFRBundleResolve jfr_resolve = new SaturnJFRBundleResolve();
+    jfr_resolve.setGroup(type);
+    jfr_resolve.setBundles(startable.size());
+    jfr_resolve.begin();
+
+    final SaturnStartupRecorder.Phase phase_resolve = recorder.beginPhase(type + "-resolve");
+    final boolean resolved =
+      context.getBundle(0L)
+        .adapt(FrameworkWiring.class)
+        .resolveBundles(startable);
+    jfr_resolve.setResolved(resolved);
+    phase_resolve.end();
+
+    jfr_resolve.end();
+    jfr_resolve.commit();
+
+    final List<SaturnBundleStartNode> order = graphOrder(startable, plan);
+    final int pool_size = Math.min(threads, order.size());
+
+    LOG.debug(
+      "starting {} {} bundles with {} threads",
+      Integer.valueOf(order.size()),
+      type,
+      Integer.valueOf(Math.max(1, pool_size)));
+
+    final SaturnStartupRecorder.Phase phase_start = recorder.beginPhase(type + "-start");
+    if (pool_size <= 1) {
+      startSerial(order);
+    } else {
+      startConcurrent(order, pool_size);
+    }
+    phase_start.end();
+
+    for (final SaturnBundleStartNode node : order) {
+      if (node.attempted()) {
+        recorder.bundleStarted(type, node.bundle(), node.duration(), node.cpuTime());
+      }
+    }
+
+    checkFailures(type, order);
+    return new SaturnBundleStartResult(order);
+  }
+
+  static boolean isFragment(
+    final Bundle bundle)
+  {
+    final BundleRevision revision = bundle.adapt(BundleRevision.class);
+    return revision != null && (revision.getTypes() & BundleRevision.TYPE_FRAGMENT) != 0;
+  }
+
+  /**
+   * Construct a graph of the given bundles from their wiring, and return the nodes in an order
+   * such that every node appears after all of its dependencies. The edges of any bundle present
+   * in the given plan are taken from the plan.
+   *
+   * Dependency cycles are found as the strongly connected components of the graph of bundles
+   * that are not yet ordered. When no bundle can be ordered, a component that depends on no
+   * other unordered component is chosen, and the cycle is broken by ignoring the dependencies of
+   * the lowest-numbered bundle in that component on the other bundles in the component. Any
+   * bundle outside the component that depends on one of its bundles is made to depend on all of
+   * them, because the component only becomes usable once all of its bundles have started.
+   */
+
+  static List<SaturnBundleStartNode> graphOrder(
+    final List<Bundle> bundles,
+    final Optional<SaturnResolutionPlan> plan)
+  {
+    final Map<Bundle, SaturnBundleStartNode> nodes = new LinkedHashMap<>(bundles.size());
+    final Map<String, SaturnBundleStartNode> by_location = new HashMap<>(bundles.size());
+    for (final Bundle bundle : bundles) {
+      final SaturnBundleStartNode node = new SaturnBundleStartNode(bundle);
+      nodes.put(bundle, node);
+      by_location.put(bundle.getLocation(), node);
+    }
+
+    final Map<SaturnBundleStartNode, Set<SaturnBundleStartNode>> pending =
+      new LinkedHashMap<>(bundles.size());
+    for (final SaturnBundleStartNode node : nodes.values()) {
+      final Optional<List<String>> planned =
+        plan.flatMap(p -> p.providersOf(node.bundle().getLocation()));
+      if (planned.isPresent()) {
+        pending.put(node, plannedProvidersOf(by_location, planned.get()));
+      } else {
+        pending.put(node, providersOf(nodes, node.bundle()));
+      }
+    }
+
+    final List<SaturnBundleStartNode> order = new ArrayList<>(nodes.size());
+    final Set<SaturnBundleStartNode> done = new HashSet<>(nodes.size());
+    while (!pending.isEmpty()) {
+      final List<SaturnBundleStartNode> ready = new ArrayList<>();
+      for (final Map.Entry<SaturnBundleStartNode, Set<SaturnBundleStartNode>> e : pending.entrySet()) {
+        if (done.containsAll(e.getValue())) {
+          ready.add(e.getKey());
+        }
+      }
+
+      if (ready.isEmpty()) {
+        breakCycle(pending);
+        continue;
+      }
+
+      for (final SaturnBundleStartNode node : ready) {
+        int wave = 0;
+        for (final SaturnBundleStartNode dependency : pending.remove(node)) {
+          node.addDependency(dependency);
+          wave = Math.max(wave, dependency.wave() + 1);
+        }
+        node.setWave(wave);
+        order.add(node);
+        done.add(node);
+      }
+    }
+    return order;
+  }
+
+  private static void breakCycle(
+    final Map<SaturnBundleStartNode, Set<SaturnBundleStartNode>> pending)
+  {
+    final Comparator<SaturnBundleStartNode> by_id =
+      Comparator.comparingLong(n -> n.bundle().getBundleId());
+
+    /*
+     * No bundle is ready, so every pending bundle depends on a pending bundle, and every
+     * component without dependencies on other components is therefore a cycle.
+     */
+
+    final Set<SaturnBundleStartNode> component =
+      SaturnBundleStartComponents.find(pending)
+        .stream()
+        .filter(c -> isSink(pending, c))
+        .min(Comparator.comparing(c -> c.stream().min(by_id).orElseThrow(), by_id))
+        .orElseThrow();
+
+    final SaturnBundleStartNode victim = component.stream().min(by_id).orElseThrow();
+    LOG.debug("breaking dependency cycle {} at {}", component, victim);
+    pending.get(victim).removeAll(component);
+
+    for (final Map.Entry<SaturnBundleStartNode, Set<SaturnBundleStartNode>> e : pending.entrySet()) {
+      final Set<SaturnBundleStartNode> providers = e.getValue();
+      if (!component.contains(e.getKey()) && !Collections.disjoint(providers, component)) {
+        providers.addAll(component);
+      }
+    }
+  }
+
+  private static boolean isSink(
+    final Map<SaturnBundleStartNode, Set<SaturnBundleStartNode>> pending,
+    final Set<SaturnBundleStartNode> component)
+  {
+    for (final SaturnBundleStartNode node : component) {
+      for (final SaturnBundleStartNode provider : pending.get(node)) {
+        if (pending.containsKey(provider) && !component.contains(provider)) {
+          return false;
+        }
+      }
+    }
+    return true;
+  }
+
+  private static Set<SaturnBundleStartNode> plannedProvidersOf(
+    final Map<String, SaturnBundleStartNode> nodes,
+    final List<String> locations)
+  {
+    final Set<SaturnBundleStartNode> providers = new HashSet<>(locations.size());
+    for (final String location : locations) {
+      final SaturnBundleStartNode provider_node = nodes.get(location);
+      if (provider_node != null) {
+        providers.add(provider_node);
+      }
+    }
+    return providers;
+  }
+
+  private static Set<SaturnBundleStartNode> providersOf(
+    final Map<Bundle, SaturnBundleStartNode> nodes,
+    final Bundle bundle)
+  {
+    final Set<SaturnBundleStartNode> providers = new HashSet<>();
+    final BundleWiring wiring = bundle.adapt(BundleWiring.class);
+    if (wiring == null) {
+      return providers;
+    }
+
+    for (final BundleWire wire : wiring.getRequiredWires(null)) {
+      final Bundle provider = wire.getProvider().getBundle();
+      final SaturnBundleStartNode provider_node = nodes.get(provider);
+      if (provider_node != null && !Objects.equals(provider, bundle)) {
+        providers.add(provider_node);
+      }
+    }
+    return providers;
+  }
+
+  private static void startSerial(
+    final List<SaturnBundleStartNode> order)
+  {
+    final long epoch = System.nanoTime();
+    for (final SaturnBundleStartNode node : order) {
+      if (node.dependencyFailed()) {
+        LOG.error("not starting {}: a dependency failed to start", node.bundle());
+        continue;
+      }
+
+      try {
+        LOG.debug("starting: {}", node.bundle());
+        node.start(epoch);
+      } catch (final BundleException e) {
+        LOG.error("failed to start {}: ", node.bundle(), e);
+      }
+    }
+  }
+
+  private static void startConcurrent(
+    final List<SaturnBundleStartNode> order,
+    final int pool_size)
+    throws InterruptedException
+  {
+    final ExecutorService executor =
+      Executors.newFixedThreadPool(pool_size, SaturnLauncherThreads.factory("start"));
+
+    try {
+      final long epoch = System.nanoTime();
+      final Map<SaturnBundleStartNode, CompletableFuture<Void>> futures =
+        new HashMap<>(order.size());
+
+      for (final SaturnBundleStartNode node : order) {
+        final CompletableFuture<?>[] waits =
+          node.dependencies()
+            .stream()
+            .map(futures::get)
+            .toArray(CompletableFuture[]::new);
+
+        futures.put(node, CompletableFuture.allOf(waits).thenRunAsync(() -> {
+          try {
+            LOG.debug("starting (wave {}): {}", Integer.valueOf(node.wave()), node.bundle());
+            node.start(epoch);
+          } catch (final BundleException e) {
+            LOG.error("failed to start {}: ", node.bundle(), e);
+            throw new CompletionException(e);
+          }
+        }, executor));
+      }
+
+      for (final CompletableFuture<Void> future : futures.values()) {
+        try {
+          future.get();
+        } catch (final ExecutionException e) {
+          LOG.trace("start failed: ", e);
+        }
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  private static void checkFailures(
+    final String type,
+    final List<SaturnBundleStartNode> order)
+    throws BundleException
+  {
+    final List<BundleException> failures = new ArrayList<>();
+    for (final SaturnBundleStartNode node : order) {
+      final BundleException failure = node.failure();
+      if (failure != null) {
+        failures.add(failure);
+      } else if (!node.attempted()) {
+        failures.add(new BundleException(
+          new StringBuilder(128)
+            .append("Bundle ")
+            .append(node.bundle())
+            .append(" was not started because one of its dependencies failed to start")
+            .toString()));
+      }
+    }
+
+    if (failures.isEmpty()) {
+      return;
+    }
+
+    final BundleException exception =
+      new BundleException(
+        new StringBuilder(64)
+          .append("Failed to start ")
+          .append(failures.size())
+          .append(' ')
+          .append(type)
+          .append(" bundle(s)")
+          .toString());
+
+    for (final BundleException failure : failures) {
+      exception.addSuppressed(failure);
+    }
+    throw exception;
+  }
+}
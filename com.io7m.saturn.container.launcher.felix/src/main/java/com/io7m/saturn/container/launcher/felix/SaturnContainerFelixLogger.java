@@ -18,21 +18,140 @@ package com.io7m.saturn.container.launcher.felix;
 
 import org.osgi.framework.Bundle;
 import org.osgi.framework.ServiceReference;
+import org.osgi.framework.launch.Framework;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
 /**
  * An Apache Felix specific logger. This logger is used to capture messages from the actual
- * framework itself.
+ * framework itself. The framework log level is derived from the effective level of this
+ * class's SLF4J logger, so that the framework does not build messages that would be discarded.
  */
 
 final class SaturnContainerFelixLogger extends org.apache.felix.framework.Logger
 {
   private static final Logger LOG = LoggerFactory.getLogger(SaturnContainerFelixLogger.class);
 
+  /**
+   * The framework property that specifies the time in milliseconds between refreshes of the
+   * framework log level. If the value is not positive, the level is fixed at startup.
+   */
+
+  static final String REFRESH_PERIOD_PROPERTY = "com.io7m.saturn.launcher.log_level_refresh_ms";
+
+  private static final Duration REFRESH_PERIOD = Duration.ofSeconds(10L);
+
   SaturnContainerFelixLogger()
   {
+    this.setLogLevel(effectiveLevel());
+  }
+
+  /**
+   * @return The Felix log level corresponding to the effective level of the SLF4J logger
+   */
+
+  static int effectiveLevel()
+  {
+    if (LOG.isDebugEnabled()) {
+      return org.apache.felix.framework.Logger.LOG_DEBUG;
+    }
+    if (LOG.isInfoEnabled()) {
+      return org.apache.felix.framework.Logger.LOG_INFO;
+    }
+    if (LOG.isWarnEnabled()) {
+      return org.apache.felix.framework.Logger.LOG_WARNING;
+    }
+    if (LOG.isErrorEnabled()) {
+      return org.apache.felix.framework.Logger.LOG_ERROR;
+    }
+    return 0;
+  }
+
+  /**
+   * Update the framework log level if the effective level of the SLF4J logger has changed.
+   */
+
+  void refreshLevel()
+  {
+    final int level = effectiveLevel();
+    if (level != this.getLogLevel()) {
+      LOG.info("framework log level changed to {}", Integer.valueOf(level));
+      this.setLogLevel(level);
+    }
+  }
+
+  /**
+   * Periodically refresh the framework log level until the given framework stops. SLF4J offers
+   * no way to be notified when the backend reloads its configuration, so the level is polled.
+   * The period is taken from the {@link #REFRESH_PERIOD_PROPERTY} framework property, and is ten
+   * seconds by default to match the rate at which logback rescans its configuration.
+   *
+   * @param framework The framework using this logger
+   */
+
+  void follow(
+    final Framework framework)
+  {
+    final Duration period = refreshPeriod(framework);
+    if (period.isZero() || period.isNegative()) {
+      LOG.debug("framework log level refresh disabled");
+      return;
+    }
+    this.follow(framework, period);
+  }
+
+  /**
+   * @param framework The framework
+   *
+   * @return The refresh period specified by the framework properties
+   */
 
+  static Duration refreshPeriod(
+    final Framework framework)
+  {
+    final String text = framework.getBundleContext().getProperty(REFRESH_PERIOD_PROPERTY);
+    if (text == null) {
+      return REFRESH_PERIOD;
+    }
+
+    try {
+      return Duration.ofMillis(Long.parseLong(text));
+    } catch (final NumberFormatException e) {
+      LOG.error("unparseable value for {}: {}", REFRESH_PERIOD_PROPERTY, text);
+      return REFRESH_PERIOD;
+    }
+  }
+
+  /**
+   * Periodically refresh the framework log level until the given framework stops.
+   *
+   * @param framework The framework using this logger
+   * @param period    The time between refreshes
+   *
+   * @return The executor performing the refreshes, which shuts down once the framework stops
+   */
+
+  ScheduledExecutorService follow(
+    final Framework framework,
+    final Duration period)
+  {
+    final ScheduledExecutorService executor =
+      Executors.newSingleThreadScheduledExecutor(SaturnLauncherThreads.factory("log-level"));
+
+    final long period_ms = period.toMillis();
+    executor.scheduleWithFixedDelay(() -> {
+      if ((framework.getState() & (Bundle.STARTING | Bundle.ACTIVE | Bundle.STOPPING)) == 0) {
+        executor.shutdown();
+        return;
+      }
+      this.refreshLevel();
+    }, period_ms, period_ms, TimeUnit.MILLISECONDS);
+    return executor;
   }
 
   @Override
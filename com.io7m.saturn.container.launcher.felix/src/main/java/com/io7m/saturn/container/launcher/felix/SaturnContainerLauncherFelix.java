@@ -17,7 +17,12 @@
 package com.io7m.saturn.container.launcher.felix;
 
 import com.io7m.saturn.container.api.SaturnContainerDescription;
+import com.io7m.saturn.container.api.SaturnContainerInstance;
 import com.io7m.saturn.container.api.SaturnContainerLauncherType;
+import com.io7m.saturn.container.api.SaturnStartupReport;
+import com.io7m.saturn.container.api.SaturnStartupReports;
+import org.apache.felix.framework.cache.BundleCache;
+import org.apache.felix.framework.util.FelixConstants;
 import org.osgi.framework.Bundle;
 import org.osgi.framework.BundleContext;
 import org.osgi.framework.BundleException;
@@ -25,29 +30,47 @@ import org.osgi.framework.launch.Framework;
 import org.osgi.framework.launch.FrameworkFactory;
 import org.osgi.framework.startlevel.BundleStartLevel;
 import org.osgi.framework.startlevel.FrameworkStartLevel;
+import org.osgi.framework.wiring.FrameworkWiring;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Optional;
+import java.util.Properties;
 import java.util.ServiceLoader;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
 import static org.apache.felix.framework.util.FelixConstants.LOG_LEVEL_PROP;
 import static org.apache.felix.framework.util.FelixConstants.LOG_LOGGER_PROP;
+import static org.osgi.framework.Constants.FRAMEWORK_BOOTDELEGATION;
 import static org.osgi.framework.Constants.FRAMEWORK_STORAGE;
 import static org.osgi.framework.Constants.FRAMEWORK_STORAGE_CLEAN;
+import static org.osgi.framework.Constants.FRAMEWORK_STORAGE_CLEAN_ONFIRSTINIT;
 import static org.osgi.framework.Constants.FRAMEWORK_SYSTEMPACKAGES_EXTRA;
 
 /**
@@ -61,6 +84,14 @@ public final class SaturnContainerLauncherFelix implements SaturnContainerLaunch
   private static final Pattern VERSION_PATTERN =
     Pattern.compile("([0-9]+)\\.([0-9]+)\\.([0-9]+)(.*)");
 
+  /**
+   * Flight recorder events declared in bundles (such as the log throughput event) are
+   * instrumented to call generated classes in the JDK-internal handler packages, which no bundle
+   * can import.
+   */
+
+  private static final String JFR_BOOTDELEGATION = "jdk.jfr.internal.*";
+
   private SaturnContainerLauncherFelix()
   {
 
@@ -76,15 +107,82 @@ public final class SaturnContainerLauncherFelix implements SaturnContainerLaunch
   }
 
   @Override
-  public Framework launch(
+  public CompletionStage<SaturnContainerInstance> launchAsync(
+    final SaturnContainerDescription description,
+    final Duration timeout)
+  {
+    Objects.requireNonNull(description, "description");
+    Objects.requireNonNull(timeout, "timeout");
+
+    final long deadline = System.nanoTime() + timeout.toNanos();
+    final ThreadFactory threads = SaturnLauncherThreads.factory("launch");
+    final Executor executor = runnable -> threads.newThread(runnable).start();
+
+    /*
+     * The deadline bounds the launch itself as well as the wait for readiness. A launch that
+     * completes after the deadline has passed has no caller left to stop its container, and
+     * so the container is stopped by the launching thread.
+     */
+
+    final CompletableFuture<SaturnContainerInstance> launched = new CompletableFuture<>();
+    launched.orTimeout(timeout.toNanos(), TimeUnit.NANOSECONDS);
+    executor.execute(() -> this.launchInto(description, launched));
+
+    return launched.thenCompose(instance -> {
+      final long remaining = Math.max(0L, deadline - System.nanoTime());
+      return SaturnReadinessMonitor.await(
+        instance, readinessStartLevel(description), Duration.ofNanos(remaining));
+    });
+  }
+
+  /**
+   * @return The start level at which the container is considered ready: the critical start level
+   * for a staged boot, and the framework start level otherwise
+   */
+
+  private static int readinessStartLevel(
+    final SaturnContainerDescription description)
+  {
+    if (description.criticalStartLevel() != 0) {
+      return description.criticalStartLevel();
+    }
+    return description.frameworkStartLevel();
+  }
+
+  private void launchInto(
+    final SaturnContainerDescription description,
+    final CompletableFuture<SaturnContainerInstance> future)
+  {
+    final SaturnContainerInstance instance;
+    try {
+      instance = this.launchInstance(description);
+    } catch (final Exception e) {
+      future.completeExceptionally(e);
+      return;
+    }
+
+    if (!future.complete(instance)) {
+      LOG.error("container launched after the launch timed out; stopping it");
+      try {
+        instance.framework().stop();
+      } catch (final BundleException e) {
+        LOG.error("error stopping container: ", e);
+      }
+    }
+  }
+
+  @Override
+  public SaturnContainerInstance launchInstance(
     final SaturnContainerDescription description)
     throws Exception
   {
     Objects.requireNonNull(description, "description");
 
+    final SaturnStartupRecorder recorder = new SaturnStartupRecorder(Clock.systemUTC());
     final Path root = Files.createDirectories(description.path());
     final Path root_system = Files.createDirectories(root.resolve("system"));
-    final Path root_cache = Files.createDirectories(root.resolve("cache"));
+    final Path root_cache =
+      Files.createDirectories(description.cacheDirectory().orElse(root.resolve("cache")));
 
     /*
      * Get access to an OSGi framework factory and configure the required
@@ -97,11 +195,18 @@ public final class SaturnContainerLauncherFelix implements SaturnContainerLaunch
 
     final Map<String, Object> config = new HashMap<>();
     config.put(FRAMEWORK_STORAGE, root_cache.toString());
-    config.put(FRAMEWORK_STORAGE_CLEAN, "onFirstInit");
-    config.put(LOG_LEVEL_PROP, "999");
-    config.put(LOG_LOGGER_PROP, new SaturnContainerFelixLogger());
+    if (description.warmBoot()) {
+      LOG.debug("warm boot: preserving bundle cache {}", root_cache);
+    } else {
+      config.put(FRAMEWORK_STORAGE_CLEAN, FRAMEWORK_STORAGE_CLEAN_ONFIRSTINIT);
+    }
+    final SaturnContainerFelixLogger felix_logger = new SaturnContainerFelixLogger();
+    config.put(LOG_LEVEL_PROP, Integer.toString(felix_logger.getLogLevel()));
+    config.put(LOG_LOGGER_PROP, felix_logger);
 
+    configureFramework(description, config);
     configureRemoteShell(description, config);
+    configureLogBridge(description, config);
     exportHostPackages(config);
 
     final Object cast = config;
@@ -111,26 +216,308 @@ public final class SaturnContainerLauncherFelix implements SaturnContainerLaunch
      * Start the framework.
      */
 
-    LOG.debug("starting framework");
+    LOG.debug("initializing framework");
+    final SaturnJFRFrameworkStart jfr_start = new SaturnJFRFrameworkStart();
+    jfr_start.setPath(root.toString());
+    jfr_start.setWarmBoot(description.warmBoot());
+    jfr_start.begin();
+
+    final SaturnStartupRecorder.Phase phase_init = recorder.beginPhase("framework-init");
     final Framework framework = frameworks.newFramework(config_strings);
+    framework.init();
+    phase_init.end();
+
+    SaturnJFRListener.install(framework, root.toString());
+
+    LOG.debug("starting framework");
+    final SaturnStartupRecorder.Phase phase_start = recorder.beginPhase("framework-start");
     framework.start();
+    phase_start.end();
+
+    jfr_start.end();
+    jfr_start.commit();
+
+    felix_logger.follow(framework);
+
+    /*
+     * Install and start all of the bundles. If anything fails, stop the
+     * framework so that the caller is not left with a half-started container.
+     */
+
+    try {
+      installAndStart(
+        description, framework.getBundleContext(), recorder, root, root_system, root_cache);
+    } catch (final Exception e) {
+      LOG.error("launch failed, stopping framework");
+      framework.stop();
+      framework.waitForStop(0L);
+      throw e;
+    }
+
+    final SaturnStartupReport report = recorder.finish();
+    LOG.info("{}", SaturnStartupReports.summary(report));
+    writeReport(description.startupReportFile().orElse(root.resolve("startup.json")), report);
+    return SaturnContainerInstance.of(framework, report);
+  }
+
+  private static void writeReport(
+    final Path file,
+    final SaturnStartupReport report)
+    throws IOException
+  {
+    final Path file_tmp = file.resolveSibling(file.getFileName() + ".tmp");
+    Files.writeString(file_tmp, SaturnStartupReports.toJSON(report), UTF_8);
+    Files.move(file_tmp, file, REPLACE_EXISTING, ATOMIC_MOVE);
+  }
+
+  private static void installAndStart(
+    final SaturnContainerDescription description,
+    final BundleContext bundle_context,
+    final SaturnStartupRecorder recorder,
+    final Path root,
+    final Path root_system,
+    final Path root_cache)
+    throws Exception
+  {
+    final int install_threads = description.bundleInstallThreads();
+    final int start_threads = description.bundleStartThreads();
 
-    LOG.debug("setting framework start level");
-    final BundleContext bundle_context = framework.getBundleContext();
-    final Bundle system_bundle = bundle_context.getBundle();
-    final FrameworkStartLevel level = system_bundle.adapt(FrameworkStartLevel.class);
-    level.setStartLevel(1000);
+    final List<Path> system_paths = listSystemBundles(root_system);
+    final List<Path> app_paths = List.copyOf(description.bundles());
+    final List<Path> all_paths = new ArrayList<>(system_paths.size() + app_paths.size());
+    all_paths.addAll(system_paths);
+    all_paths.addAll(app_paths);
+
+    final Optional<SaturnResolutionPlan> plan = SaturnResolutionPlan.load(root, all_paths);
+    LOG.debug("resolution plan: {}", plan.isPresent() ? "present" : "absent");
+    recorder.resolutionPlanUsed(plan.isPresent());
 
     /*
-     * Install all of the bundles.
+     * On a warm boot, reconcile the contents of the bundle cache with the
+     * current set of bundles before any bundle has a chance to start.
      */
 
-    final List<Bundle> system_bundles = installSystemBundles(root_system, bundle_context);
-    startBundles("system", system_bundles);
+    final SaturnBundleCache cache;
+    if (description.warmBoot()) {
+      final SaturnStartupRecorder.Phase phase = recorder.beginPhase("cache-reconcile");
+      cache = SaturnBundleCache.reconcile(bundle_context, root_cache, all_paths);
+      phase.end();
+    } else {
+      cache = null;
+    }
+
+    final SaturnStartupRecorder.Phase phase_level = recorder.beginPhase("start-level");
+    final int initial_level = readinessStartLevel(description);
+    setStartLevel(bundle_context, initial_level);
+    phase_level.end();
+
+    final List<Bundle> system_bundles =
+      installBundles(
+        bundle_context,
+        recorder,
+        cache,
+        "system",
+        system_paths,
+        install_threads,
+        description.systemBundleStartLevel());
+    startBundles(
+      bundle_context,
+      recorder,
+      "system",
+      deferAbove(system_bundles, initial_level, Set.of()),
+      start_threads,
+      plan);
+
+    final List<Bundle> app_bundles =
+      installBundles(
+        bundle_context,
+        recorder,
+        cache,
+        "application",
+        app_paths,
+        install_threads,
+        description.applicationBundleStartLevel());
+    applyBundleStartLevels(description, app_paths, app_bundles);
+
+    final Set<Bundle> app_lazy = lazyBundles(description, app_paths, app_bundles);
+    SaturnLazyActivations.track(bundle_context, recorder.wallStarted(), app_lazy);
+
+    final List<Bundle> app_now = deferAbove(app_bundles, initial_level, app_lazy);
+    startBundles(
+      bundle_context,
+      recorder,
+      "application",
+      startLazily(bundle_context, app_now, app_lazy),
+      start_threads,
+      plan);
+
+    if (cache != null) {
+      cache.save();
+    }
+
+    if (initial_level < description.frameworkStartLevel()) {
+      SaturnStagedBoot.raise(bundle_context, initial_level, description.frameworkStartLevel());
+    }
+  }
+
+  /**
+   * Mark the bundles assigned to start levels above the given level as started, so that the
+   * framework starts them when it reaches their levels, and return the remaining bundles.
+   */
+
+  private static List<Bundle> deferAbove(
+    final List<Bundle> bundles,
+    final int level,
+    final Set<Bundle> lazy)
+    throws BundleException
+  {
+    final List<Bundle> now = new ArrayList<>(bundles.size());
+    for (final Bundle bundle : bundles) {
+      if (bundle.adapt(BundleStartLevel.class).getStartLevel() > level) {
+        LOG.debug("deferring start of {} to its start level", bundle);
+        bundle.start(lazy.contains(bundle) ? Bundle.START_ACTIVATION_POLICY : 0);
+      } else {
+        now.add(bundle);
+      }
+    }
+    return now;
+  }
+
+  /**
+   * Determine which application bundles are started with their activation policy. The bundles
+   * are in path order.
+   */
+
+  private static Set<Bundle> lazyBundles(
+    final SaturnContainerDescription description,
+    final List<Path> paths,
+    final List<Bundle> bundles)
+  {
+    final Set<Bundle> lazy = new HashSet<>();
+    for (int index = 0; index < paths.size(); ++index) {
+      final Path path = paths.get(index);
+      final Bundle bundle = bundles.get(index);
+      final boolean marked = description.lazyBundles().contains(path);
+      if (!marked && !description.lazyActivation()) {
+        continue;
+      }
 
-    final List<Bundle> app_bundles = installApplicationBundles(description, bundle_context);
-    startBundles("application", app_bundles);
-    return framework;
+      if (SaturnLazyActivations.declaresLazyActivation(bundle)) {
+        lazy.add(bundle);
+      } else if (marked) {
+        LOG.warn(
+          "bundle {} does not declare a lazy activation policy and will be started eagerly",
+          path);
+      }
+    }
+    return lazy;
+  }
+
+  /**
+   * Resolve and start the lazy bundles with their activation policy, and return the remaining
+   * bundles. The lazy bundles are started first so that they are activated by the first class
+   * load that any eagerly started bundle makes from them.
+   */
+
+  private static List<Bundle> startLazily(
+    final BundleContext bundle_context,
+    final List<Bundle> bundles,
+    final Set<Bundle> lazy)
+    throws BundleException
+  {
+    final List<Bundle> eager = new ArrayList<>(bundles.size());
+    final List<Bundle> now = new ArrayList<>(lazy.size());
+    for (final Bundle bundle : bundles) {
+      if (lazy.contains(bundle)) {
+        now.add(bundle);
+      } else {
+        eager.add(bundle);
+      }
+    }
+
+    if (!now.isEmpty()) {
+      LOG.debug("starting {} bundles lazily", Integer.valueOf(now.size()));
+      bundle_context.getBundle(0L).adapt(FrameworkWiring.class).resolveBundles(now);
+      for (final Bundle bundle : now) {
+        bundle.start(Bundle.START_ACTIVATION_POLICY);
+      }
+    }
+    return eager;
+  }
+
+  /**
+   * Set the framework start level, and wait for the framework to finish changing the level.
+   */
+
+  private static void setStartLevel(
+    final BundleContext bundle_context,
+    final int start_level)
+    throws InterruptedException
+  {
+    LOG.debug("setting framework start level {}", Integer.valueOf(start_level));
+
+    final FrameworkStartLevel level =
+      bundle_context.getBundle().adapt(FrameworkStartLevel.class);
+
+    final SaturnJFRStartLevel jfr = new SaturnJFRStartLevel();
+    jfr.setLevelPrevious(level.getStartLevel());
+    jfr.setLevel(start_level);
+    jfr.begin();
+
+    final CountDownLatch latch = new CountDownLatch(1);
+    level.setStartLevel(start_level, event -> latch.countDown());
+    latch.await();
+
+    jfr.end();
+    jfr.commit();
+  }
+
+  /**
+   * Apply the start levels specified for individual application bundles. The bundles are in
+   * path order.
+   */
+
+  private static void applyBundleStartLevels(
+    final SaturnContainerDescription description,
+    final List<Path> paths,
+    final List<Bundle> bundles)
+  {
+    final Map<Path, Integer> levels = description.bundleStartLevels();
+    if (levels.isEmpty()) {
+      return;
+    }
+
+    for (int index = 0; index < paths.size(); ++index) {
+      final Integer level = levels.get(paths.get(index));
+      if (level != null) {
+        LOG.debug("start level {}: {}", level, paths.get(index));
+        bundles.get(index).adapt(BundleStartLevel.class).setStartLevel(level.intValue());
+      }
+    }
+  }
+
+  /**
+   * Pass the framework tuning settings of the description to the framework.
+   */
+
+  static void configureFramework(
+    final SaturnContainerDescription description,
+    final Map<String, Object> config)
+  {
+    if (description.resolverParallelism() > 0) {
+      config.put(
+        FelixConstants.RESOLVER_PARALLELISM,
+        Integer.toString(description.resolverParallelism()));
+    }
+    final List<String> delegation = new ArrayList<>(description.bootDelegation());
+    delegation.add(JFR_BOOTDELEGATION);
+    config.put(FRAMEWORK_BOOTDELEGATION, String.join(",", delegation));
+    config.put(
+      BundleCache.CACHE_BUFSIZE_PROP,
+      Integer.toString(description.cacheBufferSize()));
+    config.put(
+      BundleCache.CACHE_LOCKING_PROP,
+      Boolean.toString(description.cacheLocking()));
   }
 
   private static void configureRemoteShell(
@@ -145,18 +532,82 @@ public final class SaturnContainerLauncherFelix implements SaturnContainerLaunch
     config.put("gosh.args", "--nointeractive");
   }
 
+  /**
+   * Pass the log bridge configuration to the logservice bundle as framework properties.
+   */
+
+  private static void configureLogBridge(
+    final SaturnContainerDescription description,
+    final Map<String, Object> config)
+  {
+    config.put(
+      "com.io7m.saturn.logservice.asynchronous",
+      Boolean.toString(description.logBridgeAsynchronous()));
+    config.put(
+      "com.io7m.saturn.logservice.queue_capacity",
+      Integer.toString(description.logBridgeQueueCapacity()));
+    config.put(
+      "com.io7m.saturn.logservice.overflow",
+      description.logBridgeOverflow().name());
+    config.put(
+      "com.io7m.saturn.logservice.rate_limit",
+      Integer.toString(description.logBridgeRateLimit()));
+    config.put(
+      "com.io7m.saturn.logservice.rate_burst",
+      Integer.toString(description.logBridgeRateBurst()));
+    config.put(
+      "com.io7m.saturn.logservice.deduplication_window_ms",
+      Long.toString(description.logBridgeDeduplicationWindow().toMillis()));
+  }
+
   private static void startBundles(
+    final BundleContext bundle_context,
+    final SaturnStartupRecorder recorder,
     final String type,
-    final List<Bundle> bundles)
-    throws BundleException
+    final List<Bundle> bundles,
+    final int threads,
+    final Optional<SaturnResolutionPlan> plan)
+    throws BundleException, InterruptedException
   {
     LOG.debug("starting {} {} bundles", Integer.valueOf(bundles.size()), type);
 
-    for (final Bundle bundle : bundles) {
-      LOG.debug("starting: {}", bundle);
-      bundle.start();
+    final SaturnBundleStartResult result =
+      SaturnBundleStartScheduler.start(bundle_context, recorder, type, bundles, threads, plan);
+    logCriticalPath(type, result);
+    logBundleStates(bundles);
+  }
+
+  private static void logCriticalPath(
+    final String type,
+    final SaturnBundleStartResult result)
+  {
+    final List<SaturnBundleStartNode> path = result.criticalPath();
+    if (path.isEmpty()) {
+      return;
+    }
+
+    final StringBuilder text = new StringBuilder(256);
+    for (final SaturnBundleStartNode node : path) {
+      if (text.length() > 0) {
+        text.append(" -> ");
+      }
+      text.append(node.bundle().getSymbolicName());
+      text.append(" (");
+      text.append(TimeUnit.NANOSECONDS.toMillis(node.duration()));
+      text.append("ms)");
     }
 
+    LOG.info(
+      "started {} {} bundles in {}ms, critical path: {}",
+      Integer.valueOf(result.nodes().size()),
+      type,
+      Long.valueOf(TimeUnit.NANOSECONDS.toMillis(result.totalTime())),
+      text);
+  }
+
+  private static void logBundleStates(
+    final List<Bundle> bundles)
+  {
     for (final Bundle bundle : bundles) {
       final int state = bundle.getState();
       switch (state) {
@@ -188,82 +639,66 @@ public final class SaturnContainerLauncherFelix implements SaturnContainerLaunch
     }
   }
 
-  private static List<Bundle> installApplicationBundles(
-    final SaturnContainerDescription description,
-    final BundleContext bundle_context)
-    throws BundleException
+  private static List<Bundle> installBundles(
+    final BundleContext bundle_context,
+    final SaturnStartupRecorder recorder,
+    final SaturnBundleCache cache,
+    final String type,
+    final List<Path> paths,
+    final int threads,
+    final int start_level)
+    throws BundleException, InterruptedException
   {
-    LOG.debug("installing application bundles");
+    LOG.debug("installing {} bundles", type);
 
-    final Set<Path> bundle_paths = description.bundles();
-    if (bundle_paths.isEmpty()) {
-      LOG.debug("no application bundles to install");
+    if (paths.isEmpty()) {
+      LOG.debug("no {} bundles to install", type);
       return List.of();
     }
 
-    final List<Bundle> bundles = new ArrayList<>(bundle_paths.size());
-    for (final Path path : bundle_paths) {
-      final String location =
-        new StringBuilder(64)
-          .append("reference:file:")
-          .append(path.toAbsolutePath())
-          .toString();
-
-      LOG.debug("installing {}", location);
-      final Bundle bundle = bundle_context.installBundle(location);
-      bundles.add(bundle);
-      bundle.adapt(BundleStartLevel.class).setStartLevel(20);
+    final SaturnStartupRecorder.Phase phase = recorder.beginPhase(type + "-install");
+    try {
+      if (cache != null) {
+        return cache.install(recorder, type, paths, threads, start_level);
+      }
+
+      final List<String> locations = new ArrayList<>(paths.size());
+      for (final Path path : paths) {
+        locations.add(SaturnBundleInstaller.location(path));
+      }
+      return SaturnBundleInstaller.install(
+        bundle_context, recorder, type, locations, threads, start_level);
+    } finally {
+      phase.end();
     }
-    return bundles;
   }
 
-  private static List<Bundle> installSystemBundles(
-    final Path root_system,
-    final BundleContext bundle_context)
-    throws BundleException, IOException
-  {
-    LOG.debug("installing system bundles");
+  /**
+   * List the system bundles. The bundles are sorted so that the installation order does not
+   * depend on the order in which the filesystem happens to list the directory.
+   */
 
-    final List<Path> bundle_paths;
+  static List<Path> listSystemBundles(
+    final Path root_system)
+    throws IOException
+  {
     try (Stream<Path> path_stream = Files.list(root_system)) {
-      bundle_paths = path_stream.collect(Collectors.toList());
+      return path_stream.sorted().collect(Collectors.toList());
     }
-
-    if (bundle_paths.isEmpty()) {
-      LOG.debug("no system bundles to install");
-      return List.of();
-    }
-
-    final List<Bundle> bundles = new ArrayList<>(bundle_paths.size());
-    for (final Path path : bundle_paths) {
-      final String pack = path.getFileName().toString();
-      final String file =
-        new StringBuilder(128)
-          .append("reference:file:")
-          .append(root_system)
-          .append("/")
-          .append(pack)
-          .toString();
-
-      LOG.debug("installing {} ({})", pack, file);
-      final Bundle bundle = bundle_context.installBundle(file);
-      bundles.add(bundle);
-      bundle.adapt(BundleStartLevel.class).setStartLevel(10);
-    }
-    return bundles;
   }
 
   /**
    * Expose the host's SLF4J API to the container. This ensures that any time a package requires the
    * SLF4J, the actual implementation will be resolved to the one on the host. Additionally, export
-   * sun.misc in order to allow access to sun.misc.Unsafe.
+   * sun.misc in order to allow access to sun.misc.Unsafe, and jdk.jfr in order to allow bundles to
+   * emit flight recorder events.
    */
 
-  private static void exportHostPackages(
+  static void exportHostPackages(
     final Map<String, Object> config)
+    throws IOException
   {
-    final Package package_ = Logger.class.getPackage();
-    final String raw_version = package_.getImplementationVersion();
+    final String raw_version = slf4jVersion();
     LOG.debug("SLF4J raw version: {}", raw_version);
 
     final Matcher matcher = VERSION_PATTERN.matcher(raw_version);
@@ -283,6 +718,7 @@ public final class SaturnContainerLauncherFelix implements SaturnContainerLaunch
     exports.add(export("org.slf4j.*", clean_version));
     exports.add(export("sun.misc", "0.0.0"));
     exports.add(export("sun.misc.resources", "0.0.0"));
+    exports.add(export("jdk.jfr", "0.0.0"));
 
     exports.forEach(e -> LOG.debug("export: {}", e));
     final String joined = String.join(",", exports);
@@ -290,6 +726,34 @@ public final class SaturnContainerLauncherFelix implements SaturnContainerLaunch
     config.put(FRAMEWORK_SYSTEMPACKAGES_EXTRA, joined);
   }
 
+  /**
+   * Determine the version of the host's SLF4J API. The Maven metadata of the API jar is
+   * preferred, because it survives the jar being shaded into another jar, whereas the package
+   * version is then taken from the manifest of the enclosing jar.
+   */
+
+  private static String slf4jVersion()
+    throws IOException
+  {
+    try (InputStream stream =
+           Logger.class.getResourceAsStream("/META-INF/maven/org.slf4j/slf4j-api/pom.properties")) {
+      if (stream != null) {
+        final Properties properties = new Properties();
+        properties.load(stream);
+        final String version = properties.getProperty("version");
+        if (version != null) {
+          return version;
+        }
+      }
+    }
+
+    final String version = Logger.class.getPackage().getImplementationVersion();
+    if (version == null) {
+      throw new IllegalStateException("Cannot determine the version of the SLF4J API");
+    }
+    return version;
+  }
+
   private static String export(
     final String package_name,
     final String version)
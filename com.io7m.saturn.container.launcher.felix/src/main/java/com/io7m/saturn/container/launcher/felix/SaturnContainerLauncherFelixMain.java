@@ -23,14 +23,29 @@ import org.osgi.framework.launch.Framework;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
 import java.io.InputStream;
+import java.net.InetSocketAddress;
 import java.nio.file.FileSystem;
 import java.nio.file.FileSystems;
 import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.List;
 import java.util.Properties;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * Command-line launcher.
+ *
+ * If the {@code com.io7m.saturn.launcher.training} system property is {@code true}, the container
+ * is booted until it becomes ready and is then stopped, and the launcher exits. This is used to
+ * exercise class loading when generating class data sharing archives. The remote shell is bound
+ * to an ephemeral port so that a training boot does not conflict with a running container, and
+ * unless the container description specifies them, the bundle cache and startup report are
+ * written to temporary locations that are deleted when the training boot ends.
  */
 
 public final class SaturnContainerLauncherFelixMain
@@ -38,6 +53,10 @@ public final class SaturnContainerLauncherFelixMain
   private static final Logger LOG =
     LoggerFactory.getLogger(SaturnContainerLauncherFelixMain.class);
 
+  private static final String TRAINING_PROPERTY = "com.io7m.saturn.launcher.training";
+
+  private static final Duration TRAINING_TIMEOUT = Duration.ofMinutes(5L);
+
   private SaturnContainerLauncherFelixMain()
   {
 
@@ -72,6 +91,11 @@ public final class SaturnContainerLauncherFelixMain
       final SaturnContainerDescription description =
         SaturnContainerDescriptions.parse(filesystem, props);
 
+      if (Boolean.getBoolean(TRAINING_PROPERTY)) {
+        train(description);
+        return;
+      }
+
       final Framework framework =
         SaturnContainerLauncherFelix.createLauncher()
           .launch(description);
@@ -85,4 +109,56 @@ public final class SaturnContainerLauncherFelixMain
       LOG.info("exiting");
     }
   }
+
+  private static void train(
+    final SaturnContainerDescription description)
+    throws Exception
+  {
+    LOG.info("training boot");
+
+    /*
+     * Unless the description says otherwise, the training boot uses its own bundle cache and
+     * startup report, so that it leaves neither behind in the container.
+     */
+
+    final Path cache = Files.createTempDirectory("saturn-training-cache-");
+    final Path report = Files.createTempFile("saturn-training-", ".json");
+    try {
+      final SaturnContainerDescription training =
+        SaturnContainerDescription.builder()
+          .from(description)
+          .setRemoteShellAddress(
+            InetSocketAddress.createUnresolved(
+              description.remoteShellAddress().getHostString(), 0))
+          .setCacheDirectory(description.cacheDirectory().orElse(cache))
+          .setStartupReportFile(description.startupReportFile().orElse(report))
+          .build();
+
+      final Framework framework =
+        SaturnContainerLauncherFelix.createLauncher()
+          .launchAsync(training, TRAINING_TIMEOUT)
+          .toCompletableFuture()
+          .get()
+          .framework();
+
+      framework.stop();
+      framework.waitForStop(0L);
+    } finally {
+      deleteRecursively(cache);
+      Files.deleteIfExists(report);
+    }
+  }
+
+  private static void deleteRecursively(
+    final Path path)
+    throws IOException
+  {
+    try (Stream<Path> stream = Files.walk(path)) {
+      final List<Path> paths =
+        stream.sorted(Comparator.reverseOrder()).collect(Collectors.toList());
+      for (final Path file : paths) {
+        Files.deleteIfExists(file);
+      }
+    }
+  }
 }
@@ -0,0 +1,316 @@
+/*
+ * Copyright © 2018 Mark Raynsford <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.saturn.container.launcher.felix;
+
+import com.io7m.saturn.container.api.SaturnBundleDiagnosis;
+import com.io7m.saturn.container.api.SaturnContainerDescription;
+import com.io7m.saturn.container.api.SaturnContainerUnresolvedException;
+import org.osgi.framework.Bundle;
+import org.osgi.framework.BundleContext;
+import org.osgi.framework.BundleException;
+import org.osgi.framework.Constants;
+import org.osgi.framework.launch.Framework;
+import org.osgi.framework.launch.FrameworkFactory;
+import org.osgi.framework.wiring.BundleCapability;
+import org.osgi.framework.wiring.BundleRequirement;
+import org.osgi.framework.wiring.BundleRevision;
+import org.osgi.framework.wiring.FrameworkWiring;
+import org.osgi.resource.Namespace;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Properties;
+import java.util.ServiceLoader;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.apache.felix.framework.util.FelixConstants.LOG_LEVEL_PROP;
+import static org.apache.felix.framework.util.FelixConstants.LOG_LOGGER_PROP;
+import static org.osgi.framework.Constants.FRAMEWORK_STORAGE;
+import static org.osgi.framework.Constants.FRAMEWORK_STORAGE_CLEAN;
+import static org.osgi.framework.Constants.FRAMEWORK_STORAGE_CLEAN_ONFIRSTINIT;
+
+/**
+ * An offline resolver for Felix containers. The system bundles of a container and the bundles
+ * of its description are installed into a temporary framework that is initialized but never
+ * started, and are resolved against the same host exports that the launcher uses. Every bundle
+ * that cannot be installed or resolved is reported. If resolution succeeds, a resolution plan is
+ * produced that the launcher uses to order bundle starts without recomputing the graph.
+ */
+
+public final class SaturnContainerResolverFelix
+{
+  private static final Logger LOG = LoggerFactory.getLogger(SaturnContainerResolverFelix.class);
+
+  private SaturnContainerResolverFelix()
+  {
+
+  }
+
+  /**
+   * @return The name of the resolution plan file in a container directory
+   */
+
+  public static String planFileName()
+  {
+    return SaturnResolutionPlan.PLAN_NAME;
+  }
+
+  /**
+   * Resolve the bundles of the given container. The system bundles must already have been
+   * written into the container directory.
+   *
+   * @param description The container description
+   *
+   * @return The resolution plan
+   *
+   * @throws IOException On I/O errors, including {@link SaturnContainerUnresolvedException} if
+   *                     any bundle cannot be installed or resolved
+   */
+
+  public static Properties resolve(
+    final SaturnContainerDescription description)
+    throws IOException
+  {
+    Objects.requireNonNull(description, "description");
+
+    final Path root = description.path();
+    final List<Path> paths =
+      new ArrayList<>(SaturnContainerLauncherFelix.listSystemBundles(root.resolve("system")));
+    paths.addAll(description.bundles());
+
+    final Path storage = Files.createTempDirectory("saturn-resolve-");
+    try {
+      return resolveIn(description, storage, paths);
+    } catch (final BundleException e) {
+      throw new IOException(e);
+    } catch (final InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException(e);
+    } finally {
+      deleteRecursively(storage);
+    }
+  }
+
+  private static Properties resolveIn(
+    final SaturnContainerDescription description,
+    final Path storage,
+    final List<Path> paths)
+    throws IOException, BundleException, InterruptedException
+  {
+    final FrameworkFactory frameworks =
+      ServiceLoader.load(FrameworkFactory.class).iterator().next();
+
+    final Map<String, Object> config = new HashMap<>();
+    config.put(FRAMEWORK_STORAGE, storage.toString());
+    config.put(FRAMEWORK_STORAGE_CLEAN, FRAMEWORK_STORAGE_CLEAN_ONFIRSTINIT);
+    final SaturnContainerFelixLogger felix_logger = new SaturnContainerFelixLogger();
+    config.put(LOG_LEVEL_PROP, Integer.toString(felix_logger.getLogLevel()));
+    config.put(LOG_LOGGER_PROP, felix_logger);
+    SaturnContainerLauncherFelix.configureFramework(description, config);
+    SaturnContainerLauncherFelix.exportHostPackages(config);
+
+    final Object cast = config;
+    @SuppressWarnings("unchecked") final Map<String, String> config_strings = (Map<String, String>) cast;
+
+    final Framework framework = frameworks.newFramework(config_strings);
+    framework.init();
+    try {
+      return resolveWith(framework.getBundleContext(), paths);
+    } finally {
+      framework.stop();
+      framework.waitForStop(0L);
+    }
+  }
+
+  private static Properties resolveWith(
+    final BundleContext context,
+    final List<Path> paths)
+    throws IOException
+  {
+    final List<SaturnBundleDiagnosis> diagnoses = new ArrayList<>();
+    final Map<String, Path> locations = new LinkedHashMap<>(paths.size());
+    final List<Bundle> bundles = new ArrayList<>(paths.size());
+
+    for (final Path path : paths) {
+      final String location = SaturnBundleInstaller.location(path);
+      locations.put(location, path);
+      try {
+        bundles.add(context.installBundle(location));
+      } catch (final BundleException e) {
+        diagnoses.add(
+          SaturnBundleDiagnosis.of(
+            -1L,
+            path.toString(),
+            "UNINSTALLED",
+            List.of("Bundle could not be installed: " + e.getMessage())));
+      }
+    }
+
+    final FrameworkWiring wiring = context.getBundle(0L).adapt(FrameworkWiring.class);
+    final boolean resolved = wiring.resolveBundles(bundles);
+    LOG.debug(
+      "resolved {} bundles: {}",
+      Integer.valueOf(bundles.size()),
+      Boolean.valueOf(resolved));
+
+    for (final Bundle bundle : bundles) {
+      if (bundle.getState() == Bundle.INSTALLED) {
+        final String name = bundle.getSymbolicName();
+        diagnoses.add(
+          SaturnBundleDiagnosis.of(
+            bundle.getBundleId(),
+            name == null ? "(unnamed)" : name,
+            "INSTALLED",
+            problemsOf(wiring, bundle)));
+      }
+    }
+
+    if (!diagnoses.isEmpty()) {
+      throw failed(diagnoses);
+    }
+
+    final List<Bundle> startable =
+      bundles.stream()
+        .filter(bundle -> !SaturnBundleStartScheduler.isFragment(bundle))
+        .collect(Collectors.toList());
+
+    return SaturnResolutionPlan.create(
+      SaturnBundleStartScheduler.graphOrder(startable, Optional.empty()),
+      locations);
+  }
+
+  /**
+   * Explain why a bundle did not resolve. A mandatory requirement is reported if nothing
+   * provides it, or if it is provided only by bundles that themselves did not resolve. If no
+   * such requirement exists, the failure was caused by a uses constraint violation.
+   */
+
+  private static List<String> problemsOf(
+    final FrameworkWiring wiring,
+    final Bundle bundle)
+  {
+    final List<String> problems = new ArrayList<>();
+    final BundleRevision revision = bundle.adapt(BundleRevision.class);
+    if (revision == null) {
+      problems.add("Bundle has no revision");
+      return problems;
+    }
+
+    for (final BundleRequirement requirement : revision.getDeclaredRequirements(null)) {
+      if (!isMandatory(requirement)) {
+        continue;
+      }
+
+      final Collection<BundleCapability> providers = wiring.findProviders(requirement);
+      if (providers.isEmpty()) {
+        problems.add("Missing requirement " + textOf(requirement));
+        continue;
+      }
+
+      final boolean satisfiable =
+        providers.stream()
+          .map(capability -> capability.getRevision().getBundle())
+          .anyMatch(provider -> provider.getState() != Bundle.INSTALLED);
+
+      if (!satisfiable) {
+        problems.add(
+          new StringBuilder(128)
+            .append("Requirement ")
+            .append(textOf(requirement))
+            .append(" is only provided by unresolved bundles: ")
+            .append(
+              providers.stream()
+                .map(capability -> capability.getRevision().getSymbolicName())
+                .distinct()
+                .collect(Collectors.joining(", ")))
+            .toString());
+      }
+    }
+
+    if (problems.isEmpty()) {
+      problems.add("Bundle could not be resolved due to a uses constraint violation");
+    }
+    return problems;
+  }
+
+  private static boolean isMandatory(
+    final BundleRequirement requirement)
+  {
+    final Map<String, String> directives = requirement.getDirectives();
+    final String resolution = directives.get(Namespace.REQUIREMENT_RESOLUTION_DIRECTIVE);
+    final String effective = directives.get(Namespace.REQUIREMENT_EFFECTIVE_DIRECTIVE);
+    return !Namespace.RESOLUTION_OPTIONAL.equals(resolution)
+      && (effective == null || Namespace.EFFECTIVE_RESOLVE.equals(effective));
+  }
+
+  private static String textOf(
+    final BundleRequirement requirement)
+  {
+    return new StringBuilder(128)
+      .append(requirement.getNamespace())
+      .append(' ')
+      .append(requirement.getDirectives().getOrDefault(Constants.FILTER_DIRECTIVE, ""))
+      .toString();
+  }
+
+  private static SaturnContainerUnresolvedException failed(
+    final List<SaturnBundleDiagnosis> diagnoses)
+  {
+    final StringBuilder message = new StringBuilder(256);
+    message.append("Container bundles could not be resolved");
+    for (final SaturnBundleDiagnosis diagnosis : diagnoses) {
+      for (final String problem : diagnosis.problems()) {
+        message.append(System.lineSeparator())
+          .append("  ")
+          .append(diagnosis.symbolicName())
+          .append(" [")
+          .append(diagnosis.id())
+          .append("] ")
+          .append(diagnosis.state())
+          .append(": ")
+          .append(problem);
+      }
+    }
+    return new SaturnContainerUnresolvedException(message.toString(), diagnoses);
+  }
+
+  private static void deleteRecursively(
+    final Path path)
+    throws IOException
+  {
+    try (Stream<Path> stream = Files.walk(path)) {
+      final List<Path> paths =
+        stream.sorted(Comparator.reverseOrder()).collect(Collectors.toList());
+      for (final Path file : paths) {
+        Files.deleteIfExists(file);
+      }
+    }
+  }
+}
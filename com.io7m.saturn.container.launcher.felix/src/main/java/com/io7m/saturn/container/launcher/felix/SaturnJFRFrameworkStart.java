@@ -0,0 +1,60 @@
+/*
+ * Copyright © 2018 Mark Raynsford <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.saturn.container.launcher.felix;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * A flight recorder event covering the initialization and startup of a framework.
+ */
+
+@Name("com.io7m.saturn.FrameworkStart")
+@Label("Framework Start")
+@Category({"Saturn", "Framework"})
+@Description("The initialization and startup of an OSGi framework")
+@StackTrace(false)
+final class SaturnJFRFrameworkStart extends Event
+{
+  @Label("Container Path")
+  private String path;
+
+  @Label("Warm Boot")
+  private boolean warmBoot;
+
+  SaturnJFRFrameworkStart()
+  {
+
+  }
+
+  void setPath(
+    final String value)
+  {
+    this.path = value;
+  }
+
+  void setWarmBoot(
+    final boolean value)
+  {
+    this.warmBoot = value;
+  }
+}
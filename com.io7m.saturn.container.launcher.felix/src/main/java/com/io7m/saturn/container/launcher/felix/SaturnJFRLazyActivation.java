@@ -0,0 +1,71 @@
+/*
+ * Copyright © 2018 Mark Raynsford <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.saturn.container.launcher.felix;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * A flight recorder event recording the activation of a lazily started bundle.
+ */
+
+@Name("com.io7m.saturn.LazyActivation")
+@Label("Lazy Bundle Activation")
+@Category({"Saturn", "Bundle"})
+@Description("The activation of a lazily started bundle, triggered by the first class load from it")
+@StackTrace(false)
+final class SaturnJFRLazyActivation extends Event
+{
+  @Label("Bundle ID")
+  private long bundleId;
+
+  @Label("Symbolic Name")
+  private String symbolicName;
+
+  @Label("Time Since Launch")
+  @Timespan(Timespan.NANOSECONDS)
+  private long sinceLaunch;
+
+  SaturnJFRLazyActivation()
+  {
+
+  }
+
+  void setBundleId(
+    final long value)
+  {
+    this.bundleId = value;
+  }
+
+  void setSymbolicName(
+    final String value)
+  {
+    this.symbolicName = value;
+  }
+
+  void setSinceLaunch(
+    final long value)
+  {
+    this.sinceLaunch = value;
+  }
+}
@@ -0,0 +1,218 @@
+/*
+ * Copyright © 2018 Mark Raynsford <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.saturn.container.launcher.felix;
+
+import org.osgi.framework.Bundle;
+import org.osgi.framework.BundleContext;
+import org.osgi.framework.BundleEvent;
+import org.osgi.framework.Constants;
+import org.osgi.framework.ServiceEvent;
+import org.osgi.framework.ServiceListener;
+import org.osgi.framework.ServiceReference;
+import org.osgi.framework.SynchronousBundleListener;
+import org.osgi.framework.launch.Framework;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A listener that translates the bundle and service events of a framework into flight recorder
+ * events. Bundle starts and stops are timed by pairing the {@code STARTING} and {@code STARTED}
+ * (or {@code STOPPING} and {@code STOPPED}) events, which a synchronous listener receives on the
+ * thread performing the operation. The stopping of the framework itself is timed from the moment
+ * the system bundle begins stopping until {@link Framework#waitForStop(long)} returns.
+ */
+
+final class SaturnJFRListener implements SynchronousBundleListener, ServiceListener
+{
+  private static final Logger LOG = LoggerFactory.getLogger(SaturnJFRListener.class);
+
+  private final Framework framework;
+  private final String path;
+  private final Map<Long, SaturnJFRBundleStart> starting;
+  private final Map<Long, SaturnJFRBundleStop> stopping;
+  private volatile SaturnJFRFrameworkStop framework_stop;
+
+  private SaturnJFRListener(
+    final Framework in_framework,
+    final String in_path)
+  {
+    this.framework = Objects.requireNonNull(in_framework, "framework");
+    this.path = Objects.requireNonNull(in_path, "path");
+    this.starting = new ConcurrentHashMap<>();
+    this.stopping = new ConcurrentHashMap<>();
+  }
+
+  /**
+   * Start recording events for the given framework. The framework must have been initialized.
+   *
+   * @param framework The framework
+   * @param path      The container path
+   */
+
+  static void install(
+    final Framework framework,
+    final String path)
+  {
+    final SaturnJFRListener listener = new SaturnJFRListener(framework, path);
+    final BundleContext context = framework.getBundleContext();
+    context.addBundleListener(listener);
+    context.addServiceListener(listener);
+
+    final Thread thread =
+      SaturnLauncherThreads.factory("jfr-stop").newThread(listener::awaitStop);
+    thread.start();
+  }
+
+  private void awaitStop()
+  {
+    try {
+      this.framework.waitForStop(0L);
+    } catch (final InterruptedException e) {
+      LOG.trace("interrupted whilst waiting for the framework to stop: ", e);
+      Thread.currentThread().interrupt();
+      return;
+    }
+
+    final SaturnJFRFrameworkStop event = this.framework_stop;
+    if (event != null) {
+      event.end();
+      event.commit();
+    }
+  }
+
+  @Override
+  public void bundleChanged(
+    final BundleEvent event)
+  {
+    final Bundle bundle = event.getBundle();
+    final Long id = Long.valueOf(bundle.getBundleId());
+
+    switch (event.getType()) {
+      case BundleEvent.STARTING: {
+        final SaturnJFRBundleStart jfr = new SaturnJFRBundleStart();
+        if (jfr.isEnabled()) {
+          jfr.setBundleId(bundle.getBundleId());
+          jfr.setSymbolicName(bundle.getSymbolicName());
+          jfr.begin();
+          this.starting.put(id, jfr);
+        }
+        break;
+      }
+      case BundleEvent.STARTED: {
+        final SaturnJFRBundleStart jfr = this.starting.remove(id);
+        if (jfr != null) {
+          jfr.end();
+          jfr.commit();
+        }
+        break;
+      }
+      case BundleEvent.STOPPING: {
+        this.starting.remove(id);
+        if (bundle.getBundleId() == 0L) {
+          this.frameworkStopping();
+          break;
+        }
+
+        final SaturnJFRBundleStop jfr = new SaturnJFRBundleStop();
+        if (jfr.isEnabled()) {
+          jfr.setBundleId(bundle.getBundleId());
+          jfr.setSymbolicName(bundle.getSymbolicName());
+          jfr.begin();
+          this.stopping.put(id, jfr);
+        }
+        break;
+      }
+      case BundleEvent.STOPPED: {
+        final SaturnJFRBundleStop jfr = this.stopping.remove(id);
+        if (jfr != null) {
+          jfr.end();
+          jfr.commit();
+        }
+        break;
+      }
+      default: {
+        break;
+      }
+    }
+  }
+
+  private void frameworkStopping()
+  {
+    final SaturnJFRFrameworkStop jfr = new SaturnJFRFrameworkStop();
+    if (jfr.isEnabled()) {
+      jfr.setPath(this.path);
+      jfr.begin();
+      this.framework_stop = jfr;
+    }
+  }
+
+  @Override
+  public void serviceChanged(
+    final ServiceEvent event)
+  {
+    final SaturnJFRService jfr = new SaturnJFRService();
+    if (!jfr.isEnabled()) {
+      return;
+    }
+
+    final ServiceReference<?> reference = event.getServiceReference();
+    switch (event.getType()) {
+      case ServiceEvent.REGISTERED: {
+        jfr.setType("REGISTERED");
+        break;
+      }
+      case ServiceEvent.MODIFIED: {
+        jfr.setType("MODIFIED");
+        break;
+      }
+      case ServiceEvent.MODIFIED_ENDMATCH: {
+        jfr.setType("MODIFIED_ENDMATCH");
+        break;
+      }
+      case ServiceEvent.UNREGISTERING: {
+        jfr.setType("UNREGISTERING");
+        break;
+      }
+      default: {
+        jfr.setType(Integer.toString(event.getType()));
+        break;
+      }
+    }
+
+    final Object service_id = reference.getProperty(Constants.SERVICE_ID);
+    if (service_id instanceof Long) {
+      jfr.setServiceId(((Long) service_id).longValue());
+    }
+
+    final Object classes = reference.getProperty(Constants.OBJECTCLASS);
+    if (classes instanceof String[]) {
+      jfr.setObjectClasses(String.join(",", (String[]) classes));
+    }
+
+    final Bundle bundle = reference.getBundle();
+    if (bundle != null) {
+      jfr.setBundleId(bundle.getBundleId());
+      jfr.setSymbolicName(bundle.getSymbolicName());
+    }
+    jfr.commit();
+  }
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright © 2018 Mark Raynsford <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.saturn.container.launcher.felix;
+
+import java.util.Objects;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Functions to create the threads used by the launcher.
+ */
+
+final class SaturnLauncherThreads
+{
+  private SaturnLauncherThreads()
+  {
+
+  }
+
+  /**
+   * Create a thread factory that produces daemon threads with names derived
+   * from the given name.
+   *
+   * @param name The base name of the threads
+   *
+   * @return A thread factory
+   */
+
+  static ThreadFactory factory(
+    final String name)
+  {
+    Objects.requireNonNull(name, "name");
+
+    final AtomicInteger index = new AtomicInteger(0);
+    return runnable -> {
+      final Thread thread = new Thread(runnable);
+      thread.setName(
+        new StringBuilder(64)
+          .append("com.io7m.saturn.launcher.")
+          .append(name)
+          .append('[')
+          .append(index.incrementAndGet())
+          .append(']')
+          .toString());
+      thread.setDaemon(true);
+      return thread;
+    };
+  }
+}
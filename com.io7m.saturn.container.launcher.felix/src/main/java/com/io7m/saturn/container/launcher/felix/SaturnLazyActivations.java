@@ -0,0 +1,150 @@
+/*
+ * Copyright © 2018 Mark Raynsford <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.saturn.container.launcher.felix;
+
+import org.osgi.framework.Bundle;
+import org.osgi.framework.BundleContext;
+import org.osgi.framework.BundleEvent;
+import org.osgi.framework.Constants;
+import org.osgi.framework.SynchronousBundleListener;
+import org.osgi.framework.startlevel.BundleStartLevel;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A listener that reports the activation of lazily started bundles. Each activation is logged
+ * with the time elapsed since launch and recorded as a flight recorder event, and the bundles
+ * that were never activated are logged when the framework stops.
+ */
+
+final class SaturnLazyActivations implements SynchronousBundleListener
+{
+  private static final Logger LOG = LoggerFactory.getLogger(SaturnLazyActivations.class);
+
+  private final BundleContext context;
+  private final Map<Long, Bundle> pending;
+  private final long epoch;
+
+  private SaturnLazyActivations(
+    final BundleContext in_context,
+    final long in_epoch)
+  {
+    this.context = Objects.requireNonNull(in_context, "context");
+    this.pending = new ConcurrentHashMap<>();
+    this.epoch = in_epoch;
+  }
+
+  /**
+   * @param bundle The bundle
+   *
+   * @return {@code true} if the bundle declares a lazy activation policy
+   */
+
+  static boolean declaresLazyActivation(
+    final Bundle bundle)
+  {
+    final String policy = bundle.getHeaders("").get(Constants.BUNDLE_ACTIVATIONPOLICY);
+    return policy != null && policy.trim().startsWith(Constants.ACTIVATION_LAZY);
+  }
+
+  /**
+   * @param bundle The bundle
+   *
+   * @return {@code true} if the bundle has been started lazily and is waiting to be activated
+   */
+
+  static boolean awaitingActivation(
+    final Bundle bundle)
+  {
+    return bundle.getState() == Bundle.STARTING
+      && bundle.adapt(BundleStartLevel.class).isActivationPolicyUsed()
+      && declaresLazyActivation(bundle);
+  }
+
+  /**
+   * Start reporting the activation of the given bundles.
+   *
+   * @param context The system bundle context
+   * @param epoch   The time in nanoseconds at which the container was launched
+   * @param bundles The lazily started bundles
+   */
+
+  static void track(
+    final BundleContext context,
+    final long epoch,
+    final Collection<Bundle> bundles)
+  {
+    if (bundles.isEmpty()) {
+      return;
+    }
+
+    final SaturnLazyActivations listener = new SaturnLazyActivations(context, epoch);
+    for (final Bundle bundle : bundles) {
+      listener.pending.put(Long.valueOf(bundle.getBundleId()), bundle);
+    }
+    context.addBundleListener(listener);
+  }
+
+  @Override
+  public void bundleChanged(
+    final BundleEvent event)
+  {
+    final Bundle bundle = event.getBundle();
+    if (bundle.getBundleId() == 0L && event.getType() == BundleEvent.STOPPING) {
+      this.finish();
+      return;
+    }
+
+    if (event.getType() != BundleEvent.STARTED) {
+      return;
+    }
+
+    if (this.pending.remove(Long.valueOf(bundle.getBundleId())) == null) {
+      return;
+    }
+
+    final long since = System.nanoTime() - this.epoch;
+    LOG.info(
+      "lazy bundle {} activated {}ms after launch",
+      bundle.getSymbolicName(),
+      Long.valueOf(TimeUnit.NANOSECONDS.toMillis(since)));
+
+    final SaturnJFRLazyActivation jfr = new SaturnJFRLazyActivation();
+    if (jfr.isEnabled()) {
+      jfr.setBundleId(bundle.getBundleId());
+      jfr.setSymbolicName(bundle.getSymbolicName());
+      jfr.setSinceLaunch(since);
+      jfr.commit();
+    }
+  }
+
+  private void finish()
+  {
+    this.context.removeBundleListener(this);
+    for (final Bundle bundle : this.pending.values()) {
+      LOG.info("lazy bundle {} was never activated", bundle.getSymbolicName());
+    }
+    this.pending.clear();
+  }
+}
@@ -0,0 +1,412 @@
+/*
+ * Copyright © 2018 Mark Raynsford <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.saturn.container.launcher.felix;
+
+import com.io7m.saturn.container.api.SaturnBundleDiagnosis;
+import com.io7m.saturn.container.api.SaturnContainerInstance;
+import com.io7m.saturn.container.api.SaturnContainerNotReadyException;
+import org.osgi.framework.Bundle;
+import org.osgi.framework.BundleContext;
+import org.osgi.framework.BundleListener;
+import org.osgi.framework.FrameworkListener;
+import org.osgi.framework.ServiceListener;
+import org.osgi.framework.ServiceReference;
+import org.osgi.framework.launch.Framework;
+import org.osgi.framework.startlevel.BundleStartLevel;
+import org.osgi.framework.startlevel.FrameworkStartLevel;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Method;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A monitor that waits for a launched container to become ready. A container
+ * is ready when every bundle that is not a fragment is active, every enabled
+ * declarative services component is satisfied, and the framework has reached
+ * the target start level. Bundles assigned to start levels above the target
+ * level are ignored, so that a staged boot is ready at its critical level, as
+ * are lazily started bundles that are waiting to be activated.
+ *
+ * The container is checked whenever a bundle, service, or framework event is
+ * delivered, and also periodically, because declarative services components
+ * can change state without producing any events that the monitor can observe.
+ * All checks are executed on a single thread.
+ */
+
+final class SaturnReadinessMonitor
+{
+  private static final Logger LOG = LoggerFactory.getLogger(SaturnReadinessMonitor.class);
+
+  private static final String SCR_SERVICE =
+    "org.osgi.service.component.runtime.ServiceComponentRuntime";
+  private static final String SCR_DESCRIPTION =
+    "org.osgi.service.component.runtime.dto.ComponentDescriptionDTO";
+  private static final long POLL_INTERVAL_MS = 100L;
+
+  private final SaturnContainerInstance instance;
+  private final BundleContext context;
+  private final int target_level;
+  private final CompletableFuture<SaturnContainerInstance> future;
+  private final ScheduledExecutorService executor;
+  private final BundleListener listener_bundle;
+  private final FrameworkListener listener_framework;
+  private final ServiceListener listener_service;
+
+  private SaturnReadinessMonitor(
+    final SaturnContainerInstance in_instance,
+    final int in_target_level)
+  {
+    this.instance = Objects.requireNonNull(in_instance, "instance");
+    this.context = in_instance.framework().getBundleContext();
+    this.target_level = in_target_level;
+    this.future = new CompletableFuture<>();
+    this.executor =
+      Executors.newSingleThreadScheduledExecutor(SaturnLauncherThreads.factory("readiness"));
+    this.listener_bundle = event -> this.requestCheck();
+    this.listener_framework = event -> this.requestCheck();
+    this.listener_service = event -> this.requestCheck();
+  }
+
+  /**
+   * Wait for the given container to become ready.
+   *
+   * @param instance     The launched container
+   * @param target_level The start level that the framework must reach
+   * @param timeout      The maximum time to wait
+   *
+   * @return A future that completes when the container is ready, or completes
+   * exceptionally with a {@link SaturnContainerNotReadyException} on timeout
+   */
+
+  static CompletableFuture<SaturnContainerInstance> await(
+    final SaturnContainerInstance instance,
+    final int target_level,
+    final Duration timeout)
+  {
+    Objects.requireNonNull(timeout, "timeout");
+
+    final SaturnReadinessMonitor monitor = new SaturnReadinessMonitor(instance, target_level);
+    monitor.start(timeout);
+    return monitor.future;
+  }
+
+  private void start(
+    final Duration timeout)
+  {
+    /*
+     * Everything must be scheduled before the completion handler is registered: the first
+     * check may complete the future, and the handler shuts down the executor.
+     */
+
+    this.executor.scheduleWithFixedDelay(
+      this::check, POLL_INTERVAL_MS, POLL_INTERVAL_MS, TimeUnit.MILLISECONDS);
+    this.executor.schedule(this::expire, timeout.toNanos(), TimeUnit.NANOSECONDS);
+
+    this.context.addBundleListener(this.listener_bundle);
+    this.context.addFrameworkListener(this.listener_framework);
+    this.context.addServiceListener(this.listener_service);
+    this.future.whenComplete((ignored_instance, ignored_error) -> this.stop());
+    this.requestCheck();
+  }
+
+  private void stop()
+  {
+    this.context.removeBundleListener(this.listener_bundle);
+    this.context.removeFrameworkListener(this.listener_framework);
+    this.context.removeServiceListener(this.listener_service);
+    this.executor.shutdown();
+  }
+
+  private void requestCheck()
+  {
+    try {
+      this.executor.execute(this::check);
+    } catch (final RejectedExecutionException e) {
+      LOG.trace("readiness monitor has already finished");
+    }
+  }
+
+  private void check()
+  {
+    if (this.future.isDone()) {
+      return;
+    }
+
+    if (this.diagnose().isEmpty()) {
+      LOG.debug("container is ready");
+      this.future.complete(this.instance);
+    }
+  }
+
+  private void expire()
+  {
+    if (this.future.isDone()) {
+      return;
+    }
+
+    final List<SaturnBundleDiagnosis> diagnoses = this.diagnose();
+    if (diagnoses.isEmpty()) {
+      this.future.complete(this.instance);
+      return;
+    }
+
+    final StringBuilder message = new StringBuilder(256);
+    message.append("Container did not become ready in time");
+    for (final SaturnBundleDiagnosis diagnosis : diagnoses) {
+      for (final String problem : diagnosis.problems()) {
+        message.append(System.lineSeparator())
+          .append("  ")
+          .append(diagnosis.symbolicName())
+          .append(" [")
+          .append(diagnosis.id())
+          .append("] ")
+          .append(diagnosis.state())
+          .append(": ")
+          .append(problem);
+      }
+    }
+
+    this.future.completeExceptionally(
+      new SaturnContainerNotReadyException(message.toString(), this.instance, diagnoses));
+  }
+
+  /**
+   * @return A diagnosis for every bundle that is not ready
+   */
+
+  private List<SaturnBundleDiagnosis> diagnose()
+  {
+    final Map<Long, List<String>> problems = new TreeMap<>();
+
+    final Framework framework = this.instance.framework();
+    final int level = framework.adapt(FrameworkStartLevel.class).getStartLevel();
+    if (level < this.target_level) {
+      problemsFor(problems, framework).add(
+        String.format(
+          "Framework is at start level %d, expected %d",
+          Integer.valueOf(level),
+          Integer.valueOf(this.target_level)));
+    }
+
+    for (final Bundle bundle : this.context.getBundles()) {
+      if (!this.isBundleReady(bundle)) {
+        problemsFor(problems, bundle).add(
+          String.format("Bundle is %s, expected ACTIVE", stateName(bundle.getState())));
+      }
+    }
+
+    this.diagnoseComponents(problems);
+
+    final List<SaturnBundleDiagnosis> diagnoses = new ArrayList<>(problems.size());
+    for (final Map.Entry<Long, List<String>> entry : problems.entrySet()) {
+      final Bundle bundle = this.context.getBundle(entry.getKey().longValue());
+      final String name = bundle != null ? bundle.getSymbolicName() : "(uninstalled)";
+      final String state = bundle != null ? stateName(bundle.getState()) : "UNINSTALLED";
+      diagnoses.add(
+        SaturnBundleDiagnosis.of(
+          entry.getKey().longValue(),
+          name == null ? "(unnamed)" : name,
+          state,
+          entry.getValue()));
+    }
+    return diagnoses;
+  }
+
+  private boolean isBundleReady(
+    final Bundle bundle)
+  {
+    if (bundle.getState() == Bundle.ACTIVE || SaturnBundleStartScheduler.isFragment(bundle)) {
+      return true;
+    }
+    if (bundle.adapt(BundleStartLevel.class).getStartLevel() > this.target_level) {
+      return true;
+    }
+    return SaturnLazyActivations.awaitingActivation(bundle);
+  }
+
+  private static List<String> problemsFor(
+    final Map<Long, List<String>> problems,
+    final Bundle bundle)
+  {
+    return problems.computeIfAbsent(
+      Long.valueOf(bundle.getBundleId()), ignored -> new ArrayList<>());
+  }
+
+  /**
+   * Check the state of all declarative services components. The service
+   * component runtime is accessed reflectively, because its API is loaded by
+   * the class loader of the bundle that provides it and is not visible to the
+   * launcher.
+   */
+
+  private void diagnoseComponents(
+    final Map<Long, List<String>> problems)
+  {
+    final ServiceReference<?> reference = this.context.getServiceReference(SCR_SERVICE);
+    if (reference == null) {
+      return;
+    }
+
+    final Object scr = this.context.getService(reference);
+    if (scr == null) {
+      return;
+    }
+
+    try {
+      final Class<?> scr_class = reference.getBundle().loadClass(SCR_SERVICE);
+      final Class<?> description_class = reference.getBundle().loadClass(SCR_DESCRIPTION);
+      final Method get_descriptions =
+        scr_class.getMethod("getComponentDescriptionDTOs", Bundle[].class);
+      final Method get_configurations =
+        scr_class.getMethod("getComponentConfigurationDTOs", description_class);
+      final Method is_enabled =
+        scr_class.getMethod("isComponentEnabled", description_class);
+
+      final Collection<?> descriptions =
+        (Collection<?>) get_descriptions.invoke(scr, (Object) new Bundle[0]);
+
+      for (final Object description : descriptions) {
+        if (!((Boolean) is_enabled.invoke(scr, description)).booleanValue()) {
+          continue;
+        }
+
+        final Collection<?> configurations =
+          (Collection<?>) get_configurations.invoke(scr, description);
+        for (final Object configuration : configurations) {
+          this.diagnoseComponent(problems, description, configuration);
+        }
+      }
+    } catch (final ReflectiveOperationException e) {
+      LOG.warn("unable to inspect declarative services components: ", e);
+    } finally {
+      this.context.ungetService(reference);
+    }
+  }
+
+  private void diagnoseComponent(
+    final Map<Long, List<String>> problems,
+    final Object description,
+    final Object configuration)
+    throws ReflectiveOperationException
+  {
+    final int state = ((Integer) field(configuration, "state")).intValue();
+    if (state == ComponentState.SATISFIED || state == ComponentState.ACTIVE) {
+      return;
+    }
+
+    final String name = (String) field(description, "name");
+    final long bundle_id = ((Long) field(field(description, "bundle"), "id")).longValue();
+    final Bundle bundle = this.context.getBundle(bundle_id);
+    if (bundle == null) {
+      return;
+    }
+
+    final StringBuilder text = new StringBuilder(128);
+    text.append("Component ")
+      .append(name)
+      .append(" is ")
+      .append(ComponentState.name(state));
+
+    final Object references = field(configuration, "unsatisfiedReferences");
+    if (references != null && Array.getLength(references) > 0) {
+      text.append(" (unsatisfied references:");
+      for (int index = 0; index < Array.getLength(references); ++index) {
+        text.append(' ').append(field(Array.get(references, index), "name"));
+      }
+      text.append(')');
+    }
+
+    problemsFor(problems, bundle).add(text.toString());
+  }
+
+  private static Object field(
+    final Object object,
+    final String name)
+    throws ReflectiveOperationException
+  {
+    return object.getClass().getField(name).get(object);
+  }
+
+  private static String stateName(
+    final int state)
+  {
+    switch (state) {
+      case Bundle.UNINSTALLED:
+        return "UNINSTALLED";
+      case Bundle.INSTALLED:
+        return "INSTALLED";
+      case Bundle.RESOLVED:
+        return "RESOLVED";
+      case Bundle.STARTING:
+        return "STARTING";
+      case Bundle.STOPPING:
+        return "STOPPING";
+      case Bundle.ACTIVE:
+        return "ACTIVE";
+      default:
+        return Integer.toString(state);
+    }
+  }
+
+  /**
+   * The component configuration states defined by the declarative services
+   * runtime API.
+   */
+
+  private static final class ComponentState
+  {
+    static final int UNSATISFIED_CONFIGURATION = 1;
+    static final int UNSATISFIED_REFERENCE = 2;
+    static final int SATISFIED = 4;
+    static final int ACTIVE = 8;
+    static final int FAILED_ACTIVATION = 16;
+
+    private ComponentState()
+    {
+
+    }
+
+    static String name(
+      final int state)
+    {
+      switch (state) {
+        case UNSATISFIED_CONFIGURATION:
+          return "UNSATISFIED_CONFIGURATION";
+        case UNSATISFIED_REFERENCE:
+          return "UNSATISFIED_REFERENCE";
+        case FAILED_ACTIVATION:
+          return "FAILED_ACTIVATION";
+        default:
+          return Integer.toString(state);
+      }
+    }
+  }
+}
@@ -0,0 +1,241 @@
+/*
+ * Copyright © 2018 Mark Raynsford <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.saturn.container.launcher.felix;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Properties;
+import java.util.Set;
+
+/**
+ * A resolution plan produced when a container is built. The plan records, for each bundle that
+ * will be started, the bundles that provide capabilities to it, in an order such that every
+ * bundle appears after its providers. Dependency cycles have already been broken. The plan also
+ * records the size and modification time of every bundle file, including fragments that are never
+ * started, so that a plan that no longer matches the bundles of a container can be detected and
+ * ignored.
+ */
+
+final class SaturnResolutionPlan
+{
+  private static final Logger LOG = LoggerFactory.getLogger(SaturnResolutionPlan.class);
+
+  /**
+   * The name of the plan file in the container directory.
+   */
+
+  static final String PLAN_NAME = "resolution.properties";
+
+  private final Map<String, List<String>> providers;
+  private final Map<String, String> stamps;
+
+  private SaturnResolutionPlan(
+    final Map<String, List<String>> in_providers,
+    final Map<String, String> in_stamps)
+  {
+    this.providers = Objects.requireNonNull(in_providers, "providers");
+    this.stamps = Objects.requireNonNull(in_stamps, "stamps");
+  }
+
+  /**
+   * Create a plan from the given start order. Bundles that appear in the given files but not in
+   * the start order (such as fragments) are recorded so that the plan can be checked against
+   * them, but are given no providers.
+   *
+   * @param order The nodes in start order
+   * @param paths All of the bundle files, by location
+   *
+   * @return A plan
+   *
+   * @throws IOException On I/O errors
+   */
+
+  static Properties create(
+    final List<SaturnBundleStartNode> order,
+    final Map<String, Path> paths)
+    throws IOException
+  {
+    final Map<SaturnBundleStartNode, Integer> indices = new HashMap<>(order.size());
+    final Set<String> ordered = new HashSet<>(order.size());
+    final Properties properties = new Properties();
+    for (int index = 0; index < order.size(); ++index) {
+      final SaturnBundleStartNode node = order.get(index);
+      indices.put(node, Integer.valueOf(index));
+
+      final String location = node.bundle().getLocation();
+      ordered.add(location);
+      final StringBuilder requires = new StringBuilder(32);
+      for (final SaturnBundleStartNode dependency : node.dependencies()) {
+        if (requires.length() > 0) {
+          requires.append(' ');
+        }
+        requires.append(indices.get(dependency));
+      }
+
+      final String prefix = "bundle." + index;
+      properties.setProperty(prefix + ".location", location);
+      properties.setProperty(prefix + ".stamp", stampOf(paths.get(location)));
+      properties.setProperty(prefix + ".requires", requires.toString());
+    }
+    properties.setProperty("bundles", Integer.toString(order.size()));
+
+    int others = 0;
+    for (final Map.Entry<String, Path> entry : paths.entrySet()) {
+      final String location = entry.getKey();
+      if (!ordered.contains(location)) {
+        final String prefix = "other." + others;
+        properties.setProperty(prefix + ".location", location);
+        properties.setProperty(prefix + ".stamp", stampOf(entry.getValue()));
+        ++others;
+      }
+    }
+    properties.setProperty("others", Integer.toString(others));
+    return properties;
+  }
+
+  /**
+   * Load the plan from the given container directory, if one exists and it matches the given
+   * bundle files.
+   *
+   * @param root  The container directory
+   * @param paths The bundle files
+   *
+   * @return The plan, if it can be used
+   *
+   * @throws IOException On I/O errors
+   */
+
+  static Optional<SaturnResolutionPlan> load(
+    final Path root,
+    final List<Path> paths)
+    throws IOException
+  {
+    Objects.requireNonNull(root, "root");
+    Objects.requireNonNull(paths, "paths");
+
+    final Path file = root.resolve(PLAN_NAME);
+    if (!Files.isRegularFile(file)) {
+      LOG.debug("no resolution plan");
+      return Optional.empty();
+    }
+
+    final Properties properties = new Properties();
+    try (InputStream stream = Files.newInputStream(file)) {
+      properties.load(stream);
+    }
+
+    final Optional<SaturnResolutionPlan> plan = parse(properties);
+    if (plan.isEmpty()) {
+      LOG.debug("unparseable resolution plan {}", file);
+      return plan;
+    }
+
+    final SaturnResolutionPlan loaded = plan.get();
+    for (final Path path : paths) {
+      final String location = SaturnBundleInstaller.location(path);
+      final String stamp = loaded.stamps.get(location);
+      if (stamp == null || !Files.isRegularFile(path) || !Objects.equals(stamp, stampOf(path))) {
+        LOG.debug("resolution plan is stale: {}", location);
+        return Optional.empty();
+      }
+    }
+    return plan;
+  }
+
+  private static Optional<SaturnResolutionPlan> parse(
+    final Properties properties)
+  {
+    try {
+      final int count = Integer.parseInt(properties.getProperty("bundles", "0"));
+      final List<String> locations = new ArrayList<>(count);
+      final Map<String, List<String>> providers = new HashMap<>(count);
+      final Map<String, String> stamps = new HashMap<>(count);
+
+      for (int index = 0; index < count; ++index) {
+        final String prefix = "bundle." + index;
+        final String location = properties.getProperty(prefix + ".location");
+        final String stamp = properties.getProperty(prefix + ".stamp");
+        final String requires = properties.getProperty(prefix + ".requires");
+        if (location == null || stamp == null || requires == null) {
+          return Optional.empty();
+        }
+
+        final List<String> required = new ArrayList<>();
+        for (final String text : requires.split(" ")) {
+          if (!text.isEmpty()) {
+            required.add(locations.get(Integer.parseInt(text)));
+          }
+        }
+
+        locations.add(location);
+        providers.put(location, List.copyOf(required));
+        stamps.put(location, stamp);
+      }
+
+      final int others = Integer.parseInt(properties.getProperty("others", "0"));
+      for (int index = 0; index < others; ++index) {
+        final String prefix = "other." + index;
+        final String location = properties.getProperty(prefix + ".location");
+        final String stamp = properties.getProperty(prefix + ".stamp");
+        if (location == null || stamp == null) {
+          return Optional.empty();
+        }
+        stamps.put(location, stamp);
+      }
+      return Optional.of(new SaturnResolutionPlan(providers, stamps));
+    } catch (final NumberFormatException | IndexOutOfBoundsException e) {
+      LOG.debug("invalid resolution plan: ", e);
+      return Optional.empty();
+    }
+  }
+
+  private static String stampOf(
+    final Path path)
+    throws IOException
+  {
+    return new StringBuilder(64)
+      .append(Files.size(path))
+      .append(' ')
+      .append(Files.getLastModifiedTime(path).toMillis())
+      .toString();
+  }
+
+  /**
+   * @param location The location of a bundle
+   *
+   * @return The locations of the bundles that provide capabilities to the given bundle, if the
+   * bundle is part of the plan
+   */
+
+  Optional<List<String>> providersOf(
+    final String location)
+  {
+    return Optional.ofNullable(this.providers.get(location));
+  }
+}
@@ -0,0 +1,142 @@
+/*
+ * Copyright © 2018 Mark Raynsford <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.saturn.container.launcher.felix;
+
+import org.osgi.framework.Bundle;
+import org.osgi.framework.BundleContext;
+import org.osgi.framework.FrameworkEvent;
+import org.osgi.framework.startlevel.BundleStartLevel;
+import org.osgi.framework.startlevel.FrameworkStartLevel;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Iterator;
+import java.util.NavigableSet;
+import java.util.Objects;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The background half of a staged boot. Once the bundles at or below the critical start level
+ * have been started, the framework is raised through each remaining start level that has bundles
+ * assigned to it, one level at a time, and finally to the framework start level. Each change is
+ * requested from the framework listener that observes the completion of the previous change, so
+ * no launcher thread is held while the remaining bundles start.
+ */
+
+final class SaturnStagedBoot
+{
+  private static final Logger LOG = LoggerFactory.getLogger(SaturnStagedBoot.class);
+
+  private final FrameworkStartLevel framework_level;
+  private final Iterator<Integer> levels;
+  private final long time_start;
+  private SaturnJFRStartLevel jfr;
+
+  private SaturnStagedBoot(
+    final FrameworkStartLevel in_framework_level,
+    final NavigableSet<Integer> in_levels)
+  {
+    this.framework_level = Objects.requireNonNull(in_framework_level, "framework_level");
+    this.levels = Objects.requireNonNull(in_levels, "levels").iterator();
+    this.time_start = System.nanoTime();
+  }
+
+  /**
+   * Raise the framework from the critical start level to the target start level in the
+   * background.
+   *
+   * @param context        The system bundle context
+   * @param critical_level The critical start level that the framework has already reached
+   * @param target_level   The start level that the framework will eventually reach
+   */
+
+  static void raise(
+    final BundleContext context,
+    final int critical_level,
+    final int target_level)
+  {
+    Objects.requireNonNull(context, "context");
+
+    final NavigableSet<Integer> levels = stagesOf(context.getBundles(), critical_level, target_level);
+    LOG.info(
+      "critical start level {} reached, raising the remaining start levels {} in the background",
+      Integer.valueOf(critical_level),
+      levels);
+
+    final FrameworkStartLevel framework_level =
+      context.getBundle().adapt(FrameworkStartLevel.class);
+    new SaturnStagedBoot(framework_level, levels).next(null);
+  }
+
+  /**
+   * @return The distinct start levels above the critical level that bundles are assigned to,
+   * followed by the target level
+   */
+
+  static NavigableSet<Integer> stagesOf(
+    final Bundle[] bundles,
+    final int critical_level,
+    final int target_level)
+  {
+    final NavigableSet<Integer> levels = new TreeSet<>();
+    for (final Bundle bundle : bundles) {
+      if (bundle.getBundleId() == 0L) {
+        continue;
+      }
+      final int level = bundle.adapt(BundleStartLevel.class).getStartLevel();
+      if (level > critical_level && level < target_level) {
+        levels.add(Integer.valueOf(level));
+      }
+    }
+    if (target_level > critical_level) {
+      levels.add(Integer.valueOf(target_level));
+    }
+    return levels;
+  }
+
+  private void next(
+    final FrameworkEvent event)
+  {
+    if (this.jfr != null) {
+      this.jfr.end();
+      this.jfr.commit();
+    }
+
+    if (event != null && event.getType() == FrameworkEvent.ERROR) {
+      LOG.error("failed to change start level: ", event.getThrowable());
+    }
+
+    if (!this.levels.hasNext()) {
+      LOG.info(
+        "staged boot reached start level {} in {}ms",
+        Integer.valueOf(this.framework_level.getStartLevel()),
+        Long.valueOf(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - this.time_start)));
+      return;
+    }
+
+    final int level = this.levels.next().intValue();
+    LOG.debug("raising start level to {}", Integer.valueOf(level));
+
+    this.jfr = new SaturnJFRStartLevel();
+    this.jfr.setLevelPrevious(this.framework_level.getStartLevel());
+    this.jfr.setLevel(level);
+    this.jfr.begin();
+    this.framework_level.setStartLevel(level, this::next);
+  }
+}
@@ -0,0 +1,258 @@
+/*
+ * Copyright © 2018 Mark Raynsford <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.saturn.container.launcher.felix;
+
+import com.io7m.saturn.container.api.SaturnStartupBundle;
+import com.io7m.saturn.container.api.SaturnStartupPhase;
+import com.io7m.saturn.container.api.SaturnStartupReport;
+import org.osgi.framework.Bundle;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.OperatingSystemMXBean;
+import java.lang.management.ThreadMXBean;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * A recorder of startup timing information. The recorder may be used from multiple threads.
+ */
+
+final class SaturnStartupRecorder
+{
+  private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+  private static final OperatingSystemMXBean SYSTEM = ManagementFactory.getOperatingSystemMXBean();
+
+  private final Instant time_started;
+  private final long wall_started;
+  private final long cpu_started;
+  private final List<SaturnStartupPhase> phases;
+  private final Map<String, SaturnStartupBundle.Builder> bundles;
+  private volatile boolean plan_used;
+
+  SaturnStartupRecorder(
+    final Clock clock)
+  {
+    this.time_started = Objects.requireNonNull(clock, "clock").instant();
+    this.wall_started = System.nanoTime();
+    this.cpu_started = processCpuTime();
+    this.phases = new ArrayList<>();
+    this.bundles = new LinkedHashMap<>();
+  }
+
+  /**
+   * @return The CPU time in nanoseconds consumed by the current thread, or {@code 0} if this
+   * information is not available
+   */
+
+  static long threadCpuTime()
+  {
+    if (THREADS.isCurrentThreadCpuTimeSupported()) {
+      return Math.max(0L, THREADS.getCurrentThreadCpuTime());
+    }
+    return 0L;
+  }
+
+  /**
+   * @return The CPU time in nanoseconds consumed by the entire process, or {@code 0} if this
+   * information is not available
+   */
+
+  static long processCpuTime()
+  {
+    if (SYSTEM instanceof com.sun.management.OperatingSystemMXBean) {
+      final com.sun.management.OperatingSystemMXBean system =
+        (com.sun.management.OperatingSystemMXBean) SYSTEM;
+      return Math.max(0L, system.getProcessCpuTime());
+    }
+    return 0L;
+  }
+
+  /**
+   * @return The time, as given by {@link System#nanoTime()}, at which recording began
+   */
+
+  long wallStarted()
+  {
+    return this.wall_started;
+  }
+
+  /**
+   * Begin a phase. The phase is recorded when {@link Phase#end()} is called.
+   *
+   * @param name The name of the phase
+   *
+   * @return The phase
+   */
+
+  Phase beginPhase(
+    final String name)
+  {
+    return new Phase(Objects.requireNonNull(name, "name"));
+  }
+
+  /**
+   * Record the installation of a bundle.
+   *
+   * @param group     The bundle group
+   * @param bundle    The bundle
+   * @param wall_time The wall-clock time in nanoseconds
+   * @param cpu_time  The CPU time in nanoseconds
+   */
+
+  void bundleInstalled(
+    final String group,
+    final Bundle bundle,
+    final long wall_time,
+    final long cpu_time)
+  {
+    synchronized (this.bundles) {
+      this.bundleFor(group, bundle)
+        .setInstallWallTime(Duration.ofNanos(wall_time))
+        .setInstallCpuTime(Duration.ofNanos(cpu_time));
+    }
+  }
+
+  /**
+   * Record the reuse of a bundle that was already present in the bundle cache.
+   *
+   * @param group  The bundle group
+   * @param bundle The bundle
+   */
+
+  void bundleReused(
+    final String group,
+    final Bundle bundle)
+  {
+    synchronized (this.bundles) {
+      this.bundleFor(group, bundle);
+    }
+  }
+
+  /**
+   * Record the starting of a bundle.
+   *
+   * @param group     The bundle group
+   * @param bundle    The bundle
+   * @param wall_time The wall-clock time in nanoseconds
+   * @param cpu_time  The CPU time in nanoseconds
+   */
+
+  void bundleStarted(
+    final String group,
+    final Bundle bundle,
+    final long wall_time,
+    final long cpu_time)
+  {
+    synchronized (this.bundles) {
+      this.bundleFor(group, bundle)
+        .setStartWallTime(Duration.ofNanos(wall_time))
+        .setStartCpuTime(Duration.ofNanos(cpu_time));
+    }
+  }
+
+  private SaturnStartupBundle.Builder bundleFor(
+    final String group,
+    final Bundle bundle)
+  {
+    return this.bundles.computeIfAbsent(
+      bundle.getLocation(),
+      location -> SaturnStartupBundle.builder()
+        .setId(bundle.getBundleId())
+        .setSymbolicName(Objects.requireNonNullElse(bundle.getSymbolicName(), ""))
+        .setLocation(location)
+        .setGroup(group));
+  }
+
+  /**
+   * Record whether a resolution plan is being used to start bundles.
+   *
+   * @param used {@code true} if a plan is used
+   */
+
+  void resolutionPlanUsed(
+    final boolean used)
+  {
+    this.plan_used = used;
+  }
+
+  /**
+   * @return A report of everything recorded so far
+   */
+
+  SaturnStartupReport finish()
+  {
+    final SaturnStartupReport.Builder builder =
+      SaturnStartupReport.builder()
+        .setTimeStarted(this.time_started)
+        .setWallTime(Duration.ofNanos(System.nanoTime() - this.wall_started))
+        .setCpuTime(Duration.ofNanos(processCpuTime() - this.cpu_started))
+        .setResolutionPlanUsed(this.plan_used);
+
+    synchronized (this.phases) {
+      builder.addAllPhases(this.phases);
+    }
+    synchronized (this.bundles) {
+      for (final SaturnStartupBundle.Builder bundle : this.bundles.values()) {
+        builder.addBundles(bundle.build());
+      }
+    }
+    return builder.build();
+  }
+
+  /**
+   * A phase that is in progress.
+   */
+
+  final class Phase
+  {
+    private final String name;
+    private final long wall_started;
+    private final long cpu_started;
+
+    private Phase(
+      final String in_name)
+    {
+      this.name = in_name;
+      this.wall_started = System.nanoTime();
+      this.cpu_started = processCpuTime();
+    }
+
+    /**
+     * End the phase and record the time taken.
+     */
+
+    void end()
+    {
+      final SaturnStartupPhase phase =
+        SaturnStartupPhase.of(
+          this.name,
+          Duration.ofNanos(System.nanoTime() - this.wall_started),
+          Duration.ofNanos(processCpuTime() - this.cpu_started));
+
+      synchronized (SaturnStartupRecorder.this.phases) {
+        SaturnStartupRecorder.this.phases.add(phase);
+      }
+    }
+  }
+}
@@ -0,0 +1,151 @@
+/*
+ * Copyright © 2018 Mark Raynsford <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.saturn.container.launcher.felix;
+
+import org.apache.felix.framework.Felix;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.osgi.framework.Bundle;
+import org.osgi.framework.BundleException;
+import org.osgi.framework.Constants;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.util.List;
+import java.util.Map;
+import java.util.jar.Attributes;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+public final class SaturnBundleInstallerTest
+{
+  private Path directory;
+  private Felix framework;
+
+  private static Path writeBundle(
+    final Path file,
+    final String name)
+    throws IOException
+  {
+    final Manifest manifest = new Manifest();
+    final Attributes attributes = manifest.getMainAttributes();
+    attributes.put(Attributes.Name.MANIFEST_VERSION, "1.0");
+    attributes.putValue(Constants.BUNDLE_MANIFESTVERSION, "2");
+    attributes.putValue(Constants.BUNDLE_SYMBOLICNAME, name);
+    attributes.putValue(Constants.BUNDLE_VERSION, "1.0.0");
+
+    try (JarOutputStream output = new JarOutputStream(Files.newOutputStream(file), manifest)) {
+      output.flush();
+    }
+    return file;
+  }
+
+  private List<Bundle> install(
+    final int threads,
+    final Path... paths)
+    throws Exception
+  {
+    final List<String> locations =
+      Stream.of(paths)
+        .map(SaturnBundleInstaller::location)
+        .collect(Collectors.toList());
+
+    return SaturnBundleInstaller.install(
+      this.framework.getBundleContext(),
+      new SaturnStartupRecorder(Clock.systemUTC()),
+      "application",
+      locations,
+      threads,
+      1);
+  }
+
+  @BeforeEach
+  public void setup()
+    throws Exception
+  {
+    this.directory = Files.createTempDirectory("saturn-bundle-installer-");
+    this.framework =
+      new Felix(Map.of(
+        Constants.FRAMEWORK_STORAGE,
+        this.directory.resolve("cache").toString(),
+        Constants.FRAMEWORK_STORAGE_CLEAN,
+        Constants.FRAMEWORK_STORAGE_CLEAN_ONFIRSTINIT));
+    this.framework.start();
+  }
+
+  @AfterEach
+  public void tearDown()
+    throws Exception
+  {
+    this.framework.stop();
+    this.framework.waitForStop(1_000L);
+  }
+
+  @Test
+  public void testInstallOrder()
+    throws Exception
+  {
+    final List<Bundle> bundles =
+      this.install(
+        2,
+        writeBundle(this.directory.resolve("a.jar"), "a"),
+        writeBundle(this.directory.resolve("b.jar"), "b"),
+        writeBundle(this.directory.resolve("c.jar"), "c"));
+
+    Assertions.assertEquals(3, bundles.size());
+    Assertions.assertEquals("a", bundles.get(0).getSymbolicName());
+    Assertions.assertEquals("b", bundles.get(1).getSymbolicName());
+    Assertions.assertEquals("c", bundles.get(2).getSymbolicName());
+  }
+
+  @Test
+  public void testFailureUninstallsSerial()
+    throws Exception
+  {
+    this.checkFailureUninstalls(1);
+  }
+
+  @Test
+  public void testFailureUninstallsConcurrent()
+    throws Exception
+  {
+    this.checkFailureUninstalls(4);
+  }
+
+  private void checkFailureUninstalls(
+    final int threads)
+    throws Exception
+  {
+    final Path a = writeBundle(this.directory.resolve("a.jar"), "a");
+    final Path b = writeBundle(this.directory.resolve("b.jar"), "b");
+    final Path missing = this.directory.resolve("missing.jar");
+
+    final BundleException ex =
+      Assertions.assertThrows(BundleException.class, () -> this.install(threads, a, missing, b));
+    Assertions.assertEquals(1, ex.getSuppressed().length);
+
+    final Bundle[] remaining = this.framework.getBundleContext().getBundles();
+    Assertions.assertEquals(1, remaining.length, "Only the system bundle remains");
+    Assertions.assertEquals(0L, remaining[0].getBundleId());
+  }
+}
@@ -0,0 +1,160 @@
+/*
+ * Copyright © 2018 Mark Raynsford <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.saturn.container.launcher.felix;
+
+import org.apache.felix.framework.Felix;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.osgi.framework.Bundle;
+import org.osgi.framework.Constants;
+import org.osgi.framework.wiring.FrameworkWiring;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.jar.Attributes;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+import java.util.stream.Collectors;
+
+public final class SaturnBundleStartSchedulerTest
+{
+  private Path directory;
+  private Felix framework;
+
+  private Bundle install(
+    final String name,
+    final String exports,
+    final String imports)
+    throws Exception
+  {
+    final Manifest manifest = new Manifest();
+    final Attributes attributes = manifest.getMainAttributes();
+    attributes.put(Attributes.Name.MANIFEST_VERSION, "1.0");
+    attributes.putValue(Constants.BUNDLE_MANIFESTVERSION, "2");
+    attributes.putValue(Constants.BUNDLE_SYMBOLICNAME, name);
+    attributes.putValue(Constants.BUNDLE_VERSION, "1.0.0");
+    if (exports != null) {
+      attributes.putValue(Constants.EXPORT_PACKAGE, exports);
+    }
+    if (imports != null) {
+      attributes.putValue(Constants.IMPORT_PACKAGE, imports);
+    }
+
+    final Path file = this.directory.resolve(name + ".jar");
+    try (JarOutputStream output = new JarOutputStream(Files.newOutputStream(file), manifest)) {
+      output.flush();
+    }
+    return this.framework.getBundleContext().installBundle(SaturnBundleInstaller.location(file));
+  }
+
+  @BeforeEach
+  public void setup()
+    throws Exception
+  {
+    this.directory = Files.createTempDirectory("saturn-bundle-scheduler-");
+    this.framework =
+      new Felix(Map.of(
+        Constants.FRAMEWORK_STORAGE,
+        this.directory.resolve("cache").toString(),
+        Constants.FRAMEWORK_STORAGE_CLEAN,
+        Constants.FRAMEWORK_STORAGE_CLEAN_ONFIRSTINIT));
+    this.framework.start();
+  }
+
+  @AfterEach
+  public void tearDown()
+    throws Exception
+  {
+    this.framework.stop();
+    this.framework.waitForStop(1_000L);
+  }
+
+  private List<SaturnBundleStartNode> order(
+    final List<Bundle> bundles)
+  {
+    Assertions.assertTrue(
+      this.framework.adapt(FrameworkWiring.class).resolveBundles(bundles),
+      "Bundles resolve");
+    return SaturnBundleStartScheduler.graphOrder(bundles, Optional.empty());
+  }
+
+  private static SaturnBundleStartNode nodeOf(
+    final List<SaturnBundleStartNode> order,
+    final Bundle bundle)
+  {
+    return order.stream()
+      .filter(node -> node.bundle().equals(bundle))
+      .findFirst()
+      .orElseThrow();
+  }
+
+  @Test
+  public void testChain()
+    throws Exception
+  {
+    final Bundle a = this.install("a", null, "b");
+    final Bundle b = this.install("b", "b", "c");
+    final Bundle c = this.install("c", "c", null);
+
+    final List<SaturnBundleStartNode> order = this.order(List.of(a, b, c));
+    Assertions.assertEquals(
+      List.of(c, b, a),
+      order.stream().map(SaturnBundleStartNode::bundle).collect(Collectors.toList()));
+    Assertions.assertEquals(0, nodeOf(order, c).wave());
+    Assertions.assertEquals(1, nodeOf(order, b).wave());
+    Assertions.assertEquals(2, nodeOf(order, a).wave());
+  }
+
+  /**
+   * A depends on B, and B and C depend on each other. A has the lowest bundle ID, but it is not
+   * part of the cycle, so its dependencies must not be discarded to break the cycle.
+   */
+
+  @Test
+  public void testCycleBehindDependency()
+    throws Exception
+  {
+    final Bundle a = this.install("a", null, "b");
+    final Bundle b = this.install("b", "b", "c");
+    final Bundle c = this.install("c", "c", "b");
+    Assertions.assertTrue(a.getBundleId() < b.getBundleId());
+    Assertions.assertTrue(b.getBundleId() < c.getBundleId());
+
+    final List<SaturnBundleStartNode> order = this.order(List.of(a, b, c));
+    final SaturnBundleStartNode node_a = nodeOf(order, a);
+    final SaturnBundleStartNode node_b = nodeOf(order, b);
+    final SaturnBundleStartNode node_c = nodeOf(order, c);
+
+    Assertions.assertEquals(2, order.indexOf(node_a), "A is ordered last");
+    Assertions.assertTrue(node_a.dependencies().contains(node_b), "A waits for B");
+    Assertions.assertTrue(node_a.dependencies().contains(node_c), "A waits for C");
+    Assertions.assertTrue(node_a.wave() > node_b.wave());
+    Assertions.assertTrue(node_a.wave() > node_c.wave());
+
+    /*
+     * The cycle is broken at B, the lowest-numbered bundle in the cycle.
+     */
+
+    Assertions.assertEquals(List.of(), node_b.dependencies());
+    Assertions.assertEquals(List.of(node_b), node_c.dependencies());
+  }
+}
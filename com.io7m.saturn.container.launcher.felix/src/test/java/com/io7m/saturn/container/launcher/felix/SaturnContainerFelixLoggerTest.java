@@ -0,0 +1,153 @@
+/*
+ * Copyright © 2018 Mark Raynsford <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.saturn.container.launcher.felix;
+
+import ch.qos.logback.classic.Level;
+import org.apache.felix.framework.Felix;
+import org.apache.felix.framework.Logger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.osgi.framework.Constants;
+import org.slf4j.LoggerFactory;
+
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+public final class SaturnContainerFelixLoggerTest
+{
+  private ch.qos.logback.classic.Logger logger;
+
+  @BeforeEach
+  public void setup()
+  {
+    this.logger =
+      (ch.qos.logback.classic.Logger) LoggerFactory.getLogger(SaturnContainerFelixLogger.class);
+    this.logger.setLevel(Level.INFO);
+  }
+
+  @AfterEach
+  public void tearDown()
+  {
+    this.logger.setLevel(null);
+  }
+
+  @Test
+  public void testEffectiveLevel()
+  {
+    this.logger.setLevel(Level.TRACE);
+    Assertions.assertEquals(Logger.LOG_DEBUG, SaturnContainerFelixLogger.effectiveLevel());
+    this.logger.setLevel(Level.DEBUG);
+    Assertions.assertEquals(Logger.LOG_DEBUG, SaturnContainerFelixLogger.effectiveLevel());
+    this.logger.setLevel(Level.INFO);
+    Assertions.assertEquals(Logger.LOG_INFO, SaturnContainerFelixLogger.effectiveLevel());
+    this.logger.setLevel(Level.WARN);
+    Assertions.assertEquals(Logger.LOG_WARNING, SaturnContainerFelixLogger.effectiveLevel());
+    this.logger.setLevel(Level.ERROR);
+    Assertions.assertEquals(Logger.LOG_ERROR, SaturnContainerFelixLogger.effectiveLevel());
+    this.logger.setLevel(Level.OFF);
+    Assertions.assertEquals(0, SaturnContainerFelixLogger.effectiveLevel());
+  }
+
+  @Test
+  public void testRefreshLevel()
+  {
+    final SaturnContainerFelixLogger felix_logger = new SaturnContainerFelixLogger();
+    Assertions.assertEquals(Logger.LOG_INFO, felix_logger.getLogLevel());
+
+    this.logger.setLevel(Level.WARN);
+    Assertions.assertEquals(Logger.LOG_INFO, felix_logger.getLogLevel());
+    felix_logger.refreshLevel();
+    Assertions.assertEquals(Logger.LOG_WARNING, felix_logger.getLogLevel());
+  }
+
+  private static Duration refreshPeriodOf(
+    final Map<String, String> properties)
+    throws Exception
+  {
+    final Map<String, String> config = new HashMap<>(properties);
+    config.put(
+      Constants.FRAMEWORK_STORAGE,
+      Files.createTempDirectory("saturn-felix-logger-").toString());
+    config.put(
+      Constants.FRAMEWORK_STORAGE_CLEAN,
+      Constants.FRAMEWORK_STORAGE_CLEAN_ONFIRSTINIT);
+
+    final Felix framework = new Felix(config);
+    framework.init();
+    try {
+      return SaturnContainerFelixLogger.refreshPeriod(framework);
+    } finally {
+      framework.stop();
+      framework.waitForStop(1_000L);
+    }
+  }
+
+  @Test
+  public void testRefreshPeriod()
+    throws Exception
+  {
+    final String name = SaturnContainerFelixLogger.REFRESH_PERIOD_PROPERTY;
+    Assertions.assertEquals(
+      Duration.ofSeconds(10L),
+      refreshPeriodOf(Map.of()));
+    Assertions.assertEquals(
+      Duration.ofMillis(250L),
+      refreshPeriodOf(Map.of(name, "250")));
+    Assertions.assertEquals(
+      Duration.ZERO,
+      refreshPeriodOf(Map.of(name, "0")));
+    Assertions.assertEquals(
+      Duration.ofSeconds(10L),
+      refreshPeriodOf(Map.of(name, "x")));
+  }
+
+  @Test
+  public void testFollowUntilStopped()
+  {
+    Assertions.assertTimeout(Duration.ofSeconds(15L), () -> {
+      final Felix framework =
+        new Felix(Map.of(
+          Constants.FRAMEWORK_STORAGE,
+          Files.createTempDirectory("saturn-felix-logger-").toString(),
+          Constants.FRAMEWORK_STORAGE_CLEAN,
+          Constants.FRAMEWORK_STORAGE_CLEAN_ONFIRSTINIT));
+      framework.start();
+
+      final SaturnContainerFelixLogger felix_logger = new SaturnContainerFelixLogger();
+      final ScheduledExecutorService executor =
+        felix_logger.follow(framework, Duration.ofMillis(10L));
+
+      this.logger.setLevel(Level.ERROR);
+      while (felix_logger.getLogLevel() != Logger.LOG_ERROR) {
+        Thread.sleep(10L);
+      }
+
+      Assertions.assertFalse(executor.isShutdown(), "Executor runs whilst the framework runs");
+      framework.stop();
+      framework.waitForStop(1_000L);
+      Assertions.assertTrue(
+        executor.awaitTermination(5L, TimeUnit.SECONDS),
+        "Executor shuts down when the framework stops");
+    });
+  }
+}
@@ -16,13 +16,17 @@
 
 package com.io7m.saturn.container.logservice;
 
+import jdk.jfr.FlightRecorder;
 import org.osgi.framework.Bundle;
 import org.osgi.framework.BundleActivator;
 import org.osgi.framework.BundleContext;
+import org.osgi.framework.BundleEvent;
+import org.osgi.framework.BundleListener;
 import org.osgi.framework.InvalidSyntaxException;
 import org.osgi.framework.ServiceEvent;
 import org.osgi.framework.ServiceListener;
 import org.osgi.framework.ServiceReference;
+import org.osgi.service.log.LogListener;
 import org.osgi.service.log.LogReaderService;
 import org.osgi.util.tracker.ServiceTracker;
 import org.slf4j.Logger;
@@ -31,6 +35,9 @@ import org.slf4j.LoggerFactory;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 /**
  * A bundle activator that adds an SLF4J-based log reader for every available
@@ -44,7 +51,13 @@ public final class SaturnContainerActivator implements BundleActivator
   private final SaturnSLF4JLogReader logger;
   private final List<LogReaderService> readers;
   private final ServiceListener listener;
+  private final BundleListener listener_bundles;
+  private final Runnable throughput;
   private ServiceTracker<LogReaderService, LogReaderService> tracker;
+  private volatile SaturnLogBridgeAsync bridge_async;
+  private volatile SaturnLogLevelSynchronizer levels;
+  private ScheduledExecutorService suppression;
+  private volatile LogListener bridge;
 
   /**
    * Construct an activator.
@@ -54,6 +67,33 @@ public final class SaturnContainerActivator implements BundleActivator
   {
     this.logger = new SaturnSLF4JLogReader();
     this.readers = new LinkedList<>();
+    this.bridge = this.logger;
+    this.throughput = this::emitThroughput;
+
+    /*
+     * Discard the cached SLF4J logger of any bundle that is uninstalled, and
+     * push levels into the logger admin for any bundle that is installed.
+     */
+
+    this.listener_bundles = event -> {
+      switch (event.getType()) {
+        case BundleEvent.UNINSTALLED: {
+          this.logger.evict(event.getBundle().getBundleId());
+          break;
+        }
+        case BundleEvent.INSTALLED:
+        case BundleEvent.UPDATED: {
+          final SaturnLogLevelSynchronizer synchronizer = this.levels;
+          if (synchronizer != null) {
+            synchronizer.requestSynchronize();
+          }
+          break;
+        }
+        default: {
+          break;
+        }
+      }
+    };
 
     /*
      * Create a service listener that adds an SLF4J-based log reader every
@@ -82,20 +122,48 @@ public final class SaturnContainerActivator implements BundleActivator
         if (event.getType() == ServiceEvent.REGISTERED) {
           LOG.debug("adding a log listener to {}", reader);
           this.readers.add(reader);
-          reader.addLogListener(this.logger);
+          reader.addLogListener(this.bridge);
         } else if (event.getType() == ServiceEvent.UNREGISTERING) {
           LOG.debug("removing a log listener from {}", reader);
-          reader.removeLogListener(SaturnContainerActivator.this.logger);
+          reader.removeLogListener(SaturnContainerActivator.this.bridge);
           this.readers.remove(reader);
         }
       }
     };
   }
 
+  /**
+   * @return The listener that reacts to bundles being installed, updated, and uninstalled
+   */
+
+  BundleListener bundleListener()
+  {
+    return this.listener_bundles;
+  }
+
+  /**
+   * @return The SLF4J-based log reader
+   */
+
+  SaturnSLF4JLogReader reader()
+  {
+    return this.logger;
+  }
+
   @Override
   public void start(
     final BundleContext context)
   {
+    this.configureBridge(context);
+    this.configureSuppression(context);
+    this.levels =
+      new SaturnLogLevelSynchronizer(
+        context,
+        longProperty(context, "com.io7m.saturn.logservice.level_sync_period_ms", 10_000L));
+    this.levels.start();
+    context.addBundleListener(this.listener_bundles);
+    FlightRecorder.addPeriodicEvent(SaturnLogThroughputEvent.class, this.throughput);
+
     this.tracker =
       new ServiceTracker<>(context, LogReaderService.class.getName(), null);
     this.tracker.open();
@@ -107,7 +175,7 @@ public final class SaturnContainerActivator implements BundleActivator
 
         LOG.debug("adding a log listener to {}", reader);
         this.readers.add(reader);
-        reader.addLogListener(this.logger);
+        reader.addLogListener(this.bridge);
       }
     }
 
@@ -120,19 +188,162 @@ public final class SaturnContainerActivator implements BundleActivator
     }
   }
 
+  /**
+   * Configure the bridge from the framework properties. If the asynchronous bridge is enabled,
+   * log services deliver entries to the bridge's queue rather than directly to the SLF4J-based
+   * log reader.
+   */
+
+  private void configureBridge(
+    final BundleContext context)
+  {
+    if (!"true".equals(context.getProperty("com.io7m.saturn.logservice.asynchronous"))) {
+      this.bridge = this.logger;
+      return;
+    }
+
+    final int capacity =
+      intProperty(context, "com.io7m.saturn.logservice.queue_capacity", 8192);
+
+    SaturnLogBridgeOverflow overflow = SaturnLogBridgeOverflow.BLOCK;
+    final String overflow_text = context.getProperty("com.io7m.saturn.logservice.overflow");
+    if (overflow_text != null) {
+      try {
+        overflow = SaturnLogBridgeOverflow.valueOf(overflow_text);
+      } catch (final IllegalArgumentException e) {
+        LOG.error("unrecognized log bridge overflow policy: {}", overflow_text);
+      }
+    }
+
+    this.bridge_async = new SaturnLogBridgeAsync(this.logger, capacity, overflow);
+    this.bridge_async.start();
+    this.bridge = this.bridge_async;
+  }
+
+  /**
+   * Configure per-bundle rate limiting and deduplication from the framework properties. If
+   * either is enabled, summaries of suppressed entries are logged periodically. The period
+   * defaults to the deduplication window, and may be overridden with the
+   * {@code com.io7m.saturn.logservice.suppression_flush_ms} property.
+   */
+
+  private void configureSuppression(
+    final BundleContext context)
+  {
+    final SaturnLogSuppressor suppressor =
+      new SaturnLogSuppressor(
+        intProperty(context, "com.io7m.saturn.logservice.rate_limit", 0),
+        intProperty(context, "com.io7m.saturn.logservice.rate_burst", 100),
+        longProperty(context, "com.io7m.saturn.logservice.deduplication_window_ms", 0L));
+
+    if (suppressor.isDisabled()) {
+      this.logger.setSuppressor(null);
+      return;
+    }
+
+    this.logger.setSuppressor(suppressor);
+    this.suppression = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      final Thread thread = new Thread(runnable, "com.io7m.saturn.logservice.suppression");
+      thread.setDaemon(true);
+      return thread;
+    });
+
+    final long flush_ms = flushPeriod(context, suppressor);
+    LOG.debug("flushing suppressed entries every {}ms", Long.valueOf(flush_ms));
+    this.suppression.scheduleWithFixedDelay(
+      this.logger::flushSuppressed, flush_ms, flush_ms, TimeUnit.MILLISECONDS);
+  }
+
+  private static long flushPeriod(
+    final BundleContext context,
+    final SaturnLogSuppressor suppressor)
+  {
+    final long configured =
+      longProperty(context, "com.io7m.saturn.logservice.suppression_flush_ms", 0L);
+    if (configured > 0L) {
+      return configured;
+    }
+    return suppressor.flushPeriodMillis();
+  }
+
+  private static int intProperty(
+    final BundleContext context,
+    final String name,
+    final int default_value)
+  {
+    final String text = context.getProperty(name);
+    if (text == null) {
+      return default_value;
+    }
+
+    try {
+      return Integer.parseInt(text);
+    } catch (final NumberFormatException e) {
+      LOG.error("unparseable value for {}: {}", name, text);
+      return default_value;
+    }
+  }
+
+  private static long longProperty(
+    final BundleContext context,
+    final String name,
+    final long default_value)
+  {
+    final String text = context.getProperty(name);
+    if (text == null) {
+      return default_value;
+    }
+
+    try {
+      return Long.parseLong(text);
+    } catch (final NumberFormatException e) {
+      LOG.error("unparseable value for {}: {}", name, text);
+      return default_value;
+    }
+  }
+
+  private void emitThroughput()
+  {
+    final SaturnLogThroughputEvent event = new SaturnLogThroughputEvent();
+    this.logger.collect(event);
+
+    final SaturnLogBridgeAsync async = this.bridge_async;
+    if (async != null) {
+      async.collect(event);
+    }
+    event.commit();
+  }
+
   @Override
   public void stop(
     final BundleContext context)
+    throws InterruptedException
   {
     final Iterator<LogReaderService> iter = this.readers.iterator();
     while (iter.hasNext()) {
       final LogReaderService reader = iter.next();
 
       LOG.debug("removing a log listener from {}", reader);
-      reader.removeLogListener(this.logger);
+      reader.removeLogListener(this.bridge);
       iter.remove();
     }
 
     this.tracker.close();
+    context.removeBundleListener(this.listener_bundles);
+    this.levels.stop();
+    this.levels = null;
+    FlightRecorder.removePeriodicEvent(this.throughput);
+
+    if (this.suppression != null) {
+      this.suppression.shutdownNow();
+      this.suppression = null;
+      this.logger.flushSuppressed();
+      this.logger.setSuppressor(null);
+    }
+
+    if (this.bridge_async != null) {
+      this.bridge_async.stop();
+      this.bridge_async = null;
+    }
   }
 }
@@ -0,0 +1,219 @@
+/*
+ * Copyright © 2018 Mark Raynsford <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.saturn.container.logservice;
+
+import org.osgi.service.log.LogEntry;
+import org.osgi.service.log.LogListener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Predicate;
+
+/**
+ * A log listener that places entries into a bounded ring buffer, and forwards them to an
+ * SLF4J-based log reader in batches on a dedicated thread. The thread delivering an entry
+ * therefore never waits for SLF4J, unless the buffer is full and the overflow policy is
+ * {@link SaturnLogBridgeOverflow#BLOCK}. Entries that the reader would discard because of
+ * their level are discarded before they are queued, so that they can neither fill the buffer
+ * nor cause other entries to be dropped.
+ */
+
+final class SaturnLogBridgeAsync implements LogListener
+{
+  private static final Logger LOG = LoggerFactory.getLogger(SaturnLogBridgeAsync.class);
+
+  private static final int BATCH_SIZE = 256;
+  private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(10L);
+  private static final long FULL_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(50L);
+  private static final long STOP_TIMEOUT_MS = 5_000L;
+
+  private final LogListener target;
+  private final Predicate<LogEntry> loggable;
+  private final SaturnLogRingBuffer<LogEntry> buffer;
+  private final SaturnLogBridgeOverflow overflow;
+  private final LongAdder count_enqueued;
+  private final LongAdder count_dropped;
+  private final AtomicLong depth_max;
+  private final Thread thread;
+  private volatile boolean running;
+  private volatile boolean idle;
+
+  SaturnLogBridgeAsync(
+    final SaturnSLF4JLogReader in_target,
+    final int capacity,
+    final SaturnLogBridgeOverflow in_overflow)
+  {
+    this(in_target, in_target::isLoggable, capacity, in_overflow);
+  }
+
+  SaturnLogBridgeAsync(
+    final LogListener in_target,
+    final Predicate<LogEntry> in_loggable,
+    final int capacity,
+    final SaturnLogBridgeOverflow in_overflow)
+  {
+    this.target = Objects.requireNonNull(in_target, "target");
+    this.loggable = Objects.requireNonNull(in_loggable, "loggable");
+    this.overflow = Objects.requireNonNull(in_overflow, "overflow");
+    this.buffer = new SaturnLogRingBuffer<>(capacity);
+    this.count_enqueued = new LongAdder();
+    this.count_dropped = new LongAdder();
+    this.depth_max = new AtomicLong(0L);
+    this.thread = new Thread(this::drain, "com.io7m.saturn.logservice.bridge");
+    this.thread.setDaemon(true);
+  }
+
+  /**
+   * Start the drain thread.
+   */
+
+  void start()
+  {
+    LOG.debug(
+      "starting asynchronous log bridge (capacity {}, overflow {})",
+      Integer.valueOf(this.buffer.capacity()),
+      this.overflow);
+
+    this.running = true;
+    this.thread.start();
+  }
+
+  /**
+   * Stop the drain thread, and forward any entries that remain in the buffer.
+   *
+   * @throws InterruptedException If the current thread is interrupted whilst waiting
+   */
+
+  void stop()
+    throws InterruptedException
+  {
+    this.running = false;
+    LockSupport.unpark(this.thread);
+    this.thread.join(STOP_TIMEOUT_MS);
+
+    while (true) {
+      final LogEntry entry = this.buffer.poll();
+      if (entry == null) {
+        break;
+      }
+      this.target.logged(entry);
+    }
+
+    LOG.debug(
+      "stopped asynchronous log bridge ({} dropped)",
+      Long.valueOf(this.count_dropped.sum()));
+  }
+
+  /**
+   * Record the number of entries enqueued and dropped, and the maximum depth of the queue,
+   * since the previous call.
+   *
+   * @param event The event that will receive the counts
+   */
+
+  void collect(
+    final SaturnLogThroughputEvent event)
+  {
+    event.setEnqueued(this.count_enqueued.sumThenReset());
+    event.setDropped(this.count_dropped.sumThenReset());
+    event.setMaxQueueDepth(this.depth_max.getAndSet(this.buffer.size()));
+  }
+
+  @Override
+  public void logged(
+    final LogEntry entry)
+  {
+    if (!this.loggable.test(entry)) {
+      return;
+    }
+
+    switch (this.overflow) {
+      case BLOCK: {
+        while (!this.buffer.offer(entry)) {
+          if (!this.running) {
+            this.target.logged(entry);
+            return;
+          }
+          LockSupport.unpark(this.thread);
+          LockSupport.parkNanos(FULL_PARK_NANOS);
+        }
+        break;
+      }
+      case DROP_OLDEST: {
+        while (!this.buffer.offer(entry)) {
+          if (this.buffer.poll() != null) {
+            this.count_dropped.increment();
+          }
+        }
+        break;
+      }
+      case DROP_NEWEST: {
+        if (!this.buffer.offer(entry)) {
+          this.count_dropped.increment();
+          return;
+        }
+        break;
+      }
+    }
+
+    this.count_enqueued.increment();
+    this.depth_max.accumulateAndGet(this.buffer.size(), Math::max);
+    if (this.idle) {
+      LockSupport.unpark(this.thread);
+    }
+  }
+
+  private void drain()
+  {
+    final List<LogEntry> batch = new ArrayList<>(BATCH_SIZE);
+    while (this.running) {
+      while (batch.size() < BATCH_SIZE) {
+        final LogEntry entry = this.buffer.poll();
+        if (entry == null) {
+          break;
+        }
+        batch.add(entry);
+      }
+
+      if (batch.isEmpty()) {
+        this.idle = true;
+        if (this.buffer.size() == 0) {
+          LockSupport.parkNanos(IDLE_PARK_NANOS);
+        }
+        this.idle = false;
+        continue;
+      }
+
+      for (final LogEntry entry : batch) {
+        try {
+          this.target.logged(entry);
+        } catch (final Exception e) {
+          LOG.error("log bridge: ", e);
+        }
+      }
+      batch.clear();
+    }
+  }
+}
@@ -0,0 +1,226 @@
+/*
+ * Copyright © 2018 Mark Raynsford <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.saturn.container.logservice;
+
+import org.osgi.framework.Bundle;
+import org.osgi.framework.BundleContext;
+import org.osgi.framework.ServiceReference;
+import org.osgi.service.log.LogLevel;
+import org.osgi.service.log.admin.LoggerAdmin;
+import org.osgi.service.log.admin.LoggerContext;
+import org.osgi.util.tracker.ServiceTracker;
+import org.osgi.util.tracker.ServiceTrackerCustomizer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A synchronizer that copies the effective levels of the SLF4J loggers used by the log bridge
+ * into the configuration of the OSGi {@link LoggerAdmin}. Each bundle's logger context receives
+ * the effective level of the {@code osgi.<symbolic-name>} SLF4J logger as its root level, and
+ * the root logger context receives the level of the {@code osgi} logger. Bundles then discard
+ * disabled messages themselves, before any log entry is created.
+ *
+ * The SLF4J backend may reload its configuration at any time (logback rescans its
+ * configuration every ten seconds when configured to do so), and SLF4J offers no way to be
+ * notified of this, so levels are resynchronized periodically. A logger context is only
+ * reconfigured when its level has changed. If the period is not positive, levels are only
+ * synchronized at startup and when requested.
+ *
+ * The levels recorded as applied belong to a particular logger admin. They are discarded, and
+ * every level is applied again, whenever the tracked logger admin is replaced.
+ */
+
+final class SaturnLogLevelSynchronizer
+{
+  private static final Logger LOG = LoggerFactory.getLogger(SaturnLogLevelSynchronizer.class);
+
+  private final BundleContext context;
+  private final long period_ms;
+  private final ServiceTracker<LoggerAdmin, LoggerAdmin> tracker;
+  private final Map<String, LogLevel> applied;
+  private final ScheduledExecutorService executor;
+  private LoggerAdmin applied_admin;
+
+  SaturnLogLevelSynchronizer(
+    final BundleContext in_context,
+    final long in_period_ms)
+  {
+    this.context = Objects.requireNonNull(in_context, "context");
+    this.period_ms = in_period_ms;
+    this.tracker = new ServiceTracker<>(in_context, LoggerAdmin.class, new AdminTracker());
+    this.applied = new HashMap<>();
+    this.executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      final Thread thread = new Thread(runnable, "com.io7m.saturn.logservice.levels");
+      thread.setDaemon(true);
+      return thread;
+    });
+  }
+
+  /**
+   * Start synchronizing levels.
+   */
+
+  void start()
+  {
+    this.tracker.open();
+    if (this.period_ms > 0L) {
+      this.executor.scheduleWithFixedDelay(
+        this::synchronize, 0L, this.period_ms, TimeUnit.MILLISECONDS);
+    } else {
+      this.executor.execute(this::synchronize);
+    }
+  }
+
+  /**
+   * Stop synchronizing levels.
+   */
+
+  void stop()
+  {
+    this.executor.shutdownNow();
+    this.tracker.close();
+  }
+
+  /**
+   * Request that levels are synchronized as soon as possible, for example because a bundle
+   * has been installed.
+   */
+
+  void requestSynchronize()
+  {
+    try {
+      this.executor.execute(this::synchronize);
+    } catch (final RejectedExecutionException e) {
+      LOG.trace("level synchronizer has stopped");
+    }
+  }
+
+  private void synchronize()
+  {
+    final LoggerAdmin admin = this.tracker.getService();
+    if (admin != this.applied_admin) {
+      LOG.debug("logger admin changed: {}", admin);
+      this.applied.clear();
+      this.applied_admin = admin;
+    }
+
+    if (admin == null) {
+      return;
+    }
+
+    try {
+      this.apply(admin, null, LoggerFactory.getLogger("osgi"));
+
+      for (final Bundle bundle : this.context.getBundles()) {
+        final String name = bundle.getSymbolicName();
+        if (name != null) {
+          this.apply(admin, name, LoggerFactory.getLogger("osgi." + name));
+        }
+      }
+    } catch (final Exception e) {
+      LOG.error("unable to synchronize log levels: ", e);
+    }
+  }
+
+  private void apply(
+    final LoggerAdmin admin,
+    final String name,
+    final Logger logger)
+  {
+    final LogLevel level = effectiveLevel(logger);
+    final String key = name == null ? "" : name;
+    if (level == this.applied.get(key)) {
+      return;
+    }
+
+    LOG.debug("log level [{}]: {}", key, level);
+
+    final LoggerContext logger_context = admin.getLoggerContext(name);
+    final Map<String, LogLevel> levels = new HashMap<>(logger_context.getLogLevels());
+    levels.put(org.osgi.service.log.Logger.ROOT_LOGGER_NAME, level);
+    logger_context.setLogLevels(levels);
+    this.applied.put(key, level);
+  }
+
+  /**
+   * Synchronize levels whenever a logger admin appears or disappears.
+   */
+
+  private final class AdminTracker
+    implements ServiceTrackerCustomizer<LoggerAdmin, LoggerAdmin>
+  {
+    AdminTracker()
+    {
+
+    }
+
+    @Override
+    public LoggerAdmin addingService(
+      final ServiceReference<LoggerAdmin> reference)
+    {
+      final LoggerAdmin admin = SaturnLogLevelSynchronizer.this.context.getService(reference);
+      SaturnLogLevelSynchronizer.this.requestSynchronize();
+      return admin;
+    }
+
+    @Override
+    public void modifiedService(
+      final ServiceReference<LoggerAdmin> reference,
+      final LoggerAdmin service)
+    {
+
+    }
+
+    @Override
+    public void removedService(
+      final ServiceReference<LoggerAdmin> reference,
+      final LoggerAdmin service)
+    {
+      SaturnLogLevelSynchronizer.this.context.ungetService(reference);
+      SaturnLogLevelSynchronizer.this.requestSynchronize();
+    }
+  }
+
+  private static LogLevel effectiveLevel(
+    final Logger logger)
+  {
+    if (logger.isTraceEnabled()) {
+      return LogLevel.TRACE;
+    }
+    if (logger.isDebugEnabled()) {
+      return LogLevel.DEBUG;
+    }
+    if (logger.isInfoEnabled()) {
+      return LogLevel.INFO;
+    }
+    if (logger.isWarnEnabled()) {
+      return LogLevel.WARN;
+    }
+    if (logger.isErrorEnabled()) {
+      return LogLevel.ERROR;
+    }
+    return LogLevel.AUDIT;
+  }
+}
@@ -0,0 +1,132 @@
+/*
+ * Copyright © 2018 Mark Raynsford <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.saturn.container.logservice;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A bounded, lock-free, multi-producer multi-consumer ring buffer. Each slot carries a sequence
+ * number that indicates whether the slot is ready to be written or read in the current lap
+ * around the buffer, so producers and consumers only contend on the head and tail counters.
+ * The capacity is rounded up to the next power of two.
+ *
+ * @param <T> The type of elements
+ */
+
+final class SaturnLogRingBuffer<T>
+{
+  private final AtomicReferenceArray<T> elements;
+  private final AtomicLongArray sequences;
+  private final AtomicLong head;
+  private final AtomicLong tail;
+  private final int mask;
+
+  SaturnLogRingBuffer(
+    final int capacity)
+  {
+    if (capacity < 1 || capacity > (1 << 30)) {
+      throw new IllegalArgumentException(
+        "Capacity must be in the range [1, 2^30] (received " + capacity + ")");
+    }
+
+    final int size = Integer.highestOneBit(capacity) == capacity
+      ? capacity
+      : Integer.highestOneBit(capacity) << 1;
+
+    this.elements = new AtomicReferenceArray<>(size);
+    this.sequences = new AtomicLongArray(size);
+    for (int index = 0; index < size; ++index) {
+      this.sequences.set(index, index);
+    }
+    this.head = new AtomicLong(0L);
+    this.tail = new AtomicLong(0L);
+    this.mask = size - 1;
+  }
+
+  /**
+   * @return The number of elements the buffer can hold
+   */
+
+  int capacity()
+  {
+    return this.mask + 1;
+  }
+
+  /**
+   * @return The approximate number of elements in the buffer
+   */
+
+  int size()
+  {
+    final long size = this.tail.get() - this.head.get();
+    return (int) Math.max(0L, Math.min(size, this.capacity()));
+  }
+
+  /**
+   * Add an element to the buffer.
+   *
+   * @param element The element
+   *
+   * @return {@code false} if the buffer is full
+   */
+
+  boolean offer(
+    final T element)
+  {
+    while (true) {
+      final long position = this.tail.get();
+      final int index = (int) position & this.mask;
+      final long difference = this.sequences.get(index) - position;
+      if (difference == 0L) {
+        if (this.tail.compareAndSet(position, position + 1L)) {
+          this.elements.set(index, element);
+          this.sequences.set(index, position + 1L);
+          return true;
+        }
+      } else if (difference < 0L) {
+        return false;
+      }
+    }
+  }
+
+  /**
+   * Remove the oldest element from the buffer.
+   *
+   * @return The element, or {@code null} if the buffer is empty
+   */
+
+  T poll()
+  {
+    while (true) {
+      final long position = this.head.get();
+      final int index = (int) position & this.mask;
+      final long difference = this.sequences.get(index) - (position + 1L);
+      if (difference == 0L) {
+        if (this.head.compareAndSet(position, position + 1L)) {
+          final T element = this.elements.getAndSet(index, null);
+          this.sequences.set(index, position + this.mask + 1L);
+          return element;
+        }
+      } else if (difference < 0L) {
+        return null;
+      }
+    }
+  }
+}
@@ -0,0 +1,335 @@
+/*
+ * Copyright © 2018 Mark Raynsford <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.saturn.container.logservice;
+
+import org.osgi.service.log.LogEntry;
+import org.osgi.service.log.LogLevel;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A per-bundle suppressor of log entries. Each bundle has a token bucket that limits the rate
+ * at which its entries are admitted, and a table of recently seen entries keyed by message and
+ * exception fingerprint, so that repeats within a time window are suppressed after the first.
+ * The suppressed entries are counted, and summaries of the counts are produced by
+ * {@link #flush(long)}.
+ */
+
+final class SaturnLogSuppressor
+{
+  private static final int MAXIMUM_TRACKED_ENTRIES = 1024;
+  private static final int MAXIMUM_FINGERPRINT_CAUSES = 8;
+
+  private final double rate_per_nano;
+  private final double burst;
+  private final long window_nanos;
+  private final Map<Long, BundleState> bundles;
+
+  /**
+   * Construct a suppressor.
+   *
+   * @param in_rate   The number of entries per second admitted for each bundle, or {@code 0}
+   *                  to disable rate limiting
+   * @param in_burst  The number of entries each bundle may log in a burst
+   * @param in_window The deduplication window in milliseconds, or {@code 0} to disable
+   *                  deduplication
+   */
+
+  SaturnLogSuppressor(
+    final int in_rate,
+    final int in_burst,
+    final long in_window)
+  {
+    this.rate_per_nano = (double) in_rate / (double) TimeUnit.SECONDS.toNanos(1L);
+    this.burst = Math.max(1.0, in_burst);
+    this.window_nanos = TimeUnit.MILLISECONDS.toNanos(in_window);
+    this.bundles = new ConcurrentHashMap<>();
+  }
+
+  /**
+   * @return {@code true} if the suppressor would never suppress anything
+   */
+
+  boolean isDisabled()
+  {
+    return this.rate_per_nano <= 0.0 && this.window_nanos <= 0L;
+  }
+
+  /**
+   * Determine how often {@link #flush(long)} should be called. Deduplicated entries are only
+   * summarized once their window ends, so flushing more often than the deduplication window
+   * produces nothing extra. Without deduplication, rate limit summaries are flushed every
+   * second.
+   *
+   * @return The flush period in milliseconds
+   */
+
+  long flushPeriodMillis()
+  {
+    if (this.window_nanos > 0L) {
+      return Math.max(1L, TimeUnit.NANOSECONDS.toMillis(this.window_nanos));
+    }
+    return 1000L;
+  }
+
+  /**
+   * Decide whether an entry should be passed on.
+   *
+   * @param bundle_id The ID of the bundle that produced the entry
+   * @param entry     The entry
+   * @param now       The current time in nanoseconds
+   *
+   * @return {@code true} if the entry should be passed on
+   */
+
+  boolean admit(
+    final long bundle_id,
+    final LogEntry entry,
+    final long now)
+  {
+    final BundleState state =
+      this.bundles.computeIfAbsent(Long.valueOf(bundle_id), id -> new BundleState(now, this.burst));
+
+    synchronized (state) {
+      if (this.window_nanos <= 0L) {
+        return this.takeToken(state, now);
+      }
+
+      /*
+       * An entry is only recorded for deduplication once it has passed the rate limiter, so
+       * that a rate-limited entry does not suppress its later repeats. The count of a repeat
+       * whose window has ended is kept until the next flush.
+       */
+
+      final String key = key(entry);
+      final Repeat repeat = state.repeats.get(key);
+      if (repeat != null && now - repeat.first < this.window_nanos) {
+        ++repeat.suppressed;
+        return false;
+      }
+      if (!this.takeToken(state, now)) {
+        return false;
+      }
+
+      if (repeat != null && repeat.suppressed > 0L) {
+        state.expired.add(repeat);
+      }
+      if (repeat != null || state.repeats.size() < MAXIMUM_TRACKED_ENTRIES) {
+        state.repeats.put(key, new Repeat(entry, now));
+      }
+      return true;
+    }
+  }
+
+  private boolean takeToken(
+    final BundleState state,
+    final long now)
+  {
+    if (this.rate_per_nano <= 0.0) {
+      return true;
+    }
+
+    state.tokens = Math.min(
+      this.burst, state.tokens + (now - state.refilled) * this.rate_per_nano);
+    state.refilled = now;
+    if (state.tokens < 1.0) {
+      ++state.rate_suppressed;
+      return false;
+    }
+    state.tokens -= 1.0;
+    return true;
+  }
+
+  /**
+   * Discard the state held for the given bundle.
+   *
+   * @param bundle_id The bundle ID
+   */
+
+  void evict(
+    final long bundle_id)
+  {
+    this.bundles.remove(Long.valueOf(bundle_id));
+  }
+
+  /**
+   * Expire deduplication entries whose window has ended, and return summaries of everything
+   * suppressed since the previous call. Deduplicated entries are summarized when their window
+   * ends, including windows that ended because a repeat was admitted after the window
+   * expired but before this method was called.
+   *
+   * @param now The current time in nanoseconds
+   *
+   * @return The summaries
+   */
+
+  List<Summary> flush(
+    final long now)
+  {
+    final List<Summary> summaries = new ArrayList<>();
+    for (final Map.Entry<Long, BundleState> bundle : this.bundles.entrySet()) {
+      final long bundle_id = bundle.getKey().longValue();
+      final BundleState state = bundle.getValue();
+
+      synchronized (state) {
+        for (final Repeat repeat : state.expired) {
+          summaries.add(summarize(bundle_id, repeat));
+        }
+        state.expired.clear();
+
+        final Iterator<Repeat> iter = state.repeats.values().iterator();
+        while (iter.hasNext()) {
+          final Repeat repeat = iter.next();
+          if (now - repeat.first >= this.window_nanos) {
+            if (repeat.suppressed > 0L) {
+              summaries.add(summarize(bundle_id, repeat));
+            }
+            iter.remove();
+          }
+        }
+
+        if (state.rate_suppressed > 0L) {
+          summaries.add(new Summary(
+            bundle_id,
+            LogLevel.WARN,
+            new StringBuilder(64)
+              .append("Suppressed ")
+              .append(state.rate_suppressed)
+              .append(" entries: rate limit exceeded")
+              .toString()));
+          state.rate_suppressed = 0L;
+        }
+      }
+    }
+    return summaries;
+  }
+
+  private static Summary summarize(
+    final long bundle_id,
+    final Repeat repeat)
+  {
+    return new Summary(
+      bundle_id,
+      repeat.level,
+      new StringBuilder(128)
+        .append("Suppressed ")
+        .append(repeat.suppressed)
+        .append(" similar entries: ")
+        .append(repeat.message)
+        .toString());
+  }
+
+  private static String key(
+    final LogEntry entry)
+  {
+    final StringBuilder text = new StringBuilder(128);
+    text.append(entry.getLogLevel());
+    text.append('\n');
+    text.append(entry.getMessage());
+
+    Throwable cause = entry.getException();
+    for (int depth = 0; cause != null && depth < MAXIMUM_FINGERPRINT_CAUSES; ++depth) {
+      text.append('\n');
+      text.append(cause.getClass().getName());
+      final StackTraceElement[] trace = cause.getStackTrace();
+      if (trace.length > 0) {
+        text.append('@');
+        text.append(trace[0]);
+      }
+      cause = cause.getCause();
+    }
+    return text.toString();
+  }
+
+  /**
+   * A summary of suppressed entries.
+   */
+
+  static final class Summary
+  {
+    private final long bundle_id;
+    private final LogLevel level;
+    private final String message;
+
+    Summary(
+      final long in_bundle_id,
+      final LogLevel in_level,
+      final String in_message)
+    {
+      this.bundle_id = in_bundle_id;
+      this.level = in_level;
+      this.message = in_message;
+    }
+
+    long bundleId()
+    {
+      return this.bundle_id;
+    }
+
+    LogLevel level()
+    {
+      return this.level;
+    }
+
+    String message()
+    {
+      return this.message;
+    }
+  }
+
+  private static final class Repeat
+  {
+    private final LogLevel level;
+    private final String message;
+    private final long first;
+    private long suppressed;
+
+    Repeat(
+      final LogEntry entry,
+      final long in_first)
+    {
+      this.level = entry.getLogLevel();
+      this.message = entry.getMessage();
+      this.first = in_first;
+    }
+  }
+
+  private static final class BundleState
+  {
+    private final Map<String, Repeat> repeats;
+    private final List<Repeat> expired;
+    private double tokens;
+    private long refilled;
+    private long rate_suppressed;
+
+    BundleState(
+      final long now,
+      final double in_tokens)
+    {
+      this.repeats = new HashMap<>();
+      this.expired = new ArrayList<>();
+      this.tokens = in_tokens;
+      this.refilled = now;
+    }
+  }
+}
@@ -0,0 +1,143 @@
+/*
+ * Copyright © 2018 Mark Raynsford <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.saturn.container.logservice;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Period;
+import jdk.jfr.StackTrace;
+
+/**
+ * A periodic flight recorder event that records the number of log entries passed from the OSGi
+ * log service to SLF4J since the previous event. The queue counts are only non-zero when the
+ * asynchronous log bridge is in use.
+ */
+
+@Name("com.io7m.saturn.LogThroughput")
+@Label("Log Bridge Throughput")
+@Category({"Saturn", "Logging"})
+@Description("The number of log entries passed from the OSGi log service to SLF4J")
+@Period("1 s")
+@StackTrace(false)
+final class SaturnLogThroughputEvent extends Event
+{
+  @Label("Entries")
+  private long entries;
+
+  @Label("Errors")
+  private long errors;
+
+  @Label("Warnings")
+  private long warnings;
+
+  @Label("Exceptions")
+  private long exceptions;
+
+  @Label("Suppressed")
+  private long suppressed;
+
+  @Label("Enqueued")
+  private long enqueued;
+
+  @Label("Dropped")
+  private long dropped;
+
+  @Label("Max Queue Depth")
+  private long maxQueueDepth;
+
+  SaturnLogThroughputEvent()
+  {
+
+  }
+
+  void setEntries(
+    final long value)
+  {
+    this.entries = value;
+  }
+
+  void setErrors(
+    final long value)
+  {
+    this.errors = value;
+  }
+
+  void setWarnings(
+    final long value)
+  {
+    this.warnings = value;
+  }
+
+  void setExceptions(
+    final long value)
+  {
+    this.exceptions = value;
+  }
+
+  void setSuppressed(
+    final long value)
+  {
+    this.suppressed = value;
+  }
+
+  void setEnqueued(
+    final long value)
+  {
+    this.enqueued = value;
+  }
+
+  void setDropped(
+    final long value)
+  {
+    this.dropped = value;
+  }
+
+  void setMaxQueueDepth(
+    final long value)
+  {
+    this.maxQueueDepth = value;
+  }
+
+  long entries()
+  {
+    return this.entries;
+  }
+
+  long exceptions()
+  {
+    return this.exceptions;
+  }
+
+  long enqueued()
+  {
+    return this.enqueued;
+  }
+
+  long dropped()
+  {
+    return this.dropped;
+  }
+
+  long maxQueueDepth()
+  {
+    return this.maxQueueDepth;
+  }
+}
@@ -16,120 +16,314 @@
 
 package com.io7m.saturn.container.logservice;
 
+import org.osgi.framework.Bundle;
 import org.osgi.service.log.LogEntry;
 import org.osgi.service.log.LogLevel;
 import org.osgi.service.log.LogListener;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
 /**
- * An SLF4J-based log reader.
+ * An SLF4J-based log reader. Entries are logged to a logger named {@code osgi.<symbolic-name>}
+ * for the bundle that produced them, so that levels can be configured per bundle. Loggers are
+ * cached by bundle ID, and the level is checked before anything else is done with an entry.
  */
 
 public final class SaturnSLF4JLogReader implements LogListener
 {
   private static final Logger LOG = LoggerFactory.getLogger(SaturnSLF4JLogReader.class);
 
+  private final LongAdder count_entries;
+  private final LongAdder count_errors;
+  private final LongAdder count_warnings;
+  private final LongAdder count_exceptions;
+  private final LongAdder count_suppressed;
+  private final Map<Long, Logger> loggers;
+  private volatile SaturnLogSuppressor suppressor;
+
   SaturnSLF4JLogReader()
   {
+    this.count_entries = new LongAdder();
+    this.count_errors = new LongAdder();
+    this.count_warnings = new LongAdder();
+    this.count_exceptions = new LongAdder();
+    this.count_suppressed = new LongAdder();
+    this.loggers = new ConcurrentHashMap<>();
+  }
+
+  /**
+   * Record the number of entries logged since the previous call, and reset the counts. Entries
+   * discarded because their level is disabled are not counted.
+   *
+   * @param event The event that will receive the counts
+   */
+
+  void collect(
+    final SaturnLogThroughputEvent event)
+  {
+    event.setEntries(this.count_entries.sumThenReset());
+    event.setErrors(this.count_errors.sumThenReset());
+    event.setWarnings(this.count_warnings.sumThenReset());
+    event.setExceptions(this.count_exceptions.sumThenReset());
+    event.setSuppressed(this.count_suppressed.sumThenReset());
+  }
 
+  /**
+   * Set the suppressor used to rate limit and deduplicate entries.
+   *
+   * @param in_suppressor The suppressor, or {@code null} to admit every entry
+   */
+
+  void setSuppressor(
+    final SaturnLogSuppressor in_suppressor)
+  {
+    this.suppressor = in_suppressor;
+  }
+
+  /**
+   * Log summaries of any entries suppressed since the previous call.
+   */
+
+  void flushSuppressed()
+  {
+    final SaturnLogSuppressor current = this.suppressor;
+    if (current == null) {
+      return;
+    }
+
+    final List<SaturnLogSuppressor.Summary> summaries = current.flush(System.nanoTime());
+    for (final SaturnLogSuppressor.Summary summary : summaries) {
+      final Logger logger =
+        this.loggers.getOrDefault(Long.valueOf(summary.bundleId()), LOG);
+      switch (summary.level()) {
+        case AUDIT:
+        case INFO:
+          logger.info("{}", summary.message());
+          break;
+        case ERROR:
+          logger.error("{}", summary.message());
+          break;
+        case WARN:
+          logger.warn("{}", summary.message());
+          break;
+        case DEBUG:
+          logger.debug("{}", summary.message());
+          break;
+        case TRACE:
+          logger.trace("{}", summary.message());
+          break;
+      }
+    }
+  }
+
+  /**
+   * Discard the cached logger and suppression state for the given bundle.
+   *
+   * @param bundle_id The bundle ID
+   */
+
+  void evict(
+    final long bundle_id)
+  {
+    this.loggers.remove(Long.valueOf(bundle_id));
+
+    final SaturnLogSuppressor current = this.suppressor;
+    if (current != null) {
+      current.evict(bundle_id);
+    }
+  }
+
+  /**
+   * @param bundle_id The bundle ID
+   *
+   * @return {@code true} if a logger is cached for the given bundle
+   */
+
+  boolean isCached(
+    final long bundle_id)
+  {
+    return this.loggers.containsKey(Long.valueOf(bundle_id));
+  }
+
+  /**
+   * Determine whether the logger for the given entry is enabled at the entry's level. Entries
+   * for which this returns {@code false} are discarded by {@link #logged(LogEntry)}.
+   *
+   * @param entry The entry
+   *
+   * @return {@code true} if the entry would be logged
+   */
+
+  boolean isLoggable(
+    final LogEntry entry)
+  {
+    return isEnabled(this.loggerFor(entry), entry.getLogLevel());
+  }
+
+  /**
+   * Find the logger for the bundle that produced the given entry, creating and caching it if
+   * necessary.
+   *
+   * @param entry The entry
+   *
+   * @return The logger
+   */
+
+  Logger loggerFor(
+    final LogEntry entry)
+  {
+    final Bundle bundle = entry.getBundle();
+    if (bundle == null) {
+      return LOG;
+    }
+
+    return this.loggers.computeIfAbsent(Long.valueOf(bundle.getBundleId()), id -> {
+      final String name = bundle.getSymbolicName();
+      return LoggerFactory.getLogger("osgi." + (name == null ? id.toString() : name));
+    });
   }
 
   @Override
   public void logged(final LogEntry entry)
   {
+    final Logger logger = this.loggerFor(entry);
     final LogLevel level = entry.getLogLevel();
+    if (!isEnabled(logger, level)) {
+      return;
+    }
+
+    this.count_entries.increment();
+    if (entry.getException() != null) {
+      this.count_exceptions.increment();
+    }
+
+    final SaturnLogSuppressor current = this.suppressor;
+    final Bundle bundle = entry.getBundle();
+    if (current != null && bundle != null) {
+      if (!current.admit(bundle.getBundleId(), entry, System.nanoTime())) {
+        this.count_suppressed.increment();
+        return;
+      }
+    }
+
     switch (level) {
       case AUDIT:
-        audit(entry);
+        audit(logger, entry);
         break;
       case ERROR:
-        error(entry);
+        this.count_errors.increment();
+        error(logger, entry);
         break;
       case WARN:
-        warn(entry);
+        this.count_warnings.increment();
+        warn(logger, entry);
         break;
       case INFO:
-        info(entry);
+        info(logger, entry);
         break;
       case DEBUG:
-        debug(entry);
+        debug(logger, entry);
         break;
       case TRACE:
-        trace(entry);
+        trace(logger, entry);
         break;
     }
   }
 
-  private static void audit(final LogEntry entry)
+  private static boolean isEnabled(
+    final Logger logger,
+    final LogLevel level)
+  {
+    switch (level) {
+      case AUDIT:
+      case INFO:
+        return logger.isInfoEnabled();
+      case ERROR:
+        return logger.isErrorEnabled();
+      case WARN:
+        return logger.isWarnEnabled();
+      case DEBUG:
+        return logger.isDebugEnabled();
+      case TRACE:
+        return logger.isTraceEnabled();
+    }
+    return true;
+  }
+
+  private static void audit(
+    final Logger logger,
+    final LogEntry entry)
   {
-    final String name = entry.getBundle().getSymbolicName();
-    final String message = entry.getMessage();
     final Throwable ex = entry.getException();
     if (ex != null) {
-      LOG.info("[{}]: {}: ", name, message, ex);
+      logger.info("{}: ", entry.getMessage(), ex);
     } else {
-      LOG.info("[{}]: {}", name, message);
+      logger.info("{}", entry.getMessage());
     }
   }
 
-  private static void trace(final LogEntry entry)
+  private static void trace(
+    final Logger logger,
+    final LogEntry entry)
   {
-    final String name = entry.getBundle().getSymbolicName();
-    final String message = entry.getMessage();
     final Throwable ex = entry.getException();
     if (ex != null) {
-      LOG.trace("[{}]: {}: ", name, message, ex);
+      logger.trace("{}: ", entry.getMessage(), ex);
     } else {
-      LOG.trace("[{}]: {}", name, message);
+      logger.trace("{}", entry.getMessage());
     }
   }
 
-  private static void warn(final LogEntry entry)
+  private static void warn(
+    final Logger logger,
+    final LogEntry entry)
   {
-    final String name = entry.getBundle().getSymbolicName();
-    final String message = entry.getMessage();
     final Throwable ex = entry.getException();
     if (ex != null) {
-      LOG.warn("[{}]: {}: ", name, message, ex);
+      logger.warn("{}: ", entry.getMessage(), ex);
     } else {
-      LOG.warn("[{}]: {}", name, message);
+      logger.warn("{}", entry.getMessage());
     }
   }
 
-  private static void info(final LogEntry entry)
+  private static void info(
+    final Logger logger,
+    final LogEntry entry)
   {
-    final String name = entry.getBundle().getSymbolicName();
-    final String message = entry.getMessage();
     final Throwable ex = entry.getException();
     if (ex != null) {
-      LOG.info("[{}]: {}: ", name, message, ex);
+      logger.info("{}: ", entry.getMessage(), ex);
     } else {
-      LOG.info("[{}]: {}", name, message);
+      logger.info("{}", entry.getMessage());
     }
   }
 
-  private static void error(final LogEntry entry)
+  private static void error(
+    final Logger logger,
+    final LogEntry entry)
   {
-    final String name = entry.getBundle().getSymbolicName();
-    final String message = entry.getMessage();
     final Throwable ex = entry.getException();
     if (ex != null) {
-      LOG.error("[{}]: {}: ", name, message, ex);
+      logger.error("{}: ", entry.getMessage(), ex);
     } else {
-      LOG.error("[{}]: {}", name, message);
+      logger.error("{}", entry.getMessage());
     }
   }
 
-  private static void debug(final LogEntry entry)
+  private static void debug(
+    final Logger logger,
+    final LogEntry entry)
   {
-    final String name = entry.getBundle().getSymbolicName();
-    final String message = entry.getMessage();
     final Throwable ex = entry.getException();
     if (ex != null) {
-      LOG.debug("[{}]: {}: ", name, message, ex);
+      logger.debug("{}: ", entry.getMessage(), ex);
     } else {
-      LOG.debug("[{}]: {}", name, message);
+      logger.debug("{}", entry.getMessage());
     }
   }
 }
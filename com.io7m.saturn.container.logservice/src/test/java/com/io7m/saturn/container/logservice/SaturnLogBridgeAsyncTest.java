@@ -0,0 +1,229 @@
+/*
+ * Copyright © 2018 Mark Raynsford <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.saturn.container.logservice;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.osgi.service.log.LogEntry;
+import org.osgi.service.log.LogLevel;
+import org.osgi.service.log.LogListener;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+public final class SaturnLogBridgeAsyncTest
+{
+  private static final int CAPACITY = 4;
+
+  private BlockingListener target;
+  private SaturnLogBridgeAsync bridge;
+
+  /**
+   * A listener that blocks on the first entry it receives until it is released, so that the
+   * bridge's buffer can be filled.
+   */
+
+  private static final class BlockingListener implements LogListener
+  {
+    private final CountDownLatch entered;
+    private final CountDownLatch released;
+    private final List<String> received;
+
+    BlockingListener()
+    {
+      this.entered = new CountDownLatch(1);
+      this.released = new CountDownLatch(1);
+      this.received = new ArrayList<>();
+    }
+
+    @Override
+    public void logged(
+      final LogEntry entry)
+    {
+      synchronized (this.received) {
+        this.received.add(entry.getMessage());
+      }
+
+      this.entered.countDown();
+      try {
+        this.released.await();
+      } catch (final InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+
+    List<String> received()
+    {
+      synchronized (this.received) {
+        return List.copyOf(this.received);
+      }
+    }
+  }
+
+  private static LogEntry entry(
+    final int index)
+  {
+    return new SaturnLogTestEntry(LogLevel.INFO, "e" + index, null);
+  }
+
+  private static List<String> messages(
+    final int... indices)
+  {
+    return Arrays.stream(indices)
+      .mapToObj(index -> "e" + index)
+      .collect(Collectors.toList());
+  }
+
+  private void create(
+    final SaturnLogBridgeOverflow overflow)
+    throws InterruptedException
+  {
+    this.target = new BlockingListener();
+    this.bridge =
+      new SaturnLogBridgeAsync(
+        this.target,
+        entry -> entry.getLogLevel() != LogLevel.DEBUG,
+        CAPACITY,
+        overflow);
+    this.bridge.start();
+
+    /*
+     * Wait until the drain thread is blocked delivering the first entry, so that every
+     * subsequent entry stays in the buffer.
+     */
+
+    this.bridge.logged(entry(0));
+    Assertions.assertTrue(this.target.entered.await(10L, TimeUnit.SECONDS));
+  }
+
+  private SaturnLogThroughputEvent collect()
+  {
+    final SaturnLogThroughputEvent event = new SaturnLogThroughputEvent();
+    this.bridge.collect(event);
+    return event;
+  }
+
+  @BeforeEach
+  public void setup()
+  {
+    this.target = null;
+    this.bridge = null;
+  }
+
+  @AfterEach
+  public void tearDown()
+    throws InterruptedException
+  {
+    if (this.bridge != null) {
+      this.target.released.countDown();
+      this.bridge.stop();
+    }
+  }
+
+  @Test
+  public void testDropNewest()
+    throws Exception
+  {
+    this.create(SaturnLogBridgeOverflow.DROP_NEWEST);
+
+    for (int index = 1; index <= 6; ++index) {
+      this.bridge.logged(entry(index));
+    }
+
+    final SaturnLogThroughputEvent event = this.collect();
+    Assertions.assertEquals(5L, event.enqueued());
+    Assertions.assertEquals(2L, event.dropped());
+    Assertions.assertEquals((long) CAPACITY, event.maxQueueDepth());
+
+    this.target.released.countDown();
+    this.bridge.stop();
+    Assertions.assertEquals(messages(0, 1, 2, 3, 4), this.target.received());
+  }
+
+  @Test
+  public void testDropOldest()
+    throws Exception
+  {
+    this.create(SaturnLogBridgeOverflow.DROP_OLDEST);
+
+    for (int index = 1; index <= 6; ++index) {
+      this.bridge.logged(entry(index));
+    }
+
+    final SaturnLogThroughputEvent event = this.collect();
+    Assertions.assertEquals(7L, event.enqueued());
+    Assertions.assertEquals(2L, event.dropped());
+    Assertions.assertEquals((long) CAPACITY, event.maxQueueDepth());
+
+    this.target.released.countDown();
+    this.bridge.stop();
+    Assertions.assertEquals(messages(0, 3, 4, 5, 6), this.target.received());
+  }
+
+  @Test
+  public void testBlock()
+    throws Exception
+  {
+    this.create(SaturnLogBridgeOverflow.BLOCK);
+
+    for (int index = 1; index <= CAPACITY; ++index) {
+      this.bridge.logged(entry(index));
+    }
+
+    final Thread producer = new Thread(() -> this.bridge.logged(entry(5)));
+    producer.start();
+    producer.join(200L);
+    Assertions.assertTrue(producer.isAlive(), "Producer is blocked by a full buffer");
+
+    this.target.released.countDown();
+    producer.join(10_000L);
+    Assertions.assertFalse(producer.isAlive(), "Producer is unblocked");
+
+    final SaturnLogThroughputEvent event = this.collect();
+    Assertions.assertEquals(6L, event.enqueued());
+    Assertions.assertEquals(0L, event.dropped());
+
+    this.bridge.stop();
+    Assertions.assertEquals(messages(0, 1, 2, 3, 4, 5), this.target.received());
+  }
+
+  @Test
+  public void testLevelCheckedBeforeQueueing()
+    throws Exception
+  {
+    this.create(SaturnLogBridgeOverflow.DROP_NEWEST);
+
+    for (int index = 1; index <= 10; ++index) {
+      this.bridge.logged(new SaturnLogTestEntry(LogLevel.DEBUG, "debug", null));
+    }
+    this.bridge.logged(entry(1));
+
+    final SaturnLogThroughputEvent event = this.collect();
+    Assertions.assertEquals(2L, event.enqueued());
+    Assertions.assertEquals(0L, event.dropped());
+
+    this.target.released.countDown();
+    this.bridge.stop();
+    Assertions.assertEquals(messages(0, 1), this.target.received());
+  }
+}
@@ -0,0 +1,157 @@
+/*
+ * Copyright © 2018 Mark Raynsford <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.saturn.container.logservice;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+
+public final class SaturnLogRingBufferTest
+{
+  @Test
+  public void testCapacity()
+  {
+    Assertions.assertEquals(1, new SaturnLogRingBuffer<>(1).capacity());
+    Assertions.assertEquals(8, new SaturnLogRingBuffer<>(5).capacity());
+    Assertions.assertEquals(8, new SaturnLogRingBuffer<>(8).capacity());
+    Assertions.assertThrows(IllegalArgumentException.class, () -> new SaturnLogRingBuffer<>(0));
+    Assertions.assertThrows(
+      IllegalArgumentException.class, () -> new SaturnLogRingBuffer<>((1 << 30) + 1));
+  }
+
+  @Test
+  public void testFull()
+  {
+    final SaturnLogRingBuffer<Integer> buffer = new SaturnLogRingBuffer<>(4);
+
+    Assertions.assertNull(buffer.poll());
+    for (int index = 0; index < 4; ++index) {
+      Assertions.assertTrue(buffer.offer(Integer.valueOf(index)));
+    }
+    Assertions.assertEquals(4, buffer.size());
+    Assertions.assertFalse(buffer.offer(Integer.valueOf(4)));
+
+    for (int index = 0; index < 4; ++index) {
+      Assertions.assertEquals(Integer.valueOf(index), buffer.poll());
+    }
+    Assertions.assertEquals(0, buffer.size());
+    Assertions.assertNull(buffer.poll());
+  }
+
+  @Test
+  public void testWraparound()
+  {
+    final SaturnLogRingBuffer<Integer> buffer = new SaturnLogRingBuffer<>(4);
+
+    int next_offer = 0;
+    int next_poll = 0;
+    for (int lap = 0; lap < 100; ++lap) {
+      for (int index = 0; index < 3; ++index) {
+        Assertions.assertTrue(buffer.offer(Integer.valueOf(next_offer)));
+        ++next_offer;
+      }
+      for (int index = 0; index < 3; ++index) {
+        Assertions.assertEquals(Integer.valueOf(next_poll), buffer.poll());
+        ++next_poll;
+      }
+      Assertions.assertNull(buffer.poll());
+    }
+  }
+
+  @Test
+  public void testMultipleProducersConsumers()
+  {
+    Assertions.assertTimeout(Duration.ofSeconds(60L), () -> {
+      final int producers = 4;
+      final int consumers = 4;
+      final int per_producer = 20_000;
+      final int total = producers * per_producer;
+
+      final SaturnLogRingBuffer<Integer> buffer = new SaturnLogRingBuffer<>(64);
+      final AtomicIntegerArray seen = new AtomicIntegerArray(total);
+      final AtomicLong consumed = new AtomicLong(0L);
+      final List<Thread> threads = new ArrayList<>();
+
+      for (int producer = 0; producer < producers; ++producer) {
+        final int base = producer * per_producer;
+        threads.add(new Thread(() -> {
+          for (int index = 0; index < per_producer; ++index) {
+            final Integer value = Integer.valueOf(base + index);
+            while (!buffer.offer(value)) {
+              if (consumed.get() >= (long) total) {
+                return;
+              }
+              Thread.yield();
+            }
+          }
+        }));
+      }
+
+      for (int consumer = 0; consumer < consumers; ++consumer) {
+        threads.add(new Thread(() -> {
+          final int[] last = new int[producers];
+          Arrays.fill(last, -1);
+          while (consumed.get() < (long) total) {
+            final Integer value = buffer.poll();
+            if (value == null) {
+              Thread.yield();
+              continue;
+            }
+
+            /*
+             * Each consumer must see the elements of each producer in the order in which
+             * they were offered.
+             */
+
+            final int number = value.intValue();
+            final int producer = number / per_producer;
+            Assertions.assertTrue(number > last[producer], "Per-producer order");
+            last[producer] = number;
+            seen.incrementAndGet(number);
+            consumed.incrementAndGet();
+          }
+        }));
+      }
+
+      final List<Throwable> failures = new ArrayList<>();
+      for (final Thread thread : threads) {
+        thread.setUncaughtExceptionHandler((t, e) -> {
+          synchronized (failures) {
+            failures.add(e);
+          }
+          consumed.set(total);
+        });
+        thread.start();
+      }
+      for (final Thread thread : threads) {
+        thread.join();
+      }
+
+      Assertions.assertEquals(List.of(), failures);
+      for (int index = 0; index < total; ++index) {
+        Assertions.assertEquals(1, seen.get(index), "Element seen exactly once");
+      }
+      Assertions.assertNull(buffer.poll());
+    });
+  }
+}
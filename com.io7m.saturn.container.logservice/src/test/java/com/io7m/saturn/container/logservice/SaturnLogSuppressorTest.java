@@ -0,0 +1,178 @@
+/*
+ * Copyright © 2018 Mark Raynsford <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.saturn.container.logservice;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.osgi.service.log.LogEntry;
+import org.osgi.service.log.LogLevel;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+public final class SaturnLogSuppressorTest
+{
+  private static final long MS = TimeUnit.MILLISECONDS.toNanos(1L);
+
+  private static LogEntry entry(
+    final String message)
+  {
+    return new SaturnLogTestEntry(LogLevel.INFO, message, null);
+  }
+
+  @Test
+  public void testDisabled()
+  {
+    Assertions.assertTrue(new SaturnLogSuppressor(0, 100, 0L).isDisabled());
+    Assertions.assertFalse(new SaturnLogSuppressor(1, 100, 0L).isDisabled());
+    Assertions.assertFalse(new SaturnLogSuppressor(0, 100, 1L).isDisabled());
+  }
+
+  @Test
+  public void testFlushPeriod()
+  {
+    Assertions.assertEquals(1000L, new SaturnLogSuppressor(1, 100, 0L).flushPeriodMillis());
+    Assertions.assertEquals(250L, new SaturnLogSuppressor(0, 100, 250L).flushPeriodMillis());
+    Assertions.assertEquals(5000L, new SaturnLogSuppressor(1, 100, 5000L).flushPeriodMillis());
+  }
+
+  @Test
+  public void testDeduplication()
+  {
+    final SaturnLogSuppressor suppressor = new SaturnLogSuppressor(0, 100, 1000L);
+
+    Assertions.assertTrue(suppressor.admit(1L, entry("a"), 0L));
+    Assertions.assertFalse(suppressor.admit(1L, entry("a"), MS));
+    Assertions.assertFalse(suppressor.admit(1L, entry("a"), 2L * MS));
+    Assertions.assertFalse(suppressor.admit(1L, entry("a"), 3L * MS));
+    Assertions.assertTrue(suppressor.admit(1L, entry("b"), 4L * MS));
+    Assertions.assertTrue(suppressor.admit(2L, entry("a"), 5L * MS));
+
+    Assertions.assertEquals(List.of(), suppressor.flush(500L * MS));
+
+    final List<SaturnLogSuppressor.Summary> summaries = suppressor.flush(1000L * MS);
+    Assertions.assertEquals(1, summaries.size());
+    final SaturnLogSuppressor.Summary summary = summaries.get(0);
+    Assertions.assertEquals(1L, summary.bundleId());
+    Assertions.assertEquals(LogLevel.INFO, summary.level());
+    Assertions.assertEquals("Suppressed 3 similar entries: a", summary.message());
+
+    Assertions.assertEquals(List.of(), suppressor.flush(2000L * MS));
+  }
+
+  private static LogEntry failure(
+    final LogLevel level,
+    final String message)
+  {
+    return new SaturnLogTestEntry(level, message, new IllegalStateException(message));
+  }
+
+  @Test
+  public void testDeduplicationExceptions()
+  {
+    final SaturnLogSuppressor suppressor = new SaturnLogSuppressor(0, 100, 1000L);
+
+    Assertions.assertTrue(suppressor.admit(1L, failure(LogLevel.ERROR, "a"), 0L));
+    Assertions.assertFalse(suppressor.admit(1L, failure(LogLevel.ERROR, "a"), 0L));
+    Assertions.assertTrue(suppressor.admit(1L, failure(LogLevel.WARN, "a"), 0L));
+    Assertions.assertTrue(suppressor.admit(
+      1L, new SaturnLogTestEntry(LogLevel.ERROR, "a", new IllegalArgumentException()), 0L));
+    Assertions.assertTrue(suppressor.admit(1L, entry("a"), 0L));
+  }
+
+  @Test
+  public void testWindowRollover()
+  {
+    final SaturnLogSuppressor suppressor = new SaturnLogSuppressor(0, 100, 1000L);
+
+    Assertions.assertTrue(suppressor.admit(1L, entry("a"), 0L));
+    Assertions.assertFalse(suppressor.admit(1L, entry("a"), MS));
+    Assertions.assertFalse(suppressor.admit(1L, entry("a"), 2L * MS));
+
+    /*
+     * The window ends and a repeat starts a new window before the next flush. The count from
+     * the first window must not be lost.
+     */
+
+    Assertions.assertTrue(suppressor.admit(1L, entry("a"), 1001L * MS));
+    Assertions.assertFalse(suppressor.admit(1L, entry("a"), 1002L * MS));
+
+    final List<SaturnLogSuppressor.Summary> first = suppressor.flush(1500L * MS);
+    Assertions.assertEquals(1, first.size());
+    Assertions.assertEquals("Suppressed 2 similar entries: a", first.get(0).message());
+
+    final List<SaturnLogSuppressor.Summary> second = suppressor.flush(2001L * MS);
+    Assertions.assertEquals(1, second.size());
+    Assertions.assertEquals("Suppressed 1 similar entries: a", second.get(0).message());
+  }
+
+  @Test
+  public void testRateLimit()
+  {
+    final SaturnLogSuppressor suppressor = new SaturnLogSuppressor(10, 2, 0L);
+
+    Assertions.assertTrue(suppressor.admit(1L, entry("a"), 0L));
+    Assertions.assertTrue(suppressor.admit(1L, entry("b"), 0L));
+    Assertions.assertFalse(suppressor.admit(1L, entry("c"), 0L));
+    Assertions.assertFalse(suppressor.admit(1L, entry("d"), 50L * MS));
+    Assertions.assertTrue(suppressor.admit(2L, entry("e"), 50L * MS));
+
+    final List<SaturnLogSuppressor.Summary> first = suppressor.flush(50L * MS);
+    Assertions.assertEquals(1, first.size());
+    Assertions.assertEquals(1L, first.get(0).bundleId());
+    Assertions.assertEquals(LogLevel.WARN, first.get(0).level());
+    Assertions.assertEquals(
+      "Suppressed 2 entries: rate limit exceeded", first.get(0).message());
+
+    Assertions.assertTrue(suppressor.admit(1L, entry("f"), 150L * MS));
+    Assertions.assertFalse(suppressor.admit(1L, entry("g"), 150L * MS));
+
+    final List<SaturnLogSuppressor.Summary> second = suppressor.flush(150L * MS);
+    Assertions.assertEquals(1, second.size());
+    Assertions.assertEquals(
+      "Suppressed 1 entries: rate limit exceeded", second.get(0).message());
+  }
+
+  @Test
+  public void testRateLimitedNotRecorded()
+  {
+    final SaturnLogSuppressor suppressor = new SaturnLogSuppressor(1, 1, 10_000L);
+
+    Assertions.assertTrue(suppressor.admit(1L, entry("a"), 0L));
+    Assertions.assertFalse(suppressor.admit(1L, entry("b"), MS));
+    Assertions.assertTrue(suppressor.admit(1L, entry("b"), 1001L * MS));
+    Assertions.assertFalse(suppressor.admit(1L, entry("b"), 1002L * MS));
+
+    final List<SaturnLogSuppressor.Summary> summaries = suppressor.flush(20_000L * MS);
+    Assertions.assertEquals(2, summaries.size());
+    Assertions.assertEquals("Suppressed 1 similar entries: b", summaries.get(0).message());
+    Assertions.assertEquals(
+      "Suppressed 1 entries: rate limit exceeded", summaries.get(1).message());
+  }
+
+  @Test
+  public void testEvict()
+  {
+    final SaturnLogSuppressor suppressor = new SaturnLogSuppressor(0, 100, 1000L);
+
+    Assertions.assertTrue(suppressor.admit(1L, entry("a"), 0L));
+    Assertions.assertFalse(suppressor.admit(1L, entry("a"), MS));
+    suppressor.evict(1L);
+    Assertions.assertTrue(suppressor.admit(1L, entry("a"), 2L * MS));
+    Assertions.assertEquals(List.of(), suppressor.flush(2000L * MS));
+  }
+}
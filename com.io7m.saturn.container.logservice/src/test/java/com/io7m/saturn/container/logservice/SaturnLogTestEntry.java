@@ -0,0 +1,119 @@
+/*
+ * Copyright © 2018 Mark Raynsford <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.saturn.container.logservice;
+
+import org.osgi.framework.Bundle;
+import org.osgi.framework.ServiceReference;
+import org.osgi.service.log.LogEntry;
+import org.osgi.service.log.LogLevel;
+
+import java.util.Objects;
+
+final class SaturnLogTestEntry implements LogEntry
+{
+  private final LogLevel level;
+  private final String message;
+  private final Throwable exception;
+  private final Bundle bundle;
+
+  SaturnLogTestEntry(
+    final LogLevel in_level,
+    final String in_message,
+    final Throwable in_exception)
+  {
+    this(null, in_level, in_message, in_exception);
+  }
+
+  SaturnLogTestEntry(
+    final Bundle in_bundle,
+    final LogLevel in_level,
+    final String in_message,
+    final Throwable in_exception)
+  {
+    this.bundle = in_bundle;
+    this.level = Objects.requireNonNull(in_level, "level");
+    this.message = Objects.requireNonNull(in_message, "message");
+    this.exception = in_exception;
+  }
+
+  @Override
+  public Bundle getBundle()
+  {
+    return this.bundle;
+  }
+
+  @Override
+  public ServiceReference<?> getServiceReference()
+  {
+    return null;
+  }
+
+  @Override
+  @SuppressWarnings("deprecation")
+  public int getLevel()
+  {
+    return this.level.ordinal();
+  }
+
+  @Override
+  public String getMessage()
+  {
+    return this.message;
+  }
+
+  @Override
+  public Throwable getException()
+  {
+    return this.exception;
+  }
+
+  @Override
+  public long getTime()
+  {
+    return 0L;
+  }
+
+  @Override
+  public LogLevel getLogLevel()
+  {
+    return this.level;
+  }
+
+  @Override
+  public String getLoggerName()
+  {
+    return "LogService";
+  }
+
+  @Override
+  public long getSequence()
+  {
+    return 0L;
+  }
+
+  @Override
+  public String getThreadInfo()
+  {
+    return "main";
+  }
+
+  @Override
+  public StackTraceElement getLocation()
+  {
+    return null;
+  }
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright © 2018 Mark Raynsford <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.saturn.container.logservice;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.osgi.framework.Bundle;
+import org.osgi.framework.BundleEvent;
+import org.osgi.service.log.LogLevel;
+import org.slf4j.Logger;
+
+import java.lang.reflect.Proxy;
+
+public final class SaturnSLF4JLogReaderTest
+{
+  private static Bundle bundle(
+    final long id,
+    final String name)
+  {
+    return (Bundle) Proxy.newProxyInstance(
+      SaturnSLF4JLogReaderTest.class.getClassLoader(),
+      new Class<?>[]{Bundle.class},
+      (proxy, method, args) -> {
+        switch (method.getName()) {
+          case "getBundleId":
+            return Long.valueOf(id);
+          case "getSymbolicName":
+            return name;
+          case "hashCode":
+            return Integer.valueOf(System.identityHashCode(proxy));
+          case "equals":
+            return Boolean.valueOf(proxy == args[0]);
+          default:
+            throw new UnsupportedOperationException(method.getName());
+        }
+      });
+  }
+
+  @Test
+  public void testLoggerReused()
+  {
+    final SaturnSLF4JLogReader reader = new SaturnSLF4JLogReader();
+    final Bundle bundle = bundle(23L, "com.io7m.example");
+
+    Assertions.assertFalse(reader.isCached(23L));
+    final Logger logger0 =
+      reader.loggerFor(new SaturnLogTestEntry(bundle, LogLevel.INFO, "a", null));
+    Assertions.assertTrue(reader.isCached(23L));
+    final Logger logger1 =
+      reader.loggerFor(new SaturnLogTestEntry(bundle, LogLevel.ERROR, "b", null));
+
+    Assertions.assertSame(logger0, logger1);
+  }
+
+  @Test
+  public void testLoggerEvictedOnUninstall()
+  {
+    final SaturnContainerActivator activator = new SaturnContainerActivator();
+    final SaturnSLF4JLogReader reader = activator.reader();
+    final Bundle bundle = bundle(23L, "com.io7m.example");
+    final Bundle other = bundle(24L, "com.io7m.other");
+
+    reader.loggerFor(new SaturnLogTestEntry(bundle, LogLevel.INFO, "a", null));
+    reader.loggerFor(new SaturnLogTestEntry(other, LogLevel.INFO, "a", null));
+    Assertions.assertTrue(reader.isCached(23L));
+    Assertions.assertTrue(reader.isCached(24L));
+
+    activator.bundleListener().bundleChanged(new BundleEvent(BundleEvent.STOPPED, bundle));
+    Assertions.assertTrue(reader.isCached(23L));
+
+    activator.bundleListener().bundleChanged(new BundleEvent(BundleEvent.UNINSTALLED, bundle));
+    Assertions.assertFalse(reader.isCached(23L));
+    Assertions.assertTrue(reader.isCached(24L));
+
+    reader.loggerFor(new SaturnLogTestEntry(bundle, LogLevel.INFO, "a", null));
+    Assertions.assertTrue(reader.isCached(23L));
+  }
+
+  @Test
+  public void testDisabledEntriesNotCounted()
+  {
+    final SaturnSLF4JLogReader reader = new SaturnSLF4JLogReader();
+    final Bundle bundle = bundle(23L, "com.io7m.example");
+
+    final SaturnLogTestEntry entry =
+      new SaturnLogTestEntry(bundle, LogLevel.TRACE, "a", new IllegalStateException());
+    Assertions.assertFalse(reader.isLoggable(entry));
+    reader.logged(entry);
+
+    final SaturnLogThroughputEvent event = new SaturnLogThroughputEvent();
+    reader.collect(event);
+    Assertions.assertEquals(0L, event.entries());
+    Assertions.assertEquals(0L, event.exceptions());
+  }
+}
@@ -0,0 +1,136 @@
+/*
+ * Copyright © 2018 Mark Raynsford <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.saturn.tests.synthetic;
+
+import com.io7m.immutables.styles.ImmutablesStyleType;
+import org.immutables.value.Value;
+
+import java.time.Duration;
+
+/**
+ * The parameters of a set of generated synthetic bundles.
+ */
+
+@ImmutablesStyleType
+@Value.Immutable
+public interface SaturnSyntheticBundleParametersType
+{
+  /**
+   * @return The number of bundles to generate
+   */
+
+  int bundleCount();
+
+  /**
+   * @return The number of packages exported by each bundle
+   */
+
+  @Value.Default
+  default int packagesPerBundle()
+  {
+    return 1;
+  }
+
+  /**
+   * Each bundle imports one package from each of this many distinct, randomly chosen, earlier
+   * bundles. The first bundles necessarily import fewer packages, and so the import graph is
+   * always acyclic.
+   *
+   * @return The number of bundles on which each bundle depends
+   */
+
+  @Value.Default
+  default int dependencyFanOut()
+  {
+    return 2;
+  }
+
+  /**
+   * @return The time each bundle activator spends busy-waiting, or zero for bundles without
+   * activators
+   */
+
+  @Value.Default
+  default Duration activatorCost()
+  {
+    return Duration.ZERO;
+  }
+
+  /**
+   * The number of declarative services components in each bundle. Every component provides a
+   * service, and the first component of each bundle has a mandatory reference to the first
+   * component of every bundle on which the bundle depends.
+   *
+   * @return The number of components declared by each bundle
+   */
+
+  @Value.Default
+  default int componentsPerBundle()
+  {
+    return 0;
+  }
+
+  /**
+   * @return The seed of the random choices made when generating the import graph
+   */
+
+  @Value.Default
+  default long seed()
+  {
+    return 0L;
+  }
+
+  /**
+   * @return The prefix of the symbolic names and package names of the bundles
+   */
+
+  @Value.Default
+  default String namePrefix()
+  {
+    return "com.io7m.saturn.synthetic";
+  }
+
+  /**
+   * Check preconditions for the type.
+   */
+
+  @Value.Check
+  default void checkPreconditions()
+  {
+    if (this.bundleCount() < 0) {
+      throw new IllegalArgumentException(
+        "Bundle count must be >= 0 (received " + this.bundleCount() + ")");
+    }
+    if (this.packagesPerBundle() < 1) {
+      throw new IllegalArgumentException(
+        "Packages per bundle must be >= 1 (received " + this.packagesPerBundle() + ")");
+    }
+    if (this.dependencyFanOut() < 0) {
+      throw new IllegalArgumentException(
+        "Dependency fan-out must be >= 0 (received " + this.dependencyFanOut() + ")");
+    }
+    if (this.activatorCost().isNegative()) {
+      throw new IllegalArgumentException(
+        "Activator cost must be non-negative (received " + this.activatorCost() + ")");
+    }
+    if (this.componentsPerBundle() < 0) {
+      throw new IllegalArgumentException(
+        "Components per bundle must be >= 0 (received " + this.componentsPerBundle() + ")");
+    }
+  }
+}
@@ -0,0 +1,277 @@
+/*
+ * Copyright © 2018 Mark Raynsford <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.saturn.tests.synthetic;
+
+import com.io7m.saturn.tests.synthetic.runtime.SaturnSyntheticActivator;
+import com.io7m.saturn.tests.synthetic.runtime.SaturnSyntheticComponent;
+import org.osgi.framework.Constants;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Random;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.jar.Attributes;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+
+/**
+ * A generator of synthetic OSGi bundles. The generated bundles export and import packages,
+ * optionally run activators that consume a configurable amount of time, and optionally declare
+ * declarative services components whose references mirror the import graph. The output is
+ * entirely determined by the parameters, so the same parameters always produce identical jars.
+ */
+
+public final class SaturnSyntheticBundles
+{
+  private static final long ENTRY_TIME = 946684800000L;
+
+  private SaturnSyntheticBundles()
+  {
+
+  }
+
+  /**
+   * Generate bundles.
+   *
+   * @param directory  The output directory
+   * @param parameters The generation parameters
+   *
+   * @return The generated bundles, in dependency order
+   *
+   * @throws IOException On I/O errors
+   */
+
+  public static List<Path> generate(
+    final Path directory,
+    final SaturnSyntheticBundleParameters parameters)
+    throws IOException
+  {
+    Objects.requireNonNull(directory, "directory");
+    Objects.requireNonNull(parameters, "parameters");
+
+    Files.createDirectories(directory);
+
+    final Random random = new Random(parameters.seed());
+    final byte[] activator = classBytes(SaturnSyntheticActivator.class);
+    final byte[] component = classBytes(SaturnSyntheticComponent.class);
+
+    final int count = parameters.bundleCount();
+    final List<Path> bundles = new ArrayList<>(count);
+    for (int index = 0; index < count; ++index) {
+      final SortedSet<Integer> dependencies =
+        chooseDependencies(random, index, parameters.dependencyFanOut());
+      final Path file =
+        directory.resolve(String.format("bundle-%05d.jar", Integer.valueOf(index)));
+      writeBundle(file, parameters, random, index, dependencies, activator, component);
+      bundles.add(file.toAbsolutePath());
+    }
+    return bundles;
+  }
+
+  private static SortedSet<Integer> chooseDependencies(
+    final Random random,
+    final int index,
+    final int fan_out)
+  {
+    final SortedSet<Integer> dependencies = new TreeSet<>();
+    final int wanted = Math.min(index, fan_out);
+    while (dependencies.size() < wanted) {
+      dependencies.add(Integer.valueOf(random.nextInt(index)));
+    }
+    return dependencies;
+  }
+
+  private static String bundleName(
+    final SaturnSyntheticBundleParameters parameters,
+    final int index)
+  {
+    return parameters.namePrefix() + ".b" + index;
+  }
+
+  private static String packageName(
+    final SaturnSyntheticBundleParameters parameters,
+    final int index,
+    final int package_index)
+  {
+    return bundleName(parameters, index) + ".p" + package_index;
+  }
+
+  private static String componentName(
+    final SaturnSyntheticBundleParameters parameters,
+    final int index,
+    final int component_index)
+  {
+    return bundleName(parameters, index) + ".c" + component_index;
+  }
+
+  private static void writeBundle(
+    final Path file,
+    final SaturnSyntheticBundleParameters parameters,
+    final Random random,
+    final int index,
+    final SortedSet<Integer> dependencies,
+    final byte[] activator,
+    final byte[] component)
+    throws IOException
+  {
+    final boolean has_activator = !parameters.activatorCost().isZero();
+    final int components = parameters.componentsPerBundle();
+
+    final Manifest manifest = new Manifest();
+    final Attributes attributes = manifest.getMainAttributes();
+    attributes.put(Attributes.Name.MANIFEST_VERSION, "1.0");
+    attributes.putValue(Constants.BUNDLE_MANIFESTVERSION, "2");
+    attributes.putValue(Constants.BUNDLE_SYMBOLICNAME, bundleName(parameters, index));
+    attributes.putValue(Constants.BUNDLE_VERSION, "1.0.0");
+
+    final List<String> exports = new ArrayList<>(parameters.packagesPerBundle());
+    for (int package_index = 0; package_index < parameters.packagesPerBundle(); ++package_index) {
+      exports.add(packageName(parameters, index, package_index) + ";version=\"1.0.0\"");
+    }
+    attributes.putValue(Constants.EXPORT_PACKAGE, String.join(",", exports));
+
+    final List<String> imports = new ArrayList<>(dependencies.size() + 1);
+    for (final Integer dependency : dependencies) {
+      final int package_index = random.nextInt(parameters.packagesPerBundle());
+      imports.add(
+        packageName(parameters, dependency.intValue(), package_index)
+          + ";version=\"[1.0,2.0)\"");
+    }
+
+    if (has_activator) {
+      imports.add("org.osgi.framework;version=\"[1.8,2.0)\"");
+      attributes.putValue(
+        Constants.BUNDLE_ACTIVATOR, SaturnSyntheticActivator.class.getName());
+      attributes.putValue(
+        SaturnSyntheticActivator.COST_HEADER,
+        Long.toString(parameters.activatorCost().toNanos()));
+    }
+    if (!imports.isEmpty()) {
+      attributes.putValue(Constants.IMPORT_PACKAGE, String.join(",", imports));
+    }
+
+    final List<String> descriptors = new ArrayList<>(components);
+    for (int component_index = 0; component_index < components; ++component_index) {
+      descriptors.add("OSGI-INF/c" + component_index + ".xml");
+    }
+    if (!descriptors.isEmpty()) {
+      attributes.putValue("Service-Component", String.join(",", descriptors));
+    }
+
+    final ByteArrayOutputStream manifest_bytes = new ByteArrayOutputStream(1024);
+    manifest.write(manifest_bytes);
+
+    try (JarOutputStream output = new JarOutputStream(Files.newOutputStream(file))) {
+      writeEntry(output, JarFile.MANIFEST_NAME, manifest_bytes.toByteArray());
+      for (int package_index = 0; package_index < parameters.packagesPerBundle(); ++package_index) {
+        final String name = packageName(parameters, index, package_index);
+        writeEntry(
+          output,
+          name.replace('.', '/') + "/package.txt",
+          name.getBytes(StandardCharsets.UTF_8));
+      }
+      if (has_activator) {
+        writeEntry(output, classEntry(SaturnSyntheticActivator.class), activator);
+      }
+      if (components > 0) {
+        writeEntry(output, classEntry(SaturnSyntheticComponent.class), component);
+      }
+      for (int component_index = 0; component_index < components; ++component_index) {
+        writeEntry(
+          output,
+          descriptors.get(component_index),
+          componentXML(parameters, index, component_index, dependencies)
+            .getBytes(StandardCharsets.UTF_8));
+      }
+    }
+  }
+
+  private static String componentXML(
+    final SaturnSyntheticBundleParameters parameters,
+    final int index,
+    final int component_index,
+    final SortedSet<Integer> dependencies)
+  {
+    final String name = componentName(parameters, index, component_index);
+    final StringBuilder text = new StringBuilder(512);
+    text.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+    text.append("<scr:component xmlns:scr=\"http://www.osgi.org/xmlns/scr/v1.3.0\"");
+    text.append(" name=\"").append(name).append("\" immediate=\"true\">\n");
+    text.append("  <implementation class=\"")
+      .append(SaturnSyntheticComponent.class.getName())
+      .append("\"/>\n");
+    text.append("  <property name=\"saturn.synthetic.component\" value=\"")
+      .append(name)
+      .append("\"/>\n");
+    text.append("  <service><provide interface=\"java.lang.Runnable\"/></service>\n");
+
+    if (component_index == 0) {
+      for (final Integer dependency : dependencies) {
+        text.append("  <reference name=\"b")
+          .append(dependency)
+          .append("\" interface=\"java.lang.Runnable\" cardinality=\"1..1\" policy=\"static\"")
+          .append(" target=\"(saturn.synthetic.component=")
+          .append(componentName(parameters, dependency.intValue(), 0))
+          .append(")\"/>\n");
+      }
+    }
+
+    text.append("</scr:component>\n");
+    return text.toString();
+  }
+
+  private static void writeEntry(
+    final JarOutputStream output,
+    final String name,
+    final byte[] data)
+    throws IOException
+  {
+    final JarEntry entry = new JarEntry(name);
+    entry.setTime(ENTRY_TIME);
+    output.putNextEntry(entry);
+    output.write(data);
+    output.closeEntry();
+  }
+
+  private static String classEntry(
+    final Class<?> clazz)
+  {
+    return clazz.getName().replace('.', '/') + ".class";
+  }
+
+  private static byte[] classBytes(
+    final Class<?> clazz)
+  {
+    try (InputStream stream = clazz.getResourceAsStream("/" + classEntry(clazz))) {
+      return stream.readAllBytes();
+    } catch (final IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+}
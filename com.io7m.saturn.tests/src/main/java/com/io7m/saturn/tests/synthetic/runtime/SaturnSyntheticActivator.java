@@ -0,0 +1,67 @@
+/*
+ * Copyright © 2018 Mark Raynsford <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.saturn.tests.synthetic.runtime;
+
+import org.osgi.framework.BundleActivator;
+import org.osgi.framework.BundleContext;
+
+/**
+ * The activator of synthetic bundles. The activator busy-waits for the number of nanoseconds
+ * given in the {@link #COST_HEADER} header of its bundle, simulating the work done by a real
+ * activator.
+ */
+
+public final class SaturnSyntheticActivator implements BundleActivator
+{
+  /**
+   * The bundle header that specifies the cost of starting the bundle in nanoseconds.
+   */
+
+  public static final String COST_HEADER = "Saturn-Synthetic-Activator-Cost";
+
+  private volatile long spins;
+
+  /**
+   * Construct an activator.
+   */
+
+  public SaturnSyntheticActivator()
+  {
+
+  }
+
+  @Override
+  public void start(final BundleContext context)
+  {
+    final String cost = context.getBundle().getHeaders("").get(COST_HEADER);
+    if (cost == null) {
+      return;
+    }
+
+    final long deadline = System.nanoTime() + Long.parseLong(cost.trim());
+    while (System.nanoTime() < deadline) {
+      this.spins = this.spins + 1L;
+    }
+  }
+
+  @Override
+  public void stop(final BundleContext context)
+  {
+
+  }
+}
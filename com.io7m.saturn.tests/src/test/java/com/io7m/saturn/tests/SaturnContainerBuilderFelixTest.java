@@ -18,14 +18,31 @@ package com.io7m.saturn.tests;
 
 import com.io7m.saturn.container.api.SaturnContainerBuilderType;
 import com.io7m.saturn.container.api.SaturnContainerDescription;
+import com.io7m.saturn.container.api.SaturnContainerUnresolvedException;
+import com.io7m.saturn.container.builder.felix.SaturnContainerArchives;
 import com.io7m.saturn.container.builder.felix.SaturnContainerBuilderFelix;
+import com.io7m.saturn.container.builder.felix.SaturnContainerBundleStore;
+import com.io7m.saturn.container.builder.felix.SaturnContainerRuntimes;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.InetSocketAddress;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Properties;
+import java.util.jar.Attributes;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
 
 public final class SaturnContainerBuilderFelixTest
 {
@@ -54,4 +71,245 @@ public final class SaturnContainerBuilderFelixTest
       () -> Assertions.assertTrue(Files.isRegularFile(path.resolve("logback.xml")))
     );
   }
+
+  @Test
+  public void testRebuildIncremental()
+    throws IOException
+  {
+    final SaturnContainerBuilderType builder =
+      SaturnContainerBuilderFelix.createBuilder();
+
+    final Path path =
+      Files.createTempDirectory("saturn-container-felix-");
+
+    final SaturnContainerDescription description =
+      SaturnContainerDescription.builder()
+        .setPath(path)
+        .setRemoteShellAddress(InetSocketAddress.createUnresolved("127.0.0.1", 6000))
+        .build();
+
+    builder.createContainer(description);
+
+    final Path config = path.resolve("container.conf");
+    final Path logging = path.resolve("logback.xml");
+    final Object config_key = fileKey(config);
+    Files.write(logging, "changed".getBytes(UTF_8));
+
+    builder.createContainer(description);
+
+    Assertions.assertAll(
+      () -> Assertions.assertTrue(
+        Files.isRegularFile(path.resolve("saturn-container.properties")),
+        "Manifest exists"),
+      () -> Assertions.assertNotEquals(
+        "changed", Files.readString(logging, UTF_8),
+        "Modified file is restored"),
+      () -> Assertions.assertEquals(
+        config_key, fileKey(config),
+        "Unchanged file is not rewritten")
+    );
+
+    builder.createContainer(
+      SaturnContainerDescription.builder()
+        .from(description)
+        .setWarmBoot(true)
+        .build());
+
+    Assertions.assertNotEquals(
+      config_key, fileKey(config), "Changed file is rewritten");
+  }
+
+  @Test
+  public void testSharedBundleStore()
+    throws IOException
+  {
+    final SaturnContainerBundleStore store =
+      SaturnContainerBundleStore.open(Files.createTempDirectory("saturn-store-"));
+    final SaturnContainerBuilderType builder =
+      SaturnContainerBuilderFelix.createBuilderWithStore(store);
+
+    final Path path0 = Files.createTempDirectory("saturn-container-felix-");
+    final Path path1 = Files.createTempDirectory("saturn-container-felix-");
+
+    for (final Path path : List.of(path0, path1)) {
+      builder.createContainer(
+        SaturnContainerDescription.builder()
+          .setPath(path)
+          .setRemoteShellAddress(InetSocketAddress.createUnresolved("127.0.0.1", 6000))
+          .build());
+    }
+
+    final List<Path> jars;
+    try (Stream<Path> stream = Files.list(path0.resolve("system"))) {
+      jars = stream.map(Path::getFileName).collect(Collectors.toList());
+    }
+    Assertions.assertFalse(jars.isEmpty(), "System bundles exist");
+
+    for (final Path jar : jars) {
+      Assertions.assertEquals(
+        fileKey(path0.resolve("system").resolve(jar)),
+        fileKey(path1.resolve("system").resolve(jar)),
+        "Bundles are linked");
+    }
+
+    Assertions.assertEquals(0L, store.collectGarbage());
+
+    deleteRecursively(path0);
+    Assertions.assertEquals(0L, store.collectGarbage());
+
+    deleteRecursively(path1);
+    Assertions.assertTrue(store.collectGarbage() > 0L, "Unreferenced bundles are deleted");
+
+    try (Stream<Path> stream = Files.list(store.directory())) {
+      Assertions.assertEquals(0L, stream.count());
+    }
+  }
+
+  @Test
+  public void testResolutionPlanWritten()
+    throws IOException
+  {
+    final SaturnContainerBuilderType builder =
+      SaturnContainerBuilderFelix.createBuilder();
+
+    final Path path =
+      Files.createTempDirectory("saturn-container-felix-");
+
+    builder.createContainer(
+      SaturnContainerDescription.builder()
+        .setPath(path)
+        .setRemoteShellAddress(InetSocketAddress.createUnresolved("127.0.0.1", 6000))
+        .build());
+
+    final Properties plan = new Properties();
+    try (InputStream stream = Files.newInputStream(path.resolve("resolution.properties"))) {
+      plan.load(stream);
+    }
+
+    final long system_count;
+    try (Stream<Path> stream = Files.list(path.resolve("system"))) {
+      system_count = stream.count();
+    }
+    Assertions.assertEquals(system_count, Long.parseLong(plan.getProperty("bundles")));
+  }
+
+  @Test
+  public void testUnresolvedBundlesReported()
+    throws IOException
+  {
+    final SaturnContainerBuilderType builder =
+      SaturnContainerBuilderFelix.createBuilder();
+
+    final Path path =
+      Files.createTempDirectory("saturn-container-felix-");
+
+    final Manifest manifest = new Manifest();
+    final Attributes attributes = manifest.getMainAttributes();
+    attributes.put(Attributes.Name.MANIFEST_VERSION, "1.0");
+    attributes.putValue("Bundle-ManifestVersion", "2");
+    attributes.putValue("Bundle-SymbolicName", "com.io7m.saturn.tests.unresolvable");
+    attributes.putValue("Import-Package", "com.io7m.saturn.tests.nonexistent");
+
+    final Path unresolvable = path.resolve("unresolvable.jar");
+    try (JarOutputStream output = new JarOutputStream(Files.newOutputStream(unresolvable), manifest)) {
+      output.flush();
+    }
+
+    final SaturnContainerUnresolvedException ex =
+      Assertions.assertThrows(SaturnContainerUnresolvedException.class, () -> {
+        builder.createContainer(
+          SaturnContainerDescription.builder()
+            .setPath(path)
+            .setRemoteShellAddress(InetSocketAddress.createUnresolved("127.0.0.1", 6000))
+            .addBundles(unresolvable)
+            .addBundles(path.resolve("nonexistent-0.jar"))
+            .build());
+      });
+
+    Assertions.assertEquals(2, ex.diagnoses().size());
+    Assertions.assertTrue(
+      ex.getMessage().contains("com.io7m.saturn.tests.nonexistent"),
+      "Missing package is reported");
+    Assertions.assertFalse(
+      Files.exists(path.resolve("resolution.properties")), "No plan is written");
+  }
+
+  @Test
+  public void testCreateArchive()
+    throws IOException
+  {
+    final SaturnContainerBuilderType builder =
+      SaturnContainerBuilderFelix.createBuilder();
+
+    final Path path =
+      Files.createTempDirectory("saturn-container-felix-");
+
+    builder.createContainer(
+      SaturnContainerDescription.builder()
+        .setPath(path)
+        .setRemoteShellAddress(InetSocketAddress.createUnresolved("127.0.0.1", 6000))
+        .build());
+
+    Assertions.assertTrue(
+      Files.isExecutable(path.resolve("launch.sh")), "Launch script is executable");
+
+    final Path archive =
+      SaturnContainerArchives.createArchive(path, Duration.ofMinutes(2L));
+
+    Assertions.assertTrue(Files.isRegularFile(archive), "Archive exists");
+    Assertions.assertTrue(Files.size(archive) > 0L, "Archive is not empty");
+  }
+
+  @Test
+  public void testCreateRuntime()
+    throws IOException
+  {
+    final SaturnContainerBuilderType builder =
+      SaturnContainerBuilderFelix.createBuilder();
+
+    final Path path =
+      Files.createTempDirectory("saturn-container-felix-");
+
+    builder.createContainer(
+      SaturnContainerDescription.builder()
+        .setPath(path)
+        .setRemoteShellAddress(InetSocketAddress.createUnresolved("127.0.0.1", 6000))
+        .build());
+
+    final Path runtime =
+      SaturnContainerRuntimes.createRuntime(path, List.of(), List.of());
+
+    Assertions.assertAll(
+      () -> Assertions.assertTrue(
+        Files.isExecutable(runtime.resolve("bin").resolve("java")), "Runtime has java"),
+      () -> Assertions.assertTrue(
+        Files.readString(runtime.resolve("release"), UTF_8).contains("jdk.unsupported"),
+        "Runtime has required modules")
+    );
+
+    final Object release_key = fileKey(runtime.resolve("release"));
+    SaturnContainerRuntimes.createRuntime(path, List.of(), List.of());
+    Assertions.assertEquals(
+      release_key, fileKey(runtime.resolve("release")), "Unchanged runtime is not recreated");
+  }
+
+  private static void deleteRecursively(
+    final Path path)
+    throws IOException
+  {
+    try (Stream<Path> stream = Files.walk(path)) {
+      final List<Path> paths =
+        stream.sorted(Comparator.reverseOrder()).collect(Collectors.toList());
+      for (final Path p : paths) {
+        Files.delete(p);
+      }
+    }
+  }
+
+  private static Object fileKey(
+    final Path path)
+    throws IOException
+  {
+    return Files.readAttributes(path, BasicFileAttributes.class).fileKey();
+  }
 }
@@ -18,6 +18,7 @@ package com.io7m.saturn.tests;
 
 import com.io7m.saturn.container.api.SaturnContainerDescription;
 import com.io7m.saturn.container.api.SaturnContainerDescriptions;
+import com.io7m.saturn.container.api.SaturnLogBridgeOverflow;
 import nl.jqno.equalsverifier.EqualsVerifier;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
@@ -27,6 +28,7 @@ import java.net.InetSocketAddress;
 import java.nio.file.FileSystem;
 import java.nio.file.FileSystems;
 import java.nio.file.Paths;
+import java.time.Duration;
 import java.util.Properties;
 
 public final class SaturnContainerDescriptionTest
@@ -35,7 +37,15 @@ public final class SaturnContainerDescriptionTest
   public void testEquals()
   {
     EqualsVerifier.forClass(SaturnContainerDescription.class)
-      .withNonnullFields("bundles", "path", "remoteShellAddress")
+      .withNonnullFields(
+        "bundles",
+        "path",
+        "remoteShellAddress",
+        "logBridgeOverflow",
+        "logBridgeDeduplicationWindow",
+        "bootDelegation",
+        "bundleStartLevels",
+        "lazyBundles")
       .verify();
   }
 
@@ -49,7 +59,30 @@ public final class SaturnContainerDescriptionTest
         .addBundles(Paths.get("/a/b/d"))
         .addBundles(Paths.get("/a/b/e"))
         .setPath(Paths.get("/x/y/z"))
+        .setCacheDirectory(Paths.get("/x/y/cache"))
+        .setStartupReportFile(Paths.get("/x/y/startup.json"))
         .setRemoteShellAddress(InetSocketAddress.createUnresolved("127.0.0.1", 6000))
+        .setBundleInstallThreads(4)
+        .setBundleStartThreads(3)
+        .setWarmBoot(true)
+        .setLogBridgeAsynchronous(true)
+        .setLogBridgeQueueCapacity(128)
+        .setLogBridgeOverflow(SaturnLogBridgeOverflow.DROP_NEWEST)
+        .setLogBridgeRateLimit(50)
+        .setLogBridgeRateBurst(200)
+        .setLogBridgeDeduplicationWindow(Duration.ofSeconds(30L))
+        .setResolverParallelism(2)
+        .addBootDelegation("sun.*")
+        .addBootDelegation("com.sun.management")
+        .setCacheBufferSize(65536)
+        .setCacheLocking(false)
+        .setFrameworkStartLevel(100)
+        .setSystemBundleStartLevel(5)
+        .setApplicationBundleStartLevel(50)
+        .setCriticalStartLevel(40)
+        .setLazyActivation(true)
+        .addLazyBundles(Paths.get("/a/b/e"))
+        .putBundleStartLevels(Paths.get("/a/b/d"), Integer.valueOf(40))
         .build();
 
     final Properties properties =
@@ -126,4 +159,103 @@ public final class SaturnContainerDescriptionTest
       SaturnContainerDescriptions.parse(FileSystems.getDefault(), properties);
     });
   }
+
+  @Test
+  public void testPropertiesBadInstallThreads()
+  {
+    final SaturnContainerDescription description_input =
+      SaturnContainerDescription.builder()
+        .setPath(Paths.get("/x/y/z"))
+        .setRemoteShellAddress(InetSocketAddress.createUnresolved("127.0.0.1", 6000))
+        .build();
+
+    final Properties properties =
+      SaturnContainerDescriptions.serialize(description_input);
+
+    properties.setProperty("saturn.bundle_install_threads", "0");
+    properties.remove("saturn.path");
+
+    final IOException ex = Assertions.assertThrows(IOException.class, () -> {
+      SaturnContainerDescriptions.parse(FileSystems.getDefault(), properties);
+    });
+    Assertions.assertEquals(1, ex.getSuppressed().length);
+  }
+
+  @Test
+  public void testPropertiesBadLogBridge()
+  {
+    final SaturnContainerDescription description_input =
+      SaturnContainerDescription.builder()
+        .setPath(Paths.get("/x/y/z"))
+        .setRemoteShellAddress(InetSocketAddress.createUnresolved("127.0.0.1", 6000))
+        .build();
+
+    final Properties properties =
+      SaturnContainerDescriptions.serialize(description_input);
+
+    properties.setProperty("saturn.log_bridge_asynchronous", "maybe");
+    properties.setProperty("saturn.log_bridge_queue_capacity", "0");
+    properties.setProperty("saturn.log_bridge_overflow", "DROP_EVERYTHING");
+
+    final IOException ex = Assertions.assertThrows(IOException.class, () -> {
+      SaturnContainerDescriptions.parse(FileSystems.getDefault(), properties);
+    });
+    Assertions.assertEquals(2, ex.getSuppressed().length);
+  }
+
+  @Test
+  public void testPropertiesBadFramework()
+  {
+    final SaturnContainerDescription description_input =
+      SaturnContainerDescription.builder()
+        .setPath(Paths.get("/x/y/z"))
+        .setRemoteShellAddress(InetSocketAddress.createUnresolved("127.0.0.1", 6000))
+        .build();
+
+    final Properties properties =
+      SaturnContainerDescriptions.serialize(description_input);
+
+    properties.setProperty("saturn.resolver_parallelism", "-1");
+    properties.setProperty("saturn.cache_buffer_size", "0");
+    properties.setProperty("saturn.cache_locking", "maybe");
+
+    final IOException ex = Assertions.assertThrows(IOException.class, () -> {
+      SaturnContainerDescriptions.parse(FileSystems.getDefault(), properties);
+    });
+    Assertions.assertEquals(2, ex.getSuppressed().length);
+  }
+
+  @Test
+  public void testPropertiesBadStartLevels()
+  {
+    final SaturnContainerDescription description_input =
+      SaturnContainerDescription.builder()
+        .setPath(Paths.get("/x/y/z"))
+        .setRemoteShellAddress(InetSocketAddress.createUnresolved("127.0.0.1", 6000))
+        .addBundles(Paths.get("/a/b/c"))
+        .build();
+
+    final Properties properties =
+      SaturnContainerDescriptions.serialize(description_input);
+
+    properties.setProperty("saturn.framework_start_level", "30");
+    properties.setProperty("saturn.bundle_start_level.0", "20");
+    properties.setProperty("saturn.critical_start_level", "40");
+
+    Assertions.assertThrows(IOException.class, () -> {
+      SaturnContainerDescriptions.parse(FileSystems.getDefault(), properties);
+    });
+  }
+
+  @Test
+  public void testBadBootDelegation()
+  {
+    Assertions.assertThrows(IllegalArgumentException.class, () -> {
+      SaturnContainerDescription.builder()
+        .setPath(Paths.get("/x/y/z"))
+        .setRemoteShellAddress(InetSocketAddress.createUnresolved("127.0.0.1", 6000))
+        .addBootDelegation("sun.*.misc")
+        .build();
+    });
+  }
 }
@@ -18,18 +18,50 @@ package com.io7m.saturn.tests;
 
 import com.io7m.saturn.container.api.SaturnContainerBuilderType;
 import com.io7m.saturn.container.api.SaturnContainerDescription;
+import com.io7m.saturn.container.api.SaturnContainerInstance;
 import com.io7m.saturn.container.api.SaturnContainerLauncherType;
+import com.io7m.saturn.container.api.SaturnLogBridgeOverflow;
+import com.io7m.saturn.container.api.SaturnStartupBundle;
+import com.io7m.saturn.container.api.SaturnStartupPhase;
+import com.io7m.saturn.container.api.SaturnStartupReport;
+import com.io7m.saturn.container.api.SaturnStartupReports;
 import com.io7m.saturn.container.builder.felix.SaturnContainerBuilderFelix;
 import com.io7m.saturn.container.launcher.felix.SaturnContainerLauncherFelix;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 import org.osgi.framework.Bundle;
+import org.osgi.framework.BundleContext;
+import org.osgi.framework.BundleException;
+import org.osgi.framework.Constants;
+import org.osgi.framework.ServiceReference;
 import org.osgi.framework.launch.Framework;
+import org.osgi.framework.startlevel.BundleStartLevel;
+import org.osgi.framework.startlevel.FrameworkStartLevel;
+import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Method;
 import java.net.InetSocketAddress;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.jar.Attributes;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 public final class SaturnContainerLauncherFelixTest
 {
@@ -51,8 +83,11 @@ public final class SaturnContainerLauncherFelixTest
 
       builder.createContainer(description);
 
-      final Framework framework = launcher.launch(description);
-      Thread.sleep(2_000L);
+      final Framework framework =
+        launcher.launchAsync(description, Duration.ofSeconds(10L))
+          .toCompletableFuture()
+          .get()
+          .framework();
 
       final Bundle[] bundles = framework.getBundleContext().getBundles();
       Assertions.assertTrue(bundles.length >= 2, "Bundles are present");
@@ -65,4 +100,774 @@ public final class SaturnContainerLauncherFelixTest
       framework.waitForStop(1_000L);
     });
   }
+
+  @Test
+  public void testCreateEmptyConcurrent()
+  {
+    Assertions.assertTimeout(Duration.ofSeconds(15L), () -> {
+      final SaturnContainerBuilderType builder = SaturnContainerBuilderFelix.createBuilder();
+      final SaturnContainerLauncherType launcher = SaturnContainerLauncherFelix.createLauncher();
+
+      final Path path =
+        Files.createTempDirectory("saturn-container-felix-");
+
+      final SaturnContainerDescription description =
+        SaturnContainerDescription.builder()
+          .setPath(path)
+          .setRemoteShellAddress(InetSocketAddress.createUnresolved("127.0.0.1", 6002))
+          .setBundleInstallThreads(4)
+          .setBundleStartThreads(4)
+          .build();
+
+      builder.createContainer(description);
+
+      final Framework framework =
+        launcher.launchAsync(description, Duration.ofSeconds(10L))
+          .toCompletableFuture()
+          .get()
+          .framework();
+
+      final Bundle[] bundles = framework.getBundleContext().getBundles();
+      Assertions.assertTrue(bundles.length >= 2, "Bundles are present");
+
+      for (final Bundle bundle : bundles) {
+        Assertions.assertEquals(Bundle.ACTIVE, bundle.getState());
+      }
+
+      framework.stop();
+      framework.waitForStop(1_000L);
+    });
+  }
+
+  @Test
+  public void testCreateEmptyAsynchronousLogBridge()
+  {
+    Assertions.assertTimeout(Duration.ofSeconds(15L), () -> {
+      final SaturnContainerBuilderType builder = SaturnContainerBuilderFelix.createBuilder();
+      final SaturnContainerLauncherType launcher = SaturnContainerLauncherFelix.createLauncher();
+
+      final Path path =
+        Files.createTempDirectory("saturn-container-felix-");
+
+      final SaturnContainerDescription description =
+        SaturnContainerDescription.builder()
+          .setPath(path)
+          .setRemoteShellAddress(InetSocketAddress.createUnresolved("127.0.0.1", 6005))
+          .setLogBridgeAsynchronous(true)
+          .setLogBridgeQueueCapacity(16)
+          .setLogBridgeOverflow(SaturnLogBridgeOverflow.DROP_OLDEST)
+          .build();
+
+      builder.createContainer(description);
+
+      final Framework framework =
+        launcher.launchAsync(description, Duration.ofSeconds(10L))
+          .toCompletableFuture()
+          .get()
+          .framework();
+
+      final Bundle[] bundles = framework.getBundleContext().getBundles();
+      Assertions.assertTrue(bundles.length >= 2, "Bundles are present");
+
+      for (final Bundle bundle : bundles) {
+        Assertions.assertEquals(Bundle.ACTIVE, bundle.getState());
+      }
+
+      framework.stop();
+      framework.waitForStop(1_000L);
+    });
+  }
+
+  @Test
+  public void testFrameworkTuning()
+  {
+    Assertions.assertTimeout(Duration.ofSeconds(15L), () -> {
+      final SaturnContainerBuilderType builder = SaturnContainerBuilderFelix.createBuilder();
+      final SaturnContainerLauncherType launcher = SaturnContainerLauncherFelix.createLauncher();
+
+      final Path path =
+        Files.createTempDirectory("saturn-container-felix-");
+
+      final SaturnContainerDescription description =
+        SaturnContainerDescription.builder()
+          .setPath(path)
+          .setRemoteShellAddress(InetSocketAddress.createUnresolved("127.0.0.1", 6006))
+          .setResolverParallelism(2)
+          .addBootDelegation("sun.*")
+          .setCacheBufferSize(65536)
+          .setCacheLocking(false)
+          .setFrameworkStartLevel(50)
+          .setSystemBundleStartLevel(5)
+          .build();
+
+      builder.createContainer(description);
+
+      final Framework framework =
+        launcher.launchAsync(description, Duration.ofSeconds(10L))
+          .toCompletableFuture()
+          .get()
+          .framework();
+
+      Assertions.assertEquals(
+        50, framework.adapt(FrameworkStartLevel.class).getStartLevel());
+      Assertions.assertEquals("sun.*,jdk.jfr.internal.*", framework.getBundleContext().getProperty(
+        Constants.FRAMEWORK_BOOTDELEGATION));
+
+      for (final Bundle bundle : framework.getBundleContext().getBundles()) {
+        Assertions.assertEquals(Bundle.ACTIVE, bundle.getState());
+        if (bundle.getBundleId() != 0L) {
+          Assertions.assertEquals(5, bundle.adapt(BundleStartLevel.class).getStartLevel());
+        }
+      }
+
+      framework.stop();
+      framework.waitForStop(1_000L);
+    });
+  }
+
+  @Test
+  public void testStagedBoot()
+  {
+    Assertions.assertTimeout(Duration.ofSeconds(15L), () -> {
+      final SaturnContainerBuilderType builder = SaturnContainerBuilderFelix.createBuilder();
+      final SaturnContainerLauncherType launcher = SaturnContainerLauncherFelix.createLauncher();
+
+      final Path path =
+        Files.createTempDirectory("saturn-container-felix-");
+
+      final SaturnContainerDescription description =
+        SaturnContainerDescription.builder()
+          .setPath(path)
+          .setRemoteShellAddress(InetSocketAddress.createUnresolved("127.0.0.1", 6007))
+          .setFrameworkStartLevel(50)
+          .setSystemBundleStartLevel(30)
+          .setCriticalStartLevel(20)
+          .build();
+
+      builder.createContainer(description);
+
+      final Framework framework =
+        launcher.launchAsync(description, Duration.ofSeconds(10L))
+          .toCompletableFuture()
+          .get()
+          .framework();
+
+      final FrameworkStartLevel level = framework.adapt(FrameworkStartLevel.class);
+      Assertions.assertTrue(level.getStartLevel() >= 20, "Critical level reached");
+
+      while (level.getStartLevel() < 50) {
+        Thread.sleep(10L);
+      }
+
+      for (final Bundle bundle : framework.getBundleContext().getBundles()) {
+        Assertions.assertEquals(Bundle.ACTIVE, bundle.getState());
+      }
+
+      framework.stop();
+      framework.waitForStop(1_000L);
+    });
+  }
+
+  @Test
+  public void testLazyActivation()
+  {
+    Assertions.assertTimeout(Duration.ofSeconds(15L), () -> {
+      final SaturnContainerBuilderType builder = SaturnContainerBuilderFelix.createBuilder();
+      final SaturnContainerLauncherType launcher = SaturnContainerLauncherFelix.createLauncher();
+
+      final Path path =
+        Files.createTempDirectory("saturn-container-felix-");
+      final Path lazy_jar = writeLazyBundle(path.resolve("lazy.jar"));
+
+      final SaturnContainerDescription description =
+        SaturnContainerDescription.builder()
+          .setPath(path)
+          .setRemoteShellAddress(InetSocketAddress.createUnresolved("127.0.0.1", 6008))
+          .addBundles(lazy_jar)
+          .addLazyBundles(lazy_jar)
+          .build();
+
+      builder.createContainer(description);
+
+      final Framework framework =
+        launcher.launchAsync(description, Duration.ofSeconds(10L))
+          .toCompletableFuture()
+          .get()
+          .framework();
+
+      final Bundle lazy =
+        Stream.of(framework.getBundleContext().getBundles())
+          .filter(bundle -> "com.io7m.saturn.tests.lazy".equals(bundle.getSymbolicName()))
+          .findFirst()
+          .orElseThrow();
+
+      Assertions.assertEquals(Bundle.STARTING, lazy.getState());
+      lazy.loadClass(SaturnContainerLauncherFelixTest.class.getName());
+      Assertions.assertEquals(Bundle.ACTIVE, lazy.getState());
+
+      framework.stop();
+      framework.waitForStop(1_000L);
+    });
+  }
+
+  /**
+   * Write a bundle that declares a lazy activation policy and contains a single class.
+   */
+
+  private static Path writeLazyBundle(
+    final Path file)
+    throws IOException
+  {
+    final Manifest manifest = new Manifest();
+    final Attributes attributes = manifest.getMainAttributes();
+    attributes.put(Attributes.Name.MANIFEST_VERSION, "1.0");
+    attributes.putValue(Constants.BUNDLE_MANIFESTVERSION, "2");
+    attributes.putValue(Constants.BUNDLE_SYMBOLICNAME, "com.io7m.saturn.tests.lazy");
+    attributes.putValue(Constants.BUNDLE_VERSION, "1.0.0");
+    attributes.putValue(Constants.BUNDLE_ACTIVATIONPOLICY, Constants.ACTIVATION_LAZY);
+
+    final String name =
+      SaturnContainerLauncherFelixTest.class.getName().replace('.', '/') + ".class";
+
+    try (JarOutputStream output = new JarOutputStream(Files.newOutputStream(file), manifest)) {
+      output.putNextEntry(new JarEntry(name));
+      try (InputStream input =
+             SaturnContainerLauncherFelixTest.class.getResourceAsStream("/" + name)) {
+        input.transferTo(output);
+      }
+      output.closeEntry();
+    }
+    return file;
+  }
+
+  /**
+   * Write an empty bundle with the given symbolic name and extra manifest headers.
+   */
+
+  private static Path writeBundle(
+    final Path file,
+    final String name,
+    final Map<String, String> headers)
+    throws IOException
+  {
+    final Manifest manifest = new Manifest();
+    final Attributes attributes = manifest.getMainAttributes();
+    attributes.put(Attributes.Name.MANIFEST_VERSION, "1.0");
+    attributes.putValue(Constants.BUNDLE_MANIFESTVERSION, "2");
+    attributes.putValue(Constants.BUNDLE_SYMBOLICNAME, name);
+    attributes.putValue(Constants.BUNDLE_VERSION, "1.0.0");
+    headers.forEach(attributes::putValue);
+
+    try (JarOutputStream output = new JarOutputStream(Files.newOutputStream(file), manifest)) {
+      output.flush();
+    }
+    return file;
+  }
+
+  /**
+   * Fragments are never started, and so are not part of the start order recorded in the
+   * resolution plan, but the plan must still cover them so that it is not considered stale.
+   */
+
+  @Test
+  public void testResolutionPlanWithFragment()
+  {
+    Assertions.assertTimeout(Duration.ofSeconds(30L), () -> {
+      final SaturnContainerBuilderType builder = SaturnContainerBuilderFelix.createBuilder();
+      final SaturnContainerLauncherType launcher =
+        SaturnContainerLauncherFelix.createLauncher();
+
+      final Path path =
+        Files.createTempDirectory("saturn-container-felix-");
+      final Path bundles =
+        Files.createTempDirectory("saturn-container-felix-bundles-");
+
+      final Path host =
+        writeBundle(bundles.resolve("host.jar"), "com.io7m.saturn.tests.host", Map.of());
+      final Path fragment =
+        writeBundle(
+          bundles.resolve("fragment.jar"),
+          "com.io7m.saturn.tests.fragment",
+          Map.of(Constants.FRAGMENT_HOST, "com.io7m.saturn.tests.host"));
+
+      final SaturnContainerDescription description =
+        SaturnContainerDescription.builder()
+          .setPath(path)
+          .setRemoteShellAddress(InetSocketAddress.createUnresolved("127.0.0.1", 6016))
+          .addBundles(host)
+          .addBundles(fragment)
+          .build();
+
+      builder.createContainer(description);
+
+      for (int boot = 0; boot < 2; ++boot) {
+        final SaturnContainerInstance instance = launcher.launchInstance(description);
+        final Framework framework = instance.framework();
+        try {
+          Assertions.assertTrue(
+            instance.startupReport().resolutionPlanUsed(),
+            "Resolution plan used on boot " + boot);
+
+          final Bundle attached =
+            Stream.of(framework.getBundleContext().getBundles())
+              .filter(b -> "com.io7m.saturn.tests.fragment".equals(b.getSymbolicName()))
+              .findFirst()
+              .orElseThrow();
+          Assertions.assertEquals(Bundle.RESOLVED, attached.getState());
+        } finally {
+          framework.stop();
+          framework.waitForStop(1_000L);
+        }
+      }
+    });
+  }
+
+  @Test
+  public void testLaunchTimeout()
+    throws Exception
+  {
+    final SaturnContainerBuilderType builder = SaturnContainerBuilderFelix.createBuilder();
+    final SaturnContainerLauncherType launcher = SaturnContainerLauncherFelix.createLauncher();
+
+    final Path path =
+      Files.createTempDirectory("saturn-container-felix-");
+
+    final SaturnContainerDescription description =
+      SaturnContainerDescription.builder()
+        .setPath(path)
+        .setRemoteShellAddress(InetSocketAddress.createUnresolved("127.0.0.1", 6010))
+        .build();
+
+    builder.createContainer(description);
+
+    final ExecutionException e =
+      Assertions.assertThrows(ExecutionException.class, () -> {
+        launcher.launchAsync(description, Duration.ofNanos(1L))
+          .toCompletableFuture()
+          .get(15L, TimeUnit.SECONDS);
+      });
+
+    Assertions.assertTrue(
+      e.getCause() instanceof TimeoutException, "Launch timed out");
+  }
+
+  @Test
+  public void testStartupReport()
+  {
+    Assertions.assertTimeout(Duration.ofSeconds(15L), () -> {
+      final SaturnContainerBuilderType builder = SaturnContainerBuilderFelix.createBuilder();
+      final SaturnContainerLauncherType launcher = SaturnContainerLauncherFelix.createLauncher();
+
+      final Path path =
+        Files.createTempDirectory("saturn-container-felix-");
+
+      final SaturnContainerDescription description =
+        SaturnContainerDescription.builder()
+          .setPath(path)
+          .setRemoteShellAddress(InetSocketAddress.createUnresolved("127.0.0.1", 6004))
+          .build();
+
+      builder.createContainer(description);
+
+      final SaturnContainerInstance instance = launcher.launchInstance(description);
+      final SaturnStartupReport report = instance.startupReport();
+
+      Assertions.assertTrue(
+        Files.isRegularFile(path.resolve("startup.json")), "Report file exists");
+      Assertions.assertEquals(
+        report,
+        SaturnStartupReports.parseJSON(Files.readString(path.resolve("startup.json"))),
+        "Report file round trips");
+
+      final List<String> phases =
+        report.phases()
+          .stream()
+          .map(SaturnStartupPhase::name)
+          .collect(Collectors.toList());
+
+      Assertions.assertTrue(phases.contains("framework-init"), "framework-init timed");
+      Assertions.assertTrue(phases.contains("framework-start"), "framework-start timed");
+      Assertions.assertTrue(phases.contains("system-install"), "system-install timed");
+      Assertions.assertTrue(phases.contains("system-start"), "system-start timed");
+
+      final long system_count;
+      try (Stream<Path> stream = Files.list(path.resolve("system"))) {
+        system_count = stream.count();
+      }
+      Assertions.assertEquals(system_count, (long) report.bundles().size());
+
+      for (final SaturnStartupBundle bundle : report.bundles()) {
+        Assertions.assertEquals("system", bundle.group());
+        Assertions.assertFalse(bundle.installWallTime().isNegative());
+      }
+
+      final Framework framework = instance.framework();
+      framework.stop();
+      framework.waitForStop(1_000L);
+    });
+  }
+
+  @Test
+  public void testCacheAndReportLocations()
+  {
+    Assertions.assertTimeout(Duration.ofSeconds(15L), () -> {
+      final SaturnContainerBuilderType builder = SaturnContainerBuilderFelix.createBuilder();
+      final SaturnContainerLauncherType launcher = SaturnContainerLauncherFelix.createLauncher();
+
+      final Path path =
+        Files.createTempDirectory("saturn-container-felix-");
+      final Path elsewhere =
+        Files.createTempDirectory("saturn-container-felix-elsewhere-");
+
+      final SaturnContainerDescription description =
+        SaturnContainerDescription.builder()
+          .setPath(path)
+          .setRemoteShellAddress(InetSocketAddress.createUnresolved("127.0.0.1", 6011))
+          .setCacheDirectory(elsewhere.resolve("cache"))
+          .setStartupReportFile(elsewhere.resolve("report.json"))
+          .build();
+
+      builder.createContainer(description);
+
+      final SaturnContainerInstance instance = launcher.launchInstance(description);
+      Assertions.assertTrue(
+        Files.isRegularFile(elsewhere.resolve("report.json")), "Report file exists");
+      Assertions.assertFalse(
+        Files.exists(path.resolve("startup.json")), "Default report file does not exist");
+
+      try (Stream<Path> stream = Files.list(elsewhere.resolve("cache"))) {
+        Assertions.assertTrue(stream.findAny().isPresent(), "Cache is used");
+      }
+
+      final Framework framework = instance.framework();
+      framework.stop();
+      framework.waitForStop(1_000L);
+    });
+  }
+
+  @Test
+  public void testFlightRecorderEvents()
+  {
+    Assertions.assertTimeout(Duration.ofSeconds(15L), () -> {
+      final SaturnContainerBuilderType builder = SaturnContainerBuilderFelix.createBuilder();
+      final SaturnContainerLauncherType launcher = SaturnContainerLauncherFelix.createLauncher();
+
+      final Path path =
+        Files.createTempDirectory("saturn-container-felix-");
+
+      final SaturnContainerDescription description =
+        SaturnContainerDescription.builder()
+          .setPath(path)
+          .setRemoteShellAddress(InetSocketAddress.createUnresolved("127.0.0.1", 6012))
+          .build();
+
+      builder.createContainer(description);
+
+      try (Recording recording = new Recording()) {
+        recording.enable("com.io7m.saturn.FrameworkStart");
+        recording.enable("com.io7m.saturn.FrameworkStop");
+        recording.enable("com.io7m.saturn.BundleInstall");
+        recording.enable("com.io7m.saturn.BundleStart");
+        recording.enable("com.io7m.saturn.LogThroughput").withPeriod(Duration.ofMillis(100L));
+        recording.start();
+
+        final Framework framework = launcher.launchInstance(description).framework();
+        final Bundle[] bundles = framework.getBundleContext().getBundles();
+
+        /*
+         * The throughput event is only emitted whilst the log service bundle is running, and
+         * the framework stop event is committed by a separate thread once the framework has
+         * stopped, so wait for each in turn.
+         */
+
+        awaitEvent(recording, "com.io7m.saturn.LogThroughput");
+        framework.stop();
+        framework.waitForStop(1_000L);
+
+        final List<RecordedEvent> events =
+          awaitEvent(recording, "com.io7m.saturn.FrameworkStop");
+
+        final List<RecordedEvent> starts = eventsNamed(events, "com.io7m.saturn.FrameworkStart");
+        Assertions.assertEquals(1, starts.size());
+        Assertions.assertEquals(path.toString(), starts.get(0).getString("path"));
+        Assertions.assertFalse(starts.get(0).getBoolean("warmBoot"), "Cold boot");
+
+        final List<RecordedEvent> stops = eventsNamed(events, "com.io7m.saturn.FrameworkStop");
+        Assertions.assertEquals(1, stops.size());
+        Assertions.assertEquals(path.toString(), stops.get(0).getString("path"));
+
+        final List<RecordedEvent> installs = eventsNamed(events, "com.io7m.saturn.BundleInstall");
+        Assertions.assertEquals(bundles.length - 1, installs.size());
+        for (final RecordedEvent install : installs) {
+          Assertions.assertTrue(install.getBoolean("succeeded"), "Install succeeded");
+          Assertions.assertTrue(install.getLong("bundleId") > 0L, "Bundle ID is assigned");
+          Assertions.assertNotNull(install.getString("group"));
+          Assertions.assertNotNull(install.getString("location"));
+          Assertions.assertNotNull(install.getString("symbolicName"));
+        }
+
+        final List<String> started =
+          eventsNamed(events, "com.io7m.saturn.BundleStart")
+            .stream()
+            .map(event -> event.getString("symbolicName"))
+            .collect(Collectors.toList());
+
+        for (final Bundle bundle : bundles) {
+          if (bundle.getBundleId() != 0L) {
+            Assertions.assertTrue(
+              started.contains(bundle.getSymbolicName()),
+              "Start recorded for " + bundle.getSymbolicName());
+          }
+        }
+
+        final List<RecordedEvent> throughput =
+          eventsNamed(events, "com.io7m.saturn.LogThroughput");
+        Assertions.assertFalse(throughput.isEmpty(), "Throughput recorded");
+        for (final RecordedEvent event : throughput) {
+          for (final String field : List.of(
+            "entries",
+            "errors",
+            "warnings",
+            "exceptions",
+            "suppressed",
+            "enqueued",
+            "dropped",
+            "maxQueueDepth")) {
+            Assertions.assertTrue(event.getLong(field) >= 0L, field + " is non-negative");
+          }
+        }
+      }
+    });
+  }
+
+  @Test
+  public void testLogLevelSynchronization()
+  {
+    final String period = "com.io7m.saturn.logservice.level_sync_period_ms";
+    final ch.qos.logback.classic.Logger osgi =
+      (ch.qos.logback.classic.Logger) LoggerFactory.getLogger("osgi");
+    final ch.qos.logback.classic.Logger scr =
+      (ch.qos.logback.classic.Logger) LoggerFactory.getLogger("osgi.org.apache.felix.scr");
+
+    /*
+     * Felix falls back to the system properties for framework properties that it has not
+     * been given.
+     */
+
+    System.setProperty(period, "100");
+    try {
+      Assertions.assertTimeout(Duration.ofSeconds(15L), () -> {
+        final SaturnContainerBuilderType builder = SaturnContainerBuilderFelix.createBuilder();
+        final SaturnContainerLauncherType launcher =
+          SaturnContainerLauncherFelix.createLauncher();
+
+        final Path path =
+          Files.createTempDirectory("saturn-container-felix-");
+
+        final SaturnContainerDescription description =
+          SaturnContainerDescription.builder()
+            .setPath(path)
+            .setRemoteShellAddress(InetSocketAddress.createUnresolved("127.0.0.1", 6015))
+            .build();
+
+        builder.createContainer(description);
+
+        osgi.setLevel(ch.qos.logback.classic.Level.INFO);
+        scr.setLevel(ch.qos.logback.classic.Level.WARN);
+
+        final Framework framework = launcher.launchInstance(description).framework();
+        awaitRootLevel(framework, null, "INFO");
+        awaitRootLevel(framework, "org.apache.felix.scr", "WARN");
+
+        /*
+         * Changing a level after startup is picked up by the periodic resynchronization.
+         */
+
+        scr.setLevel(ch.qos.logback.classic.Level.ERROR);
+        awaitRootLevel(framework, "org.apache.felix.scr", "ERROR");
+        osgi.setLevel(ch.qos.logback.classic.Level.DEBUG);
+        awaitRootLevel(framework, null, "DEBUG");
+
+        /*
+         * Restarting the bundle that provides the logger admin replaces the logger admin, and
+         * every level must be applied again to the new one.
+         */
+
+        final Bundle admin_provider =
+          framework.getBundleContext()
+            .getServiceReference("org.osgi.service.log.admin.LoggerAdmin")
+            .getBundle();
+        admin_provider.stop();
+        admin_provider.start();
+        awaitRootLevel(framework, "org.apache.felix.scr", "ERROR");
+        awaitRootLevel(framework, null, "DEBUG");
+
+        framework.stop();
+        framework.waitForStop(1_000L);
+      });
+    } finally {
+      System.clearProperty(period);
+      osgi.setLevel(null);
+      scr.setLevel(null);
+    }
+  }
+
+  /**
+   * Wait until the root level of the given logger context of the container's logger admin has
+   * the given value. The logger admin is accessed reflectively, as the container's log service
+   * API classes are not those on the test class path.
+   */
+
+  private static void awaitRootLevel(
+    final Framework framework,
+    final String name,
+    final String expected)
+    throws Exception
+  {
+    final BundleContext context = framework.getBundleContext();
+    final ServiceReference<?> reference =
+      context.getServiceReference("org.osgi.service.log.admin.LoggerAdmin");
+    Assertions.assertNotNull(reference, "Logger admin is registered");
+
+    final Bundle provider = reference.getBundle();
+    final Method get_context =
+      provider.loadClass("org.osgi.service.log.admin.LoggerAdmin")
+        .getMethod("getLoggerContext", String.class);
+    final Method get_levels =
+      provider.loadClass("org.osgi.service.log.admin.LoggerContext")
+        .getMethod("getLogLevels");
+
+    final Object admin = context.getService(reference);
+    try {
+      for (int attempt = 0; attempt < 50; ++attempt) {
+        final Map<?, ?> levels =
+          (Map<?, ?>) get_levels.invoke(get_context.invoke(admin, name));
+        if (Objects.equals(String.valueOf(levels.get("ROOT")), expected)) {
+          return;
+        }
+        Thread.sleep(100L);
+      }
+    } finally {
+      context.ungetService(reference);
+    }
+    Assertions.fail("Logger context " + name + " did not reach level " + expected);
+  }
+
+  private static List<RecordedEvent> eventsNamed(
+    final List<RecordedEvent> events,
+    final String name)
+  {
+    return events.stream()
+      .filter(event -> Objects.equals(event.getEventType().getName(), name))
+      .collect(Collectors.toList());
+  }
+
+  private static List<RecordedEvent> awaitEvent(
+    final Recording recording,
+    final String name)
+    throws IOException, InterruptedException
+  {
+    final Path file = Files.createTempFile("saturn-recording-", ".jfr");
+    try {
+      for (int attempt = 0; attempt < 50; ++attempt) {
+        recording.dump(file);
+        final List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+        if (!eventsNamed(events, name).isEmpty()) {
+          return events;
+        }
+        Thread.sleep(100L);
+      }
+    } finally {
+      Files.deleteIfExists(file);
+    }
+    return Assertions.fail("No " + name + " event was recorded");
+  }
+
+  @Test
+  public void testWarmBootReusesBundles()
+  {
+    Assertions.assertTimeout(Duration.ofSeconds(30L), () -> {
+      final SaturnContainerBuilderType builder = SaturnContainerBuilderFelix.createBuilder();
+      final SaturnContainerLauncherType launcher = SaturnContainerLauncherFelix.createLauncher();
+
+      final Path path =
+        Files.createTempDirectory("saturn-container-felix-");
+
+      final SaturnContainerDescription description =
+        SaturnContainerDescription.builder()
+          .setPath(path)
+          .setRemoteShellAddress(InetSocketAddress.createUnresolved("127.0.0.1", 6003))
+          .setWarmBoot(true)
+          .build();
+
+      builder.createContainer(description);
+
+      final Map<String, Long> ids_first = new HashMap<>();
+      {
+        final Framework framework = launcher.launch(description);
+        for (final Bundle bundle : framework.getBundleContext().getBundles()) {
+          ids_first.put(bundle.getLocation(), Long.valueOf(bundle.getBundleId()));
+        }
+        framework.stop();
+        framework.waitForStop(5_000L);
+      }
+
+      Assertions.assertTrue(
+        Files.isRegularFile(path.resolve("cache").resolve("saturn-bundles.properties")),
+        "Bundle cache index exists");
+
+      final Map<String, Long> ids_second = new HashMap<>();
+      {
+        final Framework framework =
+          launcher.launchAsync(description, Duration.ofSeconds(10L))
+            .toCompletableFuture()
+            .get()
+            .framework();
+
+        for (final Bundle bundle : framework.getBundleContext().getBundles()) {
+          ids_second.put(bundle.getLocation(), Long.valueOf(bundle.getBundleId()));
+          Assertions.assertEquals(Bundle.ACTIVE, bundle.getState());
+        }
+        framework.stop();
+        framework.waitForStop(5_000L);
+      }
+
+      Assertions.assertEquals(ids_first, ids_second);
+    });
+  }
+
+  @Test
+  public void testInstallFailuresReported()
+    throws Exception
+  {
+    final SaturnContainerBuilderType builder = SaturnContainerBuilderFelix.createBuilder();
+    final SaturnContainerLauncherType launcher = SaturnContainerLauncherFelix.createLauncher();
+
+    final Path path =
+      Files.createTempDirectory("saturn-container-felix-");
+
+    final SaturnContainerDescription description =
+      SaturnContainerDescription.builder()
+        .setPath(path)
+        .setRemoteShellAddress(InetSocketAddress.createUnresolved("127.0.0.1", 6001))
+        .addBundles(path.resolve("nonexistent-0.jar"))
+        .addBundles(path.resolve("nonexistent-1.jar"))
+        .addBundles(path.resolve("nonexistent-2.jar"))
+        .setBundleInstallThreads(4)
+        .build();
+
+    /*
+     * The builder would reject the nonexistent bundles, so build the container without them.
+     */
+
+    builder.createContainer(
+      SaturnContainerDescription.builder()
+        .from(description)
+        .setBundles(List.of())
+        .build());
+
+    final BundleException ex =
+      Assertions.assertThrows(BundleException.class, () -> launcher.launch(description));
+    Assertions.assertEquals(3, ex.getSuppressed().length);
+  }
 }
@@ -0,0 +1,111 @@
+/*
+ * Copyright © 2018 Mark Raynsford <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.saturn.tests;
+
+import com.io7m.saturn.container.api.SaturnContainerBuilderType;
+import com.io7m.saturn.container.api.SaturnContainerDescription;
+import com.io7m.saturn.container.api.SaturnContainerLauncherType;
+import com.io7m.saturn.container.builder.felix.SaturnContainerBuilderFelix;
+import com.io7m.saturn.container.launcher.felix.SaturnContainerLauncherFelix;
+import com.io7m.saturn.tests.synthetic.SaturnSyntheticBundleParameters;
+import com.io7m.saturn.tests.synthetic.SaturnSyntheticBundles;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.osgi.framework.Bundle;
+import org.osgi.framework.launch.Framework;
+
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+
+public final class SaturnSyntheticBundlesTest
+{
+  @Test
+  public void testDeterministic()
+    throws Exception
+  {
+    final Path path = Files.createTempDirectory("saturn-synthetic-");
+    final SaturnSyntheticBundleParameters parameters =
+      SaturnSyntheticBundleParameters.builder()
+        .setBundleCount(20)
+        .setPackagesPerBundle(3)
+        .setDependencyFanOut(4)
+        .setActivatorCost(Duration.ofMillis(1L))
+        .setComponentsPerBundle(2)
+        .setSeed(42L)
+        .build();
+
+    final List<Path> first = SaturnSyntheticBundles.generate(path.resolve("a"), parameters);
+    final List<Path> second = SaturnSyntheticBundles.generate(path.resolve("b"), parameters);
+
+    Assertions.assertEquals(20, first.size());
+    for (int index = 0; index < first.size(); ++index) {
+      Assertions.assertArrayEquals(
+        Files.readAllBytes(first.get(index)),
+        Files.readAllBytes(second.get(index)));
+    }
+  }
+
+  @Test
+  public void testLaunch()
+  {
+    Assertions.assertTimeout(Duration.ofSeconds(60L), () -> {
+      final SaturnContainerBuilderType builder = SaturnContainerBuilderFelix.createBuilder();
+      final SaturnContainerLauncherType launcher = SaturnContainerLauncherFelix.createLauncher();
+
+      final Path path = Files.createTempDirectory("saturn-synthetic-");
+      final List<Path> bundles =
+        SaturnSyntheticBundles.generate(
+          path.resolve("input"),
+          SaturnSyntheticBundleParameters.builder()
+            .setBundleCount(200)
+            .setPackagesPerBundle(2)
+            .setDependencyFanOut(3)
+            .setActivatorCost(Duration.ofNanos(100_000L))
+            .setComponentsPerBundle(1)
+            .build());
+
+      final SaturnContainerDescription description =
+        SaturnContainerDescription.builder()
+          .setPath(path.resolve("container"))
+          .setRemoteShellAddress(InetSocketAddress.createUnresolved("127.0.0.1", 6009))
+          .addAllBundles(bundles)
+          .setBundleStartThreads(4)
+          .build();
+
+      builder.createContainer(description);
+
+      final Framework framework =
+        launcher.launchAsync(description, Duration.ofSeconds(50L))
+          .toCompletableFuture()
+          .get()
+          .framework();
+
+      final Bundle[] installed = framework.getBundleContext().getBundles();
+      Assertions.assertTrue(installed.length > 200, "Bundles are present");
+      for (final Bundle bundle : installed) {
+        Assertions.assertEquals(Bundle.ACTIVE, bundle.getState());
+      }
+
+      framework.stop();
+      framework.waitForStop(5_000L);
+    });
+  }
+}